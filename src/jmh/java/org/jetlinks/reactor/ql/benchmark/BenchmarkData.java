@@ -0,0 +1,59 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 基准测试使用的数据
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+class BenchmarkData {
+
+    static final int SIZE = 10000;
+
+    /**
+     * 生成测试数据: {id:序号,key:序号%cardinality,name:"name-"+key,temp:浮点数}
+     *
+     * @param size        数量
+     * @param cardinality key的基数
+     * @return 数据
+     */
+    static List<Map<String, Object>> rows(int size, int cardinality) {
+        List<Map<String, Object>> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Map<String, Object> row = new HashMap<>();
+            int key = i % cardinality;
+            row.put("id", i);
+            row.put("key", key);
+            row.put("name", "name-" + key);
+            row.put("temp", (i % 1000) / 10.0);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * 在sql的select之后添加hint
+     *
+     * @param sql  sql
+     * @param hint hint,为空时不添加
+     * @return sql
+     */
+    static String withHint(String sql, String hint) {
+        if (hint == null || hint.isEmpty()) {
+            return sql;
+        }
+        return sql.replaceFirst("select ", "select /*+ " + hint + " */ ");
+    }
+
+    static long count(ReactorQL ql, List<Map<String, Object>> rows) {
+        Long count = ql.start(reactor.core.publisher.Flux.fromIterable(rows)).count().block();
+        return count == null ? 0 : count;
+    }
+}
@@ -0,0 +1,49 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * distinct以及order by的吞吐量,每次执行处理{@link BenchmarkData#SIZE}条数据
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistinctOrderBenchmark {
+
+    @Param({
+            "select distinct key from t",
+            "select distinct on(key) key,name from t",
+            "select id,temp from t order by temp desc",
+            "select id,temp from t order by temp desc,id limit 10"
+    })
+    public String sql;
+
+    @Param({"100", "10000"})
+    public int cardinality;
+
+    private ReactorQL ql;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setup() {
+        ql = ReactorQL.builder().sql(sql).build();
+        rows = BenchmarkData.rows(BenchmarkData.SIZE, cardinality);
+    }
+
+    @Benchmark
+    public long execute() {
+        return BenchmarkData.count(ql, rows);
+    }
+}
@@ -0,0 +1,56 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同分组基数下group by以及聚合的吞吐量,每次执行处理{@link BenchmarkData#SIZE}条数据
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupByBenchmark {
+
+    @Param({"1", "10", "1000", "10000"})
+    public int cardinality;
+
+    @Param({"", "parallel"})
+    public String hint;
+
+    private ReactorQL groupBy;
+
+    private ReactorQL aggregation;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setup() {
+        groupBy = ReactorQL.builder()
+                           .sql(BenchmarkData.withHint("select key,count(1) total,avg(temp) avg,max(temp) max from t group by key", hint))
+                           .build();
+        aggregation = ReactorQL.builder()
+                               .sql(BenchmarkData.withHint("select count(1) total,sum(temp) sum,avg(temp) avg from t", hint))
+                               .build();
+        rows = BenchmarkData.rows(BenchmarkData.SIZE, cardinality);
+    }
+
+    @Benchmark
+    public long groupBy() {
+        return BenchmarkData.count(groupBy, rows);
+    }
+
+    @Benchmark
+    public long aggregation() {
+        return BenchmarkData.count(aggregation, rows);
+    }
+}
@@ -0,0 +1,68 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.jetlinks.reactor.ql.supports.join.DefaultLookupFeature;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * join以及子查询的吞吐量
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JoinBenchmark {
+
+    @Param({
+            "select t.id,d.name from t left join d on t.key = d.key",
+            "select t.id,d.name from t right join d on t.key = d.key",
+            "select t.id,d.name from t left join (select key,name from d) d on t.key = d.key",
+            "select /*+ lookupBatch(100) */ t.id,info.name from t left join info on info.key = t.key",
+            "select id from (select id,temp from t where temp > 10) where id > 100",
+            "select id from t where key in (select key from d where key < 10)"
+    })
+    public String sql;
+
+    private ReactorQL ql;
+
+    private List<Map<String, Object>> rows;
+
+    private List<Map<String, Object>> dimension;
+
+    @Setup
+    public void setup() {
+        rows = BenchmarkData.rows(1000, 100);
+        dimension = BenchmarkData.rows(100, 100);
+        Map<Object, Map<String, Object>> info = new HashMap<>();
+        for (Map<String, Object> row : dimension) {
+            info.put(row.get("key"), row);
+        }
+        ql = ReactorQL.builder()
+                      .sql(sql)
+                      .feature(new DefaultLookupFeature("info", keys -> Flux
+                              .fromIterable(keys)
+                              .filter(info::containsKey)
+                              .map(info::get)))
+                      .build();
+    }
+
+    @Benchmark
+    public long join() {
+        Long count = ql
+                .start(table -> Flux.fromIterable("t".equals(table) ? rows : dimension))
+                .count()
+                .block();
+        return count == null ? 0 : count;
+    }
+}
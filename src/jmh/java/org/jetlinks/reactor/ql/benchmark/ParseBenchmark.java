@@ -0,0 +1,34 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析SQL并构造执行计划的耗时
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParseBenchmark {
+
+    @Param({
+            "select * from t",
+            "select id,name,temp * 1.8 + 32 f from t where temp > 10 and name like 'name-1%'",
+            "select key,count(1) total,avg(temp) avg from t group by key having total > 10 order by total desc",
+            "select t1.id,t2.name from t1 left join t2 on t1.id = t2.id where t1.id in (select id from t3)"
+    })
+    public String sql;
+
+    @Benchmark
+    public ReactorQL parseAndPlan() {
+        return ReactorQL.builder().sql(sql).build();
+    }
+}
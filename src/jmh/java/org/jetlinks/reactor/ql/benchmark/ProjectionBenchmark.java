@@ -0,0 +1,54 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * select中不同表达式的吞吐量,每次执行处理{@link BenchmarkData#SIZE}条数据
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectionBenchmark {
+
+    @Param({
+            "*",
+            "id",
+            "id,name,temp",
+            "temp * 1.8 + 32 f",
+            "case key when 1 then 'one' when 2 then 'two' else 'other' end k",
+            "cast(temp as string) s",
+            "name || '-' || id n"
+    })
+    public String columns;
+
+    @Param({"", "batch"})
+    public String hint;
+
+    private ReactorQL ql;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setup() {
+        ql = ReactorQL.builder()
+                      .sql(BenchmarkData.withHint("select " + columns + " from t", hint))
+                      .build();
+        rows = BenchmarkData.rows(BenchmarkData.SIZE, 100);
+    }
+
+    @Benchmark
+    public long projection() {
+        return BenchmarkData.count(ql, rows);
+    }
+}
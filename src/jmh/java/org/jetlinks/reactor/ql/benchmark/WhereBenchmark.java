@@ -0,0 +1,56 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同条件以及执行方式下where的吞吐量,每次执行处理{@link BenchmarkData#SIZE}条数据
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WhereBenchmark {
+
+    @Param({
+            "temp > 50",
+            "id = 500",
+            "id != 500",
+            "temp between 10 and 90",
+            "key in (1,2,3,4)",
+            "name like 'name-1%'",
+            "temp > 10 and temp < 90",
+            "temp < 10 or temp > 90",
+            "temp * 1.8 + 32 > 100"
+    })
+    public String condition;
+
+    @Param({"", "parallel", "batch", "vectorized"})
+    public String hint;
+
+    private ReactorQL ql;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setup() {
+        ql = ReactorQL.builder()
+                      .sql(BenchmarkData.withHint("select id from t where " + condition, hint))
+                      .build();
+        rows = BenchmarkData.rows(BenchmarkData.SIZE, 100);
+    }
+
+    @Benchmark
+    public long where() {
+        return BenchmarkData.count(ql, rows);
+    }
+}
@@ -0,0 +1,49 @@
+package org.jetlinks.reactor.ql.benchmark;
+
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各种窗口的吞吐量,每次执行处理{@link BenchmarkData#SIZE}条数据
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindowBenchmark {
+
+    @Param({
+            "_window(100)",
+            "_window(100,50)",
+            "_window('10ms')",
+            "_window('20ms','10ms')",
+            "interval('10ms')"
+    })
+    public String window;
+
+    private ReactorQL ql;
+
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setup() {
+        ql = ReactorQL.builder()
+                      .sql("select count(1) total,avg(temp) avg from t group by " + window)
+                      .build();
+        rows = BenchmarkData.rows(BenchmarkData.SIZE, 100);
+    }
+
+    @Benchmark
+    public long window() {
+        return BenchmarkData.count(ql, rows);
+    }
+}
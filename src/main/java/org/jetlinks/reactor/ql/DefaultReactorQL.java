@@ -2,19 +2,58 @@ package org.jetlinks.reactor.ql;
 
 import lombok.extern.slf4j.Slf4j;
 import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.select.*;
 import org.apache.commons.collections.CollectionUtils;
 import org.jetlinks.reactor.ql.feature.*;
 import org.jetlinks.reactor.ql.supports.DefaultReactorQLMetadata;
+import org.jetlinks.reactor.ql.supports.ExpressionOptimizer;
+import org.jetlinks.reactor.ql.supports.OverflowStrategy;
+import org.jetlinks.reactor.ql.supports.explain.ExplainMetricsFeature;
+import org.jetlinks.reactor.ql.supports.explain.ExplainNode;
+import org.jetlinks.reactor.ql.supports.explain.ExplainPlanner;
+import org.jetlinks.reactor.ql.supports.join.LookupCache;
+import org.jetlinks.reactor.ql.supports.metrics.MetricsOperator;
+import org.jetlinks.reactor.ql.supports.metrics.OperatorMetrics;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregator;
+import org.jetlinks.reactor.ql.supports.state.OffHeapHashTable;
+import org.jetlinks.reactor.ql.supports.state.StateCodec;
+import org.jetlinks.reactor.ql.supports.state.StateStore;
+import org.jetlinks.reactor.ql.supports.vector.ColumnBatch;
+import org.jetlinks.reactor.ql.supports.vector.ColumnVector;
+import org.jetlinks.reactor.ql.supports.vector.SelectionVector;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregator;
+import org.jetlinks.reactor.ql.supports.vector.VectorExpression;
+import org.jetlinks.reactor.ql.supports.vector.VectorPredicate;
+import org.jetlinks.reactor.ql.utils.CastUtils;
 import org.jetlinks.reactor.ql.utils.CompareUtils;
+import org.jetlinks.reactor.ql.utils.ExecutionCache;
+import org.jetlinks.reactor.ql.utils.FluxUtils;
+import org.jetlinks.reactor.ql.utils.SqlUtils;
 import org.reactivestreams.Publisher;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.context.Context;
 import reactor.util.function.Tuple2;
+import reactor.util.function.Tuple3;
+import reactor.util.function.Tuples;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.*;
 import java.util.function.Function;
@@ -39,13 +78,56 @@ public class DefaultReactorQL implements ReactorQL {
     private Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> offset;
     private Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> distinct;
     private Function<ReactorQLContext, Flux<ReactorQLRecord>> builder;
+    private Function<ReactorQLContext, Flux<ReactorQLRecord>> fromMapper;
+
+    //构造时选择的执行策略,用于生成执行计划
+    private final Map<String, Map<String, Object>> strategies = new ConcurrentHashMap<>();
+
+    //select中是否包含聚合函数
+    private boolean aggregation;
+
+    //where条件,批量执行时使用
+    private BiFunction<ReactorQLRecord, Object, Mono<Boolean>> whereFilter;
+
+    //select的列,批量执行时使用
+    private Map<String, Function<ReactorQLRecord, ? extends Publisher<?>>> columnMappers;
+
+    //select的列对应的表达式,批量执行时用于向量化计算
+    private Map<String, Expression> columnExpressions;
+
+    //尚未结束的窗口中的数据,启用了状态存储时使用
+    private StateStore windowState;
+
+    //是否使用了在多次执行间共享的状态存储,使用时同一个查询同时只能执行一次
+    private boolean sharedState;
+
+    //是否正在执行,使用了共享的状态存储时使用
+    private final AtomicBoolean executing = new AtomicBoolean();
+
+    //聚合函数的列,按列分组聚合时使用
+    private Map<String, Expression> aggColumns;
+
+    //根据聚合结果构造最终的结果
+    private BiFunction<ReactorQLRecord, Map<String, Object>, Mono<ReactorQLRecord>> aggResultBuilder;
 
 
     public DefaultReactorQL(ReactorQLMetadata metadata) {
         this.metadata = metadata;
+        optimize();
         prepare();
     }
 
+    /**
+     * @return 查询元数据
+     */
+    public ReactorQLMetadata getMetadata() {
+        return metadata;
+    }
+
+    protected void optimize() {
+        new ExpressionOptimizer(metadata).optimize(metadata.getSql());
+    }
+
 
     protected void prepare() {
         where = createWhere();
@@ -56,35 +138,554 @@ public class DefaultReactorQL implements ReactorQL {
         join = createJoin();
         orderBy = createOrderBy();
         distinct = createDistinct();
-        Function<ReactorQLContext, Flux<ReactorQLRecord>> fromMapper = FromFeature.createFromMapperByBody(metadata.getSql(), metadata);
+        fromMapper = FromFeature.createFromMapperByBody(metadata.getSql(), metadata);
+        builder = createPipeline(metadata.getFeatureNow(FeatureId.Metrics.defaultId));
+    }
+
+    /**
+     * 组合各个操作
+     *
+     * @param metrics 运行指标
+     * @return 查询
+     */
+    protected Function<ReactorQLContext, Flux<ReactorQLRecord>> createPipeline(MetricsFeature metrics) {
         PlainSelect select = metadata.getSql();
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> join = createMetrics(metrics, "join", !CollectionUtils.isEmpty(select.getJoins()), this.join);
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> where = createMetrics(metrics, "where", select.getWhere() != null, this.where);
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> columnMapper = createMetrics(metrics, "select", true, this.columnMapper);
+        //无状态的操作,可以并行执行
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> stateless;
+        //有状态的操作
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> stateful;
         if (null != select.getGroupBy()) {
-            builder = ctx ->
-                    limit.apply(
-                            offset.apply(
-                                    distinct.apply(
-                                            orderBy.apply(
-                                                    groupBy.apply(
-                                                            where.apply(
-                                                                    join.apply(fromMapper.apply(ctx))))
-                                            )
-                                    )
-                            )
-                    );
+            stateless = join.andThen(createBatch(false).map(batch -> createMetrics(metrics, "batch", true, batch)).orElse(where));
+            stateful = createMetrics(metrics, "groupBy", true, groupBy);
+        } else if (aggregation) {
+            stateless = join.andThen(createBatch(false).map(batch -> createMetrics(metrics, "batch", true, batch)).orElse(where));
+            stateful = columnMapper;
+        } else {
+            stateless = join.andThen(createBatch(true).map(batch -> createMetrics(metrics, "batch", true, batch)).orElseGet(() -> where.andThen(columnMapper)));
+            stateful = Function.identity();
+        }
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> parallel = createParallel(stateless);
+        Limit limit = select.getLimit();
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> pipeline = parallel
+                .andThen(stateful)
+                .andThen(createMetrics(metrics, "orderBy", !CollectionUtils.isEmpty(select.getOrderByElements()), orderBy))
+                .andThen(createMetrics(metrics, "distinct", select.getDistinct() != null, distinct))
+                .andThen(createMetrics(metrics, "offset", limit != null && limit.getOffset() != null, offset))
+                .andThen(createMetrics(metrics, "limit", limit != null && limit.getRowCount() != null, this.limit));
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> overflow = pipeline.andThen(createOverflow(metrics));
+        Function<ReactorQLContext, Flux<ReactorQLRecord>> fromMapper = this.fromMapper;
+        if (windowState != null) {
+            //恢复窗口中的数据时使用上下文创建数据
+            return ctx -> overflow
+                    .apply(fromMapper.apply(ctx))
+                    .subscriberContext(context -> context.put(ReactorQLContext.class, ctx));
+        }
+        return ctx -> overflow.apply(fromMapper.apply(ctx));
+    }
+
+    /**
+     * 下游处理不过来时的溢出策略,通过hint指定: <code>/*+ overflow(dropOldest),overflowBuffer(1024) *&#47;</code>.
+     * <p>
+     * 作用于查询的输出,下游处理缓慢时查询仍然以最快速度接收和处理数据,不会将背压传递给共享的数据源,
+     * 输出的数据进入有界缓冲区,缓冲区满时按策略丢弃数据或者报错,丢弃的数据量通过{@link MetricsFeature}中的overflow操作统计.
+     *
+     * @param metrics 运行指标
+     * @return 溢出处理操作, 未指定策略时不做处理
+     * @see OverflowStrategy
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createOverflow(MetricsFeature metrics) {
+        Optional<OverflowStrategy> strategy = metadata
+                .getSetting("overflow")
+                .map(String::valueOf)
+                .map(OverflowStrategy::of);
+        if (!strategy.isPresent()) {
+            return Function.identity();
+        }
+        int bufferSize = metadata
+                .getSetting("overflowBuffer")
+                .map(String::valueOf)
+                .map(Integer::parseInt)
+                .orElse(Queues.SMALL_BUFFER_SIZE);
+        if (bufferSize <= 0) {
+            throw new UnsupportedOperationException("溢出缓冲区大小必须大于0:" + bufferSize);
+        }
+        OverflowStrategy overflow = strategy.get();
+        int size = overflow == OverflowStrategy.latest ? 1 : bufferSize;
+        describe("overflow", "strategy", overflow.name());
+        describe("overflow", "buffer", size);
+        describe("overflow", "state", "bounded(" + size + ")");
+        if (!metrics.isEnabled()) {
+            return overflow.create(size, () -> {
+            });
+        }
+        OperatorMetrics operatorMetrics = metrics.getOperatorMetrics(metadata, "overflow");
+        return new MetricsOperator<>(operatorMetrics, overflow.create(size, operatorMetrics::recordDrop));
+    }
+
+    /**
+     * 记录执行策略,用于生成执行计划
+     *
+     * @param operator 操作名称
+     * @param key      属性
+     * @param value    值
+     * @see ExplainPlanner
+     */
+    protected void describe(String operator, String key, Object value) {
+        if (value == null) {
+            return;
+        }
+        strategies
+                .computeIfAbsent(operator, ignore -> Collections.synchronizedMap(new LinkedHashMap<>()))
+                .put(key, value);
+    }
+
+    /**
+     * 统计操作的运行指标,只有注册了启用的{@link MetricsFeature}时才进行统计,否则直接返回原操作.
+     *
+     * @param metrics  运行指标
+     * @param operator 操作名称
+     * @param present  查询中是否存在此操作
+     * @param stage    操作
+     * @return 统计指标的操作
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createMetrics(MetricsFeature metrics,
+                                                                                   String operator,
+                                                                                   boolean present,
+                                                                                   Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> stage) {
+        if (!present || !metrics.isEnabled()) {
+            return stage;
+        }
+        return new MetricsOperator<>(metrics.getOperatorMetrics(metadata, operator), stage);
+    }
+
+    /**
+     * 批量执行where和select,通过hint指定每批的最大数量: <code>/*+ batch(256) *&#47;</code>,
+     * 以及等待一批数据的最大时间: <code>/*+ batch(256),batchTimeout(10ms) *&#47;</code>.
+     * <p>
+     * 数据按批传递,支持向量化的条件和列(如数值列的比较和四则运算)将每一批数据转换为列式存储,在基本类型数组上循环执行.
+     * 其他表达式在一个循环中逐条执行,能直接得到结果的表达式不会订阅,只有需要异步执行的表达式(如子查询)才会作为单独的数据流执行,
+     * 结果的顺序与输入一致.
+     * <p>
+     * 使用<code>/*+ vectorized *&#47;</code>时,未指定batch也按批执行,并且聚合函数也按批累加.
+     *
+     * @param mapColumns 是否同时执行select
+     * @return 批量执行的操作, 未指定batch时返回{@link Optional#empty()}
+     */
+    protected Optional<Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>>> createBatch(boolean mapColumns) {
+        int size = getBatchSize();
+        if (size <= 0 || (!mapColumns && whereFilter == null)) {
+            return Optional.empty();
+        }
+        Duration timeout = metadata
+                .getSetting("batchTimeout")
+                .map(val -> CastUtils.parseDuration(String.valueOf(val).trim()))
+                .orElse(null);
+        SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+        Function<Flux<ReactorQLRecord>, Flux<List<ReactorQLRecord>>> buffer = timeout == null
+                ? flux -> flux.buffer(size)
+                : flux -> flux.bufferTimeout(size, timeout, scheduler.getScheduler());
+
+        //能向量化执行的条件和列在每一批数据上只计算一次,不支持时再逐条执行
+        VectorPredicate vectorPredicate = whereFilter != null
+                ? FilterFeature.createVectorPredicateByExpression(metadata.getSql().getWhere(), metadata).orElse(null)
+                : null;
+        Map<String, VectorExpression> vectorColumns = new LinkedHashMap<>();
+        if (mapColumns) {
+            columnExpressions.forEach((name, expression) -> VectorExpression
+                    .create(expression, metadata)
+                    .ifPresent(vector -> vectorColumns.put(name, vector)));
+        }
+        describe("batch", "size", size);
+        describe("batch", "timeout", timeout);
+        describe("batch", "columns", mapColumns);
+        describe("batch", "vectorized", vectorPredicate != null || !vectorColumns.isEmpty());
+        describe("batch", "state", "bounded(" + size + ")");
+
+        return Optional.of(flux -> buffer
+                .apply(flux)
+                .concatMap(batch -> Mono
+                        .subscriberContext()
+                        .flatMapMany(ctx -> executeBatch(batch, ctx, vectorPredicate, vectorColumns, mapColumns))));
+    }
+
+    private int getBatchSize() {
+        Optional<Object> setting = metadata.getSetting("batch");
+        if (!setting.isPresent()) {
+            return metadata.getSetting("vectorized").isPresent() ? Queues.SMALL_BUFFER_SIZE : 0;
+        }
+        int size = setting
+                .filter(val -> !Boolean.TRUE.equals(val))
+                .map(val -> Integer.parseInt(String.valueOf(val).trim()))
+                .orElse(Queues.SMALL_BUFFER_SIZE);
+        if (size <= 0) {
+            throw new UnsupportedOperationException("批量大小必须大于0:" + size);
+        }
+        return size;
+    }
+
+    private Flux<ReactorQLRecord> executeBatch(List<ReactorQLRecord> batch,
+                                              Context context,
+                                              VectorPredicate vectorPredicate,
+                                              Map<String, VectorExpression> vectorColumns,
+                                              boolean mapColumns) {
+        boolean filtered = false;
+        if (vectorPredicate != null) {
+            SelectionVector selection = vectorPredicate.filter(ColumnBatch.of(batch), SelectionVector.all(batch.size()));
+            //数据类型不支持向量化时,逐条判断
+            if (selection != null) {
+                batch = selection.select(batch);
+                filtered = true;
+            }
+        }
+        //同步执行完成的为ReactorQLRecord,需要异步执行的为Mono
+        List<Object> results = new ArrayList<>(batch.size());
+        List<ReactorQLRecord> matched = filtered ? batch : new ArrayList<>(batch.size());
+        boolean async = false;
+        if (!filtered) {
+            for (ReactorQLRecord record : batch) {
+                if (whereFilter == null) {
+                    matched.add(record);
+                    results.add(record);
+                    continue;
+                }
+                Object test = evaluateNow(whereFilter.apply(record, record.getRecord()), context);
+                if (test instanceof Mono) {
+                    async = true;
+                    results.add(((Mono<?>) test)
+                                        .filter(Boolean.TRUE::equals)
+                                        .flatMap(ignore -> Mono.defer(() -> asMono(mapColumns ? mapBatchRecord(record, context, Collections.emptySet()) : record))));
+                } else if (Boolean.TRUE.equals(test)) {
+                    matched.add(record);
+                    results.add(record);
+                }
+            }
         } else {
-            builder = ctx ->
-                    limit.apply(
-                            offset.apply(
-                                    distinct.apply(
-                                            orderBy.apply(
-                                                    columnMapper.apply(
-                                                            where.apply(
-                                                                    join.apply(fromMapper.apply(ctx)))
-                                                    )
-                                            )
-                                    )
-                            )
-                    );
+            results.addAll(batch);
+        }
+        if (!mapColumns) {
+            return async
+                    ? Flux.fromIterable(results).concatMap(this::asMono)
+                    : Flux.fromIterable(matched);
+        }
+        //向量化计算列,数据类型不支持时逐条计算
+        Set<String> computed = Collections.emptySet();
+        if (!vectorColumns.isEmpty() && !matched.isEmpty()) {
+            ColumnBatch columns = ColumnBatch.of(matched);
+            computed = new HashSet<>();
+            for (Map.Entry<String, VectorExpression> entry : vectorColumns.entrySet()) {
+                ColumnVector vector = entry.getValue().evaluate(columns);
+                if (vector == null) {
+                    continue;
+                }
+                computed.add(entry.getKey());
+                for (int i = 0; i < matched.size(); i++) {
+                    Object value = vector.getObject(i);
+                    if (value != null) {
+                        matched.get(i).setResult(entry.getKey(), value);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            Object result = results.get(i);
+            if (result instanceof ReactorQLRecord) {
+                result = mapBatchRecord((ReactorQLRecord) result, context, computed);
+                async |= result instanceof Mono;
+                results.set(i, result);
+            }
+        }
+        if (async) {
+            return Flux.fromIterable(results).concatMap(this::asMono);
+        }
+        return Flux.fromIterable(results).cast(ReactorQLRecord.class);
+    }
+
+    private Object mapBatchRecord(ReactorQLRecord record, Context context, Set<String> computed) {
+        if (columnMappers.isEmpty()) {
+            return record.putRecordToResult();
+        }
+        List<Mono<?>> pending = null;
+        for (Map.Entry<String, Function<ReactorQLRecord, ? extends Publisher<?>>> entry : columnMappers.entrySet()) {
+            String name = entry.getKey();
+            if (computed.contains(name)) {
+                continue;
+            }
+            Object value = evaluateNow(entry.getValue().apply(record), context);
+            if (value instanceof Mono) {
+                if (pending == null) {
+                    pending = new ArrayList<>();
+                }
+                pending.add(((Mono<?>) value).doOnNext(val -> record.setResult(name, val)));
+            } else if (value != null) {
+                record.setResult(name, value);
+            }
+        }
+        return pending == null ? record : Flux.merge(pending).then(Mono.just(record));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Mono<ReactorQLRecord> asMono(Object result) {
+        return result instanceof Mono ? (Mono<ReactorQLRecord>) result : Mono.just((ReactorQLRecord) result);
+    }
+
+    /**
+     * 同步执行表达式,可以直接获取结果的Publisher(如{@link Mono#just(Object)})不需要订阅,
+     * 其他的订阅后立即完成时使用结果,否则返回Mono异步获取结果.
+     *
+     * @return 结果, 没有结果时返回<code>null</code>, 需要异步执行时返回Mono
+     */
+    private static Object evaluateNow(Publisher<?> publisher, Context context) {
+        if (publisher instanceof Callable) {
+            try {
+                return ((Callable<?>) publisher).call();
+            } catch (Throwable e) {
+                throw Exceptions.propagate(e);
+            }
+        }
+        CompletableFuture<?> future = Mono.from(publisher).subscriberContext(context).toFuture();
+        if (!future.isDone()) {
+            return Mono.fromFuture(future);
+        }
+        try {
+            return future.getNow(null);
+        } catch (CompletionException e) {
+            throw Exceptions.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * 并行执行无状态的操作(join,where,select),通过hint指定并行度: <code>/*+ parallel(8) *&#47;</code>,
+     * 未指定并行度时使用CPU核心数.每个通道只创建一次操作,通道内的数据依次经过同一个操作.
+     * <p>
+     * 默认不保证输出的顺序,需要保持输入顺序时,使用: <code>/*+ parallel(8),ordered *&#47;</code>.
+     * 没有分组的聚合中包含非聚合列时(如: <code>select deviceId,count(1) from t</code>),总是保持输入顺序.
+     * 有序执行时数据按批分配到各个通道,每一批数据经过同一个操作,再按批次的顺序合并结果,
+     * 可通过<code>parallelBatch(256),parallelDelay(10ms)</code>指定每批的最大数量和等待一批数据的最大时间.
+     * <p>
+     * 可通过<code>parallelScheduler(boundedElastic)</code>指定执行的调度器,默认为parallel.
+     *
+     * @param stage 无状态的操作
+     * @return 并行执行的操作
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createParallel(Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> stage) {
+        int parallelism = getParallelism();
+        if (parallelism <= 0) {
+            return stage;
+        }
+        Scheduler scheduler = getParallelScheduler();
+        //没有分组的聚合中包含非聚合列时,使用第一条数据构造结果,需要保持输入顺序
+        boolean ordered = metadata.getSetting("ordered").isPresent()
+                || (aggregation
+                && metadata.getSql().getGroupBy() == null
+                && columnMappers.keySet().stream().anyMatch(name -> !aggColumns.containsKey(name)));
+        describe("parallel", "parallelism", parallelism);
+        describe("parallel", "scheduler", metadata.getSetting("parallelScheduler").map(String::valueOf).orElse("parallel"));
+        describe("parallel", "ordered", ordered);
+
+        if (ordered) {
+            int batchSize = metadata.getSetting("parallelBatch").map(String::valueOf).map(Integer::parseInt).orElse(Queues.SMALL_BUFFER_SIZE);
+            Duration delay = metadata.getSetting("parallelDelay").map(String::valueOf).map(CastUtils::parseDuration).orElse(Duration.ofMillis(10));
+            if (batchSize <= 0) {
+                throw new UnsupportedOperationException("批量大小必须大于0:" + batchSize);
+            }
+            SchedulerFeature timer = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+            describe("parallel", "batch", batchSize);
+            describe("parallel", "delay", delay);
+            //flatMapSequential按批次的顺序输出,最多同时执行parallelism批,执行中的批次满时不再向上游请求数据
+            return flux -> FluxUtils
+                    .bufferTimeout(flux, batchSize, delay, timer.getScheduler())
+                    .flatMapSequential(batch -> stage
+                            .apply(Flux.fromIterable(batch))
+                            .subscribeOn(scheduler), parallelism);
+        }
+        return flux -> flux
+                .parallel(parallelism)
+                .runOn(scheduler)
+                .groups()
+                .flatMap(stage::apply, parallelism);
+    }
+
+    /**
+     * 按分组key将数据分区到多个通道并行分组,相同key的数据一定在同一个通道中,
+     * 每个通道独立完成分组和聚合,直接输出各自负责的分组结果.
+     *
+     * @param keyMappers 分组key,为null时表示不支持分区
+     * @param stage      分组操作
+     * @return 分区执行的分组操作
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createPartitioned(List<Function<ReactorQLRecord, ? extends Publisher<?>>> keyMappers,
+                                                                                       Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> stage) {
+        int parallelism = getParallelism();
+        if (parallelism <= 1 || keyMappers == null) {
+            return stage;
+        }
+        Scheduler scheduler = getParallelScheduler();
+        describe("groupBy", "strategy", "partitioned");
+        describe("groupBy", "parallelism", parallelism);
+
+        Function<ReactorQLRecord, Mono<Integer>> partitioner = record -> Flux
+                .fromIterable(keyMappers)
+                .concatMap(mapper -> Mono.from(mapper.apply(record)).map(Object::hashCode).defaultIfEmpty(0))
+                .reduce(1, (hash, keyHash) -> 31 * hash + keyHash)
+                .map(hash -> (hash & Integer.MAX_VALUE) % parallelism);
+
+        return flux -> flux
+                .flatMap(record -> partitioner.apply(record).zipWith(Mono.just(record)))
+                .groupBy(Tuple2::getT1, Tuple2::getT2)
+                .flatMap(lane -> stage.apply(lane.publishOn(scheduler)), parallelism);
+    }
+
+    /**
+     * 分区聚合,每个通道在数据到达时累加部分聚合结果,最后合并为最终结果.只有没有分组并且所有聚合函数都支持合并时才使用.
+     * 非聚合列使用输入中的第一条数据计算,与非并行执行一致.
+     *
+     * @param aggExpressions 聚合表达式
+     * @param resultBuilder  根据聚合结果构造最终的结果
+     * @return 分区执行的聚合操作, 不支持时返回<code>null</code>
+     * @see ValueAggMapFeature#isMergeable()
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createPartitionedAggregation(Map<String, Expression> aggExpressions,
+                                                                                                  BiFunction<ReactorQLRecord, Map<String, Object>, Mono<ReactorQLRecord>> resultBuilder) {
+        int parallelism = getParallelism();
+        if (parallelism <= 1 || metadata.getSql().getGroupBy() != null) {
+            return null;
+        }
+        Map<String, Function<Flux<ReactorQLRecord>, Flux<Object>>> partials = new LinkedHashMap<>();
+        Map<String, Function<Flux<Object>, Flux<Object>>> mergers = new LinkedHashMap<>();
+        for (Map.Entry<String, Expression> entry : aggExpressions.entrySet()) {
+            ValueAggMapFeature feature = getAggFeature(entry.getValue()).orElse(null);
+            if (feature == null || !feature.isMergeable()) {
+                return null;
+            }
+            partials.put(entry.getKey(), feature.createPartialMapper(entry.getValue(), metadata));
+            mergers.put(entry.getKey(), feature.createMerger(entry.getValue(), metadata));
+        }
+        Scheduler scheduler = getParallelScheduler();
+        describe("select", "strategy", "partitioned");
+        describe("select", "parallelism", parallelism);
+
+        return flux -> flux
+                .index()
+                .parallel(parallelism)
+                .runOn(scheduler)
+                .groups()
+                //每个通道在数据到达时累加部分结果,不缓存数据,同时记录通道中的第一条数据
+                .flatMap(lane -> lane
+                        .publish(shared -> Mono.zip(
+                                shared.next(),
+                                Flux.fromIterable(partials.entrySet())
+                                    .flatMap(e -> e.getValue()
+                                                   .apply(shared.map(Tuple2::getT2))
+                                                   .zipWith(Mono.just(e.getKey())))
+                                    .collectMap(Tuple2::getT2, Tuple2::getT1))))
+                .collectList()
+                //合并部分结果
+                .flatMap(lanes -> {
+                    //与非并行执行一致,使用输入中的第一条数据构造结果
+                    ReactorQLRecord first = lanes
+                            .stream()
+                            .min(Comparator.comparingLong(lane -> lane.getT1().getT1()))
+                            .map(lane -> lane.getT1().getT2())
+                            .orElseGet(this::newEmptyRecord);
+                    return Flux.fromIterable(mergers.entrySet())
+                            .flatMap(e -> e.getValue()
+                                    .apply(Flux.fromIterable(lanes).flatMap(lane -> Mono.justOrEmpty(lane.getT2().get(e.getKey()))))
+                                    .zipWith(Mono.just(e.getKey())))
+                            .collectMap(Tuple2::getT2, Tuple2::getT1)
+                            .flatMap(map -> resultBuilder.apply(first, map));
+                })
+                .flux();
+    }
+
+    /**
+     * 向量化聚合,按批累加聚合结果,不需要缓存全部数据.只有没有分组并且所有聚合函数都支持向量化时才使用.
+     *
+     * @param aggExpressions 聚合表达式
+     * @param resultBuilder  根据聚合结果构造最终的结果
+     * @return 向量化的聚合操作, 不支持时返回<code>null</code>
+     * @see ValueAggMapFeature#createVectorAggregator(Expression, ReactorQLMetadata)
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createVectorAggregation(Map<String, Expression> aggExpressions,
+                                                                                             BiFunction<ReactorQLRecord, Map<String, Object>, Mono<ReactorQLRecord>> resultBuilder) {
+        if (!metadata.getSetting("vectorized").isPresent() || metadata.getSql().getGroupBy() != null) {
+            return null;
+        }
+        Map<String, Supplier<VectorAggregator>> aggregators = new LinkedHashMap<>();
+        for (Map.Entry<String, Expression> entry : aggExpressions.entrySet()) {
+            Supplier<VectorAggregator> aggregator = getAggFeature(entry.getValue())
+                    .flatMap(feature -> feature.createVectorAggregator(entry.getValue(), metadata))
+                    .orElse(null);
+            if (aggregator == null) {
+                return null;
+            }
+            aggregators.put(entry.getKey(), aggregator);
+        }
+        int size = getBatchSize();
+        describe("select", "strategy", "vectorized");
+        describe("select", "batch", size);
+        describe("select", "state", "bounded(" + size + ")");
+
+        return flux -> Flux.defer(() -> {
+            Map<String, VectorAggregator> states = new LinkedHashMap<>();
+            aggregators.forEach((name, aggregator) -> states.put(name, aggregator.get()));
+            AtomicReference<ReactorQLRecord> first = new AtomicReference<>();
+            return flux
+                    .buffer(size)
+                    .doOnNext(batch -> {
+                        first.compareAndSet(null, batch.get(0));
+                        ColumnBatch columns = ColumnBatch.of(batch);
+                        for (VectorAggregator aggregator : states.values()) {
+                            aggregator.accumulate(columns);
+                        }
+                    })
+                    .then(Mono.defer(() -> {
+                        Map<String, Object> result = new HashMap<>();
+                        states.forEach((name, aggregator) -> {
+                            Object value = aggregator.getResult();
+                            if (value != null) {
+                                result.put(name, value);
+                            }
+                        });
+                        ReactorQLRecord record = first.get();
+                        return resultBuilder.apply(record == null ? newEmptyRecord() : record, result);
+                    }));
+        });
+    }
+
+    private int getParallelism() {
+        int parallelism = metadata
+                .getSetting("parallel")
+                .map(val -> Boolean.TRUE.equals(val)
+                        ? Schedulers.DEFAULT_POOL_SIZE
+                        : Integer.parseInt(String.valueOf(val).trim()))
+                .orElse(0);
+        if (parallelism < 0 || (parallelism == 0 && metadata.getSetting("parallel").isPresent())) {
+            throw new UnsupportedOperationException("并行度必须大于0:" + parallelism);
+        }
+        return parallelism;
+    }
+
+    private Scheduler getParallelScheduler() {
+        return getScheduler(metadata.getSetting("parallelScheduler").map(String::valueOf).orElse("parallel"));
+    }
+
+    private Scheduler getScheduler(String name) {
+        switch (SqlUtils.getCleanStr(name.trim())) {
+            case "parallel":
+                return Schedulers.parallel();
+            case "elastic":
+                return Schedulers.elastic();
+            case "boundedElastic":
+                return Schedulers.boundedElastic();
+            case "single":
+                return Schedulers.single();
+            case "immediate":
+                return Schedulers.immediate();
+            default:
+                throw new UnsupportedOperationException("不支持的调度器:" + name);
         }
     }
 
@@ -94,6 +695,11 @@ public class DefaultReactorQL implements ReactorQL {
         if ((distinct = metadata.getSql().getDistinct()) == null) {
             return Function.identity();
         }
+        //启用在重启后恢复的状态存储时,distinct使用的状态在多次执行间共享
+        sharedState |= metadata
+                .getFeature(FeatureId.State.defaultId)
+                .map(state -> state.isEnabled() && state.isPersistent())
+                .orElse(false);
         return metadata.getFeatureNow(FeatureId.Distinct.of(
                 metadata.getSetting("distinctBy").map(String::valueOf).orElse("default")
         )).createDistinctMapper(distinct, metadata);
@@ -130,6 +736,16 @@ public class DefaultReactorQL implements ReactorQL {
             } else if ((from instanceof Table)) {
                 String name = ((Table) from).getFullyQualifiedName();
                 String alias = from.getAlias() == null ? name : from.getAlias().getName();
+                //维表批量关联
+                Optional<LookupFeature> lookup = metadata.getFeature(FeatureId.Lookup.of(SqlUtils.getCleanStr(name)));
+                if (lookup.isPresent() && on != null && !joinInfo.isRight()) {
+                    Optional<Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>>> lookupJoin =
+                            createLookupJoin(lookup.get(), alias, on, joinInfo.isLeft(), filter);
+                    if (lookupJoin.isPresent()) {
+                        mapper = mapper.andThen(lookupJoin.get());
+                        continue;
+                    }
+                }
                 rightStreamGetter = left -> left.getDataSource(name)
                         .map(right -> newRecord(alias, right, left.getContext())
                                 .addRecords(left.getRecords(false)));
@@ -162,13 +778,160 @@ public class DefaultReactorQL implements ReactorQL {
         return mapper;
     }
 
+    /**
+     * 创建维表批量关联,将左表数据按批次收集关联键,批量查询维表并缓存结果.
+     * 关联条件中没有右表字段与左表表达式的等值条件时返回{@link Optional#empty()}.
+     */
+    protected Optional<Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>>> createLookupJoin(LookupFeature lookup,
+                                                                                             String alias,
+                                                                                             Expression on,
+                                                                                             boolean leftJoin,
+                                                                                             BiFunction<ReactorQLRecord, Object, Mono<Boolean>> filter) {
+        Expression[] keys = getLookupKeys(on, alias);
+        if (keys == null) {
+            return Optional.empty();
+        }
+        Function<ReactorQLRecord, ? extends Publisher<?>> rightKeyMapper = ValueMapFeature.createMapperNow(keys[0], metadata);
+        Function<ReactorQLRecord, ? extends Publisher<?>> leftKeyMapper = ValueMapFeature.createMapperNow(keys[1], metadata);
+
+        int batchSize = metadata.getSetting("lookupBatch").map(String::valueOf).map(Integer::parseInt).orElse(100);
+        Duration delay = metadata.getSetting("lookupDelay").map(String::valueOf).map(CastUtils::parseDuration).orElse(Duration.ofMillis(10));
+        int cacheSize = metadata.getSetting("lookupCache").map(String::valueOf).map(Integer::parseInt).orElse(10000);
+        Duration ttl = metadata.getSetting("lookupTtl").map(String::valueOf).map(CastUtils::parseDuration).orElse(Duration.ofMinutes(1));
+
+        SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+        StateFeature state = metadata.getFeatureNow(FeatureId.State.defaultId);
+        String operator = "join:" + alias;
+        LookupCache cache = state.isEnabled() && state.isPersistent()
+                ? new LookupCache(cacheSize, ttl, scheduler::now, state.getStateStore(metadata, operator))
+                : new LookupCache(cacheSize, ttl, scheduler::now);
+        describe(operator, "strategy", "lookup");
+        describe(operator, "batch", batchSize);
+        describe(operator, "delay", delay);
+        describe(operator, "cache", cacheSize);
+        describe(operator, "ttl", ttl);
+        describe(operator, "state", "bounded(" + cacheSize + ")");
+        Object nullKey = new Object();
+
+        //键为统一类型后的关联键,用于匹配缓存和维表数据,查询维表时使用原始的关联键
+        Function<List<Tuple3<Object, Object, ReactorQLRecord>>, Mono<Map<Object, List<Object>>>> rowsGetter = batch -> {
+            Map<Object, List<Object>> rows = new HashMap<>();
+            Map<Object, Object> missing = new HashMap<>();
+            for (Tuple3<Object, Object, ReactorQLRecord> tp3 : batch) {
+                Object key = tp3.getT1();
+                if (key == nullKey || rows.containsKey(key) || missing.containsKey(key)) {
+                    continue;
+                }
+                List<Object> cached = cache.get(key);
+                if (cached != null) {
+                    rows.put(key, cached);
+                } else {
+                    missing.put(key, tp3.getT2());
+                }
+            }
+            if (missing.isEmpty()) {
+                return Mono.just(rows);
+            }
+            ReactorQLContext context = batch.get(0).getT3().getContext();
+            return lookup
+                    .lookup(new ArrayList<>(missing.values()))
+                    .flatMap(row -> Mono
+                            .from(rightKeyMapper.apply(newRecord(alias, row, context)))
+                            .map(key -> Tuples.of(LookupCache.normalizeKey(key), row)))
+                    .collectMultimap(Tuple2::getT1, Tuple2::getT2)
+                    .map(found -> {
+                        for (Object key : missing.keySet()) {
+                            Collection<Object> matched = found.get(key);
+                            List<Object> list = matched == null ? Collections.emptyList() : new ArrayList<>(matched);
+                            cache.put(key, list);
+                            rows.put(key, list);
+                        }
+                        return rows;
+                    });
+        };
+
+        return Optional.of(flux -> FluxUtils
+                .bufferTimeout(flux, batchSize, delay, scheduler.getScheduler())
+                .concatMap(batch -> Flux
+                        .fromIterable(batch)
+                        .flatMapSequential(left -> Mono
+                                .from(leftKeyMapper.apply(left))
+                                .<Tuple3<Object, Object, ReactorQLRecord>>map(key -> Tuples.of(LookupCache.normalizeKey(key), key, left))
+                                .defaultIfEmpty(Tuples.of(nullKey, nullKey, left)))
+                        .collectList()
+                        .flatMapMany(keyed -> rowsGetter
+                                .apply(keyed)
+                                .flatMapMany(rows -> Flux
+                                        .fromIterable(keyed)
+                                        .concatMap(tp3 -> {
+                                            ReactorQLRecord left = tp3.getT3();
+                                            Flux<ReactorQLRecord> right = Flux
+                                                    .fromIterable(rows.getOrDefault(tp3.getT1(), Collections.emptyList()))
+                                                    .map(row -> newRecord(alias, row, left.getContext())
+                                                            .addRecords(left.getRecords(false)))
+                                                    .filterWhen(v -> filter.apply(v, v.getRecord()));
+                                            return leftJoin ? right.defaultIfEmpty(left) : right;
+                                        }))))
+                .doFinally(s -> log.debug("lookup join [{}] {}", alias, cache)));
+    }
+
+    /**
+     * 从关联条件中获取右表字段和左表表达式,如: d.id = t.deviceId
+     *
+     * @return [右表关联字段, 左表关联表达式], 不存在时返回<code>null</code>
+     */
+    private Expression[] getLookupKeys(Expression on, String alias) {
+        if (on instanceof Parenthesis) {
+            return getLookupKeys(((Parenthesis) on).getExpression(), alias);
+        }
+        if (on instanceof AndExpression) {
+            Expression[] keys = getLookupKeys(((AndExpression) on).getLeftExpression(), alias);
+            return keys != null ? keys : getLookupKeys(((AndExpression) on).getRightExpression(), alias);
+        }
+        if (on instanceof EqualsTo) {
+            Expression left = ((EqualsTo) on).getLeftExpression();
+            Expression right = ((EqualsTo) on).getRightExpression();
+            if (isColumnOf(left, alias) && !isColumnOf(right, alias)) {
+                return new Expression[]{left, right};
+            }
+            if (isColumnOf(right, alias) && !isColumnOf(left, alias)) {
+                return new Expression[]{right, left};
+            }
+        }
+        return null;
+    }
+
+    private boolean isColumnOf(Expression expression, String alias) {
+        if (!(expression instanceof Column)) {
+            return false;
+        }
+        Table table = ((Column) expression).getTable();
+        return table != null && alias.equals(SqlUtils.getCleanStr(table.getName()));
+    }
+
     protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createGroupBy() {
         PlainSelect select = metadata.getSql();
         GroupByElement groupBy = select.getGroupBy();
         if (null != groupBy) {
+            Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> hashAggregation = createHashAggregation(groupBy);
+            if (hashAggregation != null) {
+                return hashAggregation;
+            }
             AtomicReference<Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>>> groupByRef = new AtomicReference<>();
+            //分组key,用于分区并行分组
+            AtomicReference<List<Function<ReactorQLRecord, ? extends Publisher<?>>>> keyMappersRef = new AtomicReference<>(new ArrayList<>());
+            List<Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>>> mappers = new ArrayList<>();
             BiConsumer<Expression, GroupFeature> featureConsumer = (expr, feature) -> {
                 Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> mapper = feature.createGroupMapper(expr, metadata);
+                mappers.add(mapper);
+                if (keyMappersRef.get() != null) {
+                    Optional<Function<ReactorQLRecord, ? extends Publisher<?>>> keyMapper = feature.createKeyMapper(expr, metadata);
+                    if (keyMapper.isPresent()) {
+                        keyMappersRef.get().add(keyMapper.get());
+                    } else {
+                        keyMappersRef.set(null);
+                    }
+                }
                 if (groupByRef.get() != null) {
                     groupByRef.set(groupByRef.get().andThen(flux -> flux.flatMap(mapper)));
                 } else {
@@ -194,28 +957,341 @@ public class DefaultReactorQL implements ReactorQL {
             Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> groupMapper = groupByRef.get();
             if (groupMapper != null) {
                 Expression having = select.getHaving();
+                Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> aggregate;
                 if (null != having) {
                     BiFunction<ReactorQLRecord, Object, Mono<Boolean>> filter = FilterFeature.createPredicateNow(having, metadata);
-                    return flux -> groupMapper
-                            .apply(flux)
-                            .flatMap(group -> columnMapper
-                                    .apply(group)
-                                    .filterWhen(ctx -> filter.apply(ctx, ctx.getRecord())));
+                    aggregate = group -> columnMapper
+                            .apply(group)
+                            .filterWhen(ctx -> filter.apply(ctx, ctx.getRecord()));
+                } else {
+                    aggregate = group -> columnMapper.apply(group);
+                }
+                if (isWindowStateSupported(groupBy)) {
+                    return createWindowState(mappers.subList(1, mappers.size()), aggregate);
                 }
-                return flux -> groupMapper.apply(flux)
-                        .flatMap(group -> columnMapper.apply(group));
+                return createPartitioned(keyMappersRef.get(), flux -> groupMapper.apply(flux).flatMap(aggregate));
             }
         }
         return Function.identity();
 
     }
 
+    /**
+     * 使用{@link StateFeature#createHashTable(ReactorQLMetadata, String)}提供的哈希表分组聚合,
+     * 每个分组的键以及聚合的中间结果保存在哈希表中,每个分组的第一条数据保存在堆内存中,数据源结束后按分组出现的顺序输出结果.
+     * 无法使用{@link StateCodec#encodeKey(Object)}编码的键(如LocalDateTime)在堆内存中分组.
+     * 只支持从单个表中查询,只按列分组,并且全部聚合函数都支持{@link ValueAggMapFeature#createFixedWidthAggregator(Expression, ReactorQLMetadata)}.
+     *
+     * @param groupBy 分组
+     * @return 分组聚合操作, 不支持时返回<code>null</code>
+     */
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createHashAggregation(GroupByElement groupBy) {
+        PlainSelect select = metadata.getSql();
+        if (!aggregation || !(select.getFromItem() instanceof Table) || !CollectionUtils.isEmpty(select.getJoins())) {
+            return null;
+        }
+        StateFeature state = metadata.getFeatureNow(FeatureId.State.defaultId);
+        if (!state.isEnabled()) {
+            return null;
+        }
+        List<Function<ReactorQLRecord, ? extends Publisher<?>>> keyMappers = new ArrayList<>();
+        for (Expression expression : groupBy.getGroupByExpressions()) {
+            if (!(expression instanceof Column)) {
+                return null;
+            }
+            keyMappers.add(ValueMapFeature.createMapperNow(expression, metadata));
+        }
+        List<String> names = new ArrayList<>();
+        List<FixedWidthAggregator> aggregators = new ArrayList<>();
+        for (Map.Entry<String, Expression> entry : aggColumns.entrySet()) {
+            FixedWidthAggregator aggregator = getAggFeature(entry.getValue())
+                    .flatMap(feature -> feature.createFixedWidthAggregator(entry.getValue(), metadata))
+                    .orElse(null);
+            if (aggregator == null) {
+                return null;
+            }
+            names.add(entry.getKey());
+            aggregators.add(aggregator);
+        }
+        Supplier<OffHeapHashTable> tableSupplier = state.createHashTable(metadata, "groupBy").orElse(null);
+        if (tableSupplier == null) {
+            return null;
+        }
+        describe("groupBy", "strategy", "hash");
+        describe("groupBy", "state", "offHeap");
+
+        int[] offsets = new int[aggregators.size()];
+        int width = 0;
+        for (int i = 0; i < aggregators.size(); i++) {
+            offsets[i] = width;
+            width += aggregators.get(i).getWidth();
+        }
+        int accumulatorsWidth = width;
+        Object none = new Object();
+        BiFunction<ReactorQLRecord, Object, Mono<Boolean>> having = select.getHaving() == null
+                ? null
+                : FilterFeature.createPredicateNow(select.getHaving(), metadata);
+
+        Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> stage = flux -> Flux.defer(() -> {
+            OffHeapHashTable table = tableSupplier.get();
+            //每个分组的第一条数据,按分组出现的顺序保存
+            List<ReactorQLRecord> samples = new ArrayList<>();
+            //无法编码的键,值为分组在samples中的下标
+            Map<List<Object>, Integer> heapGroups = new HashMap<>();
+            //在堆内存中分组的聚合的中间结果
+            Map<Integer, ByteBuffer> heapAccumulators = new HashMap<>();
+            return flux
+                    .concatMap(record -> Flux
+                            .fromIterable(keyMappers)
+                            .<Object>concatMap(mapper -> Mono.from(mapper.apply(record)))
+                            .collectList()
+                            //与默认分组一致,分组值为空的数据不参与分组
+                            .filter(keys -> keys.size() == keyMappers.size())
+                            .flatMap(keys -> Flux
+                                    .fromIterable(aggregators)
+                                    .concatMap(aggregator -> aggregator.getValueMapper() == null
+                                            ? Mono.just(none)
+                                            : Mono.from(aggregator.getValueMapper().apply(record)).cast(Object.class).defaultIfEmpty(none))
+                                    .collectList()
+                                    .map(values -> Tuples.of(keys, values, record))))
+                    .doOnNext(tp3 -> {
+                        List<Object> keys = tp3.getT1();
+                        Integer index = heapGroups.isEmpty() ? null : heapGroups.get(keys);
+                        byte[] key = index == null ? encodeKey(keys) : null;
+                        ByteBuffer buffer;
+                        int valueOffset;
+                        if (key != null) {
+                            int entry = table.find(key);
+                            if (entry < 0) {
+                                entry = table.allocate(key, accumulatorsWidth);
+                                samples.add(tp3.getT3());
+                            }
+                            buffer = table.getBuffer();
+                            valueOffset = table.getValueOffset(entry);
+                        } else {
+                            if (index == null) {
+                                index = samples.size();
+                                heapGroups.put(keys, index);
+                                heapAccumulators.put(index, ByteBuffer.allocate(accumulatorsWidth));
+                                samples.add(tp3.getT3());
+                            }
+                            buffer = heapAccumulators.get(index);
+                            valueOffset = 0;
+                        }
+                        List<Object> values = tp3.getT2();
+                        for (int i = 0; i < offsets.length; i++) {
+                            Object value = values.get(i);
+                            aggregators.get(i).accumulate(buffer, valueOffset + offsets[i], value == none ? null : value);
+                        }
+                    })
+                    .thenMany(Flux.defer(() -> Flux
+                            //[分组下标,哈希表中的数据偏移量]
+                            .<Tuple2<ReactorQLRecord, Map<String, Object>>, int[]>generate(() -> new int[]{0, -1}, (cursor, sink) -> {
+                                int index = cursor[0]++;
+                                if (index >= samples.size()) {
+                                    sink.complete();
+                                    return cursor;
+                                }
+                                ByteBuffer buffer = heapAccumulators.get(index);
+                                int valueOffset = 0;
+                                if (buffer == null) {
+                                    //哈希表按写入顺序遍历,与分组出现的顺序一致
+                                    cursor[1] = table.nextEntry(cursor[1]);
+                                    buffer = table.getBuffer();
+                                    valueOffset = table.getValueOffset(cursor[1]);
+                                }
+                                Map<String, Object> result = new HashMap<>();
+                                for (int i = 0; i < offsets.length; i++) {
+                                    Object value = aggregators.get(i).getResult(buffer, valueOffset + offsets[i]);
+                                    if (value != null) {
+                                        result.put(names.get(i), value);
+                                    }
+                                }
+                                sink.next(Tuples.of(samples.get(index), result));
+                                return cursor;
+                            })
+                            .concatMap(tp2 -> aggResultBuilder.apply(tp2.getT1(), tp2.getT2()))))
+                    .filterWhen(ctx -> having == null ? alwaysTrue : having.apply(ctx, ctx.getRecord()))
+                    .doFinally(s -> table.dispose());
+        });
+        return createPartitioned(keyMappers, stage);
+    }
+
+    /**
+     * @return 编码后的分组的键, 无法编码时返回<code>null</code>
+     */
+    private static byte[] encodeKey(List<Object> keys) {
+        try {
+            return StateCodec.encodeKey(keys);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 是否保存窗口状态: 启用了会在重启后恢复的{@link StateFeature},从单个表中查询,并且第一个分组表达式为不重叠的窗口,
+     * 如: interval('1h'),_window('10s'),_window(100),其他分组表达式在每个窗口中分组.重叠的窗口以及其他分组方式不保存状态.
+     */
+    private boolean isWindowStateSupported(GroupByElement groupBy) {
+        PlainSelect select = metadata.getSql();
+        if (!(select.getFromItem() instanceof Table) || !CollectionUtils.isEmpty(select.getJoins())) {
+            return false;
+        }
+        StateFeature state = metadata.getFeatureNow(FeatureId.State.defaultId);
+        if (!state.isEnabled() || !state.isPersistent()) {
+            return false;
+        }
+        return getWindow(groupBy) != null;
+    }
+
+    /**
+     * @return 第一个分组表达式为只有一个参数的窗口函数时返回窗口函数, 否则返回<code>null</code>
+     */
+    private net.sf.jsqlparser.expression.Function getWindow(GroupByElement groupBy) {
+        Expression expression = groupBy.getGroupByExpressions().get(0);
+        if (!(expression instanceof net.sf.jsqlparser.expression.Function)) {
+            return null;
+        }
+        net.sf.jsqlparser.expression.Function function = ((net.sf.jsqlparser.expression.Function) expression);
+        String name = function.getName().toLowerCase();
+        if (!"interval".equals(name) && !"_window".equals(name)) {
+            return null;
+        }
+        if (function.getParameters() == null || function.getParameters().getExpressions().size() != 1) {
+            return null;
+        }
+        Expression parameter = function.getParameters().getExpressions().get(0);
+        return parameter instanceof LongValue || parameter instanceof StringValue ? function : null;
+    }
+
+    /**
+     * 按窗口分组并保存尚未结束的窗口中的数据,数据与所在窗口的开始时间一起保存,窗口结束并输出结果后删除窗口中的数据.
+     * 聚合函数的中间结果无法获取,因此保存的是原始数据,重启后:
+     * <ul>
+     *     <li>按时间划分的窗口: 已经结束的窗口直接输出结果.尚未结束的窗口中的数据重新进入窗口,窗口在重启前的结束时间结束,之后的窗口与重启前对齐</li>
+     *     <li>按数量划分的窗口: 数据重新进入第一个窗口</li>
+     * </ul>
+     *
+     * @param groupMappers 在每个窗口中执行的其他分组
+     * @param aggregate    聚合操作
+     */
+    private Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createWindowState(List<Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>>> groupMappers,
+                                                                                    Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> aggregate) {
+        net.sf.jsqlparser.expression.Function window = getWindow(metadata.getSql().getGroupBy());
+        Expression parameter = window.getParameters().getExpressions().get(0);
+        //按数量划分的窗口为null
+        Duration duration;
+        if (parameter instanceof StringValue) {
+            duration = CastUtils.parseDuration(((StringValue) parameter).getValue());
+        } else if ("interval".equalsIgnoreCase(window.getName())) {
+            duration = Duration.ofMillis(((LongValue) parameter).getValue());
+        } else {
+            duration = null;
+        }
+        int count = duration == null ? (int) ((LongValue) parameter).getValue() : 0;
+
+        Table table = ((Table) metadata.getSql().getFromItem());
+        String alias = table.getAlias() != null ? table.getAlias().getName() : table.getName();
+        StateStore store = metadata
+                .getFeatureNow(FeatureId.State.defaultId)
+                .getStateStore(metadata, "groupBy");
+        SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+        windowState = store;
+        sharedState = true;
+        describe("groupBy", "state", "checkpoint");
+
+        Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> mapper = Flux::just;
+        for (Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> groupMapper : groupMappers) {
+            mapper = mapper.andThen(flux -> flux.flatMap(groupMapper));
+        }
+        Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> innerMapper = mapper;
+
+        return flux -> Flux.deferWithContext(context -> {
+            ReactorQLContext ctx = context.getOrDefault(ReactorQLContext.class, null);
+            //窗口开始时间 -> 数据ID -> 数据
+            TreeMap<Long, TreeMap<Long, Object>> restored = new TreeMap<>();
+            AtomicLong sequence = new AtomicLong();
+            store.forEach((key, value) -> {
+                long id = CastUtils.castNumber(key).longValue();
+                List<?> entry = ((List<?>) value);
+                restored.computeIfAbsent(duration == null ? 0L : CastUtils.castNumber(entry.get(0)).longValue(), ignore -> new TreeMap<>())
+                        .put(id, entry.get(1));
+                sequence.accumulateAndGet(id, Math::max);
+            });
+            if (!restored.isEmpty()) {
+                log.debug("restore {} windows of groupBy state", restored.size());
+            }
+            //重新进入窗口的数据已经保存过,不再重复保存
+            Map<ReactorQLRecord, Long> restoredIds = Collections.synchronizedMap(new IdentityHashMap<>());
+            Function<Map<Long, Object>, List<ReactorQLRecord>> toRecords = data -> {
+                List<ReactorQLRecord> records = new ArrayList<>(data.size());
+                data.forEach((id, value) -> {
+                    ReactorQLRecord record = newRecord(alias, value, ctx);
+                    restoredIds.put(record, id);
+                    records.add(record);
+                });
+                return records;
+            };
+            BiFunction<Flux<ReactorQLRecord>, Long, Flux<ReactorQLRecord>> windowMapper = (group, start) -> {
+                List<Long> ids = Collections.synchronizedList(new ArrayList<>());
+                return innerMapper
+                        .apply(group.doOnNext(record -> {
+                            Long id = restoredIds.remove(record);
+                            if (id == null) {
+                                id = sequence.incrementAndGet();
+                                store.put(id, Arrays.asList(start, record.getRecord()));
+                            }
+                            ids.add(id);
+                        }))
+                        .flatMap(aggregate)
+                        .doOnComplete(() -> {
+                            synchronized (ids) {
+                                ids.forEach(store::remove);
+                            }
+                        });
+            };
+            Flux<ReactorQLRecord> result;
+            if (duration == null) {
+                List<ReactorQLRecord> open = new ArrayList<>();
+                restored.values().forEach(data -> open.addAll(toRecords.apply(data)));
+                result = Flux
+                        .concat(Flux.fromIterable(open), flux)
+                        .window(count)
+                        .flatMap(group -> windowMapper.apply(group, 0L));
+            } else {
+                long millis = duration.toMillis();
+                long now = scheduler.now();
+                Map.Entry<Long, TreeMap<Long, Object>> last = restored.lastEntry();
+                long start = now;
+                List<ReactorQLRecord> open = Collections.emptyList();
+                if (last != null && last.getKey() + millis > now) {
+                    restored.remove(last.getKey());
+                    start = last.getKey();
+                    open = toRecords.apply(last.getValue());
+                }
+                long firstStart = start;
+                //重启前已经结束的窗口
+                Flux<ReactorQLRecord> closed = Flux
+                        .fromIterable(restored.entrySet())
+                        .concatMap(entry -> windowMapper.apply(Flux.fromIterable(toRecords.apply(entry.getValue())), entry.getKey()));
+                Duration delay = Duration.ofMillis(Math.max(0, Math.min(millis, firstStart + millis - now)));
+                result = Flux.concat(closed, Flux
+                        .concat(Flux.fromIterable(open), flux)
+                        .window(Flux.interval(delay, duration, scheduler.getScheduler()))
+                        .index()
+                        .flatMap(group -> windowMapper.apply(group.getT2(), firstStart + group.getT1() * millis)));
+            }
+            return result.doOnComplete(store::clear);
+        });
+    }
+
     protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createWhere() {
         Expression whereExpr = metadata.getSql().getWhere();
         if (whereExpr == null) {
             return Function.identity();
         }
         BiFunction<ReactorQLRecord, Object, Mono<Boolean>> filter = FilterFeature.createPredicateNow(whereExpr, metadata);
+        whereFilter = filter;
         return flux -> flux.filterWhen(ctx -> filter.apply(ctx, ctx.getRecord()));
     }
 
@@ -231,12 +1307,20 @@ public class DefaultReactorQL implements ReactorQL {
             Function<Flux<ReactorQLRecord>, Flux<Object>> mapper = feature.createMapper(expression, metadata);
             ref.set(mapper);
         };
+        getAggFeature(expression).ifPresent(featureConsumer);
+        return Optional.ofNullable(ref.get());
+
+    }
+
+    private Optional<ValueAggMapFeature> getAggFeature(Expression expression) {
         if (expression instanceof net.sf.jsqlparser.expression.Function) {
-            metadata.getFeature(FeatureId.ValueAggMap.of(((net.sf.jsqlparser.expression.Function) expression).getName()))
-                    .ifPresent(featureConsumer);
+            return metadata.getFeature(FeatureId.ValueAggMap.of(((net.sf.jsqlparser.expression.Function) expression).getName()));
         }
-        return Optional.ofNullable(ref.get());
+        return Optional.empty();
+    }
 
+    private ReactorQLRecord newEmptyRecord() {
+        return newRecord(null, new HashMap<>(), new DefaultReactorQLContext((r) -> Flux.just(1)));
     }
 
     private Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createMapper() {
@@ -245,6 +1329,10 @@ public class DefaultReactorQL implements ReactorQL {
 
         Map<String, Function<Flux<ReactorQLRecord>, Flux<Object>>> aggMapper = new LinkedHashMap<>();
 
+        Map<String, Expression> aggExpressions = new LinkedHashMap<>();
+
+        Map<String, Expression> expressions = new LinkedHashMap<>();
+
         for (SelectItem selectItem : metadata.getSql().getSelectItems()) {
             selectItem.accept(new SelectItemVisitorAdapter() {
                 @Override
@@ -258,8 +1346,14 @@ public class DefaultReactorQL implements ReactorQL {
                         alias = alias.substring(0, alias.length() - 1);
                     }
                     String fAlias = alias;
-                    createExpressionMapper(expression).ifPresent(mapper -> mappers.put(fAlias, mapper));
-                    createAggMapper(expression).ifPresent(mapper -> aggMapper.put(fAlias, mapper));
+                    createExpressionMapper(expression).ifPresent(mapper -> {
+                        mappers.put(fAlias, mapper);
+                        expressions.put(fAlias, expression);
+                    });
+                    createAggMapper(expression).ifPresent(mapper -> {
+                        aggMapper.put(fAlias, mapper);
+                        aggExpressions.put(fAlias, expression);
+                    });
 
                     if (!mappers.containsKey(alias) && !aggMapper.containsKey(alias)) {
                         throw new UnsupportedOperationException("不支持的操作:" + expression);
@@ -267,6 +1361,8 @@ public class DefaultReactorQL implements ReactorQL {
                 }
             });
         }
+        columnMappers = mappers;
+        columnExpressions = expressions;
         Function<ReactorQLRecord, Mono<ReactorQLRecord>> _resultMapper;
 
         if (mappers.isEmpty() && aggMapper.isEmpty()) {
@@ -283,13 +1379,31 @@ public class DefaultReactorQL implements ReactorQL {
         //转换结果集
         Function<ReactorQLRecord, Mono<ReactorQLRecord>> resultMapper = _resultMapper;
         //聚合结果
-        if (!aggMapper.isEmpty()) {
+        aggregation = !aggMapper.isEmpty();
+        describe("select", "aggregation", aggregation);
+        if (aggregation) {
+            BiFunction<ReactorQLRecord, Map<String, Object>, Mono<ReactorQLRecord>> resultBuilder = (first, map) -> {
+                ReactorQLRecord newCtx = first.resultToRecord(first.getName()).setResults(map);
+                if (!mappers.isEmpty()) {
+                    return resultMapper.apply(newCtx);
+                }
+                return Mono.just(newCtx);
+            };
+            aggColumns = aggExpressions;
+            aggResultBuilder = resultBuilder;
+            Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> partitioned = createPartitionedAggregation(aggExpressions, resultBuilder);
+            if (partitioned != null) {
+                return partitioned;
+            }
+            Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> vectorized = createVectorAggregation(aggExpressions, resultBuilder);
+            if (vectorized != null) {
+                return vectorized;
+            }
+            describe("select", "strategy", "collect");
             return flux -> flux
                     .collectList()
                     .flatMap(list -> {
-                        ReactorQLRecord first = list.isEmpty()
-                                ? newRecord(null, new HashMap<>(), new DefaultReactorQLContext((r) -> Flux.just(1)))
-                                : list.get(0);
+                        ReactorQLRecord first = list.isEmpty() ? newEmptyRecord() : list.get(0);
                         Flux<ReactorQLRecord> rows = Flux.fromIterable(list);
                         return Flux.fromIterable(aggMapper.entrySet())
                                 .flatMap(e -> {
@@ -298,13 +1412,7 @@ public class DefaultReactorQL implements ReactorQL {
                                             .zipWith(Mono.just(name));
                                 })
                                 .collectMap(Tuple2::getT2, Tuple2::getT1)
-                                .flatMap(map -> {
-                                    ReactorQLRecord newCtx = first.resultToRecord(first.getName()).setResults(map);
-                                    if (!mappers.isEmpty()) {
-                                        return resultMapper.apply(newCtx);
-                                    }
-                                    return Mono.just(newCtx);
-                                });
+                                .flatMap(map -> resultBuilder.apply(first, map));
 
                     }).flux();
         }
@@ -369,10 +1477,49 @@ public class DefaultReactorQL implements ReactorQL {
 
     }
 
+    @Override
+    public ExplainNode explain() {
+        return new ExplainPlanner(metadata, strategies).plan();
+    }
+
+    @Override
+    public Mono<ExplainNode> explainAnalyze(Function<String, Publisher<?>> streamSupplier) {
+        return Mono.defer(() -> {
+            ExplainMetricsFeature metrics = new ExplainMetricsFeature();
+            Function<ReactorQLContext, Flux<ReactorQLRecord>> pipeline = createPipeline(metrics);
+            return exclusive(() -> pipeline.apply(new DefaultReactorQLContext(t -> Flux.from(streamSupplier.apply(t)))))
+                    .subscriberContext(ExecutionCache::init)
+                    .then(Mono.fromSupplier(() -> metrics.analyze(explain())));
+        });
+    }
+
     @Override
     public Flux<ReactorQLRecord> start(ReactorQLContext context) {
-        return builder
-                .apply(context);
+        return exclusive(() -> builder.apply(context))
+                .subscriberContext(ExecutionCache::init);
+    }
+
+    /**
+     * 使用了在多次执行间共享的状态存储(distinct,窗口状态)时,同一个查询同时只能执行一次(包括{@link DefaultReactorQL#explainAnalyze(Function)}),
+     * 避免多次执行读写同一份状态,或者在结束时清空另外一次执行的状态.正在执行时再次执行将返回{@link IllegalStateException}.
+     */
+    private Flux<ReactorQLRecord> exclusive(Supplier<Flux<ReactorQLRecord>> execution) {
+        if (!sharedState) {
+            return Flux.defer(execution);
+        }
+        return Flux.defer(() -> {
+            if (!executing.compareAndSet(false, true)) {
+                return Flux.error(new IllegalStateException("查询使用了状态存储,不支持同时执行多次:" + metadata.getSql()));
+            }
+            Flux<ReactorQLRecord> flux;
+            try {
+                flux = execution.get();
+            } catch (Throwable e) {
+                executing.set(false);
+                throw e;
+            }
+            return flux.doFinally(signal -> executing.set(false));
+        });
     }
 
 
@@ -22,6 +22,9 @@ public class DefaultReactorQLRecord implements ReactorQLRecord, Comparable<Defau
 
     static String THIS_RECORD = "this";
 
+    //公共表达式的计算结果
+    private volatile Map<String, Object> computed;
+
     @Getter
     @Setter
     private String name;
@@ -80,12 +83,14 @@ public class DefaultReactorQLRecord implements ReactorQLRecord, Comparable<Defau
             return this;
         }
         records.put(name, record);
+        computed = null;
         return this;
     }
 
     @Override
     public ReactorQLRecord addRecords(Map<String, Object> records) {
         this.records.putAll(records);
+        computed = null;
         return this;
     }
 
@@ -104,9 +109,29 @@ public class DefaultReactorQLRecord implements ReactorQLRecord, Comparable<Defau
             return this;
         }
         records.remove(name);
+        computed = null;
         return this;
     }
 
+    @Override
+    public Optional<Object> getComputed(String key) {
+        Map<String, Object> computed = this.computed;
+        return computed == null ? Optional.empty() : Optional.ofNullable(computed.get(key));
+    }
+
+    @Override
+    public void setComputed(String key, Object value) {
+        Map<String, Object> computed = this.computed;
+        if (computed == null) {
+            synchronized (this) {
+                if ((computed = this.computed) == null) {
+                    this.computed = computed = new ConcurrentHashMap<>();
+                }
+            }
+        }
+        computed.put(key, value);
+    }
+
     @Override
     public ReactorQLRecord putRecordToResult() {
         Object record = getRecord();
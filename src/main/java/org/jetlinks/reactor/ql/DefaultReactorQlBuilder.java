@@ -3,9 +3,7 @@ package org.jetlinks.reactor.ql;
 import org.jetlinks.reactor.ql.feature.Feature;
 import org.jetlinks.reactor.ql.supports.DefaultReactorQLMetadata;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 
 class DefaultReactorQlBuilder implements ReactorQL.Builder {
 
@@ -13,6 +11,8 @@ class DefaultReactorQlBuilder implements ReactorQL.Builder {
 
     private List<Feature> features = new ArrayList<>();
 
+    private Map<String, Object> settings = new LinkedHashMap<>();
+
     @Override
     public ReactorQL.Builder sql(String... sql) {
         this.sql = String.join(" ", sql);
@@ -25,10 +25,17 @@ class DefaultReactorQlBuilder implements ReactorQL.Builder {
         return this;
     }
 
+    @Override
+    public ReactorQL.Builder setting(String key, Object value) {
+        this.settings.put(key, value);
+        return this;
+    }
+
     @Override
     public ReactorQL build() {
         DefaultReactorQLMetadata metadata = new DefaultReactorQLMetadata(sql);
         metadata.addFeature(features);
+        settings.forEach(metadata::setting);
         return new DefaultReactorQL(metadata);
     }
 }
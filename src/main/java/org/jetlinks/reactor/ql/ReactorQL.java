@@ -1,8 +1,14 @@
 package org.jetlinks.reactor.ql;
 
 import org.jetlinks.reactor.ql.feature.Feature;
+import org.jetlinks.reactor.ql.feature.SchedulerFeature;
+import org.jetlinks.reactor.ql.feature.SchemaFeature;
+import org.jetlinks.reactor.ql.supports.OverflowStrategy;
+import org.jetlinks.reactor.ql.supports.explain.ExplainNode;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.Map;
 import java.util.function.Function;
@@ -34,6 +40,30 @@ public interface ReactorQL {
         return start((r) -> flux);
     }
 
+    /**
+     * 获取执行计划,包含各个操作,使用的功能ID,表达式,执行策略以及状态估计,不会执行查询.
+     *
+     * @return 执行计划的根节点
+     * @see ExplainNode
+     */
+    default ExplainNode explain() {
+        throw new UnsupportedOperationException("不支持获取执行计划");
+    }
+
+    /**
+     * 执行查询并获取执行计划,查询结果将被丢弃.执行计划中包含每个操作实际的输入输出数据量,处理耗时以及最大缓冲的数据量.
+     *
+     * @param streamSupplier 数据源
+     * @return 执行计划的根节点
+     */
+    default Mono<ExplainNode> explainAnalyze(Function<String, Publisher<?>> streamSupplier) {
+        return Mono.error(new UnsupportedOperationException("不支持获取执行计划"));
+    }
+
+    default Mono<ExplainNode> explainAnalyze(Flux<?> flux) {
+        return explainAnalyze((r) -> flux);
+    }
+
     static Builder builder() {
         return new DefaultReactorQlBuilder();
     }
@@ -44,6 +74,50 @@ public interface ReactorQL {
 
         Builder feature(Feature... function);
 
+        /**
+         * 注册表结构,用于在构造时检查类型以及根据列类型优化比较
+         *
+         * @param schemas 表结构
+         * @return this
+         * @see org.jetlinks.reactor.ql.supports.schema.TableSchema
+         */
+        default Builder schema(SchemaFeature... schemas) {
+            return feature(schemas);
+        }
+
+        /**
+         * 设置配置,与SQL中的hint作用相同,会覆盖hint中的同名配置.如: <code>setting("batch", 256)</code>
+         *
+         * @param key   配置名称
+         * @param value 配置值
+         * @return this
+         */
+        Builder setting(String key, Object value);
+
+        /**
+         * 设置按时间分组的窗口,等待超时以及now()函数等与时间相关的操作使用的调度器
+         *
+         * @param scheduler 调度器
+         * @return this
+         * @see SchedulerFeature
+         */
+        default Builder scheduler(Scheduler scheduler) {
+            return feature(SchedulerFeature.of(scheduler));
+        }
+
+        /**
+         * 设置下游处理不过来时的溢出策略
+         *
+         * @param strategy   溢出策略
+         * @param bufferSize 缓冲区大小
+         * @return this
+         * @see OverflowStrategy
+         */
+        default Builder overflow(OverflowStrategy strategy, int bufferSize) {
+            return setting("overflow", strategy.name())
+                    .setting("overflowBuffer", bufferSize);
+        }
+
         ReactorQL build();
     }
 
@@ -0,0 +1,271 @@
+package org.jetlinks.reactor.ql;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.schema.Table;
+import org.jetlinks.reactor.ql.supports.OverflowStrategy;
+import org.jetlinks.reactor.ql.supports.index.IndexCondition;
+import org.jetlinks.reactor.ql.supports.index.PredicateIndex;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.util.concurrent.Queues;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 多个查询共享同一个数据源,数据源只订阅一次,每条数据只解码一次,然后分发给需要此数据的查询.
+ * <pre>
+ *  ReactorQLEngine engine = new ReactorQLEngine(messageBus, Message::getTopic, msg -> JsonRecord.of(msg.getPayload()));
+ *
+ *  engine.register("rule1", ReactorQL.builder().sql("select * from \"/device/alarm\" where level > 2").build())
+ *        .subscribe(result -> ...);
+ *
+ *  engine.remove("rule1");
+ * </pre>
+ * 指定了路由时,数据只分发给from或join中的表名与路由结果相同的查询,没有查询需要的数据不会被解码.
+ * 未指定路由时,所有查询的所有表都使用同一个数据源.
+ * <p>
+ * 查询的where条件中的等值条件(=,in)和范围条件(between,&gt;,&lt;等)会被索引,数据只分发给条件可能满足的查询,
+ * 查询数量很大时不需要每条数据都执行全部查询的where条件,见{@link PredicateIndex}.
+ * <p>
+ * 数据源不支持背压,每个查询使用有界缓冲区接收数据,查询处理缓慢导致缓冲区满时按查询的溢出策略处理,
+ * 通过hint指定: <code>/*+ overflow(dropOldest),overflowBuffer(1024) *&#47;</code>,
+ * 未指定时缓冲区大小为{@link Queues#SMALL_BUFFER_SIZE},缓冲区满时查询以溢出错误结束,见{@link OverflowStrategy}.
+ * <p>
+ * 可以在运行时注册和移除查询,不会重新订阅数据源.查询在返回的{@link Flux}被订阅后才开始接收数据,
+ * 取消订阅或者调用{@link ReactorQLEngine#remove(String)}后停止接收数据.
+ * 数据源结束或者{@link ReactorQLEngine#dispose()}后,所有查询都将结束,之后注册的查询会直接结束.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@Slf4j
+public class ReactorQLEngine implements Disposable {
+
+    private final Flux<?> source;
+
+    private final Function<Object, String> router;
+
+    private final Function<Object, ?> decoder;
+
+    private final Map<String, Query> queries = new ConcurrentHashMap<>();
+
+    //结束时遍历,注册和移除查询时复制
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+    //表名 -> 此表的数据需要分发的查询
+    private final Map<String, PredicateIndex<Channel>> indexes = new ConcurrentHashMap<>();
+
+    //未指定路由时,全部表的数据都需要分发的查询
+    private final PredicateIndex<Channel> wildcard = new PredicateIndex<>();
+
+    private final AtomicBoolean connected = new AtomicBoolean();
+
+    private volatile Disposable subscription;
+
+    private volatile boolean terminated;
+
+    private volatile Throwable error;
+
+    public ReactorQLEngine(Flux<?> source) {
+        this(source, null, Function.identity());
+    }
+
+    /**
+     * @param source  数据源
+     * @param router  获取数据对应的表名,为null时所有表都使用此数据源
+     * @param decoder 解码数据,每条数据只解码一次
+     */
+    public ReactorQLEngine(Flux<?> source, Function<Object, String> router, Function<Object, ?> decoder) {
+        this.source = source;
+        this.router = router;
+        this.decoder = decoder;
+    }
+
+    /**
+     * 注册查询,订阅返回的{@link Flux}后开始接收数据
+     *
+     * @param id 查询ID
+     * @param ql 查询
+     * @return 查询结果
+     */
+    public Flux<Map<String, Object>> register(String id, ReactorQL ql) {
+        return Flux.defer(() -> {
+            Query query = new Query(ql);
+            if (queries.putIfAbsent(id, query) != null) {
+                return Flux.error(new IllegalArgumentException("查询[" + id + "]已存在"));
+            }
+            return ql
+                    .start(table -> createChannel(query, table))
+                    .doFinally(signal -> queries.remove(id, query));
+        });
+    }
+
+    /**
+     * 移除查询,查询将正常结束,已接收到的数据会继续完成计算
+     *
+     * @param id 查询ID
+     * @return 查询是否存在
+     */
+    public boolean remove(String id) {
+        Query query = queries.remove(id);
+        if (query == null) {
+            return false;
+        }
+        for (Channel channel : query.channels) {
+            channel.sink.complete();
+        }
+        return true;
+    }
+
+    /**
+     * @return 已注册的查询ID
+     */
+    public Set<String> getQueryIds() {
+        return Collections.unmodifiableSet(queries.keySet());
+    }
+
+    private Flux<Object> createChannel(Query query, String table) {
+        //数据源不支持背压,数据先进入查询的有界缓冲区,由溢出策略处理
+        return Flux.create((FluxSink<Object> sink) -> {
+            Channel channel = new Channel(sink);
+            PredicateIndex<Channel> index = getIndex(table);
+            sink.onDispose(() -> {
+                channels.remove(channel);
+                query.channels.remove(channel);
+                index.remove(channel);
+            });
+            query.channels.add(channel);
+            channels.add(channel);
+            //只有from中的表使用where条件索引
+            index.add(channel, Objects.equals(query.table, table) ? query.condition : null);
+            if (terminated) {
+                channel.terminate(error);
+                return;
+            }
+            connect();
+        }, FluxSink.OverflowStrategy.BUFFER)
+                   .transform(query.overflow);
+    }
+
+    private PredicateIndex<Channel> getIndex(String table) {
+        if (router == null || table == null) {
+            return wildcard;
+        }
+        return indexes.computeIfAbsent(table, ignore -> new PredicateIndex<>());
+    }
+
+    private void connect() {
+        if (connected.compareAndSet(false, true)) {
+            subscription = source.subscribe(this::dispatch, this::terminate, () -> terminate(null));
+        }
+    }
+
+    private void dispatch(Object record) {
+        String table = router == null ? null : router.apply(record);
+        PredicateIndex<Channel> index = table == null ? null : indexes.get(table);
+        //没有查询需要此数据时不解码
+        if (table == null ? channels.isEmpty() : wildcard.isEmpty() && (index == null || index.isEmpty())) {
+            return;
+        }
+        Object decoded = decoder.apply(record);
+        if (decoded == null) {
+            return;
+        }
+        Consumer<Channel> consumer = channel -> channel.sink.next(decoded);
+        wildcard.match(decoded, consumer);
+        if (table == null) {
+            //路由结果为空时分发给全部查询
+            for (PredicateIndex<Channel> idx : indexes.values()) {
+                idx.match(decoded, consumer);
+            }
+        } else if (index != null) {
+            index.match(decoded, consumer);
+        }
+    }
+
+    private void terminate(Throwable error) {
+        if (error != null) {
+            log.warn("shared source terminated with error", error);
+        }
+        this.error = error;
+        this.terminated = true;
+        for (Channel channel : channels) {
+            channel.terminate(error);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        Disposable subscription = this.subscription;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        terminate(null);
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return terminated;
+    }
+
+    static class Query {
+        private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+        //from中的表名,无法使用索引时为null
+        private final String table;
+
+        private final IndexCondition condition;
+
+        //每个表的数据进入查询前的溢出处理
+        private final Function<Flux<Object>, Flux<Object>> overflow;
+
+        Query(ReactorQL ql) {
+            IndexCondition condition = null;
+            String table = null;
+            OverflowStrategy strategy = OverflowStrategy.error;
+            int bufferSize = Queues.SMALL_BUFFER_SIZE;
+            if (ql instanceof DefaultReactorQL) {
+                ReactorQLMetadata metadata = ((DefaultReactorQL) ql).getMetadata();
+                condition = IndexCondition.of(metadata).orElse(null);
+                if (condition != null) {
+                    table = ((Table) metadata.getSql().getFromItem()).getName();
+                }
+                strategy = metadata
+                        .getSetting("overflow")
+                        .map(String::valueOf)
+                        .map(OverflowStrategy::of)
+                        .orElse(strategy);
+                bufferSize = metadata
+                        .getSetting("overflowBuffer")
+                        .map(String::valueOf)
+                        .map(Integer::parseInt)
+                        .orElse(bufferSize);
+            }
+            this.table = table;
+            this.condition = condition;
+            this.overflow = strategy.create(bufferSize, () -> log.debug("query channel overflow, data dropped"));
+        }
+    }
+
+    static class Channel {
+        private final FluxSink<Object> sink;
+
+        Channel(FluxSink<Object> sink) {
+            this.sink = sink;
+        }
+
+        void terminate(Throwable error) {
+            if (error != null) {
+                sink.error(error);
+            } else {
+                sink.complete();
+            }
+        }
+    }
+}
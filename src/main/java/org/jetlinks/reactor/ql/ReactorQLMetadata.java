@@ -1,5 +1,6 @@
 package org.jetlinks.reactor.ql;
 
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import org.jetlinks.reactor.ql.feature.Feature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
@@ -24,4 +25,15 @@ public interface ReactorQLMetadata {
 
     PlainSelect getSql();
 
+    /**
+     * 获取公共表达式的标识.查询中多处出现的相同表达式,如select和group by中都使用了date_format(ts,'HH:mm'),
+     * 将被标识为公共表达式,每条数据只计算一次,结果缓存在{@link ReactorQLRecord}中.
+     *
+     * @param expression 表达式
+     * @return 标识, 不是公共表达式时返回{@link Optional#empty()}
+     */
+    default Optional<String> getCommonExpressionKey(Expression expression) {
+        return Optional.empty();
+    }
+
 }
@@ -35,6 +35,27 @@ public interface ReactorQLRecord {
 
     ReactorQLRecord removeRecord(String name);
 
+    /**
+     * 获取已经计算过的公共表达式的值
+     *
+     * @param key 表达式标识
+     * @return 值
+     * @see ReactorQLMetadata#getCommonExpressionKey(net.sf.jsqlparser.expression.Expression)
+     */
+    default Optional<Object> getComputed(String key) {
+        return Optional.empty();
+    }
+
+    /**
+     * 缓存公共表达式的值,数据发生变化时缓存将被清空
+     *
+     * @param key   表达式标识
+     * @param value 值
+     */
+    default void setComputed(String key, Object value) {
+
+    }
+
     static ReactorQLRecord newRecord(String name, Object row, ReactorQLContext context) {
         if (row instanceof DefaultReactorQLRecord) {
             DefaultReactorQLRecord record= ((DefaultReactorQLRecord) row);
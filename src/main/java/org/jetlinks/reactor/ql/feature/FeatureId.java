@@ -59,6 +59,20 @@ public interface FeatureId<T extends Feature> {
 
     }
 
+    interface Lookup {
+
+        static FeatureId<LookupFeature> of(String table) {
+            return FeatureId.of("lookup:".concat(table));
+        }
+    }
+
+    interface Schema {
+
+        static FeatureId<SchemaFeature> of(String table) {
+            return FeatureId.of("schema:".concat(table));
+        }
+    }
+
     interface Distinct {
 
         FeatureId<DistinctFeature> defaultId = Distinct.of("default");
@@ -67,4 +81,19 @@ public interface FeatureId<T extends Feature> {
             return FeatureId.of("distinct:".concat(type));
         }
     }
+
+    interface Metrics {
+
+        FeatureId<MetricsFeature> defaultId = FeatureId.of("metrics");
+    }
+
+    interface Scheduler {
+
+        FeatureId<SchedulerFeature> defaultId = FeatureId.of("scheduler");
+    }
+
+    interface State {
+
+        FeatureId<StateFeature> defaultId = FeatureId.of("state");
+    }
 }
@@ -7,6 +7,7 @@ import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.schema.Column;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.supports.ExpressionVisitorAdapter;
+import org.jetlinks.reactor.ql.supports.vector.VectorPredicate;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.jetlinks.reactor.ql.utils.CastUtils;
 import org.jetlinks.reactor.ql.utils.CompareUtils;
@@ -33,6 +34,43 @@ public interface FilterFeature extends Feature {
 
     BiFunction<ReactorQLRecord, Object, Mono<Boolean>> createPredicate(Expression expression, ReactorQLMetadata metadata);
 
+    /**
+     * 创建向量化的条件,结果与{@link FilterFeature#createPredicate(Expression, ReactorQLMetadata)}一致.
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 向量化的条件, 不支持时返回{@link Optional#empty()}
+     */
+    default Optional<VectorPredicate> createVectorPredicate(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.empty();
+    }
+
+    /**
+     * 根据表达式创建向量化的条件,只支持and,or以及比较运算
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 向量化的条件, 不支持时返回{@link Optional#empty()}
+     */
+    static Optional<VectorPredicate> createVectorPredicateByExpression(Expression expression, ReactorQLMetadata metadata) {
+        if (expression instanceof Parenthesis) {
+            return createVectorPredicateByExpression(((Parenthesis) expression).getExpression(), metadata);
+        }
+        FeatureId<FilterFeature> featureId;
+        if (expression instanceof AndExpression) {
+            featureId = FeatureId.Filter.and;
+        } else if (expression instanceof OrExpression) {
+            featureId = FeatureId.Filter.or;
+        } else if (expression instanceof ComparisonOperator) {
+            featureId = FeatureId.Filter.of(((ComparisonOperator) expression).getStringExpression());
+        } else {
+            return Optional.empty();
+        }
+        return metadata
+                .getFeature(featureId)
+                .flatMap(feature -> feature.createVectorPredicate(expression, metadata));
+    }
+
     static Optional<BiFunction<ReactorQLRecord, Object, Mono<Boolean>>> createPredicateByExpression(Expression expression, ReactorQLMetadata metadata) {
         AtomicReference<BiFunction<ReactorQLRecord, Object, Mono<Boolean>>> ref = new AtomicReference<>();
         expression.accept(new ExpressionVisitorAdapter() {
@@ -0,0 +1,15 @@
+package org.jetlinks.reactor.ql.feature;
+
+/**
+ * 可折叠的功能,参数都是常量时结果也是确定的,如: 1 + 2, cast('1' as int).
+ * <p>
+ * 实现了此接口的功能在构造查询时,如果参数都是常量,将直接计算出结果并替换为常量,
+ * 不再对每一条数据进行计算.结果与数据或者时间有关的功能(如: now())不能实现此接口.
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.supports.ExpressionOptimizer
+ * @since 1.0
+ */
+public interface FoldableFeature extends Feature {
+
+}
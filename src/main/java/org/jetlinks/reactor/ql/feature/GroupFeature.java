@@ -3,8 +3,10 @@ package org.jetlinks.reactor.ql.feature;
 import net.sf.jsqlparser.expression.Expression;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 /**
@@ -17,4 +19,16 @@ public interface GroupFeature extends Feature {
 
      Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> createGroupMapper(Expression expression, ReactorQLMetadata metadata);
 
+     /**
+      * 创建获取分组key的函数,按值分组时,相同key的数据一定在同一个分组中,可以按key将数据分区后并行分组.
+      * 按时间或者数量分组等与数据值无关的分组方式不支持,返回{@link Optional#empty()}.
+      *
+      * @param expression 分组表达式
+      * @param metadata   元数据
+      * @return 获取分组key的函数
+      */
+     default Optional<Function<ReactorQLRecord, ? extends Publisher<?>>> createKeyMapper(Expression expression, ReactorQLMetadata metadata) {
+          return Optional.empty();
+     }
+
 }
@@ -0,0 +1,31 @@
+package org.jetlinks.reactor.ql.feature;
+
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+/**
+ * 维表批量查询支持,关联维表时按批次查询右表数据,而不是每一条左表数据都查询一次数据源.
+ * <pre>
+ *     select t.*,d.name from t left join device_info d on d.id = t.deviceId
+ * </pre>
+ * <p>
+ * 通过{@link FeatureId.Lookup#of(String)}注册到对应的表名上,关联条件中必须包含右表字段与左表表达式的等值条件.
+ * 可通过hint调整批次大小和缓存: lookupBatch(100),lookupDelay(10ms),lookupCache(10000),lookupTtl(1m)
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.supports.join.DefaultLookupFeature
+ * @since 1.0
+ */
+public interface LookupFeature extends Feature {
+
+    /**
+     * 根据关联键批量查询维表数据,返回的数据通过关联条件中的右表字段与关联键进行匹配,
+     * 匹配时数字和字符串形式的相同值视为相等.
+     *
+     * @param keys 关联键,为左表表达式的原始值
+     * @return 维表数据
+     */
+    Flux<Object> lookup(Collection<Object> keys);
+
+}
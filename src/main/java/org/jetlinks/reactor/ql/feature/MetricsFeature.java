@@ -0,0 +1,50 @@
+package org.jetlinks.reactor.ql.feature;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.supports.metrics.OperatorMetrics;
+
+/**
+ * 查询运行指标,用于统计查询中每个操作(join,where,select,groupBy,orderBy等)的输入输出数量,
+ * 处理耗时,队列中等待的数据量以及被取消的次数.
+ * <p>
+ * 默认不统计,需要时注册自定义的实现或者{@link org.jetlinks.reactor.ql.supports.metrics.InMemoryMetricsFeature}:
+ * <pre>
+ *  InMemoryMetricsFeature metrics = new InMemoryMetricsFeature();
+ *  ReactorQL.builder()
+ *           .sql("select /*+ name(rule1) *&#47; avg(temp) from t group by interval('1s')")
+ *           .feature(metrics)
+ *           .build();
+ *
+ *  metrics.getMetrics("rule1");
+ * </pre>
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.supports.metrics.NoopMetricsFeature
+ * @since 1.0
+ */
+public interface MetricsFeature extends Feature {
+
+    @Override
+    default String getId() {
+        return FeatureId.Metrics.defaultId.getId();
+    }
+
+    /**
+     * 是否启用统计,未启用时不对操作进行任何包装.
+     *
+     * @return 是否启用
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * 获取操作的指标,在构造查询时调用,每个操作只调用一次.
+     *
+     * @param metadata 查询元数据
+     * @param operator 操作名称,如: where,groupBy
+     * @return 指标
+     */
+    OperatorMetrics getOperatorMetrics(ReactorQLMetadata metadata, String operator);
+
+}
@@ -1,6 +1,7 @@
 package org.jetlinks.reactor.ql.feature;
 
 import java.util.Optional;
+import java.util.function.Function;
 
 public interface PropertyFeature extends Feature {
 
@@ -11,6 +12,17 @@ public interface PropertyFeature extends Feature {
 
     Optional<Object> getProperty(Object property, Object value);
 
+    /**
+     * 根据属性名创建属性访问器,在构造查询时调用,实现可以预先解析属性名.
+     * 访问器的结果与{@link PropertyFeature#getProperty(Object, Object)}一致.
+     *
+     * @param property 属性名
+     * @return 属性访问器
+     */
+    default Function<Object, Optional<Object>> createAccessor(Object property) {
+        return value -> getProperty(property, value);
+    }
+
     @Override
     default String getId() {
         return ID_STR;
@@ -0,0 +1,51 @@
+package org.jetlinks.reactor.ql.feature;
+
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询中与时间相关的操作使用的调度器,包括按时间分组的窗口(interval,_window),批量执行和关联查询的等待超时,
+ * 子查询缓存的刷新以及now()函数获取的当前时间.
+ * <p>
+ * 默认使用{@link reactor.core.scheduler.Schedulers#parallel()},可以为查询指定独立的调度器,
+ * 如为计算量较大的查询使用专用的定时线程,或者在测试和重放历史数据时使用虚拟时间:
+ * <pre>
+ *  VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+ *  ReactorQL.builder()
+ *           .sql("select count(1) total from t group by interval('1h')")
+ *           .scheduler(scheduler)
+ *           .build();
+ *
+ *  scheduler.advanceTimeBy(Duration.ofHours(24));
+ * </pre>
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.supports.DefaultSchedulerFeature
+ * @since 1.0
+ */
+public interface SchedulerFeature extends Feature {
+
+    @Override
+    default String getId() {
+        return FeatureId.Scheduler.defaultId.getId();
+    }
+
+    /**
+     * 获取调度器,在执行查询时调用
+     *
+     * @return 调度器
+     */
+    Scheduler getScheduler();
+
+    /**
+     * @return 当前时间, 毫秒
+     */
+    default long now() {
+        return getScheduler().now(TimeUnit.MILLISECONDS);
+    }
+
+    static SchedulerFeature of(Scheduler scheduler) {
+        return () -> scheduler;
+    }
+}
@@ -0,0 +1,122 @@
+package org.jetlinks.reactor.ql.feature;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.FromItem;
+import net.sf.jsqlparser.statement.select.Join;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.supports.schema.ColumnDefinition;
+import org.jetlinks.reactor.ql.utils.SqlUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 表结构定义,声明表中列的类型.
+ * <p>
+ * 通过{@link FeatureId.Schema#of(String)}注册到对应的表名上,查询中引用了该表的列时,
+ * 在构造时检查比较条件中的类型是否兼容,并根据列类型预先转换常量,避免执行时每条数据都进行类型转换.
+ * 未定义表结构的表,或者表结构中未定义的列,仍按原有的动态类型处理.
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.supports.schema.TableSchema
+ * @since 1.0
+ */
+public interface SchemaFeature extends Feature {
+
+    /**
+     * @return 表名
+     */
+    String getTable();
+
+    /**
+     * 获取列定义
+     *
+     * @param column 列名
+     * @return 列定义
+     */
+    Optional<ColumnDefinition> getColumn(String column);
+
+
+    /**
+     * 根据表达式获取列定义,表达式不是列或者列所在的表没有定义表结构时返回{@link Optional#empty()}.
+     * 列未指定表名时,没有关联查询则使用from中的表,有关联查询时只有列名在全部表中唯一时才能确定列定义.
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 列定义
+     */
+    static Optional<ColumnDefinition> resolveColumn(Expression expression, ReactorQLMetadata metadata) {
+        if (!(expression instanceof Column)) {
+            return Optional.empty();
+        }
+        Column column = ((Column) expression);
+        PlainSelect select = metadata.getSql();
+        String owner = column.getTable() == null ? null : column.getTable().getName();
+        String table = null;
+        if (owner == null) {
+            if (select.getJoins() != null && !select.getJoins().isEmpty()) {
+                return resolveUnqualifiedColumn(column, metadata);
+            }
+            if (select.getFromItem() instanceof Table) {
+                table = ((Table) select.getFromItem()).getName();
+            }
+        } else {
+            table = getTableName(select.getFromItem(), owner);
+            if (table == null && select.getJoins() != null) {
+                for (Join join : select.getJoins()) {
+                    if ((table = getTableName(join.getRightItem(), owner)) != null) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (table == null) {
+            return Optional.empty();
+        }
+        return metadata
+                .getFeature(FeatureId.Schema.of(SqlUtils.getCleanStr(table)))
+                .flatMap(schema -> schema.getColumn(SqlUtils.getCleanStr(column.getColumnName())));
+    }
+
+    //有关联查询时,未指定表名的列只能在全部表都定义了表结构,并且只有一个表中有此列时确定列定义
+    static Optional<ColumnDefinition> resolveUnqualifiedColumn(Column column, ReactorQLMetadata metadata) {
+        PlainSelect select = metadata.getSql();
+        List<FromItem> items = new ArrayList<>();
+        items.add(select.getFromItem());
+        for (Join join : select.getJoins()) {
+            items.add(join.getRightItem());
+        }
+        String name = SqlUtils.getCleanStr(column.getColumnName());
+        ColumnDefinition found = null;
+        for (FromItem item : items) {
+            if (!(item instanceof Table)) {
+                return Optional.empty();
+            }
+            Optional<SchemaFeature> schema = metadata.getFeature(FeatureId.Schema.of(SqlUtils.getCleanStr(((Table) item).getName())));
+            if (!schema.isPresent()) {
+                return Optional.empty();
+            }
+            Optional<ColumnDefinition> definition = schema.get().getColumn(name);
+            if (definition.isPresent()) {
+                if (found != null) {
+                    return Optional.empty();
+                }
+                found = definition.get();
+            }
+        }
+        return Optional.ofNullable(found);
+    }
+
+    static String getTableName(FromItem item, String owner) {
+        if (!(item instanceof Table)) {
+            return null;
+        }
+        String name = ((Table) item).getName();
+        String alias = item.getAlias() == null ? name : item.getAlias().getName();
+        return owner.equals(alias) || owner.equals(name) ? name : null;
+    }
+}
@@ -0,0 +1,80 @@
+package org.jetlinks.reactor.ql.feature;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.supports.state.OffHeapHashTable;
+import org.jetlinks.reactor.ql.supports.state.StateStore;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * 有状态操作的状态存储,用于在重启后恢复查询的状态,或者将状态保存在堆外内存中,包括:
+ * <ul>
+ *     <li>distinct: 已经输出过的数据</li>
+ *     <li>groupBy: 按窗口分组时(如interval('1h'),_window(100)),尚未结束的窗口中的数据以及窗口的开始时间</li>
+ *     <li>join:表别名: 维表关联的缓存</li>
+ * </ul>
+ * 默认不保存状态,需要时注册自定义的实现,{@link org.jetlinks.reactor.ql.supports.state.LocalFileStateFeature}
+ * 或者将状态保存在堆外内存中的{@link org.jetlinks.reactor.ql.supports.state.OffHeapStateFeature}:
+ * <pre>
+ *  LocalFileStateFeature state = new LocalFileStateFeature(Paths.get("./data/state"), Duration.ofSeconds(10));
+ *  ReactorQL.builder()
+ *           .sql("select /*+ name(rule1) *&#47; avg(temp) from t group by interval('1h')")
+ *           .feature(state)
+ *           .build();
+ * </pre>
+ * 在重启后恢复的状态在多次执行间共享,因此使用了这类状态的查询同时只能执行一次,正在执行时再次执行将返回{@link IllegalStateException}.
+ * 不在重启后恢复的状态(如堆外内存)在每次执行时通过{@link StateFeature#createHashTable(ReactorQLMetadata, String)}重新创建,执行结束后释放.
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.supports.state.NoopStateFeature
+ * @since 1.0
+ */
+public interface StateFeature extends Feature {
+
+    @Override
+    default String getId() {
+        return FeatureId.State.defaultId.getId();
+    }
+
+    /**
+     * 是否启用状态存储,未启用时有状态的操作只在内存中保存状态.
+     *
+     * @return 是否启用
+     */
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * 状态是否在重启后恢复,只有在重启后恢复时才保存窗口中的数据以及维表关联的缓存.
+     *
+     * @return 是否在重启后恢复
+     */
+    default boolean isPersistent() {
+        return true;
+    }
+
+    /**
+     * 获取操作的状态存储,在构造查询时调用,每个操作只调用一次.返回的存储中包含上一次保存的状态.
+     *
+     * @param metadata 查询元数据
+     * @param operator 操作名称,如: distinct,groupBy
+     * @return 状态存储
+     */
+    StateStore getStateStore(ReactorQLMetadata metadata, String operator);
+
+    /**
+     * 获取分组聚合使用的哈希表,在构造查询时调用,每次执行查询时从返回的{@link Supplier}中获取新的哈希表,查询结束后哈希表被释放.
+     * 支持时,只按列分组并且聚合函数都支持{@link ValueAggMapFeature#createFixedWidthAggregator(net.sf.jsqlparser.expression.Expression, ReactorQLMetadata)}的查询,
+     * 将分组的聚合状态保存在哈希表中,不再为每个分组创建单独的流.
+     *
+     * @param metadata 查询元数据
+     * @param operator 操作名称
+     * @return 哈希表的提供者, 不支持时返回{@link Optional#empty()}
+     */
+    default Optional<Supplier<OffHeapHashTable>> createHashTable(ReactorQLMetadata metadata, String operator) {
+        return Optional.empty();
+    }
+
+}
@@ -3,14 +3,73 @@ package org.jetlinks.reactor.ql.feature;
 import net.sf.jsqlparser.expression.Expression;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregator;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregator;
 import reactor.core.publisher.Flux;
 
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public interface ValueAggMapFeature extends Feature {
 
 
     Function<Flux<ReactorQLRecord>, Flux<Object>> createMapper(Expression expression, ReactorQLMetadata metadata);
 
+    /**
+     * 是否支持分区聚合,支持时,每个分区使用{@link ValueAggMapFeature#createPartialMapper(Expression, ReactorQLMetadata)}计算部分结果,
+     * 再使用{@link ValueAggMapFeature#createMerger(Expression, ReactorQLMetadata)}合并为最终结果.
+     *
+     * @return 是否支持分区聚合
+     */
+    default boolean isMergeable() {
+        return false;
+    }
+
+    /**
+     * 创建计算部分聚合结果的函数,默认与{@link ValueAggMapFeature#createMapper(Expression, ReactorQLMetadata)}一致.
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 部分聚合函数
+     */
+    default Function<Flux<ReactorQLRecord>, Flux<Object>> createPartialMapper(Expression expression, ReactorQLMetadata metadata) {
+        return createMapper(expression, metadata);
+    }
+
+    /**
+     * 创建合并部分聚合结果的函数
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 合并函数
+     */
+    default Function<Flux<Object>, Flux<Object>> createMerger(Expression expression, ReactorQLMetadata metadata) {
+        throw new UnsupportedOperationException("不支持分区聚合:" + expression);
+    }
+
+    /**
+     * 创建向量化的聚合,结果与{@link ValueAggMapFeature#createMapper(Expression, ReactorQLMetadata)}一致.
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 向量化的聚合, 不支持时返回{@link Optional#empty()}
+     */
+    default Optional<Supplier<VectorAggregator>> createVectorAggregator(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.empty();
+    }
+
+    /**
+     * 创建定长的聚合,用于在堆外哈希表中分组聚合,结果与{@link ValueAggMapFeature#createVectorAggregator(Expression, ReactorQLMetadata)}一致.
+     *
+     * @param expression 表达式
+     * @param metadata   元数据
+     * @return 定长的聚合, 不支持时返回{@link Optional#empty()}
+     * @see StateFeature#createHashTable(ReactorQLMetadata, String)
+     */
+    default Optional<FixedWidthAggregator> createFixedWidthAggregator(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.empty();
+    }
+
 
 }
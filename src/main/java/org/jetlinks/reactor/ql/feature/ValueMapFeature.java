@@ -189,7 +189,31 @@ public interface ValueMapFeature extends Feature {
             }
         });
 
-        return Optional.ofNullable(ref.get());
+        return Optional
+                .ofNullable(ref.get())
+                .map(mapper -> metadata
+                        .getCommonExpressionKey(expr)
+                        .<Function<ReactorQLRecord, ? extends Publisher<?>>>map(key -> createCachedMapper(key, mapper))
+                        .orElse(mapper));
+    }
+
+    /**
+     * 创建缓存结果的转换函数,同一条数据只计算一次
+     *
+     * @param key    表达式标识
+     * @param mapper 转换函数
+     * @return 转换函数
+     * @see ReactorQLMetadata#getCommonExpressionKey(Expression)
+     */
+    static Function<ReactorQLRecord, ? extends Publisher<?>> createCachedMapper(String key, Function<ReactorQLRecord, ? extends Publisher<?>> mapper) {
+        return record -> {
+            Optional<Object> computed = record.getComputed(key);
+            if (computed.isPresent()) {
+                return Mono.just(computed.get());
+            }
+            return Mono.from(mapper.apply(record))
+                    .doOnNext(value -> record.setComputed(key, value));
+        };
     }
 
     static Tuple2<Function<ReactorQLRecord, ? extends Publisher<?>>, Function<ReactorQLRecord, ? extends Publisher<?>>> createBinaryMapper(Expression expression, ReactorQLMetadata metadata) {
@@ -1,15 +1,12 @@
 package org.jetlinks.reactor.ql.supports;
 
-import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.beanutils.PropertyUtils;
 import org.jetlinks.reactor.ql.feature.PropertyFeature;
 import org.jetlinks.reactor.ql.utils.CastUtils;
 import org.jetlinks.reactor.ql.utils.SqlUtils;
 
-import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
-@Slf4j
 public class DefaultPropertyFeature implements PropertyFeature {
 
     @Override
@@ -35,12 +32,11 @@ public class DefaultPropertyFeature implements PropertyFeature {
         if (direct != null) {
             return Optional.of(direct);
         }
-        Object tmp = value;
-        String[] arr = strProperty.split("[.]");
-        if (arr.length == 1) {
+        if (strProperty.indexOf('.') < 0) {
             return Optional.empty();
         }
-        for (String prop : arr) {
+        Object tmp = value;
+        for (String prop : PropertyAccessor.split(strProperty)) {
             tmp = doGetProperty(prop, tmp);
             if (tmp == null) {
                 return Optional.empty();
@@ -49,20 +45,28 @@ public class DefaultPropertyFeature implements PropertyFeature {
         return Optional.of(tmp);
     }
 
-    protected Object doGetProperty(String property, Object value) {
-        if ("this".equals(property) || "$".equals(property)) {
-            return value;
+    @Override
+    public Function<Object, Optional<Object>> createAccessor(Object property) {
+        //子类可能重写了属性获取逻辑,不能使用预编译的访问器
+        if (getClass() != DefaultPropertyFeature.class) {
+            return PropertyFeature.super.createAccessor(property);
         }
-        if (value instanceof Map) {
-            return ((Map<?, ?>) value).get(property);
+        if (property instanceof String) {
+            property = SqlUtils.getCleanStr((String) property);
         }
-        try {
-            return PropertyUtils.getProperty(value, property);
-        } catch (Exception e) {
-            log.warn("get property error", e);
+        if ("this".equals(property) || "$".equals(property)) {
+            return Optional::ofNullable;
+        }
+        if (property instanceof Number) {
+            int index = ((Number) property).intValue();
+            return value -> value == null ? Optional.empty() : Optional.ofNullable(CastUtils.castArray(value).get(index));
         }
-        return null;
+        PropertyAccessor accessor = new PropertyAccessor(String.valueOf(property));
+        return value -> Optional.ofNullable(accessor.get(value));
+    }
 
+    protected Object doGetProperty(String property, Object value) {
+        return PropertyAccessor.getProperty(property, value);
     }
 
 
@@ -1,12 +1,14 @@
 package org.jetlinks.reactor.ql.supports;
 
 import lombok.SneakyThrows;
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.feature.Feature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.supports.agg.AvgAggFeature;
 import org.jetlinks.reactor.ql.supports.agg.CollectListAggFeature;
 import org.jetlinks.reactor.ql.supports.agg.MathAggFeature;
 import org.jetlinks.reactor.ql.supports.agg.CountAggFeature;
@@ -18,9 +20,14 @@ import org.jetlinks.reactor.ql.supports.from.SubSelectFromFeature;
 import org.jetlinks.reactor.ql.supports.from.ZipSelectFeature;
 import org.jetlinks.reactor.ql.supports.group.*;
 import org.jetlinks.reactor.ql.supports.map.*;
+import org.jetlinks.reactor.ql.supports.metrics.NoopMetricsFeature;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregators;
+import org.jetlinks.reactor.ql.supports.state.NoopStateFeature;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregators;
 import org.jetlinks.reactor.ql.utils.CalculateUtils;
 import org.jetlinks.reactor.ql.utils.CastUtils;
 import org.jetlinks.reactor.ql.utils.CompareUtils;
+import org.jetlinks.reactor.ql.utils.SqlUtils;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -42,6 +49,8 @@ public class DefaultReactorQLMetadata implements ReactorQLMetadata {
 
     private final Map<String, Object> settings = new ConcurrentHashMap<>();
 
+    private volatile Set<String> commonExpressions;
+
     static <T> void createCalculator(BiFunction<String, BiFunction<Number, Number, Object>, T> builder, Consumer<T> consumer) {
 
         consumer.accept(builder.apply("+", CalculateUtils::add));
@@ -76,6 +85,9 @@ public class DefaultReactorQLMetadata implements ReactorQLMetadata {
 
     static {
         addGlobal(new DefaultDistinctFeature());
+        addGlobal(new NoopMetricsFeature());
+        addGlobal(new DefaultSchedulerFeature());
+        addGlobal(new NoopStateFeature());
         addGlobal(new SubSelectFromFeature());
         addGlobal(new FromTableFeature());
         addGlobal(new ZipSelectFeature());
@@ -247,11 +259,23 @@ public class DefaultReactorQLMetadata implements ReactorQLMetadata {
         addGlobal(new SingleParameterFunctionMapFeature("math.radians", v -> Math.toRadians(CastUtils.castNumber(v).doubleValue())));
 
 
-        addGlobal(new MathAggFeature("sum", flux -> MathFlux.sumDouble(flux.map(CastUtils::castNumber))));
-        addGlobal(new MathAggFeature("avg", flux -> MathFlux.averageDouble(flux.map(CastUtils::castNumber))));
+        addGlobal(new MathAggFeature("sum",
+                                     flux -> MathFlux.sumDouble(flux.map(CastUtils::castNumber)),
+                                     flux -> MathFlux.sumDouble(flux.map(CastUtils::castNumber)),
+                                     VectorAggregators::sum,
+                                     FixedWidthAggregators::sum));
+        addGlobal(new AvgAggFeature());
 
-        addGlobal(new MathAggFeature("max", flux -> MathFlux.max(flux, CompareUtils::compare)));
-        addGlobal(new MathAggFeature("min", flux -> MathFlux.min(flux, CompareUtils::compare)));
+        addGlobal(new MathAggFeature("max",
+                                     flux -> MathFlux.max(flux, CompareUtils::compare),
+                                     flux -> MathFlux.max(flux, CompareUtils::compare),
+                                     VectorAggregators::max,
+                                     FixedWidthAggregators::max));
+        addGlobal(new MathAggFeature("min",
+                                     flux -> MathFlux.min(flux, CompareUtils::compare),
+                                     flux -> MathFlux.min(flux, CompareUtils::compare),
+                                     VectorAggregators::min,
+                                     FixedWidthAggregators::min));
 
 
     }
@@ -302,6 +326,29 @@ public class DefaultReactorQLMetadata implements ReactorQLMetadata {
         return selectSql;
     }
 
+    @Override
+    public Optional<String> getCommonExpressionKey(Expression expression) {
+        if (!SqlUtils.isCommonExpressionCandidate(expression)) {
+            return Optional.empty();
+        }
+        //在构造查询时才计算,此时表达式已经完成优化
+        if (commonExpressions == null) {
+            commonExpressions = SqlUtils.getCommonExpressions(selectSql);
+        }
+        String key = expression.toString();
+        return commonExpressions.contains(key) ? Optional.of(key) : Optional.empty();
+    }
+
+    /**
+     * 设置配置,与SQL中的hint作用相同,会覆盖hint中的同名配置
+     *
+     * @param key   配置名称
+     * @param value 配置值
+     */
+    public void setting(String key, Object value) {
+        settings.put(key, value);
+    }
+
     @Override
     public Optional<Object> getSetting(String key) {
         return Optional.ofNullable(settings.get(key));
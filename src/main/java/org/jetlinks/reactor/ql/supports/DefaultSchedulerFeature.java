@@ -0,0 +1,20 @@
+package org.jetlinks.reactor.ql.supports;
+
+import org.jetlinks.reactor.ql.feature.SchedulerFeature;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * 默认的调度器,每次获取时调用{@link Schedulers#parallel()},
+ * 因此<code>VirtualTimeScheduler.getOrSet()</code>等替换全局调度器的方式仍然有效.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class DefaultSchedulerFeature implements SchedulerFeature {
+
+    @Override
+    public Scheduler getScheduler() {
+        return Schedulers.parallel();
+    }
+}
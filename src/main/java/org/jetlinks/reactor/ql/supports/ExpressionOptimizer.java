@@ -0,0 +1,353 @@
+package org.jetlinks.reactor.ql.supports;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.IsNullExpression;
+import net.sf.jsqlparser.statement.select.*;
+import org.jetlinks.reactor.ql.DefaultReactorQLContext;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 表达式优化,在构造查询前对SQL进行常量折叠和化简:
+ * <ul>
+ *     <li>参数都是常量的计算直接替换为结果,如: temp * (9.0/5) + 32 => temp * 1.8 + 32</li>
+ *     <li>and/or中恒为true或者false的条件,如: a > 1 and 1 = 1 => a > 1</li>
+ *     <li>case when中恒为false的分支将被移除,只剩下恒为true的分支时直接替换为对应的值</li>
+ * </ul>
+ * 只有实现了{@link FoldableFeature}的功能才会被折叠,计算出错时保留原始表达式,由执行时处理.
+ *
+ * @author zhouhao
+ * @see FoldableFeature
+ * @since 1.0
+ */
+@Slf4j
+public class ExpressionOptimizer {
+
+    private final ReactorQLMetadata metadata;
+
+    private final ReactorQLRecord emptyRecord = ReactorQLRecord.newRecord(null, null, new DefaultReactorQLContext(name -> Flux.empty()));
+
+    public ExpressionOptimizer(ReactorQLMetadata metadata) {
+        //优化时表达式还会发生变化,不使用公共表达式
+        this.metadata = new ReactorQLMetadata() {
+            @Override
+            public <T extends Feature> Optional<T> getFeature(FeatureId<T> featureId) {
+                return metadata.getFeature(featureId);
+            }
+
+            @Override
+            public Optional<Object> getSetting(String key) {
+                return metadata.getSetting(key);
+            }
+
+            @Override
+            public PlainSelect getSql() {
+                return metadata.getSql();
+            }
+        };
+    }
+
+    public void optimize(PlainSelect select) {
+        if (select.getSelectItems() != null) {
+            for (SelectItem item : select.getSelectItems()) {
+                if (!(item instanceof SelectExpressionItem)) {
+                    continue;
+                }
+                SelectExpressionItem expressionItem = ((SelectExpressionItem) item);
+                Expression expression = expressionItem.getExpression();
+                //未指定别名时,列名为原始表达式
+                String name = expression.toString();
+                Expression optimized = optimize(expression);
+                if (optimized != expression || !name.equals(optimized.toString())) {
+                    if (expressionItem.getAlias() == null) {
+                        expressionItem.setAlias(new Alias(name));
+                    }
+                    expressionItem.setExpression(optimized);
+                }
+            }
+        }
+        if (select.getWhere() != null) {
+            Expression where = optimize(select.getWhere());
+            select.setWhere(Boolean.TRUE.equals(getConstantBoolean(where)) ? null : where);
+        }
+        if (select.getHaving() != null) {
+            Expression having = optimize(select.getHaving());
+            select.setHaving(Boolean.TRUE.equals(getConstantBoolean(having)) ? null : having);
+        }
+        if (select.getJoins() != null) {
+            for (Join join : select.getJoins()) {
+                if (join.getOnExpression() != null) {
+                    Expression on = optimize(join.getOnExpression());
+                    join.setOnExpression(Boolean.TRUE.equals(getConstantBoolean(on)) ? null : on);
+                }
+            }
+        }
+    }
+
+    /**
+     * 优化表达式,返回优化后的表达式,无法优化时返回原始表达式
+     *
+     * @param expression 表达式
+     * @return 优化后的表达式
+     */
+    public Expression optimize(Expression expression) {
+        if (expression instanceof AndExpression || expression instanceof OrExpression) {
+            return optimizeLogical(((BinaryExpression) expression));
+        }
+        if (expression instanceof CaseExpression) {
+            return optimizeCase(((CaseExpression) expression));
+        }
+        optimizeChildren(expression);
+        if (isLiteral(expression) || !isFoldable(expression)) {
+            return expression;
+        }
+        return fold(expression).orElse(expression);
+    }
+
+    private void optimizeChildren(Expression expression) {
+        if (expression instanceof Parenthesis) {
+            Parenthesis parenthesis = ((Parenthesis) expression);
+            parenthesis.setExpression(optimize(parenthesis.getExpression()));
+        } else if (expression instanceof SignedExpression) {
+            SignedExpression signed = ((SignedExpression) expression);
+            signed.setExpression(optimize(signed.getExpression()));
+        } else if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = ((BinaryExpression) expression);
+            binary.setLeftExpression(optimize(binary.getLeftExpression()));
+            binary.setRightExpression(optimize(binary.getRightExpression()));
+        } else if (expression instanceof Function) {
+            Function function = ((Function) expression);
+            if (function.getParameters() != null) {
+                optimize(function.getParameters());
+            }
+        } else if (expression instanceof CastExpression) {
+            CastExpression cast = ((CastExpression) expression);
+            cast.setLeftExpression(optimize(cast.getLeftExpression()));
+        } else if (expression instanceof Between) {
+            Between between = ((Between) expression);
+            between.setLeftExpression(optimize(between.getLeftExpression()));
+            between.setBetweenExpressionStart(optimize(between.getBetweenExpressionStart()));
+            between.setBetweenExpressionEnd(optimize(between.getBetweenExpressionEnd()));
+        } else if (expression instanceof InExpression) {
+            InExpression in = ((InExpression) expression);
+            if (in.getLeftExpression() != null) {
+                in.setLeftExpression(optimize(in.getLeftExpression()));
+            }
+            if (in.getRightItemsList() instanceof ExpressionList) {
+                optimize(((ExpressionList) in.getRightItemsList()));
+            }
+        } else if (expression instanceof IsNullExpression) {
+            IsNullExpression isNull = ((IsNullExpression) expression);
+            isNull.setLeftExpression(optimize(isNull.getLeftExpression()));
+        }
+    }
+
+    private void optimize(ExpressionList list) {
+        List<Expression> expressions = list.getExpressions();
+        if (expressions == null) {
+            return;
+        }
+        List<Expression> optimized = new ArrayList<>(expressions.size());
+        for (Expression expression : expressions) {
+            optimized.add(optimize(expression));
+        }
+        list.setExpressions(optimized);
+    }
+
+    private Expression optimizeLogical(BinaryExpression expression) {
+        Expression left = optimize(expression.getLeftExpression());
+        Expression right = optimize(expression.getRightExpression());
+        expression.setLeftExpression(left);
+        expression.setRightExpression(right);
+
+        boolean and = expression instanceof AndExpression;
+        // a and true => a, a and false => false, a or false => a, a or true => true
+        Boolean leftValue = getConstantBoolean(left);
+        if (leftValue != null) {
+            return leftValue == and ? right : left;
+        }
+        Boolean rightValue = getConstantBoolean(right);
+        if (rightValue != null) {
+            return rightValue == and ? left : right;
+        }
+        return expression;
+    }
+
+    private Expression optimizeCase(CaseExpression expression) {
+        if (expression.getSwitchExpression() != null) {
+            expression.setSwitchExpression(optimize(expression.getSwitchExpression()));
+        }
+        if (expression.getElseExpression() != null) {
+            expression.setElseExpression(optimize(expression.getElseExpression()));
+        }
+        List<WhenClause> clauses = new ArrayList<>();
+        for (WhenClause clause : expression.getWhenClauses()) {
+            clause.setWhenExpression(optimize(clause.getWhenExpression()));
+            clause.setThenExpression(optimize(clause.getThenExpression()));
+            //case when的条件恒为false时,移除此分支
+            if (expression.getSwitchExpression() == null
+                    && Boolean.FALSE.equals(getConstantBoolean(clause.getWhenExpression()))) {
+                continue;
+            }
+            clauses.add(clause);
+        }
+        if (clauses.isEmpty()) {
+            if (expression.getElseExpression() != null) {
+                return expression.getElseExpression();
+            }
+            return expression;
+        }
+        //只剩一个恒为true的分支
+        if (clauses.size() == 1
+                && expression.getSwitchExpression() == null
+                && Boolean.TRUE.equals(getConstantBoolean(clauses.get(0).getWhenExpression()))) {
+            return clauses.get(0).getThenExpression();
+        }
+        expression.setWhenClauses(clauses);
+        return expression;
+    }
+
+    /**
+     * 获取条件表达式的常量结果
+     *
+     * @param expression 表达式
+     * @return 条件的结果, 不是常量时返回null
+     */
+    private Boolean getConstantBoolean(Expression expression) {
+        if (isLiteral(expression) || !isFoldable(expression)) {
+            return null;
+        }
+        Object value = evaluate(expression);
+        return value instanceof Boolean ? (Boolean) value : null;
+    }
+
+    private Optional<Expression> fold(Expression expression) {
+        Object value = evaluate(expression);
+        if (value instanceof Long) {
+            return Optional.of(new LongValue((Long) value));
+        }
+        if (value instanceof Double && !((Double) value).isNaN() && !((Double) value).isInfinite()) {
+            return Optional.of(new DoubleValue(String.valueOf(value)));
+        }
+        if (value instanceof String) {
+            StringValue stringValue = new StringValue("");
+            stringValue.setValue((String) value);
+            return Optional.of(stringValue);
+        }
+        return Optional.empty();
+    }
+
+    //只折叠同步计算出结果的表达式,异步的功能在执行时计算
+    private Object evaluate(Expression expression) {
+        try {
+            return ValueMapFeature
+                    .createMapperByExpression(expression, metadata)
+                    .map(mapper -> {
+                        CompletableFuture<?> future = Mono.from(mapper.apply(emptyRecord)).toFuture();
+                        if (!future.isDone()) {
+                            future.cancel(true);
+                            return null;
+                        }
+                        return future.getNow(null);
+                    })
+                    .orElse(null);
+        } catch (RuntimeException e) {
+            log.debug("evaluate constant expression [{}] error", expression, e);
+            return null;
+        }
+    }
+
+    private boolean isLiteral(Expression expression) {
+        return expression instanceof LongValue
+                || expression instanceof DoubleValue
+                || expression instanceof StringValue
+                || expression instanceof DateValue
+                || expression instanceof TimestampValue
+                || expression instanceof TimeValue
+                || expression instanceof HexValue;
+    }
+
+    /**
+     * 判断表达式是否可以折叠: 常量,或者参数都是常量的可折叠功能
+     */
+    private boolean isFoldable(Expression expression) {
+        if (isLiteral(expression)) {
+            return true;
+        }
+        if (expression instanceof Parenthesis) {
+            return isFoldable(((Parenthesis) expression).getExpression());
+        }
+        if (expression instanceof SignedExpression) {
+            return isFoldable(((SignedExpression) expression).getExpression());
+        }
+        if (expression instanceof BinaryExpression) {
+            BinaryExpression binary = ((BinaryExpression) expression);
+            String type = binary.getStringExpression();
+            Optional<? extends Feature> feature = metadata.getFeature(FeatureId.ValueMap.of(type));
+            if (!feature.isPresent()) {
+                feature = metadata.getFeature(FeatureId.Filter.of(type));
+            }
+            return isFoldable(feature)
+                    && isFoldable(binary.getLeftExpression())
+                    && isFoldable(binary.getRightExpression());
+        }
+        if (expression instanceof Function) {
+            Function function = ((Function) expression);
+            if (!isFoldable(metadata.getFeature(FeatureId.ValueMap.of(function.getName())))) {
+                return false;
+            }
+            return function.getParameters() == null || isFoldable(function.getParameters());
+        }
+        if (expression instanceof CastExpression) {
+            return isFoldable(metadata.getFeature(FeatureId.ValueMap.cast))
+                    && isFoldable(((CastExpression) expression).getLeftExpression());
+        }
+        if (expression instanceof Between) {
+            Between between = ((Between) expression);
+            return isFoldable(metadata.getFeature(FeatureId.Filter.between))
+                    && isFoldable(between.getLeftExpression())
+                    && isFoldable(between.getBetweenExpressionStart())
+                    && isFoldable(between.getBetweenExpressionEnd());
+        }
+        if (expression instanceof InExpression) {
+            InExpression in = ((InExpression) expression);
+            return isFoldable(metadata.getFeature(FeatureId.Filter.in))
+                    && in.getLeftExpression() != null
+                    && isFoldable(in.getLeftExpression())
+                    && in.getRightItemsList() instanceof ExpressionList
+                    && isFoldable(((ExpressionList) in.getRightItemsList()));
+        }
+        return false;
+    }
+
+    private boolean isFoldable(ExpressionList list) {
+        if (list.getExpressions() == null) {
+            return true;
+        }
+        for (Expression expression : list.getExpressions()) {
+            if (!isFoldable(expression)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isFoldable(Optional<? extends Feature> feature) {
+        return feature.map(FoldableFeature.class::isInstance).orElse(false);
+    }
+
+}
@@ -0,0 +1,85 @@
+package org.jetlinks.reactor.ql.supports;
+
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.util.function.Function;
+
+/**
+ * 下游处理不过来时的溢出策略.查询接收数据的速度不再受下游限制,数据先进入有界缓冲区,缓冲区满时按策略处理.
+ * <p>
+ * 通过hint指定: <code>/*+ overflow(dropOldest),overflowBuffer(1024) *&#47;</code>,
+ * 或者通过{@link org.jetlinks.reactor.ql.ReactorQL.Builder#overflow(OverflowStrategy, int)}指定.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public enum OverflowStrategy {
+
+    /**
+     * 丢弃缓冲区中最早的数据
+     */
+    dropOldest {
+        @Override
+        public <T> Function<Flux<T>, Flux<T>> create(int bufferSize, Runnable onDrop) {
+            return flux -> flux.onBackpressureBuffer(bufferSize, ignore -> onDrop.run(), BufferOverflowStrategy.DROP_OLDEST);
+        }
+    },
+    /**
+     * 丢弃最新的数据
+     */
+    dropLatest {
+        @Override
+        public <T> Function<Flux<T>, Flux<T>> create(int bufferSize, Runnable onDrop) {
+            return flux -> flux.onBackpressureBuffer(bufferSize, ignore -> onDrop.run(), BufferOverflowStrategy.DROP_LATEST);
+        }
+    },
+    /**
+     * 只保留最新的一条数据,忽略缓冲区大小
+     */
+    latest {
+        @Override
+        public <T> Function<Flux<T>, Flux<T>> create(int bufferSize, Runnable onDrop) {
+            return dropOldest.create(1, onDrop);
+        }
+    },
+    /**
+     * 缓冲区满时查询以{@link reactor.core.Exceptions#failWithOverflow()}错误结束
+     */
+    error {
+        @Override
+        public <T> Function<Flux<T>, Flux<T>> create(int bufferSize, Runnable onDrop) {
+            return flux -> flux.onBackpressureBuffer(bufferSize, ignore -> onDrop.run(), BufferOverflowStrategy.ERROR);
+        }
+    };
+
+    /**
+     * 创建溢出处理操作
+     *
+     * @param bufferSize 缓冲区大小
+     * @param onDrop     丢弃数据时调用
+     * @param <T>        数据类型
+     * @return 操作
+     */
+    public abstract <T> Function<Flux<T>, Flux<T>> create(int bufferSize, Runnable onDrop);
+
+    /**
+     * 根据名称获取策略,忽略大小写以及中划线,下划线,如: drop-oldest,DROP_OLDEST,dropOldest
+     *
+     * @param name 名称
+     * @return 策略
+     */
+    public static OverflowStrategy of(String name) {
+        String normalized = name.replace("-", "").replace("_", "");
+        for (OverflowStrategy strategy : values()) {
+            if (strategy.name().equalsIgnoreCase(normalized)) {
+                return strategy;
+            }
+        }
+        //兼容drop-newest
+        if ("dropnewest".equalsIgnoreCase(normalized)) {
+            return dropLatest;
+        }
+        throw new UnsupportedOperationException("不支持的溢出策略:" + name);
+    }
+}
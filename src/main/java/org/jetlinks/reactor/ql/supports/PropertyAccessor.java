@@ -0,0 +1,192 @@
+package org.jetlinks.reactor.ql.supports;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.beanutils.PropertyUtils;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 预编译的属性访问器,在构造查询时解析属性路径,如: nest.name,执行时按路径依次获取属性.
+ * <p>
+ * Map直接调用{@link Map#get(Object)},其他对象使用getter方法的{@link MethodHandle},
+ * 每一级属性缓存上一次对象类型对应的getter,类型不变时不需要再查找.
+ *
+ * @author zhouhao
+ * @see DefaultPropertyFeature
+ * @since 1.0
+ */
+@Slf4j
+class PropertyAccessor {
+
+    //对象类型->属性名->getter
+    private static final ClassValue<Map<String, Function<Object, Object>>> getters = new ClassValue<Map<String, Function<Object, Object>>>() {
+        @Override
+        protected Map<String, Function<Object, Object>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private static final Function<Object, Object> notFound = value -> null;
+
+    private final Getter direct;
+
+    private final Getter[] nested;
+
+    PropertyAccessor(String property) {
+        this.direct = new Getter(property);
+        List<String> names = split(property);
+        if (names.size() > 1) {
+            nested = new Getter[names.size()];
+            for (int i = 0; i < nested.length; i++) {
+                nested[i] = new Getter(names.get(i));
+            }
+        } else {
+            nested = null;
+        }
+    }
+
+    Object get(Object value) {
+        if (value == null) {
+            return null;
+        }
+        Object val = direct.get(value);
+        if (val != null || nested == null) {
+            return val;
+        }
+        val = value;
+        for (Getter getter : nested) {
+            val = getter.get(val);
+            if (val == null) {
+                return null;
+            }
+        }
+        return val;
+    }
+
+    static List<String> split(String property) {
+        List<String> names = new ArrayList<>(4);
+        int start = 0, idx;
+        while ((idx = property.indexOf('.', start)) >= 0) {
+            names.add(property.substring(start, idx));
+            start = idx + 1;
+        }
+        names.add(property.substring(start));
+        return names;
+    }
+
+    /**
+     * 获取对象的属性,Map直接获取,其他对象使用对应类型缓存的getter
+     *
+     * @param property 属性名
+     * @param value    对象
+     * @return 属性值
+     */
+    static Object getProperty(String property, Object value) {
+        if ("this".equals(property) || "$".equals(property)) {
+            return value;
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).get(property);
+        }
+        return getGetter(value.getClass(), property).apply(value);
+    }
+
+    static Function<Object, Object> getGetter(Class<?> type, String property) {
+        return getters.get(type).computeIfAbsent(property, name -> createGetter(type, name));
+    }
+
+    private static Function<Object, Object> createGetter(Class<?> type, String property) {
+        //a[0],a(key)等格式由beanutils处理
+        if (property.indexOf('[') >= 0 || property.indexOf('(') >= 0) {
+            return value -> {
+                try {
+                    return PropertyUtils.getProperty(value, property);
+                } catch (Exception e) {
+                    log.warn("get property error", e);
+                }
+                return null;
+            };
+        }
+        try {
+            BeanInfo beanInfo = Introspector.getBeanInfo(type);
+            for (PropertyDescriptor descriptor : beanInfo.getPropertyDescriptors()) {
+                Method method = descriptor.getReadMethod();
+                if (method == null || !descriptor.getName().equals(property)) {
+                    continue;
+                }
+                method.setAccessible(true);
+                MethodHandle handle = MethodHandles
+                        .lookup()
+                        .unreflect(method)
+                        .asType(MethodType.methodType(Object.class, Object.class));
+                return value -> {
+                    try {
+                        return handle.invokeExact(value);
+                    } catch (Error e) {
+                        throw e;
+                    } catch (Throwable e) {
+                        log.warn("get property error", e);
+                    }
+                    return null;
+                };
+            }
+        } catch (Exception e) {
+            log.warn("create property [{}] getter for {} error", property, type, e);
+        }
+        return notFound;
+    }
+
+    /**
+     * 单个属性的getter,缓存上一次的对象类型
+     */
+    static class Getter {
+
+        private final String property;
+
+        private final boolean self;
+
+        private volatile Cached cached;
+
+        Getter(String property) {
+            this.property = property;
+            this.self = "this".equals(property) || "$".equals(property);
+        }
+
+        Object get(Object value) {
+            if (self) {
+                return value;
+            }
+            if (value instanceof Map) {
+                return ((Map<?, ?>) value).get(property);
+            }
+            Class<?> type = value.getClass();
+            Cached cached = this.cached;
+            if (cached == null || cached.type != type) {
+                this.cached = cached = new Cached(type, getGetter(type, property));
+            }
+            return cached.getter.apply(value);
+        }
+    }
+
+    static class Cached {
+        private final Class<?> type;
+        private final Function<Object, Object> getter;
+
+        Cached(Class<?> type, Function<Object, Object> getter) {
+            this.type = type;
+            this.getter = getter;
+        }
+    }
+
+}
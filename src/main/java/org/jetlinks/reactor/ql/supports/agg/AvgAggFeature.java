@@ -0,0 +1,108 @@
+package org.jetlinks.reactor.ql.supports.agg;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.ValueAggMapFeature;
+import org.jetlinks.reactor.ql.feature.ValueMapFeature;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregator;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregators;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregator;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregators;
+import org.jetlinks.reactor.ql.supports.vector.VectorExpression;
+import org.jetlinks.reactor.ql.utils.CastUtils;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.math.MathFlux;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 求平均值,分区聚合时每个分区计算总和与数量,合并后再求平均值.
+ * <pre>
+ *     select avg(val) from test
+ * </pre>
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class AvgAggFeature implements ValueAggMapFeature {
+
+    public static final String ID = FeatureId.ValueAggMap.of("avg").getId();
+
+    @Override
+    public Function<Flux<ReactorQLRecord>, Flux<Object>> createMapper(Expression expression, ReactorQLMetadata metadata) {
+        Function<ReactorQLRecord, ? extends Publisher<?>> mapper = createValueMapper(expression, metadata);
+
+        return flux -> MathFlux
+                .averageDouble(flux.flatMap(mapper).map(CastUtils::castNumber))
+                .cast(Object.class)
+                .flux();
+    }
+
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    @Override
+    public Function<Flux<ReactorQLRecord>, Flux<Object>> createPartialMapper(Expression expression, ReactorQLMetadata metadata) {
+        Function<ReactorQLRecord, ? extends Publisher<?>> mapper = createValueMapper(expression, metadata);
+
+        //[总和,数量]
+        return flux -> flux
+                .flatMap(mapper)
+                .map(CastUtils::castNumber)
+                .reduce(new double[2], (state, number) -> {
+                    state[0] += number.doubleValue();
+                    state[1]++;
+                    return state;
+                })
+                .cast(Object.class)
+                .flux();
+    }
+
+    @Override
+    public Function<Flux<Object>, Flux<Object>> createMerger(Expression expression, ReactorQLMetadata metadata) {
+        return flux -> flux
+                .cast(double[].class)
+                .reduce(new double[2], (total, state) -> {
+                    total[0] += state[0];
+                    total[1] += state[1];
+                    return total;
+                })
+                .filter(total -> total[1] > 0)
+                .map(total -> total[0] / total[1])
+                .cast(Object.class)
+                .flux();
+    }
+
+    @Override
+    public Optional<Supplier<VectorAggregator>> createVectorAggregator(Expression expression, ReactorQLMetadata metadata) {
+        Expression exp = ((net.sf.jsqlparser.expression.Function) expression).getParameters().getExpressions().get(0);
+        if (!(exp instanceof Column)) {
+            return Optional.empty();
+        }
+        return Optional.of(VectorAggregators.avg(VectorExpression.column((Column) exp, metadata)));
+    }
+
+    @Override
+    public Optional<FixedWidthAggregator> createFixedWidthAggregator(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.of(FixedWidthAggregators.avg(createValueMapper(expression, metadata)));
+    }
+
+    private Function<ReactorQLRecord, ? extends Publisher<?>> createValueMapper(Expression expression, ReactorQLMetadata metadata) {
+        net.sf.jsqlparser.expression.Function function = ((net.sf.jsqlparser.expression.Function) expression);
+
+        return ValueMapFeature.createMapperNow(function.getParameters().getExpressions().get(0), metadata);
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+}
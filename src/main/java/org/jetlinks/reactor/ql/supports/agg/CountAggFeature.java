@@ -5,9 +5,15 @@ import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.ValueAggMapFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregator;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregators;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregator;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregators;
 import reactor.core.publisher.Flux;
 
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class CountAggFeature implements ValueAggMapFeature {
 
@@ -20,6 +26,29 @@ public class CountAggFeature implements ValueAggMapFeature {
         return flux -> flux.count().cast(Object.class).flux();
     }
 
+    @Override
+    public boolean isMergeable() {
+        return true;
+    }
+
+    @Override
+    public Function<Flux<Object>, Flux<Object>> createMerger(Expression expression, ReactorQLMetadata metadata) {
+        return flux -> flux
+                .reduce(0L, (total, count) -> total + ((Number) count).longValue())
+                .cast(Object.class)
+                .flux();
+    }
+
+    @Override
+    public Optional<Supplier<VectorAggregator>> createVectorAggregator(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.of(VectorAggregators.count());
+    }
+
+    @Override
+    public Optional<FixedWidthAggregator> createFixedWidthAggregator(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.of(FixedWidthAggregators.count());
+    }
+
     @Override
     public String getId() {
         return ID;
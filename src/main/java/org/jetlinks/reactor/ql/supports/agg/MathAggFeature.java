@@ -1,16 +1,22 @@
 package org.jetlinks.reactor.ql.supports.agg;
 
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.schema.Column;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.ValueAggMapFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
+import org.jetlinks.reactor.ql.supports.state.FixedWidthAggregator;
+import org.jetlinks.reactor.ql.supports.vector.VectorAggregator;
+import org.jetlinks.reactor.ql.supports.vector.VectorExpression;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class MathAggFeature implements ValueAggMapFeature {
 
@@ -18,10 +24,43 @@ public class MathAggFeature implements ValueAggMapFeature {
 
     private final Function<Flux<Object>, Mono<?>> calculator;
 
+    //合并各个分区的计算结果,为null时不支持分区聚合
+    private final Function<Flux<Object>, Mono<?>> merger;
+
     public MathAggFeature(String type,
                           Function<Flux<Object>, Mono<?>> calculator) {
+        this(type, calculator, null);
+    }
+
+    //向量化的聚合,为null时不支持向量化
+    private final Function<VectorExpression, Supplier<VectorAggregator>> vectorAggregator;
+
+    //定长的聚合,为null时不支持在堆外哈希表中聚合
+    private final Function<Function<ReactorQLRecord, ? extends Publisher<?>>, FixedWidthAggregator> fixedWidthAggregator;
+
+    public MathAggFeature(String type,
+                          Function<Flux<Object>, Mono<?>> calculator,
+                          Function<Flux<Object>, Mono<?>> merger) {
+        this(type, calculator, merger, null);
+    }
+
+    public MathAggFeature(String type,
+                          Function<Flux<Object>, Mono<?>> calculator,
+                          Function<Flux<Object>, Mono<?>> merger,
+                          Function<VectorExpression, Supplier<VectorAggregator>> vectorAggregator) {
+        this(type, calculator, merger, vectorAggregator, null);
+    }
+
+    public MathAggFeature(String type,
+                          Function<Flux<Object>, Mono<?>> calculator,
+                          Function<Flux<Object>, Mono<?>> merger,
+                          Function<VectorExpression, Supplier<VectorAggregator>> vectorAggregator,
+                          Function<Function<ReactorQLRecord, ? extends Publisher<?>>, FixedWidthAggregator> fixedWidthAggregator) {
         this.id = FeatureId.ValueAggMap.of(type).getId();
         this.calculator = calculator;
+        this.merger = merger;
+        this.vectorAggregator = vectorAggregator;
+        this.fixedWidthAggregator = fixedWidthAggregator;
     }
 
     @Override
@@ -36,6 +75,37 @@ public class MathAggFeature implements ValueAggMapFeature {
 
     }
 
+    @Override
+    public boolean isMergeable() {
+        return merger != null;
+    }
+
+    @Override
+    public Function<Flux<Object>, Flux<Object>> createMerger(Expression expression, ReactorQLMetadata metadata) {
+        if (merger == null) {
+            return ValueAggMapFeature.super.createMerger(expression, metadata);
+        }
+        return flux -> merger.apply(flux).cast(Object.class).flux();
+    }
+
+    @Override
+    public Optional<Supplier<VectorAggregator>> createVectorAggregator(Expression expression, ReactorQLMetadata metadata) {
+        Expression exp = ((net.sf.jsqlparser.expression.Function) expression).getParameters().getExpressions().get(0);
+        if (vectorAggregator == null || !(exp instanceof Column)) {
+            return Optional.empty();
+        }
+        return Optional.of(vectorAggregator.apply(VectorExpression.column((Column) exp, metadata)));
+    }
+
+    @Override
+    public Optional<FixedWidthAggregator> createFixedWidthAggregator(Expression expression, ReactorQLMetadata metadata) {
+        if (fixedWidthAggregator == null) {
+            return Optional.empty();
+        }
+        Expression exp = ((net.sf.jsqlparser.expression.Function) expression).getParameters().getExpressions().get(0);
+        return Optional.of(fixedWidthAggregator.apply(ValueMapFeature.createMapperNow(exp, metadata)));
+    }
+
     @Override
     public String getId() {
         return id;
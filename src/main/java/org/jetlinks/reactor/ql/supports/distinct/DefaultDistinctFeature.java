@@ -6,8 +6,12 @@ import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.jetlinks.reactor.ql.feature.DistinctFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.StateFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
+import org.jetlinks.reactor.ql.supports.state.OffHeapStateStore;
+import org.jetlinks.reactor.ql.supports.state.StateStore;
 import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
@@ -16,13 +20,18 @@ import reactor.util.function.Tuples;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class DefaultDistinctFeature implements DistinctFeature {
     @Override
     public Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createDistinctMapper(Distinct distinct, ReactorQLMetadata metadata) {
 
+        Supplier<StateStore> state = createState(metadata);
         List<SelectItem> items = distinct.getOnSelectItems();
         if (items == null) {
+            if (state != null) {
+                return flux -> distinct(flux, ReactorQLRecord::getRecord, state);
+            }
             return flux -> flux.distinct(ReactorQLRecord::getRecord);
         }
         List<Function<ReactorQLRecord, Mono<Object>>> keySelector = new ArrayList<>();
@@ -47,17 +56,66 @@ public class DefaultDistinctFeature implements DistinctFeature {
                 }
             });
         }
-        return createDistinct(keySelector);
+        return createDistinct(keySelector, state);
     }
 
     protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createDistinct(List<Function<ReactorQLRecord, Mono<Object>>> keySelector) {
-        return flux -> flux
-                .flatMap(record -> Flux.fromIterable(keySelector)
-                        .flatMap(mapper -> mapper.apply(record))
-                        .collectList()
-                        .map(list -> Tuples.of(list, record)))
-                .distinct(Tuple2::getT1)
-                .map(Tuple2::getT2);
+        return createDistinct(keySelector, null);
+    }
+
+    protected Function<Flux<ReactorQLRecord>, Flux<ReactorQLRecord>> createDistinct(List<Function<ReactorQLRecord, Mono<Object>>> keySelector,
+                                                                                   Supplier<StateStore> state) {
+        return flux -> {
+            Flux<Tuple2<List<Object>, ReactorQLRecord>> keyed = flux
+                    .flatMap(record -> Flux.fromIterable(keySelector)
+                            .flatMap(mapper -> mapper.apply(record))
+                            .collectList()
+                            .map(list -> Tuples.of(list, record)));
+            return (state == null ? keyed.distinct(Tuple2::getT1) : distinct(keyed, Tuple2::getT1, state))
+                    .map(Tuple2::getT2);
+        };
+    }
+
+    /**
+     * 启用了{@link StateFeature}时,使用状态存储记录已经输出过的数据:
+     * <ul>
+     *     <li>在重启后恢复的状态: 多次执行共享同一份状态,重启后不会再次输出,执行完成后清空</li>
+     *     <li>其他状态: 每次执行时使用{@link StateFeature#createHashTable(ReactorQLMetadata, String)}创建新的状态,执行结束后释放</li>
+     * </ul>
+     *
+     * @param metadata 查询元数据
+     * @return 每次执行时获取状态存储, 未启用时返回null
+     */
+    protected Supplier<StateStore> createState(ReactorQLMetadata metadata) {
+        StateFeature feature = metadata
+                .getFeature(FeatureId.State.defaultId)
+                .filter(StateFeature::isEnabled)
+                .orElse(null);
+        if (feature == null) {
+            return null;
+        }
+        if (feature.isPersistent()) {
+            StateStore store = feature.getStateStore(metadata, "distinct");
+            return () -> store;
+        }
+        return feature
+                .createHashTable(metadata, "distinct")
+                .<Supplier<StateStore>>map(tables -> () -> new OffHeapStateStore(tables.get()))
+                .orElse(null);
+    }
+
+    private static <T> Flux<T> distinct(Flux<T> flux, Function<T, Object> keySelector, Supplier<StateStore> stateSupplier) {
+        return Flux.defer(() -> {
+            StateStore state = stateSupplier.get();
+            if (state instanceof Disposable) {
+                return flux
+                        .filter(data -> state.putIfAbsent(keySelector.apply(data), true) == null)
+                        .doFinally(signal -> ((Disposable) state).dispose());
+            }
+            return flux
+                    .filter(data -> state.putIfAbsent(keySelector.apply(data), true) == null)
+                    .doOnComplete(state::clear);
+        });
     }
 
     @Override
@@ -0,0 +1,71 @@
+package org.jetlinks.reactor.ql.supports.explain;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.MetricsFeature;
+import org.jetlinks.reactor.ql.supports.metrics.InMemoryOperatorMetrics;
+import org.jetlinks.reactor.ql.supports.metrics.OperatorMetrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行分析时使用的运行指标,只统计一次执行,每条数据输入或输出时采样队列中的数据量,记录最大值.
+ *
+ * @author zhouhao
+ * @see ExplainNode
+ * @since 1.0
+ */
+public class ExplainMetricsFeature implements MetricsFeature {
+
+    private final Map<String, AnalyzeMetrics> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public OperatorMetrics getOperatorMetrics(ReactorQLMetadata metadata, String operator) {
+        return metrics.computeIfAbsent(operator, AnalyzeMetrics::new);
+    }
+
+    /**
+     * 将统计信息填充到执行计划中
+     *
+     * @param plan 执行计划
+     * @return 执行计划
+     */
+    public ExplainNode analyze(ExplainNode plan) {
+        plan.analyze(Collections.unmodifiableMap(metrics));
+        return plan;
+    }
+
+    static class AnalyzeMetrics extends InMemoryOperatorMetrics {
+
+        private final AtomicLong peak = new AtomicLong();
+
+        AnalyzeMetrics(String operator) {
+            super(operator);
+        }
+
+        @Override
+        public void recordIn() {
+            super.recordIn();
+            sample();
+        }
+
+        @Override
+        public void recordOut() {
+            super.recordOut();
+            sample();
+        }
+
+        private void sample() {
+            long depth = getQueueDepth();
+            if (depth > peak.get()) {
+                peak.accumulateAndGet(depth, Math::max);
+            }
+        }
+
+        long getPeakQueueDepth() {
+            return peak.get();
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package org.jetlinks.reactor.ql.supports.explain;
+
+import lombok.Getter;
+import org.jetlinks.reactor.ql.supports.metrics.InMemoryOperatorMetrics;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 执行计划中的节点,子节点为当前节点的输入,根节点为最后执行的操作.
+ * <p>
+ * 通过{@link org.jetlinks.reactor.ql.ReactorQL#explain()}获取的节点只包含计划信息,
+ * 通过{@link org.jetlinks.reactor.ql.ReactorQL#explainAnalyze(Function)}获取的节点还包含实际执行的数据量,耗时以及最大缓冲的数据量.
+ *
+ * @author zhouhao
+ * @see ExplainPlanner
+ * @since 1.0
+ */
+@Getter
+public class ExplainNode {
+
+    /**
+     * 操作名称,如: from,join,where,select,groupBy
+     */
+    private final String operator;
+
+    /**
+     * 操作对应的表达式
+     */
+    private String expression;
+
+    /**
+     * 表达式使用的功能ID,如: filter:and,value-map:property
+     */
+    private final Set<String> features = new LinkedHashSet<>();
+
+    /**
+     * 执行策略,状态估计等属性
+     */
+    private final Map<String, Object> properties = new LinkedHashMap<>();
+
+    /**
+     * 输入节点
+     */
+    private final List<ExplainNode> children = new ArrayList<>();
+
+    /**
+     * 是否已执行分析
+     */
+    private boolean analyzed;
+
+    /**
+     * 输入的数据量
+     */
+    private long rowsIn;
+
+    /**
+     * 输出的数据量
+     */
+    private long rowsOut;
+
+    /**
+     * 处理耗时,纳秒
+     */
+    private long processingNanos;
+
+    /**
+     * 执行期间缓冲数据量的最大值
+     */
+    private long peakBuffered;
+
+    public ExplainNode(String operator) {
+        this.operator = operator;
+    }
+
+    public ExplainNode expression(Object expression) {
+        this.expression = expression == null ? null : String.valueOf(expression);
+        return this;
+    }
+
+    public ExplainNode features(Collection<String> features) {
+        this.features.addAll(features);
+        return this;
+    }
+
+    public ExplainNode property(String key, Object value) {
+        if (value != null) {
+            properties.put(key, value);
+        }
+        return this;
+    }
+
+    public ExplainNode properties(Map<String, Object> properties) {
+        if (properties != null) {
+            this.properties.putAll(properties);
+        }
+        return this;
+    }
+
+    public ExplainNode child(ExplainNode child) {
+        if (child != null) {
+            children.add(child);
+        }
+        return this;
+    }
+
+    /**
+     * 查找第一个指定操作的节点
+     *
+     * @param operator 操作名称
+     * @return 节点
+     */
+    public Optional<ExplainNode> find(String operator) {
+        if (this.operator.equals(operator)) {
+            return Optional.of(this);
+        }
+        for (ExplainNode child : children) {
+            Optional<ExplainNode> node = child.find(operator);
+            if (node.isPresent()) {
+                return node;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 遍历当前节点以及全部子节点
+     *
+     * @param consumer 节点消费者
+     */
+    public void forEach(Consumer<ExplainNode> consumer) {
+        consumer.accept(this);
+        for (ExplainNode child : children) {
+            child.forEach(consumer);
+        }
+    }
+
+    /**
+     * 填充执行的统计信息,节点按操作名称匹配,没有对应统计信息的节点不填充
+     *
+     * @param metrics 操作名称->统计信息
+     */
+    void analyze(Map<String, ? extends InMemoryOperatorMetrics> metrics) {
+        forEach(node -> {
+            InMemoryOperatorMetrics operator = metrics.get(node.operator);
+            if (operator == null) {
+                return;
+            }
+            node.analyzed = true;
+            node.rowsIn = operator.getRecordsIn();
+            node.rowsOut = operator.getRecordsOut();
+            node.processingNanos = operator.getProcessingNanos();
+            if (operator instanceof ExplainMetricsFeature.AnalyzeMetrics) {
+                node.peakBuffered = ((ExplainMetricsFeature.AnalyzeMetrics) operator).getPeakQueueDepth();
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        print(builder, 0);
+        return builder.toString();
+    }
+
+    private void print(StringBuilder builder, int depth) {
+        for (int i = 0; i < depth; i++) {
+            builder.append("  ");
+        }
+        builder.append("-> ").append(operator);
+        if (expression != null) {
+            builder.append(": ").append(expression);
+        }
+        if (!features.isEmpty()) {
+            builder.append(" features=").append(features);
+        }
+        if (!properties.isEmpty()) {
+            builder.append(" ").append(properties);
+        }
+        if (analyzed) {
+            builder.append(" (rows in=").append(rowsIn)
+                   .append(" out=").append(rowsOut)
+                   .append(", time=").append(String.format("%.3f", processingNanos / 1000_000D)).append("ms")
+                   .append(", peak buffered=").append(peakBuffered)
+                   .append(")");
+        }
+        builder.append("\n");
+        for (ExplainNode child : children) {
+            child.print(builder, depth + 1);
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.jetlinks.reactor.ql.supports.explain;
+
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.Between;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.IsNullExpression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.*;
+import org.apache.commons.collections.CollectionUtils;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.Feature;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 根据SQL以及构造查询时选择的执行策略生成执行计划.
+ * <p>
+ * 执行策略由{@link org.jetlinks.reactor.ql.DefaultReactorQL}在构造查询时记录,key为操作名称,
+ * 如: <code>select -> {strategy=partitioned,parallelism=4}</code>,关联的表为<code>join:表别名</code>.
+ * 状态估计(state)的取值:
+ * <ul>
+ *     <li>none: 不缓存数据</li>
+ *     <li>bounded(n): 最多缓存n条数据</li>
+ *     <li>window: 缓存每个分组当前窗口内的数据</li>
+ *     <li>unbounded: 缓存数据直到流结束,数据量与输入有关</li>
+ * </ul>
+ *
+ * @author zhouhao
+ * @see ExplainNode
+ * @since 1.0
+ */
+public class ExplainPlanner {
+
+    private final ReactorQLMetadata metadata;
+
+    private final Map<String, Map<String, Object>> strategies;
+
+    public ExplainPlanner(ReactorQLMetadata metadata, Map<String, Map<String, Object>> strategies) {
+        this.metadata = metadata;
+        this.strategies = strategies;
+    }
+
+    public ExplainNode plan() {
+        PlainSelect select = metadata.getSql();
+        ExplainNode node = createFrom(select.getFromItem());
+        List<String> stateless = new ArrayList<>();
+        if (!CollectionUtils.isEmpty(select.getJoins())) {
+            node = createJoin(node, select.getJoins());
+            stateless.add("join");
+        }
+        boolean grouped = select.getGroupBy() != null;
+        boolean aggregation = Boolean.TRUE.equals(getStrategy("select").get("aggregation"));
+        if (strategies.containsKey("batch")) {
+            node = new ExplainNode("batch")
+                    .expression(select.getWhere())
+                    .features(resolveFeatures(select.getWhere(), true))
+                    .properties(getStrategy("batch"))
+                    .child(node);
+            stateless.add("batch");
+        } else if (select.getWhere() != null) {
+            node = new ExplainNode("where")
+                    .expression(select.getWhere())
+                    .features(resolveFeatures(select.getWhere(), true))
+                    .property("state", "none")
+                    .child(node);
+            stateless.add("where");
+        }
+        if (!grouped && !aggregation && !strategies.containsKey("batch")) {
+            node = createSelect(node, "none");
+            stateless.add("select");
+        }
+        if (strategies.containsKey("parallel")) {
+            node = new ExplainNode("parallel")
+                    .properties(getStrategy("parallel"))
+                    .property("stages", stateless)
+                    .child(node);
+        }
+        if (grouped) {
+            node = createSelect(createGroupBy(node, select.getGroupBy()), "none");
+        } else if (aggregation) {
+            node = createSelect(node, "unbounded");
+        }
+        if (!CollectionUtils.isEmpty(select.getOrderByElements())) {
+            node = new ExplainNode("orderBy")
+                    .expression(select.getOrderByElements()
+                                      .stream()
+                                      .map(String::valueOf)
+                                      .collect(Collectors.joining(",")))
+                    .features(select.getOrderByElements()
+                                    .stream()
+                                    .flatMap(order -> resolveFeatures(order.getExpression(), false).stream())
+                                    .collect(Collectors.toCollection(LinkedHashSet::new)))
+                    .property("state", "unbounded")
+                    .child(node);
+        }
+        if (select.getDistinct() != null) {
+            node = new ExplainNode("distinct")
+                    .expression(select.getDistinct())
+                    .features(Collections.singleton(FeatureId.Distinct
+                                                            .of(metadata.getSetting("distinctBy").map(String::valueOf).orElse("default"))
+                                                            .getId()))
+                    .property("state", "unbounded")
+                    .child(node);
+        }
+        Limit limit = select.getLimit();
+        if (limit != null && limit.getOffset() != null) {
+            node = new ExplainNode("offset")
+                    .expression(limit.getOffset())
+                    .property("state", "none")
+                    .child(node);
+        }
+        if (limit != null && limit.getRowCount() != null) {
+            node = new ExplainNode("limit")
+                    .expression(limit.getRowCount())
+                    .property("state", "none")
+                    .child(node);
+        }
+        if (strategies.containsKey("overflow")) {
+            node = new ExplainNode("overflow")
+                    .properties(getStrategy("overflow"))
+                    .child(node);
+        }
+        return node;
+    }
+
+    private Map<String, Object> getStrategy(String operator) {
+        return strategies.getOrDefault(operator, Collections.emptyMap());
+    }
+
+    private ExplainNode createFrom(FromItem from) {
+        ExplainNode node = new ExplainNode("from").expression(from);
+        if (from instanceof ParenthesisFromItem) {
+            return createFrom(((ParenthesisFromItem) from).getFromItem());
+        }
+        if (from instanceof Table) {
+            node.features(resolveFeature(FeatureId.From.table));
+        } else if (from instanceof SubSelect) {
+            node.features(resolveFeature(FeatureId.From.subSelect));
+        } else if (from instanceof ValuesList) {
+            node.features(resolveFeature(FeatureId.From.values));
+        } else if (from instanceof TableFunction) {
+            node.features(resolveFeature(FeatureId.From.of(((TableFunction) from).getFunction().getName())));
+        }
+        return node.property("state", "none");
+    }
+
+    private ExplainNode createJoin(ExplainNode input, List<Join> joins) {
+        ExplainNode node = new ExplainNode("join").child(input);
+        for (Join join : joins) {
+            FromItem right = join.getRightItem();
+            String alias = right.getAlias() != null
+                    ? right.getAlias().getName()
+                    : right instanceof Table ? ((Table) right).getFullyQualifiedName() : null;
+            Map<String, Object> strategy = getStrategy("join:" + alias);
+            String type = join.isLeft() ? "left" : join.isRight() ? "right" : "inner";
+            node.child(new ExplainNode(String.valueOf(strategy.getOrDefault("strategy", "nestedLoop")))
+                               .expression(right)
+                               .features(resolveFeatures(join.getOnExpression(), true))
+                               .property("type", type)
+                               .property("on", join.getOnExpression())
+                               .property("state", "none")
+                               .properties(strategy));
+        }
+        return node;
+    }
+
+    private ExplainNode createSelect(ExplainNode input, String defaultState) {
+        PlainSelect select = metadata.getSql();
+        Set<String> features = new LinkedHashSet<>();
+        for (SelectItem item : select.getSelectItems()) {
+            if (item instanceof SelectExpressionItem) {
+                features.addAll(resolveFeatures(((SelectExpressionItem) item).getExpression(), false));
+            }
+        }
+        ExplainNode node = new ExplainNode("select")
+                .expression(select.getSelectItems()
+                                  .stream()
+                                  .map(String::valueOf)
+                                  .collect(Collectors.joining(",")))
+                .features(features)
+                .property("state", defaultState)
+                .properties(getStrategy("select"))
+                .child(input);
+        node.getProperties().remove("aggregation");
+        return node;
+    }
+
+    private ExplainNode createGroupBy(ExplainNode input, GroupByElement groupBy) {
+        Set<String> features = new LinkedHashSet<>();
+        boolean window = false;
+        for (Expression expression : groupBy.getGroupByExpressions()) {
+            if (expression instanceof net.sf.jsqlparser.expression.Function) {
+                net.sf.jsqlparser.expression.Function function = ((net.sf.jsqlparser.expression.Function) expression);
+                features.addAll(resolveFeature(FeatureId.GroupBy.of(function.getName())));
+                if (function.getParameters() != null) {
+                    for (Expression parameter : function.getParameters().getExpressions()) {
+                        resolve(parameter, false, features);
+                    }
+                }
+                window = true;
+            } else if (expression instanceof Column) {
+                features.addAll(resolveFeature(FeatureId.GroupBy.property));
+            } else if (expression instanceof BinaryExpression) {
+                features.addAll(resolveFeature(FeatureId.GroupBy.of(((BinaryExpression) expression).getStringExpression())));
+                resolve(((BinaryExpression) expression).getLeftExpression(), false, features);
+                resolve(((BinaryExpression) expression).getRightExpression(), false, features);
+            }
+        }
+        Expression having = metadata.getSql().getHaving();
+        if (having != null) {
+            features.addAll(resolveFeatures(having, true));
+        }
+        return new ExplainNode("groupBy")
+                .expression(groupBy.getGroupByExpressions()
+                                   .stream()
+                                   .map(String::valueOf)
+                                   .collect(Collectors.joining(",")))
+                .features(features)
+                .property("having", having)
+                .property("state", window ? "window" : "unbounded")
+                .properties(getStrategy("groupBy"))
+                .child(input);
+    }
+
+    private Set<String> resolveFeature(FeatureId<?> id) {
+        return metadata
+                .getFeature(id)
+                .map(Feature::getId)
+                .map(Collections::singleton)
+                .orElse(Collections.emptySet());
+    }
+
+    /**
+     * 获取表达式中使用的功能ID
+     *
+     * @param expression 表达式
+     * @param filter     是否为条件表达式
+     * @return 功能ID
+     */
+    public Set<String> resolveFeatures(Expression expression, boolean filter) {
+        Set<String> features = new LinkedHashSet<>();
+        resolve(expression, filter, features);
+        return features;
+    }
+
+    @SafeVarargs
+    private final void resolveFirst(Set<String> features, FeatureId<? extends Feature>... ids) {
+        for (FeatureId<? extends Feature> id : ids) {
+            Set<String> feature = resolveFeature(id);
+            if (!feature.isEmpty()) {
+                features.addAll(feature);
+                return;
+            }
+        }
+    }
+
+    private void resolve(Expression expr, boolean filter, Set<String> features) {
+        if (expr == null) {
+            return;
+        }
+        if (expr instanceof Parenthesis) {
+            resolve(((Parenthesis) expr).getExpression(), filter, features);
+        } else if (expr instanceof net.sf.jsqlparser.expression.Function) {
+            net.sf.jsqlparser.expression.Function function = ((net.sf.jsqlparser.expression.Function) expr);
+            String name = function.getName();
+            if (filter) {
+                resolveFirst(features, FeatureId.Filter.of(name), FeatureId.ValueMap.of(name));
+            } else {
+                resolveFirst(features, FeatureId.ValueAggMap.of(name), FeatureId.ValueMap.of(name));
+            }
+            if (function.getParameters() != null) {
+                for (Expression parameter : function.getParameters().getExpressions()) {
+                    resolve(parameter, false, features);
+                }
+            }
+        } else if (expr instanceof Column) {
+            features.addAll(resolveFeature(FeatureId.ValueMap.property));
+        } else if (expr instanceof CaseExpression) {
+            CaseExpression caseExpression = ((CaseExpression) expr);
+            features.addAll(resolveFeature(FeatureId.ValueMap.caseWhen));
+            resolve(caseExpression.getSwitchExpression(), false, features);
+            for (WhenClause clause : caseExpression.getWhenClauses()) {
+                resolve(clause.getWhenExpression(), caseExpression.getSwitchExpression() == null, features);
+                resolve(clause.getThenExpression(), false, features);
+            }
+            resolve(caseExpression.getElseExpression(), false, features);
+        } else if (expr instanceof CastExpression) {
+            features.addAll(resolveFeature(FeatureId.ValueMap.cast));
+            resolve(((CastExpression) expr).getLeftExpression(), false, features);
+        } else if (expr instanceof SubSelect) {
+            features.addAll(resolveFeature(FeatureId.ValueMap.select));
+        } else if (expr instanceof Between) {
+            Between between = ((Between) expr);
+            features.addAll(resolveFeature(FeatureId.Filter.between));
+            resolve(between.getLeftExpression(), false, features);
+            resolve(between.getBetweenExpressionStart(), false, features);
+            resolve(between.getBetweenExpressionEnd(), false, features);
+        } else if (expr instanceof InExpression) {
+            InExpression in = ((InExpression) expr);
+            features.addAll(resolveFeature(FeatureId.Filter.in));
+            resolve(in.getLeftExpression(), false, features);
+            if (in.getRightItemsList() instanceof ExpressionList) {
+                for (Expression item : ((ExpressionList) in.getRightItemsList()).getExpressions()) {
+                    resolve(item, false, features);
+                }
+            } else if (in.getRightItemsList() instanceof SubSelect) {
+                features.addAll(resolveFeature(FeatureId.ValueMap.select));
+            }
+        } else if (expr instanceof IsNullExpression) {
+            resolve(((IsNullExpression) expr).getLeftExpression(), false, features);
+        } else if (expr instanceof NotExpression) {
+            resolve(((NotExpression) expr).getExpression(), filter, features);
+        } else if (expr instanceof SignedExpression) {
+            resolve(((SignedExpression) expr).getExpression(), false, features);
+        } else if (expr instanceof BinaryExpression) {
+            BinaryExpression binary = ((BinaryExpression) expr);
+            boolean logical = binary instanceof AndExpression || binary instanceof OrExpression;
+            String operator = binary.getStringExpression();
+            if (logical) {
+                features.addAll(resolveFeature(FeatureId.Filter.of(operator)));
+            } else if (filter) {
+                resolveFirst(features, FeatureId.Filter.of(operator), FeatureId.ValueMap.of(operator));
+            } else {
+                resolveFirst(features, FeatureId.ValueMap.of(operator), FeatureId.Filter.of(operator));
+            }
+            resolve(binary.getLeftExpression(), logical, features);
+            resolve(binary.getRightExpression(), logical, features);
+        }
+    }
+}
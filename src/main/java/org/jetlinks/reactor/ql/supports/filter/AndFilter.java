@@ -3,14 +3,17 @@ package org.jetlinks.reactor.ql.supports.filter;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FilterFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.supports.vector.VectorPredicate;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
 import java.util.function.BiFunction;
 
-public class AndFilter implements FilterFeature {
+public class AndFilter implements FilterFeature, FoldableFeature {
 
     private static final String id = FeatureId.Filter.and.getId();
 
@@ -31,6 +34,18 @@ public class AndFilter implements FilterFeature {
     }
 
 
+    @Override
+    public Optional<VectorPredicate> createVectorPredicate(Expression expression, ReactorQLMetadata metadata) {
+        AndExpression and = ((AndExpression) expression);
+
+        Optional<VectorPredicate> left = FilterFeature.createVectorPredicateByExpression(and.getLeftExpression(), metadata);
+        Optional<VectorPredicate> right = FilterFeature.createVectorPredicateByExpression(and.getRightExpression(), metadata);
+        if (left.isPresent() && right.isPresent()) {
+            return Optional.of(left.get().and(right.get()));
+        }
+        return Optional.empty();
+    }
+
     @Override
     public String getId() {
         return id;
@@ -3,6 +3,7 @@ package org.jetlinks.reactor.ql.supports.filter;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.relational.Between;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FilterFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
@@ -16,7 +17,7 @@ import java.util.Date;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
-public class BetweenFilter implements FilterFeature {
+public class BetweenFilter implements FilterFeature, FoldableFeature {
 
     private static final  String ID = FeatureId.Filter.between.getId();
 
@@ -1,13 +1,23 @@
 package org.jetlinks.reactor.ql.supports.filter;
 
 import lombok.Getter;
-import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.*;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FilterFeature;
+import org.jetlinks.reactor.ql.feature.SchemaFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.supports.schema.ColumnDefinition;
+import org.jetlinks.reactor.ql.supports.vector.ColumnVector;
+import org.jetlinks.reactor.ql.supports.vector.NumberColumnVector;
+import org.jetlinks.reactor.ql.supports.vector.SelectionVector;
+import org.jetlinks.reactor.ql.supports.vector.StringColumnVector;
+import org.jetlinks.reactor.ql.supports.vector.VectorExpression;
+import org.jetlinks.reactor.ql.supports.vector.VectorPredicate;
 import org.jetlinks.reactor.ql.utils.CastUtils;
+import org.jetlinks.reactor.ql.utils.NumberParser;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
@@ -15,11 +25,14 @@ import reactor.util.function.Tuple2;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
-public abstract class BinaryFilterFeature implements FilterFeature {
+public abstract class BinaryFilterFeature implements FilterFeature, FoldableFeature {
 
     @Getter
     private final String id;
@@ -36,9 +49,245 @@ public abstract class BinaryFilterFeature implements FilterFeature {
         Function<ReactorQLRecord, ? extends Publisher<?>> leftMapper = tuple2.getT1();
         Function<ReactorQLRecord, ? extends Publisher<?>> rightMapper = tuple2.getT2();
 
+        //一侧为常量时,根据常量的类型创建对应的比较函数,如: temp > 30
+        Expression[] expressions = getExpressions(expression);
+        ColumnDefinition leftColumn = SchemaFeature.resolveColumn(expressions[0], metadata).orElse(null);
+        ColumnDefinition rightColumn = SchemaFeature.resolveColumn(expressions[1], metadata).orElse(null);
+        if (leftColumn != null && rightColumn != null && !leftColumn.getType().isComparable(rightColumn.getType())) {
+            throw new UnsupportedOperationException("列[" + leftColumn.getName() + "]类型为" + leftColumn.getType()
+                    + ",无法与列[" + rightColumn.getName() + "]类型" + rightColumn.getType() + "进行比较:" + expression);
+        }
+        //定义了表结构时,将常量转换为列的类型
+        Object rightConstant = castConstant(leftColumn, getConstant(expressions[1]), expression);
+        if (rightConstant != null) {
+            Predicate<Object> predicate = createConstantPredicate(rightConstant, false);
+            return (row, column) -> Mono.from(leftMapper.apply(row)).map(predicate::test).defaultIfEmpty(false);
+        }
+        Object leftConstant = castConstant(rightColumn, getConstant(expressions[0]), expression);
+        if (leftConstant != null) {
+            Predicate<Object> predicate = createConstantPredicate(leftConstant, true);
+            return (row, column) -> Mono.from(rightMapper.apply(row)).map(predicate::test).defaultIfEmpty(false);
+        }
+
         return (row, column) -> Mono.zip(Mono.from(leftMapper.apply(row)), Mono.from(rightMapper.apply(row)), this::test).defaultIfEmpty(false);
     }
 
+    @Override
+    public Optional<VectorPredicate> createVectorPredicate(Expression expression, ReactorQLMetadata metadata) {
+        if (!(expression instanceof BinaryExpression)) {
+            return Optional.empty();
+        }
+        Expression[] expressions = getExpressions(expression);
+        ColumnDefinition leftColumn = SchemaFeature.resolveColumn(expressions[0], metadata).orElse(null);
+        ColumnDefinition rightColumn = SchemaFeature.resolveColumn(expressions[1], metadata).orElse(null);
+        Object rightConstant = castConstant(leftColumn, getConstant(expressions[1]), expression);
+        Object leftConstant = castConstant(rightColumn, getConstant(expressions[0]), expression);
+        if (rightConstant != null && leftConstant != null) {
+            return Optional.empty();
+        }
+        if (rightConstant != null) {
+            return VectorExpression
+                    .create(expressions[0], metadata)
+                    .map(left -> createConstantVectorPredicate(left, rightConstant, false));
+        }
+        if (leftConstant != null) {
+            return VectorExpression
+                    .create(expressions[1], metadata)
+                    .map(right -> createConstantVectorPredicate(right, leftConstant, true));
+        }
+        Optional<VectorExpression> left = VectorExpression.create(expressions[0], metadata);
+        Optional<VectorExpression> right = VectorExpression.create(expressions[1], metadata);
+        if (!left.isPresent() || !right.isPresent()) {
+            return Optional.empty();
+        }
+        VectorExpression leftExpr = left.get();
+        VectorExpression rightExpr = right.get();
+        return Optional.of((batch, selection) -> {
+            ColumnVector leftVector = leftExpr.evaluate(batch);
+            ColumnVector rightVector = rightExpr.evaluate(batch);
+            if (leftVector == null || rightVector == null) {
+                return null;
+            }
+            int[] result = new int[selection.size()];
+            int len = 0;
+            if (leftVector instanceof NumberColumnVector && rightVector instanceof NumberColumnVector) {
+                double[] leftValues = ((NumberColumnVector) leftVector).getDoubles();
+                double[] rightValues = ((NumberColumnVector) rightVector).getDoubles();
+                for (int i = 0; i < selection.size(); i++) {
+                    int idx = selection.get(i);
+                    if (!leftVector.isNull(idx) && !rightVector.isNull(idx) && doTest(leftValues[idx], rightValues[idx])) {
+                        result[len++] = idx;
+                    }
+                }
+            } else {
+                for (int i = 0; i < selection.size(); i++) {
+                    int idx = selection.get(i);
+                    Object leftValue = leftVector.getObject(idx);
+                    Object rightValue = rightVector.getObject(idx);
+                    if (leftValue != null && rightValue != null && test(leftValue, rightValue)) {
+                        result[len++] = idx;
+                    }
+                }
+            }
+            return new SelectionVector(result, len);
+        });
+    }
+
+    /**
+     * 创建与常量比较的向量化条件,数值列直接使用double数组比较,字符串列对字典中的每个值只比较一次,
+     * 其他类型的列逐个使用{@link BinaryFilterFeature#createConstantPredicate(Object, boolean)}比较.
+     *
+     * @param expression     表达式
+     * @param constant       常量
+     * @param constantOnLeft 常量是否在左侧
+     * @return 向量化的条件
+     */
+    protected VectorPredicate createConstantVectorPredicate(VectorExpression expression, Object constant, boolean constantOnLeft) {
+        Predicate<Object> predicate = createConstantPredicate(constant, constantOnLeft);
+        Number number = constant instanceof Number
+                ? (Number) constant
+                : constant instanceof String ? tryCastNumber((String) constant) : null;
+
+        return (batch, selection) -> {
+            ColumnVector vector = expression.evaluate(batch);
+            if (vector == null) {
+                return null;
+            }
+            int[] result = new int[selection.size()];
+            int len = 0;
+            if (number != null && vector instanceof NumberColumnVector) {
+                double value = number.doubleValue();
+                double[] values = ((NumberColumnVector) vector).getDoubles();
+                for (int i = 0; i < selection.size(); i++) {
+                    int idx = selection.get(i);
+                    if (!vector.isNull(idx) && (constantOnLeft ? doTest(value, values[idx]) : doTest(values[idx], value))) {
+                        result[len++] = idx;
+                    }
+                }
+            } else if (vector instanceof StringColumnVector) {
+                String[] dictionary = ((StringColumnVector) vector).getDictionary();
+                boolean[] matched = new boolean[dictionary.length];
+                for (int i = 0; i < dictionary.length; i++) {
+                    matched[i] = predicate.test(dictionary[i]);
+                }
+                int[] codes = ((StringColumnVector) vector).getCodes();
+                for (int i = 0; i < selection.size(); i++) {
+                    int idx = selection.get(i);
+                    if (!vector.isNull(idx) && matched[codes[idx]]) {
+                        result[len++] = idx;
+                    }
+                }
+            } else {
+                for (int i = 0; i < selection.size(); i++) {
+                    int idx = selection.get(i);
+                    Object value = vector.getObject(idx);
+                    if (value != null && predicate.test(value)) {
+                        result[len++] = idx;
+                    }
+                }
+            }
+            return new SelectionVector(result, len);
+        };
+    }
+
+    /**
+     * 根据常量类型创建比较函数,值的类型与常量类型一致时直接比较,否则使用{@link BinaryFilterFeature#test(Object, Object)}.
+     *
+     * @param constant   常量
+     * @param constantOnLeft 常量是否在左侧
+     * @return 比较函数
+     */
+    protected Predicate<Object> createConstantPredicate(Object constant, boolean constantOnLeft) {
+        if (constant instanceof Number) {
+            Number number = ((Number) constant);
+            //字符串格式的数字,如: "30.5" > 30
+            NumberParser parser = new NumberParser();
+            return val -> {
+                Number value = val instanceof Number
+                        ? (Number) val
+                        : val instanceof String ? parser.parse((String) val) : null;
+                if (value != null) {
+                    return constantOnLeft ? doTest(number, value) : doTest(value, number);
+                }
+                return constantOnLeft ? test(number, val) : test(val, number);
+            };
+        }
+        if (constant instanceof Date) {
+            Date date = ((Date) constant);
+            return constantOnLeft
+                    ? val -> val instanceof Date ? doTest(date, (Date) val) : test(date, val)
+                    : val -> val instanceof Date ? doTest((Date) val, date) : test(val, date);
+        }
+        if (constant instanceof String) {
+            String str = ((String) constant);
+            Number number = tryCastNumber(str);
+            return val -> {
+                if (val instanceof String) {
+                    return constantOnLeft ? doTest(str, (String) val) : doTest((String) val, str);
+                }
+                if (number != null && val instanceof Number) {
+                    return constantOnLeft ? doTest(number, (Number) val) : doTest((Number) val, number);
+                }
+                return constantOnLeft ? test(str, val) : test(val, str);
+            };
+        }
+        return constantOnLeft ? val -> test(constant, val) : val -> test(val, constant);
+    }
+
+    private static Object castConstant(ColumnDefinition column, Object constant, Expression expression) {
+        if (column == null || constant == null) {
+            return constant;
+        }
+        try {
+            return column.getType().cast(constant);
+        } catch (Exception e) {
+            throw new UnsupportedOperationException("列[" + column.getName() + "]类型为" + column.getType()
+                    + ",无法与[" + constant + "]进行比较:" + expression, e);
+        }
+    }
+
+    private static Expression[] getExpressions(Expression expression) {
+        if (expression instanceof BinaryExpression) {
+            return new Expression[]{
+                    ((BinaryExpression) expression).getLeftExpression(),
+                    ((BinaryExpression) expression).getRightExpression()
+            };
+        }
+        //函数,已经在createBinaryMapper中校验了参数数量
+        List<Expression> parameters = ((net.sf.jsqlparser.expression.Function) expression).getParameters().getExpressions();
+        return new Expression[]{parameters.get(0), parameters.get(1)};
+    }
+
+    private static Object getConstant(Expression expression) {
+        if (expression instanceof LongValue) {
+            return ((LongValue) expression).getValue();
+        }
+        if (expression instanceof DoubleValue) {
+            return ((DoubleValue) expression).getValue();
+        }
+        if (expression instanceof StringValue) {
+            return ((StringValue) expression).getValue();
+        }
+        if (expression instanceof DateValue) {
+            return ((DateValue) expression).getValue();
+        }
+        if (expression instanceof TimestampValue) {
+            return ((TimestampValue) expression).getValue();
+        }
+        if (expression instanceof TimeValue) {
+            return ((TimeValue) expression).getValue();
+        }
+        return null;
+    }
+
+    private static Number tryCastNumber(String str) {
+        try {
+            return CastUtils.castNumber(str);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     protected boolean test(Object left, Object right) {
         if (left instanceof Map && ((Map<?, ?>) left).size() == 1) {
             left = ((Map<?, ?>) left).values().iterator().next();
@@ -60,6 +309,17 @@ public abstract class BinaryFilterFeature implements FilterFeature {
 
     protected abstract boolean doTest(Number left, Number right);
 
+    /**
+     * 比较两个数字,用于向量化的条件,子类应该重写此方法避免装箱
+     *
+     * @param left  左侧的值
+     * @param right 右侧的值
+     * @return 比较结果
+     */
+    protected boolean doTest(double left, double right) {
+        return doTest((Number) left, (Number) right);
+    }
+
     protected abstract boolean doTest(Date left, Date right);
 
     protected abstract boolean doTest(String left, String right);
@@ -15,17 +15,22 @@ public class EqualsFilter extends BinaryFilterFeature {
 
     @Override
     protected boolean doTest(Number left, Number right) {
-        return not != CompareUtils.equals(left, right);
+        return not != (Double.compare(left.doubleValue(), right.doubleValue()) == 0);
+    }
+
+    @Override
+    protected boolean doTest(double left, double right) {
+        return not != (Double.compare(left, right) == 0);
     }
 
     @Override
     protected boolean doTest(Date left, Date right) {
-        return not != CompareUtils.equals(left, right);
+        return not != (left.getTime() == right.getTime());
     }
 
     @Override
     protected boolean doTest(String left, String right) {
-        return not != CompareUtils.equals(left, right);
+        return not != left.equals(right);
     }
 
     @Override
@@ -1,16 +1,20 @@
 package org.jetlinks.reactor.ql.supports.filter;
 
-import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.*;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.expression.operators.relational.InExpression;
 import net.sf.jsqlparser.expression.operators.relational.ItemsList;
 import net.sf.jsqlparser.statement.select.SubSelect;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FilterFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.jetlinks.reactor.ql.utils.CompareUtils;
+import org.jetlinks.reactor.ql.utils.ExecutionCache;
+import org.jetlinks.reactor.ql.utils.SqlUtils;
+import org.jetlinks.reactor.ql.utils.ValueSet;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -22,7 +26,7 @@ import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class InFilter implements FilterFeature {
+public class InFilter implements FilterFeature, FoldableFeature {
 
     @Override
     public BiFunction<ReactorQLRecord, Object, Mono<Boolean>> createPredicate(Expression expression, ReactorQLMetadata metadata) {
@@ -47,6 +51,39 @@ public class InFilter implements FilterFeature {
         Function<ReactorQLRecord, ? extends Publisher<?>> leftMapper = ValueMapFeature.createMapperNow(left, metadata);
 
         boolean not = inExpression.isNot();
+
+        //非相关子查询,每次执行查询时只查询一次,并转为哈希集合
+        if (in instanceof SubSelect && !SqlUtils.isCorrelated(((SubSelect) in), metadata.getSql())) {
+            Function<ReactorQLRecord, ? extends Publisher<?>> selectMapper = rightMappers.get(0);
+            Function<ReactorQLRecord, Mono<ValueSet>> valuesGetter = ExecutionCache
+                    .materialize(metadata, record -> asFlux(selectMapper.apply(record)).collect(ValueSet::new, ValueSet::add));
+
+            //子查询在超时时间内没有结束时,对每条数据单独执行
+            return (ctx, column) -> valuesGetter
+                    .apply(ctx)
+                    .map(values -> doPredicate(not, asFlux(leftMapper.apply(ctx)), values))
+                    .switchIfEmpty(Mono.fromSupplier(() -> doPredicate(not, asFlux(leftMapper.apply(ctx)), asFlux(selectMapper.apply(ctx)))))
+                    .flatMap(Function.identity());
+        }
+        if (in instanceof ExpressionList) {
+            List<Expression> expressions = ((ExpressionList) in).getExpressions();
+            //全部为常量,直接转为哈希集合
+            if (expressions.stream().allMatch(InFilter::isConstant)) {
+                ValueSet values = ValueSet.of(expressions.stream()
+                        .map(InFilter::getConstantValue)
+                        .collect(Collectors.toList()));
+                return (ctx, column) -> doPredicate(not, asFlux(leftMapper.apply(ctx)), values);
+            }
+            //常量和参数,每次执行查询时转为哈希集合
+            if (expressions.stream().allMatch(exp -> isConstant(exp) || isParameter(exp))) {
+                Function<ReactorQLRecord, Mono<ValueSet>> valuesGetter = ExecutionCache
+                        .materialize(record -> asFlux(Flux.fromIterable(rightMappers).flatMap(mapper -> mapper.apply(record)))
+                                .collect(ValueSet::new, ValueSet::add));
+                return (ctx, column) -> valuesGetter
+                        .apply(ctx)
+                        .flatMap(values -> doPredicate(not, asFlux(leftMapper.apply(ctx)), values));
+            }
+        }
         return (ctx, column) ->
                 doPredicate(not,
                         asFlux(leftMapper.apply(ctx)),
@@ -54,6 +91,64 @@ public class InFilter implements FilterFeature {
                 );
     }
 
+    static boolean isConstant(Expression expression) {
+        if (expression instanceof SignedExpression) {
+            Expression expr = ((SignedExpression) expression).getExpression();
+            return expr instanceof LongValue || expr instanceof DoubleValue;
+        }
+        return expression instanceof StringValue
+                || expression instanceof LongValue
+                || expression instanceof DoubleValue
+                || expression instanceof DateValue
+                || expression instanceof TimestampValue
+                || expression instanceof TimeValue
+                || expression instanceof HexValue
+                || expression instanceof NullValue;
+    }
+
+    static boolean isParameter(Expression expression) {
+        return expression instanceof JdbcParameter
+                || expression instanceof JdbcNamedParameter
+                || expression instanceof NumericBind;
+    }
+
+    static Object getConstantValue(Expression expression) {
+        if (expression instanceof SignedExpression) {
+            SignedExpression signed = ((SignedExpression) expression);
+            Number number = ((Number) getConstantValue(signed.getExpression()));
+            switch (signed.getSign()) {
+                case '-':
+                    return -number.doubleValue();
+                case '~':
+                    return ~number.longValue();
+                default:
+                    return number.doubleValue();
+            }
+        }
+        if (expression instanceof StringValue) {
+            return ((StringValue) expression).getValue();
+        }
+        if (expression instanceof LongValue) {
+            return ((LongValue) expression).getValue();
+        }
+        if (expression instanceof DoubleValue) {
+            return ((DoubleValue) expression).getValue();
+        }
+        if (expression instanceof DateValue) {
+            return ((DateValue) expression).getValue();
+        }
+        if (expression instanceof TimestampValue) {
+            return ((TimestampValue) expression).getValue();
+        }
+        if (expression instanceof TimeValue) {
+            return ((TimeValue) expression).getValue();
+        }
+        if (expression instanceof HexValue) {
+            return ((HexValue) expression).getValue();
+        }
+        return null;
+    }
+
     protected Flux<Object> asFlux(Publisher<?> publisher) {
         return Flux.from(publisher)
                 .flatMap(v -> {
@@ -77,6 +172,12 @@ public class InFilter implements FilterFeature {
                 .map(v -> not != v);
     }
 
+    protected Mono<Boolean> doPredicate(boolean not, Flux<Object> left, ValueSet values) {
+        return left
+                .any(values::contains)
+                .map(v -> not != v);
+    }
+
     @Override
     public String getId() {
         return FeatureId.Filter.in.getId();
@@ -1,9 +1,11 @@
 package org.jetlinks.reactor.ql.supports.filter;
 
 import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.StringValue;
 import net.sf.jsqlparser.expression.operators.relational.LikeExpression;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FilterFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
@@ -11,33 +13,113 @@ import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
-public class LikeFilter implements FilterFeature {
+public class LikeFilter implements FilterFeature, FoldableFeature {
 
-    private static final  String ID = FeatureId.Filter.of("like").getId();
+    private static final String ID = FeatureId.Filter.of("like").getId();
+
+    private static final int MAX_CACHE_SIZE = 1024;
+
+    //非常量的表达式,缓存编译后的匹配器
+    private static final Map<String, Predicate<String>> cache = Collections.synchronizedMap(new MatcherCache());
 
     @Override
     public BiFunction<ReactorQLRecord, Object, Mono<Boolean>> createPredicate(Expression expression, ReactorQLMetadata metadata) {
+        LikeExpression like = ((LikeExpression) expression);
+        boolean not = like.isNot();
+
+        //常量,如: name like 'abc%'
+        if (like.getRightExpression() instanceof StringValue) {
+            Predicate<String> matcher = compile(((StringValue) like.getRightExpression()).getValue());
+            Function<ReactorQLRecord, ? extends Publisher<?>> leftMapper = ValueMapFeature.createMapperNow(like.getLeftExpression(), metadata);
+
+            return (row, column) -> Mono.from(leftMapper.apply(row)).map(left -> not != matcher.test(String.valueOf(left)));
+        }
+
         Tuple2<Function<ReactorQLRecord, ? extends Publisher<?>>,
                 Function<ReactorQLRecord, ? extends Publisher<?>>> tuple2 = ValueMapFeature.createBinaryMapper(expression, metadata);
 
         Function<ReactorQLRecord, ? extends Publisher<?>> leftMapper = tuple2.getT1();
         Function<ReactorQLRecord, ? extends Publisher<?>> rightMapper = tuple2.getT2();
 
-        LikeExpression like = ((LikeExpression) expression);
-        boolean not = like.isNot();
-
         return (row, column) -> Mono.zip(Mono.from(leftMapper.apply(row)), Mono.from(rightMapper.apply(row)), (left, right) -> doTest(not, left, right));
     }
 
     protected boolean doTest(boolean not, Object left, Object right) {
-        return not != (String.valueOf(left).matches(String.valueOf(right).replace("%", ".*")));
+        String pattern = String.valueOf(right);
+        Predicate<String> matcher = cache.get(pattern);
+        if (matcher == null) {
+            cache.put(pattern, matcher = compile(pattern));
+        }
+        return not != matcher.test(String.valueOf(left));
+    }
+
+    /**
+     * 编译like表达式,'%'表示任意字符,其他字符按原样匹配.常见的abc%,%abc,%abc%使用字符串查找,其他表达式使用正则表达式.
+     *
+     * @param pattern 表达式
+     * @return 匹配器
+     */
+    static Predicate<String> compile(String pattern) {
+        boolean startWith = pattern.startsWith("%");
+        boolean endWith = pattern.length() > 1 && pattern.endsWith("%");
+        String str = pattern.substring(startWith ? 1 : 0, pattern.length() - (endWith ? 1 : 0));
+
+        if (str.indexOf('%') < 0) {
+            if (startWith && endWith) {
+                return val -> val.contains(str);
+            }
+            if (startWith) {
+                return val -> val.endsWith(str);
+            }
+            if (endWith) {
+                return val -> val.startsWith(str);
+            }
+            return str::equals;
+        }
+        Pattern regex = Pattern.compile(toRegex(pattern), Pattern.DOTALL);
+        return val -> regex.matcher(val).matches();
+    }
+
+    //'%'之间的内容转义后拼接为正则表达式
+    private static String toRegex(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        int start = 0;
+        for (int idx; (idx = pattern.indexOf('%', start)) >= 0; start = idx + 1) {
+            if (idx > start) {
+                regex.append(Pattern.quote(pattern.substring(start, idx)));
+            }
+            regex.append(".*");
+        }
+        if (start < pattern.length()) {
+            regex.append(Pattern.quote(pattern.substring(start)));
+        }
+        return regex.toString();
     }
 
     @Override
     public String getId() {
         return ID;
     }
+
+    //按最近最少使用淘汰
+    private static class MatcherCache extends LinkedHashMap<String, Predicate<String>> {
+        private static final long serialVersionUID = 1L;
+
+        private MatcherCache() {
+            super(16, 0.75F, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Predicate<String>> eldest) {
+            return size() > MAX_CACHE_SIZE;
+        }
+    }
 }
@@ -3,14 +3,17 @@ package org.jetlinks.reactor.ql.supports.filter;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FilterFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.supports.vector.VectorPredicate;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
 import java.util.function.BiFunction;
 
-public class OrFilter implements FilterFeature {
+public class OrFilter implements FilterFeature, FoldableFeature {
 
     private static final  String id = FeatureId.Filter.or.getId();
 
@@ -32,6 +35,18 @@ public class OrFilter implements FilterFeature {
     }
 
 
+    @Override
+    public Optional<VectorPredicate> createVectorPredicate(Expression expression, ReactorQLMetadata metadata) {
+        OrExpression or = ((OrExpression) expression);
+
+        Optional<VectorPredicate> left = FilterFeature.createVectorPredicateByExpression(or.getLeftExpression(), metadata);
+        Optional<VectorPredicate> right = FilterFeature.createVectorPredicateByExpression(or.getRightExpression(), metadata);
+        if (left.isPresent() && right.isPresent()) {
+            return Optional.of(left.get().or(right.get()));
+        }
+        return Optional.empty();
+    }
+
     @Override
     public String getId() {
         return id;
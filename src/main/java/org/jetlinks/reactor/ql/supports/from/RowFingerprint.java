@@ -0,0 +1,79 @@
+package org.jetlinks.reactor.ql.supports.from;
+
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 数据行指纹,只在创建时计算一次64位哈希,用于集合运算中判断数据行是否相同.
+ * 哈希相同时再比较原始数据,避免哈希冲突导致错误的结果.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+final class RowFingerprint {
+
+    private final long hash;
+
+    private final Object row;
+
+    private RowFingerprint(Object row) {
+        this.row = row;
+        this.hash = hash(row);
+    }
+
+    static RowFingerprint of(ReactorQLRecord record) {
+        return new RowFingerprint(record.getRecord());
+    }
+
+    private static long hash(Object value) {
+        if (value instanceof Map) {
+            //与顺序无关
+            long h = 0;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                h += mix(Objects.hashCode(entry.getKey()) * 31L + hash(entry.getValue()));
+            }
+            return h;
+        }
+        if (value instanceof Set) {
+            //与equals一致,与顺序无关
+            long h = 0;
+            for (Object val : ((Set<?>) value)) {
+                h += hash(val);
+            }
+            return mix(h);
+        }
+        if (value instanceof Iterable) {
+            long h = 1;
+            for (Object val : ((Iterable<?>) value)) {
+                h = h * 31 + hash(val);
+            }
+            return mix(h);
+        }
+        return mix(Objects.hashCode(value));
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RowFingerprint)) return false;
+        RowFingerprint that = (RowFingerprint) o;
+        return hash == that.hash && Objects.equals(row, that.row);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
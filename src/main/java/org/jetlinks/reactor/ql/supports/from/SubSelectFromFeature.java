@@ -9,12 +9,8 @@ import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FromFeature;
 import org.jetlinks.reactor.ql.supports.DefaultReactorQLMetadata;
 import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
-import java.util.Collection;
 import java.util.List;
-import java.util.Set;
-import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -39,49 +35,48 @@ public class SubSelectFromFeature implements FromFeature {
                 Function<ReactorQLContext, Flux<ReactorQLRecord>> tmp = firstMapper;
 
                 Function<ReactorQLContext, Flux<ReactorQLRecord>> mapper = doCreateMapper(alias, selects.get(i), metadata);
-                BiFunction<Set<ReactorQLRecord>, Set<ReactorQLRecord>, Collection<ReactorQLRecord>> operator = null;
                 //并集
                 if (operation instanceof UnionOp) {
                     if (((UnionOp) operation).isAll()) {
                         firstMapper = ctx -> tmp.apply(ctx).concatWith(mapper.apply(ctx));
                     } else {
                         firstMapper = ctx -> tmp.apply(ctx).concatWith(mapper.apply(ctx))
-                                .distinct(ReactorQLRecord::getRecord);
+                                .distinct(RowFingerprint::of);
                     }
                     continue;
                 }
+                //先收集一侧的数据指纹,再流式处理另外一侧的数据
+                Function<ReactorQLContext, Flux<ReactorQLRecord>> build;
+                Function<ReactorQLContext, Flux<ReactorQLRecord>> probe;
+                boolean retain;
                 //减集
-                else if (operation instanceof MinusOp) {
-                    operator = (left, right) -> {
-                        left.removeAll(right);
-                        return left;
-                    };
+                if (operation instanceof MinusOp) {
+                    build = mapper;
+                    probe = tmp;
+                    retain = false;
                 }
                 //差集
                 else if (operation instanceof ExceptOp) {
-                    operator = (left, right) -> {
-                        right.removeAll(left);
-                        return right;
-                    };
+                    build = tmp;
+                    probe = mapper;
+                    retain = false;
                 }
-                //交集
+                //交集,以右侧的查询作为构建侧,数据量小的查询应当写在右侧
                 else if (operation instanceof IntersectOp) {
-                    operator = (left, right) -> {
-                        left.retainAll(right);
-                        return left;
-                    };
-                }
-                if (operator == null) {
+                    build = mapper;
+                    probe = tmp;
+                    retain = true;
+                } else {
                     throw new UnsupportedOperationException("不支持的操作:" + body);
                 }
-                BiFunction<Set<ReactorQLRecord>, Set<ReactorQLRecord>, Collection<ReactorQLRecord>> fiOperator = operator;
-                firstMapper = ctx -> Mono.zip(
-                        tmp.apply(ctx).collect(Collectors.toSet()),
-                        mapper.apply(ctx).collect(Collectors.toSet()),
-                        fiOperator)
-                        .flatMapIterable(Function.identity());
-
-
+                firstMapper = ctx -> build
+                        .apply(ctx)
+                        .map(RowFingerprint::of)
+                        .collect(Collectors.toSet())
+                        .flatMapMany(set -> probe
+                                .apply(ctx)
+                                .filter(record -> set.contains(RowFingerprint.of(record)) == retain)
+                                .distinct(RowFingerprint::of));
             }
             return firstMapper;
         }
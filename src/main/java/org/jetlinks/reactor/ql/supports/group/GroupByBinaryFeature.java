@@ -12,6 +12,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
 
+import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -37,19 +38,26 @@ public class GroupByBinaryFeature implements GroupFeature {
     }
 
     @Override
-    public Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> createGroupMapper(Expression expression, ReactorQLMetadata metadata) {
-
+    public Optional<Function<ReactorQLRecord, ? extends Publisher<?>>> createKeyMapper(Expression expression, ReactorQLMetadata metadata) {
         Tuple2<Function<ReactorQLRecord, ? extends Publisher<?>>,
                 Function<ReactorQLRecord, ? extends Publisher<?>>> tuple2 = ValueMapFeature.createBinaryMapper(expression, metadata);
 
         Function<ReactorQLRecord, ? extends Publisher<?>> leftMapper = tuple2.getT1();
         Function<ReactorQLRecord, ? extends Publisher<?>> rightMapper = tuple2.getT2();
 
+        return Optional.of(ctx -> Mono.zip(
+                Mono.from(leftMapper.apply(ctx)),
+                Mono.from(rightMapper.apply(ctx)), mapper));
+    }
+
+    @Override
+    public Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> createGroupMapper(Expression expression, ReactorQLMetadata metadata) {
+
+        Function<ReactorQLRecord, ? extends Publisher<?>> keyMapper = createKeyMapper(expression, metadata)
+                .orElseThrow(() -> new UnsupportedOperationException("不支持的分组表达式:" + expression));
+
         return flux -> flux
-                .flatMap(ctx -> Mono.zip(
-                        Mono.from(leftMapper.apply(ctx)),
-                        Mono.from(rightMapper.apply(ctx)), mapper)
-                        .zipWith(Mono.just(ctx)))
+                .flatMap(ctx -> Mono.from(keyMapper.apply(ctx)).zipWith(Mono.just(ctx)))
                 .groupBy(Tuple2::getT1, Tuple2::getT2);
     }
 
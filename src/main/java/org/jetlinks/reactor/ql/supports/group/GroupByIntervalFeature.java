@@ -8,6 +8,7 @@ import net.sf.jsqlparser.expression.StringValue;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.GroupFeature;
+import org.jetlinks.reactor.ql.feature.SchedulerFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import reactor.core.publisher.Flux;
 
@@ -22,6 +23,7 @@ import static org.jetlinks.reactor.ql.utils.CastUtils.parseDuration;
  *
  *     group by interval('1s')=> flux.window(Duration.ofSeconds(1))
  * </pre>
+ * 使用{@link SchedulerFeature}中的调度器计时.
  *
  * @author zhouhao
  * @since 1.0
@@ -53,7 +55,8 @@ public class GroupByIntervalFeature implements GroupFeature {
             throw new UnsupportedOperationException("不支持的时间参数:" + expr);
         }
         Duration duration = interval;
-        return flux -> flux.window(duration);
+        SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+        return flux -> flux.window(duration, scheduler.getScheduler());
     }
 
 
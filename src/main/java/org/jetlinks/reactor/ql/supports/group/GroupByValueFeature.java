@@ -12,6 +12,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.function.Tuple2;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 /**
@@ -34,6 +35,11 @@ public class GroupByValueFeature implements GroupFeature {
         this.id = FeatureId.GroupBy.of(type).getId();
     }
 
+    @Override
+    public Optional<Function<ReactorQLRecord, ? extends Publisher<?>>> createKeyMapper(Expression expression, ReactorQLMetadata metadata) {
+        return Optional.of(ValueMapFeature.createMapperNow(expression, metadata));
+    }
+
     @Override
     public Function<Flux<ReactorQLRecord>, Flux<? extends Flux<ReactorQLRecord>>> createGroupMapper(Expression expression, ReactorQLMetadata metadata) {
 
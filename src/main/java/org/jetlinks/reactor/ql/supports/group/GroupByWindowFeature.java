@@ -10,6 +10,7 @@ import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.GroupFeature;
+import org.jetlinks.reactor.ql.feature.SchedulerFeature;
 import org.jetlinks.reactor.ql.utils.CastUtils;
 import reactor.core.publisher.Flux;
 
@@ -24,6 +25,7 @@ import java.util.function.Function;
  * <p>
  * group by _window('1s') => flux.window(Duration.ofSeconds(1))
  * </pre>
+ * 按时间的窗口使用{@link SchedulerFeature}中的调度器计时.
  *
  * @author zhouhao
  * @since 1.0
@@ -71,7 +73,8 @@ public class GroupByWindowFeature implements GroupFeature {
             if (duration.toMillis() <= 0) {
                 throw new UnsupportedOperationException("窗口时间不能小于0:" + expr);
             }
-            return flux -> flux.window(duration);
+            SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+            return flux -> flux.window(duration, scheduler.getScheduler());
         }
         throw new UnsupportedOperationException("不支持的窗口表达式:" + expr);
     }
@@ -96,7 +99,8 @@ public class GroupByWindowFeature implements GroupFeature {
             if (windowingTimespan.toMillis() <= 0 || openWindowEvery.toMillis() <= 0) {
                 throw new UnsupportedOperationException("窗口时间不能小于0: " + (windowingTimespan.toMillis() <= 0 ? first : second));
             }
-            return flux -> flux.window(windowingTimespan, openWindowEvery);
+            SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+            return flux -> flux.window(windowingTimespan, openWindowEvery, scheduler.getScheduler());
         }
         //windowTimeout(100,'20s')
         if (first instanceof LongValue && second instanceof StringValue) {
@@ -108,7 +112,8 @@ public class GroupByWindowFeature implements GroupFeature {
             if (max <= 0) {
                 throw new UnsupportedOperationException("窗口时间不能小于0: " + first);
             }
-            return flux -> flux.windowTimeout(max, timeout);
+            SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+            return flux -> flux.windowTimeout(max, timeout, scheduler.getScheduler());
         }
         throw new UnsupportedOperationException("不支持的参数: " + first + " , " + second);
     }
@@ -0,0 +1,374 @@
+package org.jetlinks.reactor.ql.supports.index;
+
+import lombok.Getter;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.PropertyFeature;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 从查询的where条件中提取的可索引条件,只提取顶层and连接的条件中的一个:
+ * <ul>
+ *     <li>等值: col = 常量, col in (常量...)</li>
+ *     <li>范围: col between 数字 and 数字, col &gt; 数字, col &gt;= 数字, col &lt; 数字, col &lt;= 数字,同一列的多个范围条件取交集</li>
+ * </ul>
+ * 优先使用等值条件.只支持从单个表中查询并且没有关联查询的SQL,列只能是当前表的属性.
+ * 可索引条件只用于筛选候选查询,不能代替where条件本身.
+ *
+ * @author zhouhao
+ * @see PredicateIndex
+ * @since 1.0
+ */
+@Getter
+public class IndexCondition {
+
+    /**
+     * 列名
+     */
+    private final String column;
+
+    /**
+     * 读取列值的访问器
+     */
+    private final Function<Object, Optional<Object>> accessor;
+
+    /**
+     * 列索引的标识,标识相同的条件使用同一个列索引,读取到的列值也相同.
+     * 从查询中提取的条件为列名和{@link PropertyFeature},直接创建的条件为访问器本身
+     */
+    private final Object indexKey;
+
+    /**
+     * 等值条件的常量,范围条件时为null
+     */
+    private final List<Object> values;
+
+    private final double low;
+
+    private final boolean lowInclusive;
+
+    private final double high;
+
+    private final boolean highInclusive;
+
+    private IndexCondition(String column,
+                           Function<Object, Optional<Object>> accessor,
+                           Object indexKey,
+                           List<Object> values,
+                           double low, boolean lowInclusive,
+                           double high, boolean highInclusive) {
+        this.column = column;
+        this.accessor = accessor;
+        this.indexKey = indexKey;
+        this.values = values;
+        this.low = low;
+        this.lowInclusive = lowInclusive;
+        this.high = high;
+        this.highInclusive = highInclusive;
+    }
+
+    public boolean isRange() {
+        return values == null;
+    }
+
+    /**
+     * 创建等值条件
+     *
+     * @param column   列名
+     * @param accessor 读取列值的访问器
+     * @param values   常量
+     * @return 条件
+     */
+    public static IndexCondition equalsTo(String column, Function<Object, Optional<Object>> accessor, Collection<?> values) {
+        return new IndexCondition(column, accessor, accessor, new ArrayList<>(values), 0, false, 0, false);
+    }
+
+    /**
+     * 创建范围条件,无下界或上界时使用{@link Double#NEGATIVE_INFINITY},{@link Double#POSITIVE_INFINITY}
+     *
+     * @param column        列名
+     * @param accessor      读取列值的访问器
+     * @param low           下界
+     * @param lowInclusive  是否包含下界
+     * @param high          上界
+     * @param highInclusive 是否包含上界
+     * @return 条件
+     */
+    public static IndexCondition range(String column, Function<Object, Optional<Object>> accessor,
+                                       double low, boolean lowInclusive,
+                                       double high, boolean highInclusive) {
+        return new IndexCondition(column, accessor, accessor, null, low, lowInclusive, high, highInclusive);
+    }
+
+    /**
+     * 从查询的where条件中提取可索引条件
+     *
+     * @param metadata 查询元数据
+     * @return 可索引条件, 无法索引时返回empty
+     */
+    public static Optional<IndexCondition> of(ReactorQLMetadata metadata) {
+        PlainSelect select = metadata.getSql();
+        if (select.getWhere() == null
+                || !(select.getFromItem() instanceof Table)
+                || (select.getJoins() != null && !select.getJoins().isEmpty())) {
+            return Optional.empty();
+        }
+        Table table = ((Table) select.getFromItem());
+        String alias = table.getAlias() != null ? table.getAlias().getName() : table.getName();
+
+        List<Expression> conjuncts = new ArrayList<>();
+        flatAnd(select.getWhere(), conjuncts);
+
+        PropertyFeature property = metadata.getFeatureNow(PropertyFeature.ID);
+        Extractor extractor = new Extractor(alias);
+        for (Expression conjunct : conjuncts) {
+            extractor.extract(conjunct);
+        }
+        return Optional.ofNullable(extractor.toCondition(property));
+    }
+
+    private static void flatAnd(Expression expression, List<Expression> container) {
+        if (expression instanceof Parenthesis) {
+            flatAnd(((Parenthesis) expression).getExpression(), container);
+        } else if (expression instanceof AndExpression) {
+            flatAnd(((AndExpression) expression).getLeftExpression(), container);
+            flatAnd(((AndExpression) expression).getRightExpression(), container);
+        } else {
+            container.add(expression);
+        }
+    }
+
+    static class Extractor {
+        private final String alias;
+
+        private String equalsColumn;
+
+        private List<Object> equalsValues;
+
+        private boolean equalsIn;
+
+        private String rangeColumn;
+
+        private double low = Double.NEGATIVE_INFINITY;
+
+        private boolean lowInclusive = false;
+
+        private double high = Double.POSITIVE_INFINITY;
+
+        private boolean highInclusive = false;
+
+        Extractor(String alias) {
+            this.alias = alias;
+        }
+
+        void extract(Expression expression) {
+            if (expression instanceof EqualsTo) {
+                extractEquals(((EqualsTo) expression));
+            } else if (expression instanceof InExpression) {
+                extractIn(((InExpression) expression));
+            } else if (expression instanceof Between) {
+                extractBetween(((Between) expression));
+            } else if (expression instanceof ComparisonOperator) {
+                extractCompare(((ComparisonOperator) expression));
+            }
+        }
+
+        private void extractEquals(EqualsTo equalsTo) {
+            //已经有等值条件时不再处理,in条件会被=条件替换
+            if (equalsColumn != null && !equalsIn) {
+                return;
+            }
+            String column = getColumn(equalsTo.getLeftExpression());
+            Expression value = equalsTo.getRightExpression();
+            if (column == null) {
+                column = getColumn(equalsTo.getRightExpression());
+                value = equalsTo.getLeftExpression();
+            }
+            Object constant = getConstant(value);
+            if (column == null || constant == null) {
+                return;
+            }
+            equalsColumn = column;
+            equalsValues = Collections.singletonList(constant);
+            equalsIn = false;
+        }
+
+        private void extractIn(InExpression in) {
+            if (equalsColumn != null || in.isNot() || !(in.getRightItemsList() instanceof ExpressionList)) {
+                return;
+            }
+            String column = getColumn(in.getLeftExpression());
+            List<Expression> expressions = ((ExpressionList) in.getRightItemsList()).getExpressions();
+            if (column == null || expressions == null || expressions.isEmpty()) {
+                return;
+            }
+            List<Object> values = new ArrayList<>(expressions.size());
+            for (Expression expression : expressions) {
+                Object constant = getConstant(expression);
+                if (constant == null) {
+                    return;
+                }
+                values.add(constant);
+            }
+            equalsColumn = column;
+            equalsValues = values;
+            equalsIn = true;
+        }
+
+        private void extractBetween(Between between) {
+            if (between.isNot()) {
+                return;
+            }
+            String column = getColumn(between.getLeftExpression());
+            Number start = getNumber(between.getBetweenExpressionStart());
+            Number end = getNumber(between.getBetweenExpressionEnd());
+            if (column == null || start == null || end == null || !acceptRange(column)) {
+                return;
+            }
+            lowerBound(start.doubleValue(), true);
+            upperBound(end.doubleValue(), true);
+        }
+
+        private void extractCompare(ComparisonOperator expression) {
+            String operator = expression.getStringExpression();
+            String column = getColumn(expression.getLeftExpression());
+            Number number = getNumber(expression.getRightExpression());
+            if (column == null) {
+                //常量在左侧时反转操作符: 1 < col => col > 1
+                column = getColumn(expression.getRightExpression());
+                number = getNumber(expression.getLeftExpression());
+                operator = reverse(operator);
+            }
+            if (column == null || number == null || reverse(operator) == null || !acceptRange(column)) {
+                return;
+            }
+            double value = number.doubleValue();
+            switch (operator) {
+                case ">":
+                    lowerBound(value, false);
+                    break;
+                case ">=":
+                    lowerBound(value, true);
+                    break;
+                case "<":
+                    upperBound(value, false);
+                    break;
+                case "<=":
+                    upperBound(value, true);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private boolean acceptRange(String column) {
+            if (rangeColumn == null) {
+                rangeColumn = column;
+            }
+            return rangeColumn.equals(column);
+        }
+
+        private void lowerBound(double value, boolean inclusive) {
+            if (value > low || (value == low && !inclusive)) {
+                low = value;
+                lowInclusive = inclusive;
+            }
+        }
+
+        private void upperBound(double value, boolean inclusive) {
+            if (value < high || (value == high && !inclusive)) {
+                high = value;
+                highInclusive = inclusive;
+            }
+        }
+
+        IndexCondition toCondition(PropertyFeature property) {
+            if (equalsColumn != null) {
+                return new IndexCondition(equalsColumn, property.createAccessor(equalsColumn), Arrays.asList(property, equalsColumn),
+                                          new ArrayList<>(equalsValues), 0, false, 0, false);
+            }
+            if (rangeColumn == null || Double.isNaN(low) || Double.isNaN(high)) {
+                return null;
+            }
+            //空区间,查询不会有任何结果,不使用索引
+            if (low > high || (low == high && !(lowInclusive && highInclusive))) {
+                return null;
+            }
+            return new IndexCondition(rangeColumn, property.createAccessor(rangeColumn), Arrays.asList(property, rangeColumn),
+                                      null, low, lowInclusive, high, highInclusive);
+        }
+
+        //当前表的列名,不是当前表的列时返回null
+        private String getColumn(Expression expression) {
+            if (!(expression instanceof Column)) {
+                return null;
+            }
+            String[] fullName = ((Column) expression).getFullyQualifiedName().split("[.]", 2);
+            if (fullName.length == 1) {
+                return fullName[0];
+            }
+            if ("this".equals(fullName[0]) || alias.equals(fullName[0])) {
+                return fullName[1];
+            }
+            return null;
+        }
+
+        //不支持的操作符返回null
+        private static String reverse(String operator) {
+            if (operator == null) {
+                return null;
+            }
+            switch (operator) {
+                case ">":
+                    return "<";
+                case ">=":
+                    return "<=";
+                case "<":
+                    return ">";
+                case "<=":
+                    return ">=";
+                default:
+                    return null;
+            }
+        }
+
+        private static Object getConstant(Expression expression) {
+            if (expression instanceof StringValue) {
+                return ((StringValue) expression).getValue();
+            }
+            return getNumber(expression);
+        }
+
+        private static Number getNumber(Expression expression) {
+            if (expression instanceof LongValue) {
+                return ((LongValue) expression).getValue();
+            }
+            if (expression instanceof DoubleValue) {
+                return ((DoubleValue) expression).getValue();
+            }
+            if (expression instanceof SignedExpression) {
+                SignedExpression signed = ((SignedExpression) expression);
+                Number number = getNumber(signed.getExpression());
+                if (number == null) {
+                    return null;
+                }
+                switch (signed.getSign()) {
+                    case '-':
+                        return -number.doubleValue();
+                    case '+':
+                        return number;
+                    default:
+                        return null;
+                }
+            }
+            return null;
+        }
+    }
+}
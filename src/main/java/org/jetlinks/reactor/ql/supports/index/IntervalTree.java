@@ -0,0 +1,167 @@
+package org.jetlinks.reactor.ql.supports.index;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 不可变的中心区间树,用于查找包含指定值的全部区间.
+ * <p>
+ * 每个节点选择一个端点作为中心,包含中心的区间保存在节点中,完全在中心左侧或右侧的区间保存在左右子树中.
+ * 查找时只需要沿一条路径向下,每个节点中的区间按端点排序,遇到不可能包含目标值的区间即停止,复杂度为O(log n + k).
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+class IntervalTree<T> {
+
+    private final Node<T> root;
+
+    private final int size;
+
+    IntervalTree(Collection<Interval<T>> intervals) {
+        this.root = build(new ArrayList<>(intervals));
+        this.size = intervals.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 查找包含指定值的区间
+     *
+     * @param value    值
+     * @param consumer 区间对应的目标
+     */
+    void stab(double value, Consumer<T> consumer) {
+        Node<T> node = root;
+        while (node != null) {
+            if (value < node.center) {
+                for (Interval<T> interval : node.byLow) {
+                    if (interval.low > value) {
+                        break;
+                    }
+                    if (interval.contains(value)) {
+                        consumer.accept(interval.target);
+                    }
+                }
+                node = node.left;
+            } else if (value > node.center) {
+                for (Interval<T> interval : node.byHigh) {
+                    if (interval.high < value) {
+                        break;
+                    }
+                    if (interval.contains(value)) {
+                        consumer.accept(interval.target);
+                    }
+                }
+                node = node.right;
+            } else {
+                for (Interval<T> interval : node.byLow) {
+                    if (interval.contains(value)) {
+                        consumer.accept(interval.target);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private static <T> Node<T> build(List<Interval<T>> intervals) {
+        if (intervals.isEmpty()) {
+            return null;
+        }
+        double center = median(intervals);
+        //没有有限端点,全部区间都保存在当前节点
+        if (Double.isNaN(center)) {
+            return new Node<>(0, intervals);
+        }
+        List<Interval<T>> left = new ArrayList<>();
+        List<Interval<T>> right = new ArrayList<>();
+        List<Interval<T>> overlap = new ArrayList<>();
+        for (Interval<T> interval : intervals) {
+            if (interval.high < center) {
+                left.add(interval);
+            } else if (interval.low > center) {
+                right.add(interval);
+            } else {
+                overlap.add(interval);
+            }
+        }
+        Node<T> node = new Node<>(center, overlap);
+        node.left = build(left);
+        node.right = build(right);
+        return node;
+    }
+
+    //有限端点的中位数,中心为某个区间的端点,保证每个节点至少包含一个区间.没有有限端点时返回NaN
+    private static <T> double median(List<Interval<T>> intervals) {
+        double[] points = new double[intervals.size() * 2];
+        int size = 0;
+        for (Interval<T> interval : intervals) {
+            if (!Double.isInfinite(interval.low)) {
+                points[size++] = interval.low;
+            }
+            if (!Double.isInfinite(interval.high)) {
+                points[size++] = interval.high;
+            }
+        }
+        if (size == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(points, 0, size);
+        return points[size / 2];
+    }
+
+    static class Node<T> {
+        private final double center;
+
+        //按下界升序
+        private final List<Interval<T>> byLow;
+
+        //按上界降序
+        private final List<Interval<T>> byHigh;
+
+        private Node<T> left;
+
+        private Node<T> right;
+
+        Node(double center, List<Interval<T>> intervals) {
+            this.center = center;
+            this.byLow = new ArrayList<>(intervals);
+            this.byLow.sort(Comparator.comparingDouble(interval -> interval.low));
+            this.byHigh = new ArrayList<>(intervals);
+            this.byHigh.sort(Comparator.comparingDouble((Interval<T> interval) -> interval.high).reversed());
+        }
+    }
+
+    /**
+     * 区间,无下界或者上界时使用无穷大表示
+     */
+    static class Interval<T> {
+        private final double low;
+
+        private final boolean lowInclusive;
+
+        private final double high;
+
+        private final boolean highInclusive;
+
+        private final T target;
+
+        Interval(double low, boolean lowInclusive, double high, boolean highInclusive, T target) {
+            this.low = low;
+            this.lowInclusive = lowInclusive;
+            this.high = high;
+            this.highInclusive = highInclusive;
+            this.target = target;
+        }
+
+        boolean contains(double value) {
+            if (lowInclusive ? value < low : value <= low) {
+                return false;
+            }
+            return highInclusive ? value <= high : value < high;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.jetlinks.reactor.ql.supports.index;
+
+import org.jetlinks.reactor.ql.utils.CastUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 多个查询条件的索引,根据数据快速找出条件可能满足的目标,用于大量查询共享同一个数据源时减少需要执行的查询.
+ * <ul>
+ *     <li>等值条件使用哈希索引: 数字以及可以转为数字的字符串按数值索引,其他字符串按字符串索引</li>
+ *     <li>范围条件使用区间树,在条件变更后第一次匹配时重建</li>
+ *     <li>没有可索引条件的目标总是作为候选</li>
+ * </ul>
+ * 匹配结果是条件满足的目标的超集: 无法确定如何比较的值(如空值,时间,布尔值,集合)会匹配此列上的全部目标.
+ * 每个目标最多匹配一次,目标仍然需要执行完整的where条件.
+ * <p>
+ * 可以在匹配的同时添加和移除目标.
+ *
+ * @author zhouhao
+ * @see IndexCondition
+ * @since 1.0
+ */
+public class PredicateIndex<T> {
+
+    //没有可索引条件的目标
+    private final Set<T> unindexed = ConcurrentHashMap.newKeySet();
+
+    //列索引标识 -> 列索引,列名相同但读取方式不同的条件使用不同的列索引
+    private final Map<Object, ColumnIndex<T>> columns = new ConcurrentHashMap<>();
+
+    private final Map<T, IndexCondition> conditions = new ConcurrentHashMap<>();
+
+    /**
+     * 添加目标
+     *
+     * @param target    目标
+     * @param condition 可索引条件,为null时目标总是作为候选
+     */
+    public void add(T target, IndexCondition condition) {
+        remove(target);
+        if (condition == null) {
+            unindexed.add(target);
+            return;
+        }
+        conditions.put(target, condition);
+        columns.compute(condition.getIndexKey(), (key, index) -> {
+            if (index == null) {
+                index = new ColumnIndex<>(condition.getAccessor());
+            }
+            index.add(target, condition);
+            return index;
+        });
+    }
+
+    /**
+     * 移除目标
+     *
+     * @param target 目标
+     * @return 目标是否存在
+     */
+    public boolean remove(T target) {
+        if (unindexed.remove(target)) {
+            return true;
+        }
+        IndexCondition condition = conditions.remove(target);
+        if (condition == null) {
+            return false;
+        }
+        //列上没有目标时移除列索引
+        columns.computeIfPresent(condition.getIndexKey(), (key, index) -> {
+            index.remove(target, condition);
+            return index.isEmpty() ? null : index;
+        });
+        return true;
+    }
+
+    /**
+     * 匹配可能满足条件的目标
+     *
+     * @param record   数据
+     * @param consumer 目标消费者
+     */
+    public void match(Object record, Consumer<T> consumer) {
+        for (T target : unindexed) {
+            consumer.accept(target);
+        }
+        for (ColumnIndex<T> index : columns.values()) {
+            index.match(record, consumer);
+        }
+    }
+
+    public int size() {
+        return unindexed.size() + conditions.size();
+    }
+
+    public boolean isEmpty() {
+        return unindexed.isEmpty() && conditions.isEmpty();
+    }
+
+    int getColumnIndexSize() {
+        return columns.size();
+    }
+
+    static class ColumnIndex<T> {
+
+        //标识相同的条件读取到的值相同,使用第一个条件的访问器
+        private final Function<Object, Optional<Object>> accessor;
+
+        //数值 -> 目标
+        private final Map<Double, Set<T>> numbers = new ConcurrentHashMap<>();
+
+        //不能转为数字的字符串 -> 目标
+        private final Map<String, Set<T>> strings = new ConcurrentHashMap<>();
+
+        //全部等值条件的目标,值无法比较时使用
+        private final Set<T> equalsTargets = ConcurrentHashMap.newKeySet();
+
+        private final Map<T, IntervalTree.Interval<T>> ranges = new ConcurrentHashMap<>();
+
+        private volatile IntervalTree<T> tree;
+
+        private volatile boolean dirty;
+
+        ColumnIndex(Function<Object, Optional<Object>> accessor) {
+            this.accessor = accessor;
+        }
+
+        void add(T target, IndexCondition condition) {
+            if (condition.isRange()) {
+                ranges.put(target, new IntervalTree.Interval<>(
+                        condition.getLow(), condition.isLowInclusive(),
+                        condition.getHigh(), condition.isHighInclusive(),
+                        target));
+                dirty = true;
+                return;
+            }
+            equalsTargets.add(target);
+            for (Object value : condition.getValues()) {
+                Object key = toKey(value);
+                if (key instanceof Double) {
+                    numbers.computeIfAbsent(((Double) key), k -> ConcurrentHashMap.newKeySet()).add(target);
+                } else if (key instanceof String) {
+                    strings.computeIfAbsent(((String) key), k -> ConcurrentHashMap.newKeySet()).add(target);
+                }
+            }
+        }
+
+        void remove(T target, IndexCondition condition) {
+            if (condition.isRange()) {
+                if (ranges.remove(target) != null) {
+                    dirty = true;
+                    if (ranges.isEmpty()) {
+                        tree = null;
+                    }
+                }
+                return;
+            }
+            equalsTargets.remove(target);
+            for (Object value : condition.getValues()) {
+                Object key = toKey(value);
+                if (key instanceof Double) {
+                    removeFromBucket(numbers, ((Double) key), target);
+                } else if (key instanceof String) {
+                    removeFromBucket(strings, ((String) key), target);
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return equalsTargets.isEmpty() && ranges.isEmpty();
+        }
+
+        void match(Object record, Consumer<T> consumer) {
+            Object value = record == null ? null : accessor.apply(record).orElse(null);
+            Object key = value == null ? null : toKey(value);
+            if (key == null) {
+                //无法确定如何比较,全部作为候选
+                equalsTargets.forEach(consumer);
+                ranges.keySet().forEach(consumer);
+                return;
+            }
+            if (key instanceof Double) {
+                double number = ((Double) key);
+                Set<T> targets = numbers.get(number);
+                if (targets != null) {
+                    targets.forEach(consumer);
+                }
+                if (!ranges.isEmpty()) {
+                    getTree().stab(number, consumer);
+                }
+            } else {
+                Set<T> targets = strings.get(key);
+                if (targets != null) {
+                    targets.forEach(consumer);
+                }
+                //字符串与数字比较大小时,无法转为数字的字符串结果不确定
+                ranges.keySet().forEach(consumer);
+            }
+        }
+
+        private IntervalTree<T> getTree() {
+            IntervalTree<T> tree = this.tree;
+            if (tree == null || dirty) {
+                synchronized (this) {
+                    if (this.tree == null || dirty) {
+                        dirty = false;
+                        this.tree = new IntervalTree<>(ranges.values());
+                    }
+                    tree = this.tree;
+                }
+            }
+            return tree;
+        }
+
+        private static <K, T> void removeFromBucket(Map<K, Set<T>> buckets, K key, T target) {
+            buckets.computeIfPresent(key, (k, targets) -> {
+                targets.remove(target);
+                return targets.isEmpty() ? null : targets;
+            });
+        }
+
+        /**
+         * 数字以及可以转为数字的字符串转为Double,其他字符串返回原始值,其他类型返回null.
+         * 与{@link org.jetlinks.reactor.ql.utils.CompareUtils}一致,数字和字符串比较时将字符串转为数字.
+         */
+        static Object toKey(Object value) {
+            if (value instanceof Number) {
+                double number = ((Number) value).doubleValue();
+                return Double.isNaN(number) ? null : number;
+            }
+            if (value instanceof CharSequence) {
+                String str = value.toString();
+                try {
+                    double number = CastUtils.castNumber(str).doubleValue();
+                    return Double.isNaN(number) ? str : number;
+                } catch (Exception e) {
+                    return str;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.jetlinks.reactor.ql.supports.join;
+
+import lombok.Getter;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.LookupFeature;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * <pre>
+ *  ReactorQL.builder()
+ *           .sql("select t.*,d.name from t left join device_info d on d.id = t.deviceId")
+ *           .feature(new DefaultLookupFeature("device_info", ids -> repository.findById(ids)))
+ *           .build();
+ * </pre>
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class DefaultLookupFeature implements LookupFeature {
+
+    @Getter
+    private final String id;
+
+    private final Function<Collection<Object>, ? extends Publisher<?>> lookup;
+
+    public DefaultLookupFeature(String table, Function<Collection<Object>, ? extends Publisher<?>> lookup) {
+        this.id = FeatureId.Lookup.of(table).getId();
+        this.lookup = lookup;
+    }
+
+    @Override
+    public Flux<Object> lookup(Collection<Object> keys) {
+        return Flux.from(lookup.apply(keys));
+    }
+}
@@ -0,0 +1,177 @@
+package org.jetlinks.reactor.ql.supports.join;
+
+import org.jetlinks.reactor.ql.supports.state.StateStore;
+import org.jetlinks.reactor.ql.utils.CastUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 维表关联缓存,按最近最少使用淘汰,并在超过存活时间后失效.
+ * 指定了{@link StateStore}时,缓存同时保存到状态中,重启后恢复未失效的缓存.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class LookupCache {
+
+    private final long ttl;
+
+    //当前时间,毫秒
+    private final LongSupplier clock;
+
+    private final Map<Object, Entry> cache;
+
+    private final StateStore state;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public LookupCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::currentTimeMillis);
+    }
+
+    public LookupCache(int maxSize, Duration ttl, LongSupplier clock) {
+        this(maxSize, ttl, clock, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public LookupCache(int maxSize, Duration ttl, LongSupplier clock, StateStore state) {
+        this.ttl = ttl.toMillis();
+        this.clock = clock;
+        this.state = state;
+        this.cache = new EntryMap(maxSize, state);
+        if (state != null) {
+            //恢复缓存: 键 -> [失效时间,数据]
+            long now = clock.getAsLong();
+            state.forEach((key, value) -> {
+                List<Object> entry = ((List<Object>) value);
+                long expireAt = CastUtils.castNumber(entry.get(0)).longValue();
+                if (expireAt < now) {
+                    state.remove(key);
+                } else {
+                    cache.put(key, new Entry(((List<Object>) entry.get(1)), expireAt));
+                }
+            });
+        }
+    }
+
+    public synchronized List<Object> get(Object key) {
+        Entry entry = cache.get(key);
+        if (entry == null || entry.expireAt < clock.getAsLong()) {
+            if (entry != null) {
+                cache.remove(key);
+                if (state != null) {
+                    state.remove(key);
+                }
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.rows;
+    }
+
+    public synchronized void put(Object key, List<Object> rows) {
+        if (ttl <= 0) {
+            return;
+        }
+        long expireAt = clock.getAsLong() + ttl;
+        cache.put(key, new Entry(rows, expireAt));
+        if (state != null) {
+            state.put(key, Arrays.asList(expireAt, rows));
+        }
+    }
+
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * 统一关联键类型,使数字和字符串形式的相同值能匹配到同一个缓存
+     *
+     * @param key 关联键
+     * @return 转换后的关联键
+     */
+    public static Object normalizeKey(Object key) {
+        if (key instanceof CharSequence) {
+            return key.toString();
+        }
+        if (key instanceof Byte || key instanceof Short || key instanceof Integer || key instanceof Long) {
+            return String.valueOf(((Number) key).longValue());
+        }
+        if (key instanceof Double && !Double.isFinite((Double) key)) {
+            return key.toString();
+        }
+        if (key instanceof Float && !Float.isFinite((Float) key)) {
+            return key.toString();
+        }
+        if (key instanceof Number) {
+            BigDecimal decimal = new BigDecimal(key.toString()).stripTrailingZeros();
+            return decimal.scale() <= 0 ? decimal.toBigInteger().toString() : decimal.toPlainString();
+        }
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        return "LookupCache{size=" + size() + ", hits=" + hits + ", misses=" + misses + "}";
+    }
+
+    //按最近最少使用淘汰,淘汰时同时从状态中删除
+    private static class EntryMap extends LinkedHashMap<Object, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        private final transient StateStore state;
+
+        private EntryMap(int maxSize, StateStore state) {
+            super(16, 0.75F, true);
+            this.maxSize = maxSize;
+            this.state = state;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            if (size() > maxSize) {
+                if (state != null) {
+                    state.remove(eldest.getKey());
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class Entry {
+        private final List<Object> rows;
+        private final long expireAt;
+
+        private Entry(List<Object> rows, long expireAt) {
+            this.rows = rows;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+package org.jetlinks.reactor.ql.supports.json;
+
+import org.jetlinks.reactor.ql.utils.CastUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 延迟解析的JSON对象,直接使用UTF-8编码的JSON数据作为查询的数据源,不需要先将JSON转换为Map.
+ * <pre>
+ *     ql.start(messages.map(JsonRecord::of))
+ * </pre>
+ * <p>
+ * 获取属性时从上一次扫描的位置继续向后扫描,只记录经过的key的位置,不解析值,
+ * 查询中引用的多个属性总共只需要扫描一次数据.值在被获取时才解析,嵌套的对象同样是延迟解析的.
+ * <p>
+ * 值为null的属性视为不存在.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class JsonRecord extends AbstractMap<String, Object> {
+
+    private static final Object NULL = new Object();
+
+    private final ByteBuffer buffer;
+
+    //对象结束位置,'}'之后
+    private final int end;
+
+    //下一次扫描开始的位置
+    private int position;
+
+    private boolean scanned;
+
+    //已经扫描过的key: keyStart,keyEnd,valueStart
+    private int[] index = new int[8 * 3];
+
+    private int indexSize;
+
+    //已经解析的值
+    private final Map<String, Object> values = new HashMap<>();
+
+    private Set<Entry<String, Object>> entries;
+
+    public static JsonRecord of(byte[] json) {
+        return of(ByteBuffer.wrap(json));
+    }
+
+    public static JsonRecord of(ByteBuffer json) {
+        ByteBuffer buffer = json.slice();
+        int start = skipWhitespace(buffer, 0);
+        if (start >= buffer.limit() || buffer.get(start) != '{') {
+            throw new IllegalArgumentException("不支持的JSON格式,只支持JSON对象");
+        }
+        return new JsonRecord(buffer, start, buffer.limit());
+    }
+
+    private JsonRecord(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.position = start + 1;
+        this.end = end;
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Object value = values.get(key);
+        if (value == null) {
+            int valueStart = find((String) key);
+            value = valueStart < 0 ? NULL : readValue(valueStart);
+            values.put((String) key, value == null ? NULL : value);
+        }
+        return value == NULL ? null : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public synchronized Set<Entry<String, Object>> entrySet() {
+        if (entries == null) {
+            scanToEnd();
+            Map<String, Object> all = new LinkedHashMap<>();
+            for (int i = 0; i < indexSize; i += 3) {
+                String key = readString(index[i] - 1);
+                if (!all.containsKey(key)) {
+                    Object value = get(key);
+                    if (value != null) {
+                        all.put(key, value);
+                    }
+                }
+            }
+            entries = Collections.unmodifiableMap(all).entrySet();
+        }
+        return entries;
+    }
+
+    /**
+     * 查找key对应值的位置
+     *
+     * @param key key
+     * @return 值的位置, 不存在时返回-1
+     */
+    private int find(String key) {
+        byte[] target = key.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < indexSize; i += 3) {
+            if (keyEquals(index[i], index[i + 1], target, key)) {
+                return index[i + 2];
+            }
+        }
+        while (!scanned) {
+            int i = indexSize;
+            if (!scanNext()) {
+                break;
+            }
+            if (keyEquals(index[i], index[i + 1], target, key)) {
+                return index[i + 2];
+            }
+        }
+        return -1;
+    }
+
+    private void scanToEnd() {
+        while (!scanned) {
+            if (!scanNext()) {
+                break;
+            }
+        }
+    }
+
+    //扫描下一个key,并跳过它的值
+    private boolean scanNext() {
+        int i = skipWhitespace(buffer, position);
+        if (i < end && buffer.get(i) == ',') {
+            i = skipWhitespace(buffer, i + 1);
+        }
+        if (i >= end || buffer.get(i) == '}') {
+            scanned = true;
+            return false;
+        }
+        if (buffer.get(i) != '"') {
+            throw error(i);
+        }
+        int keyEnd = skipString(buffer, i);
+        int colon = skipWhitespace(buffer, keyEnd);
+        if (colon >= end || buffer.get(colon) != ':') {
+            throw error(colon);
+        }
+        int valueStart = skipWhitespace(buffer, colon + 1);
+        if (indexSize + 3 > index.length) {
+            index = Arrays.copyOf(index, index.length * 2);
+        }
+        index[indexSize++] = i + 1;
+        index[indexSize++] = keyEnd - 1;
+        index[indexSize++] = valueStart;
+        position = skipValue(buffer, valueStart);
+        return true;
+    }
+
+    private boolean keyEquals(int start, int end, byte[] target, String key) {
+        int len = end - start;
+        boolean escaped = false;
+        if (len == target.length) {
+            for (int i = 0; i < len; i++) {
+                byte b = buffer.get(start + i);
+                if (b == '\\') {
+                    escaped = true;
+                    break;
+                }
+                if (b != target[i]) {
+                    return false;
+                }
+            }
+            if (!escaped) {
+                return true;
+            }
+        } else {
+            for (int i = start; i < end; i++) {
+                if (buffer.get(i) == '\\') {
+                    escaped = true;
+                    break;
+                }
+            }
+            if (!escaped) {
+                return false;
+            }
+        }
+        return key.equals(readString(start - 1));
+    }
+
+    private Object readValue(int i) {
+        if (i >= buffer.limit()) {
+            throw error(i);
+        }
+        byte b = buffer.get(i);
+        switch (b) {
+            case '"':
+                return readString(i);
+            case '{':
+                return new JsonRecord(buffer, i, skipValue(buffer, i));
+            case '[':
+                return readArray(i);
+            case 't':
+            case 'f':
+            case 'n': {
+                int valueEnd = skipValue(buffer, i);
+                String literal = readAscii(i, valueEnd);
+                if ("true".equals(literal)) {
+                    return true;
+                }
+                if ("false".equals(literal)) {
+                    return false;
+                }
+                if ("null".equals(literal)) {
+                    return null;
+                }
+                throw error(i);
+            }
+            default: {
+                Number number = CastUtils.parseDecimal(readAscii(i, skipValue(buffer, i)));
+                if (number == null) {
+                    throw error(i);
+                }
+                return number;
+            }
+        }
+    }
+
+    private List<Object> readArray(int i) {
+        List<Object> list = new ArrayList<>();
+        i = skipWhitespace(buffer, i + 1);
+        while (i < buffer.limit() && buffer.get(i) != ']') {
+            list.add(readValue(i));
+            i = skipWhitespace(buffer, skipValue(buffer, i));
+            if (i < buffer.limit() && buffer.get(i) == ',') {
+                i = skipWhitespace(buffer, i + 1);
+            }
+        }
+        return list;
+    }
+
+    private String readAscii(int start, int end) {
+        char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) buffer.get(start + i);
+        }
+        return new String(chars);
+    }
+
+    //读取字符串,i为开始的引号位置
+    private String readString(int i) {
+        int stringEnd = skipString(buffer, i) - 1;
+        int start = i + 1;
+        boolean escaped = false;
+        for (int j = start; j < stringEnd; j++) {
+            if (buffer.get(j) == '\\') {
+                escaped = true;
+                break;
+            }
+        }
+        if (!escaped) {
+            return decode(start, stringEnd);
+        }
+        StringBuilder builder = new StringBuilder(stringEnd - start);
+        int from = start;
+        for (int j = start; j < stringEnd; j++) {
+            if (buffer.get(j) != '\\') {
+                continue;
+            }
+            builder.append(decode(from, j));
+            byte c = buffer.get(++j);
+            switch (c) {
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append((char) Integer.parseInt(readAscii(j + 1, j + 5), 16));
+                    j += 4;
+                    break;
+                default:
+                    builder.append((char) c);
+            }
+            from = j + 1;
+        }
+        builder.append(decode(from, stringEnd));
+        return builder.toString();
+    }
+
+    private String decode(int start, int end) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private IllegalArgumentException error(int position) {
+        return new IllegalArgumentException("JSON格式错误,位置:" + position);
+    }
+
+    static int skipWhitespace(ByteBuffer buffer, int i) {
+        int limit = buffer.limit();
+        while (i < limit) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    //跳过字符串,i为开始的引号位置,返回结束引号之后的位置
+    static int skipString(ByteBuffer buffer, int i) {
+        int limit = buffer.limit();
+        for (i++; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("JSON格式错误,字符串未结束");
+    }
+
+    //跳过一个值,返回值之后的位置
+    static int skipValue(ByteBuffer buffer, int i) {
+        int limit = buffer.limit();
+        if (i >= limit) {
+            return i;
+        }
+        byte b = buffer.get(i);
+        if (b == '"') {
+            return skipString(buffer, i);
+        }
+        if (b == '{' || b == '[') {
+            int depth = 0;
+            while (i < limit) {
+                b = buffer.get(i);
+                if (b == '"') {
+                    i = skipString(buffer, i);
+                    continue;
+                }
+                if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (--depth == 0) {
+                        return i + 1;
+                    }
+                }
+                i++;
+            }
+            throw new IllegalArgumentException("JSON格式错误,对象或数组未结束");
+        }
+        while (i < limit) {
+            b = buffer.get(i);
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+}
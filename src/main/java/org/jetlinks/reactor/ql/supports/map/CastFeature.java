@@ -3,6 +3,7 @@ package org.jetlinks.reactor.ql.supports.map;
 import net.sf.jsqlparser.expression.CastExpression;
 import net.sf.jsqlparser.expression.Expression;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
@@ -15,7 +16,7 @@ import java.util.Date;
 import java.util.function.Function;
 
 
-public class CastFeature implements ValueMapFeature {
+public class CastFeature implements ValueMapFeature, FoldableFeature {
 
     private final static String ID = FeatureId.ValueMap.of("cast").getId();
 
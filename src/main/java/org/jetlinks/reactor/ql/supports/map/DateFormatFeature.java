@@ -3,6 +3,7 @@ package org.jetlinks.reactor.ql.supports.map;
 import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.StringValue;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
@@ -16,7 +17,7 @@ import java.util.List;
 import java.util.function.Function;
 
 
-public class DateFormatFeature implements ValueMapFeature {
+public class DateFormatFeature implements ValueMapFeature, FoldableFeature {
 
     private final static String ID = FeatureId.ValueMap.of("date_format").getId();
 
@@ -4,16 +4,26 @@ import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.StringValue;
 import org.jetlinks.reactor.ql.ReactorQLMetadata;
 import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.SchedulerFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
 import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.function.Function;
 
-
+/**
+ * 获取当前时间,时间由{@link SchedulerFeature}提供
+ * <pre>
+ *     now() => 毫秒时间戳
+ *
+ *     now('yyyy-MM-dd') => 格式化后的字符串
+ * </pre>
+ */
 public class NowFeature implements ValueMapFeature {
 
     private static final  String ID = FeatureId.ValueMap.of("now").getId();
@@ -21,17 +31,18 @@ public class NowFeature implements ValueMapFeature {
     @Override
     public Function<ReactorQLRecord, ? extends Publisher<?>> createMapper(Expression expression, ReactorQLMetadata metadata) {
         net.sf.jsqlparser.expression.Function now = ((net.sf.jsqlparser.expression.Function) expression);
+        SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
 
         if (now.getParameters() != null) {
             for (Expression expr : now.getParameters().getExpressions()) {
                 if (expr instanceof StringValue) {
                     StringValue format = ((StringValue) expr);
                     DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format.getValue());
-                    return v -> Mono.just(formatter.format(LocalDateTime.now()));
+                    return v -> Mono.just(formatter.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(scheduler.now()), ZoneId.systemDefault())));
                 }
             }
         }
-        return v -> Mono.just(System.currentTimeMillis());
+        return v -> Mono.just(scheduler.now());
     }
 
     @Override
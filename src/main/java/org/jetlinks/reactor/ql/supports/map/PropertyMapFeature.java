@@ -10,6 +10,7 @@ import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Mono;
 
+import java.util.Optional;
 import java.util.function.Function;
 
 public class PropertyMapFeature implements ValueMapFeature {
@@ -25,10 +26,11 @@ public class PropertyMapFeature implements ValueMapFeature {
         String tableName = fullName.length == 1 ? "this" : fullName[0];
 
         PropertyFeature feature = metadata.getFeatureNow(PropertyFeature.ID);
+        Function<Object, Optional<Object>> accessor = feature.createAccessor(name);
 
         return ctx -> Mono.justOrEmpty(ctx.getRecord(tableName))
-                .flatMap(record -> Mono.justOrEmpty(feature.getProperty(name, record)))
-                .switchIfEmpty(Mono.fromSupplier(() -> feature.getProperty(name, ctx.asMap()).orElse(null)))
+                .flatMap(record -> Mono.justOrEmpty(accessor.apply(record)))
+                .switchIfEmpty(Mono.fromSupplier(() -> accessor.apply(ctx.asMap()).orElse(null)))
                 .switchIfEmpty(Mono.justOrEmpty(ctx.getRecord(name)))
                 ;
     }
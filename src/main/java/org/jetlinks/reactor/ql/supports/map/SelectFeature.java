@@ -8,12 +8,26 @@ import org.jetlinks.reactor.ql.ReactorQLRecord;
 import org.jetlinks.reactor.ql.feature.FeatureId;
 import org.jetlinks.reactor.ql.feature.FromFeature;
 import org.jetlinks.reactor.ql.feature.ValueMapFeature;
+import org.jetlinks.reactor.ql.utils.ExecutionCache;
+import org.jetlinks.reactor.ql.utils.SqlUtils;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.function.Function;
 
-
+/**
+ * 子查询
+ * <pre>
+ *     select (select name from user where id = t.userId) userName from t
+ * </pre>
+ * 没有引用外部查询数据的子查询(非相关子查询),在每次执行查询时只执行一次,结果将被缓存.
+ * 可通过hint设置缓存刷新间隔: subSelectRefresh(1m)
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
 public class SelectFeature implements ValueMapFeature {
 
     private final static String ID = FeatureId.ValueMap.select.getId();
@@ -26,7 +40,7 @@ public class SelectFeature implements ValueMapFeature {
 
         Function<ReactorQLContext, Flux<ReactorQLRecord>> mapper = FromFeature.createFromMapperByFrom(select, metadata);
 
-        return record -> mapper
+        Function<ReactorQLRecord, Flux<Object>> selectMapper = record -> mapper
                 .apply(record.getContext()
                         .wrap((table, source) -> source
                                 .map(val -> ReactorQLRecord
@@ -34,6 +48,18 @@ public class SelectFeature implements ValueMapFeature {
                                         .addRecords(record.getRecords(false)))))
                 .map(ReactorQLRecord::getRecord);
 
+        if (SqlUtils.isCorrelated(select, metadata.getSql())) {
+            return selectMapper;
+        }
+        Function<ReactorQLRecord, Mono<List<Object>>> materialized =
+                ExecutionCache.materialize(metadata, record -> selectMapper.apply(record).collectList());
+
+        //子查询在超时时间内没有结束时,对每条数据单独执行
+        return record -> materialized
+                .apply(record)
+                .map(Flux::fromIterable)
+                .switchIfEmpty(Mono.fromSupplier(() -> selectMapper.apply(record)))
+                .flatMapMany(Function.identity());
     }
 
     @Override
@@ -0,0 +1,58 @@
+package org.jetlinks.reactor.ql.supports.metrics;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.MetricsFeature;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在内存中统计运行指标,按查询名称和操作名称分别统计.
+ * <p>
+ * 查询名称通过hint指定: <code>/*+ name(rule1) *&#47;</code>,未指定时使用SQL.
+ * 同一个实例可以注册到多个查询中.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class InMemoryMetricsFeature implements MetricsFeature {
+
+    //查询名称->操作名称->指标
+    private final Map<String, Map<String, InMemoryOperatorMetrics>> metrics = new ConcurrentHashMap<>();
+
+    @Override
+    public OperatorMetrics getOperatorMetrics(ReactorQLMetadata metadata, String operator) {
+        String name = metadata
+                .getSetting("name")
+                .map(String::valueOf)
+                .orElseGet(() -> metadata.getSql().toString());
+        return metrics
+                .computeIfAbsent(name, ignore -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operator, InMemoryOperatorMetrics::new);
+    }
+
+    /**
+     * 获取查询中各个操作的指标
+     *
+     * @param name 查询名称
+     * @return 操作名称->指标
+     */
+    public Map<String, InMemoryOperatorMetrics> getMetrics(String name) {
+        return Collections.unmodifiableMap(metrics.getOrDefault(name, Collections.emptyMap()));
+    }
+
+    /**
+     * @return 查询名称->操作名称->指标
+     */
+    public Map<String, Map<String, InMemoryOperatorMetrics>> getMetrics() {
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * 清空全部指标
+     */
+    public void reset() {
+        metrics.values().forEach(operators -> operators.values().forEach(InMemoryOperatorMetrics::reset));
+    }
+}
@@ -0,0 +1,183 @@
+package org.jetlinks.reactor.ql.supports.metrics;
+
+import lombok.Getter;
+import reactor.core.Disposable;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * 在内存中统计的单个操作的指标
+ *
+ * @author zhouhao
+ * @see InMemoryMetricsFeature
+ * @since 1.0
+ */
+public class InMemoryOperatorMetrics implements OperatorMetrics {
+
+    @Getter
+    private final String operator;
+
+    private final LongAdder in = new LongAdder();
+
+    private final LongAdder out = new LongAdder();
+
+    private final LongAdder time = new LongAdder();
+
+    private final LongAdder cancel = new LongAdder();
+
+    private final LongAdder drop = new LongAdder();
+
+    private final Set<LongSupplier> queues = ConcurrentHashMap.newKeySet();
+
+    //[数据量,容量,内存]
+    private final Set<LongSupplier[]> states = ConcurrentHashMap.newKeySet();
+
+    public InMemoryOperatorMetrics(String operator) {
+        this.operator = operator;
+    }
+
+    @Override
+    public void recordIn() {
+        in.increment();
+    }
+
+    @Override
+    public void recordOut() {
+        out.increment();
+    }
+
+    @Override
+    public void recordTime(long nanos) {
+        time.add(nanos);
+    }
+
+    @Override
+    public void recordCancel() {
+        cancel.increment();
+    }
+
+    @Override
+    public void recordDrop() {
+        drop.increment();
+    }
+
+    @Override
+    public Disposable monitorQueue(LongSupplier queueSize) {
+        queues.add(queueSize);
+        return () -> queues.remove(queueSize);
+    }
+
+    @Override
+    public Disposable monitorState(LongSupplier size, LongSupplier capacity, LongSupplier memory) {
+        LongSupplier[] state = {size, capacity, memory};
+        states.add(state);
+        return () -> states.remove(state);
+    }
+
+    /**
+     * @return 输入的数据量
+     */
+    public long getRecordsIn() {
+        return in.sum();
+    }
+
+    /**
+     * @return 输出的数据量
+     */
+    public long getRecordsOut() {
+        return out.sum();
+    }
+
+    /**
+     * @return 处理耗时, 纳秒
+     */
+    public long getProcessingNanos() {
+        return time.sum();
+    }
+
+    /**
+     * @return 被取消的次数
+     */
+    public long getCancellations() {
+        return cancel.sum();
+    }
+
+    /**
+     * @return 因缓冲区溢出丢弃的数据量
+     */
+    public long getDropped() {
+        return drop.sum();
+    }
+
+    /**
+     * @return 当前正在执行的操作队列中等待处理的数据量
+     */
+    public long getQueueDepth() {
+        long size = 0;
+        for (LongSupplier queue : queues) {
+            size += queue.getAsLong();
+        }
+        return size;
+    }
+
+    /**
+     * @return 当前正在执行的操作状态中的数据量
+     */
+    public long getStateSize() {
+        return sumState(0);
+    }
+
+    /**
+     * @return 当前正在执行的操作状态的容量
+     */
+    public long getStateCapacity() {
+        return sumState(1);
+    }
+
+    /**
+     * @return 状态的占用率, 数据量/容量, 没有状态时为0
+     */
+    public double getStateOccupancy() {
+        long capacity = getStateCapacity();
+        return capacity == 0 ? 0 : (double) getStateSize() / capacity;
+    }
+
+    /**
+     * @return 当前正在执行的操作状态占用的内存, 字节
+     */
+    public long getStateMemory() {
+        return sumState(2);
+    }
+
+    private long sumState(int index) {
+        long sum = 0;
+        for (LongSupplier[] state : states) {
+            sum += state[index].getAsLong();
+        }
+        return sum;
+    }
+
+    void reset() {
+        in.reset();
+        out.reset();
+        time.reset();
+        cancel.reset();
+        drop.reset();
+    }
+
+    @Override
+    public String toString() {
+        return operator + "{in=" + getRecordsIn() +
+                ", out=" + getRecordsOut() +
+                ", time=" + getProcessingNanos() + "ns" +
+                ", queue=" + getQueueDepth() +
+                ", cancel=" + getCancellations() +
+                ", drop=" + getDropped() +
+                ", state=" + getStateSize() + "/" + getStateCapacity() +
+                ", memory=" + getStateMemory() +
+                "}";
+    }
+}
@@ -0,0 +1,287 @@
+package org.jetlinks.reactor.ql.supports.metrics;
+
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.Scannable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxOperator;
+import reactor.util.context.Context;
+
+import java.util.function.Function;
+
+/**
+ * 统计操作运行指标的包装器,在操作的输入和输出两端分别插入统计节点:
+ * <ul>
+ *     <li>输入节点统计输入的数据量,以及同步调用操作处理每条数据的耗时</li>
+ *     <li>输出节点统计输出的数据量,取消次数,并从调用耗时中扣除在同一线程中下游处理输出数据的耗时</li>
+ *     <li>队列中的数据量通过{@link Scannable.Attr#BUFFERED}统计输入和输出节点之间各个操作缓冲的数据量</li>
+ * </ul>
+ * 每次订阅使用独立的统计状态,操作在其他线程中异步处理的耗时不计入处理耗时.
+ *
+ * @author zhouhao
+ * @see OperatorMetrics
+ * @since 1.0
+ */
+public class MetricsOperator<T> implements Function<Flux<T>, Flux<T>> {
+
+    //统计队列时最多向上查找的操作数量
+    private static final int MAX_SCAN_DEPTH = 64;
+
+    private final OperatorMetrics metrics;
+
+    private final Function<Flux<T>, Flux<T>> stage;
+
+    public MetricsOperator(OperatorMetrics metrics, Function<Flux<T>, Flux<T>> stage) {
+        this.metrics = metrics;
+        this.stage = stage;
+    }
+
+    @Override
+    public Flux<T> apply(Flux<T> flux) {
+        return Flux.defer(() -> {
+            Probe probe = new Probe();
+            return stage
+                    .apply(new ProbeFlux<>(flux, actual -> new InputSubscriber<>(probe, actual)))
+                    .as(output -> new ProbeFlux<>(output, actual -> new OutputSubscriber<>(probe, actual)));
+        });
+    }
+
+    //插入统计节点,不支持融合(fusion)
+    static class ProbeFlux<E> extends FluxOperator<E, E> {
+
+        private final Function<CoreSubscriber<? super E>, CoreSubscriber<? super E>> probe;
+
+        ProbeFlux(Flux<? extends E> source, Function<CoreSubscriber<? super E>, CoreSubscriber<? super E>> probe) {
+            super(source);
+            this.probe = probe;
+        }
+
+        @Override
+        public void subscribe(CoreSubscriber<? super E> actual) {
+            source.subscribe(probe.apply(actual));
+        }
+    }
+
+    class Probe {
+
+        //正在同步执行操作的线程
+        private volatile Thread active;
+
+        //同步执行中下游处理的耗时,只在active线程中读写
+        private long excluded;
+
+        private volatile Scannable input;
+
+        long enter() {
+            active = Thread.currentThread();
+            excluded = 0;
+            return System.nanoTime();
+        }
+
+        void exit(long start) {
+            long elapsed = System.nanoTime() - start - excluded;
+            active = null;
+            metrics.recordTime(Math.max(0, elapsed));
+        }
+
+        boolean isActive() {
+            return active == Thread.currentThread();
+        }
+
+        void exclude(long start) {
+            excluded += System.nanoTime() - start;
+        }
+    }
+
+    class InputSubscriber<E> implements CoreSubscriber<E>, Subscription, Scannable {
+
+        private final Probe probe;
+
+        private final CoreSubscriber<? super E> actual;
+
+        private Subscription upstream;
+
+        InputSubscriber(Probe probe, CoreSubscriber<? super E> actual) {
+            this.probe = probe;
+            this.actual = actual;
+            probe.input = this;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            this.upstream = s;
+            actual.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(E e) {
+            metrics.recordIn();
+            long start = probe.enter();
+            try {
+                actual.onNext(e);
+            } finally {
+                probe.exit(start);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            long start = probe.enter();
+            try {
+                actual.onError(t);
+            } finally {
+                probe.exit(start);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            long start = probe.enter();
+            try {
+                actual.onComplete();
+            } finally {
+                probe.exit(start);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            upstream.cancel();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")//Scannable中声明的参数类型为Attr
+        public Object scanUnsafe(Attr key) {
+            if (key == Attr.PARENT) {
+                return upstream;
+            }
+            if (key == Attr.ACTUAL) {
+                return actual;
+            }
+            return null;
+        }
+    }
+
+    class OutputSubscriber<E> implements CoreSubscriber<E>, Subscription, Scannable {
+
+        private final Probe probe;
+
+        private final CoreSubscriber<? super E> actual;
+
+        private Subscription upstream;
+
+        private Disposable queue;
+
+        OutputSubscriber(Probe probe, CoreSubscriber<? super E> actual) {
+            this.probe = probe;
+            this.actual = actual;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            this.upstream = s;
+            this.queue = metrics.monitorQueue(this::getQueueSize);
+            actual.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(E e) {
+            metrics.recordOut();
+            if (!probe.isActive()) {
+                actual.onNext(e);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                actual.onNext(e);
+            } finally {
+                probe.exclude(start);
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            queue.dispose();
+            if (!probe.isActive()) {
+                actual.onError(t);
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                actual.onError(t);
+            } finally {
+                probe.exclude(start);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            queue.dispose();
+            if (!probe.isActive()) {
+                actual.onComplete();
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                actual.onComplete();
+            } finally {
+                probe.exclude(start);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            upstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            metrics.recordCancel();
+            queue.dispose();
+            upstream.cancel();
+        }
+
+        @Override
+        public Context currentContext() {
+            return actual.currentContext();
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")//Scannable中声明的参数类型为Attr
+        public Object scanUnsafe(Attr key) {
+            if (key == Attr.PARENT) {
+                return upstream;
+            }
+            if (key == Attr.ACTUAL) {
+                return actual;
+            }
+            return null;
+        }
+
+        //输入节点和输出节点之间各个操作缓冲的数据量
+        long getQueueSize() {
+            Scannable input = probe.input;
+            Scannable current = Scannable.from(upstream);
+            long size = 0;
+            for (int i = 0; i < MAX_SCAN_DEPTH && current != null && current != input && current.isScanAvailable(); i++) {
+                Integer buffered = current.scan(Attr.BUFFERED);
+                if (buffered != null && buffered > 0) {
+                    size += buffered;
+                }
+                current = current.scan(Attr.PARENT);
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.jetlinks.reactor.ql.supports.metrics;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.MetricsFeature;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 默认的运行指标,不进行任何统计.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class NoopMetricsFeature implements MetricsFeature, OperatorMetrics {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public OperatorMetrics getOperatorMetrics(ReactorQLMetadata metadata, String operator) {
+        return this;
+    }
+
+    @Override
+    public void recordIn() {
+    }
+
+    @Override
+    public void recordOut() {
+    }
+
+    @Override
+    public void recordTime(long nanos) {
+    }
+
+    @Override
+    public void recordCancel() {
+    }
+
+    @Override
+    public Disposable monitorQueue(LongSupplier queueSize) {
+        return Disposables.disposed();
+    }
+}
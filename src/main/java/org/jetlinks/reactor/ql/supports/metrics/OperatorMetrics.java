@@ -0,0 +1,71 @@
+package org.jetlinks.reactor.ql.supports.metrics;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 单个操作的运行指标,由{@link org.jetlinks.reactor.ql.feature.MetricsFeature}提供.
+ * <p>
+ * 同一个操作可能同时在多个线程中执行(如并行执行或者多次调用start),实现需要是线程安全的.
+ *
+ * @author zhouhao
+ * @see MetricsOperator
+ * @since 1.0
+ */
+public interface OperatorMetrics {
+
+    /**
+     * 操作接收到一条数据
+     */
+    void recordIn();
+
+    /**
+     * 操作输出了一条数据
+     */
+    void recordOut();
+
+    /**
+     * 记录操作同步处理数据的耗时,不包含下游处理输出数据的耗时.
+     *
+     * @param nanos 耗时,纳秒
+     */
+    void recordTime(long nanos);
+
+    /**
+     * 操作被下游取消
+     */
+    void recordCancel();
+
+    /**
+     * 操作因缓冲区溢出丢弃了一条数据
+     *
+     * @see org.jetlinks.reactor.ql.supports.OverflowStrategy
+     */
+    default void recordDrop() {
+
+    }
+
+    /**
+     * 监控操作保存的状态,返回的{@link Disposable}被调用后停止监控.
+     *
+     * @param size     获取状态中的数据量
+     * @param capacity 获取状态的容量
+     * @param memory   获取状态占用的内存,字节
+     * @return Disposable
+     * @see org.jetlinks.reactor.ql.feature.StateFeature
+     */
+    default Disposable monitorState(LongSupplier size, LongSupplier capacity, LongSupplier memory) {
+        return Disposables.disposed();
+    }
+
+    /**
+     * 监控操作内部队列中等待处理的数据量,返回的{@link Disposable}被调用后停止监控.
+     *
+     * @param queueSize 获取队列中的数据量
+     * @return Disposable
+     */
+    Disposable monitorQueue(LongSupplier queueSize);
+
+}
@@ -0,0 +1,20 @@
+package org.jetlinks.reactor.ql.supports.schema;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 列定义
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class ColumnDefinition {
+
+    private final String name;
+
+    private final ColumnType type;
+
+}
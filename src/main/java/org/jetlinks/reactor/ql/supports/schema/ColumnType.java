@@ -0,0 +1,103 @@
+package org.jetlinks.reactor.ql.supports.schema;
+
+import org.jetlinks.reactor.ql.utils.CastUtils;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * 列类型
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public enum ColumnType {
+    LONG {
+        @Override
+        public Object cast(Object value) {
+            Number number = CastUtils.castNumber(value);
+            //带小数的常量不能截断,保留原值按浮点数比较,如: temp >= 30.5
+            if (!isIntegral(number)) {
+                return number;
+            }
+            return number.longValue();
+        }
+    },
+    DOUBLE {
+        @Override
+        public Object cast(Object value) {
+            return CastUtils.castNumber(value).doubleValue();
+        }
+    },
+    STRING {
+        @Override
+        public Object cast(Object value) {
+            if (value instanceof Number || value instanceof Date) {
+                throw new UnsupportedOperationException("无法转换为字符串:" + value);
+            }
+            return String.valueOf(value);
+        }
+    },
+    BOOLEAN {
+        @Override
+        public Object cast(Object value) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+            String str = String.valueOf(value);
+            if ("true".equalsIgnoreCase(str) || "false".equalsIgnoreCase(str)) {
+                return Boolean.valueOf(str);
+            }
+            throw new UnsupportedOperationException("无法转换为布尔值:" + value);
+        }
+    },
+    DATE {
+        @Override
+        public Object cast(Object value) {
+            return CastUtils.castDate(value);
+        }
+    },
+    OBJECT {
+        @Override
+        public Object cast(Object value) {
+            return value;
+        }
+    };
+
+    /**
+     * 将常量转换为此类型,无法转换时抛出{@link UnsupportedOperationException}
+     *
+     * @param value 常量
+     * @return 转换后的值
+     */
+    public abstract Object cast(Object value);
+
+    private static boolean isIntegral(Number number) {
+        if (number instanceof BigDecimal) {
+            return ((BigDecimal) number).signum() == 0 || ((BigDecimal) number).stripTrailingZeros().scale() <= 0;
+        }
+        if (number instanceof Double || number instanceof Float) {
+            double value = number.doubleValue();
+            return value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE;
+        }
+        return true;
+    }
+
+    public boolean isNumber() {
+        return this == LONG || this == DOUBLE;
+    }
+
+    /**
+     * 判断两种类型的列能否进行比较
+     *
+     * @param other 另外一列的类型
+     * @return 是否可以比较
+     */
+    public boolean isComparable(ColumnType other) {
+        if (this == OBJECT || other == OBJECT || this == other) {
+            return true;
+        }
+        //日期可以与数字(时间戳)比较
+        return (isNumber() || this == DATE) && (other.isNumber() || other == DATE);
+    }
+}
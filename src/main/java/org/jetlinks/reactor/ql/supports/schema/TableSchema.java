@@ -0,0 +1,54 @@
+package org.jetlinks.reactor.ql.supports.schema;
+
+import lombok.Getter;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.SchemaFeature;
+
+import java.util.*;
+
+/**
+ * <pre>
+ *  ReactorQL.builder()
+ *           .sql("select * from temp where temp > 30")
+ *           .schema(TableSchema.of("temp")
+ *                              .column("deviceId", ColumnType.STRING)
+ *                              .column("temp", ColumnType.DOUBLE))
+ *           .build();
+ * </pre>
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class TableSchema implements SchemaFeature {
+
+    @Getter
+    private final String id;
+
+    @Getter
+    private final String table;
+
+    private final Map<String, ColumnDefinition> columns = new LinkedHashMap<>();
+
+    public TableSchema(String table) {
+        this.table = table;
+        this.id = FeatureId.Schema.of(table).getId();
+    }
+
+    public static TableSchema of(String table) {
+        return new TableSchema(table);
+    }
+
+    public TableSchema column(String name, ColumnType type) {
+        columns.put(name, new ColumnDefinition(name, type));
+        return this;
+    }
+
+    public List<ColumnDefinition> getColumns() {
+        return Collections.unmodifiableList(new ArrayList<>(columns.values()));
+    }
+
+    @Override
+    public Optional<ColumnDefinition> getColumn(String column) {
+        return Optional.ofNullable(columns.get(column));
+    }
+}
@@ -0,0 +1,73 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import lombok.SneakyThrows;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 堆外内存分配器,分配的内存不占用堆空间,内容初始为0.
+ * <p>
+ * 释放后的内存在{@link ByteBuffer}对象被垃圾回收时归还给操作系统.
+ *
+ * @author zhouhao
+ * @see OffHeapHashTable
+ * @since 1.0
+ */
+public interface BufferAllocator {
+
+    /**
+     * 分配内存
+     *
+     * @param capacity 大小,字节
+     * @return ByteBuffer
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * 使用{@link ByteBuffer#allocateDirect(int)}分配内存,大小受JVM参数-XX:MaxDirectMemorySize限制
+     *
+     * @return 分配器
+     */
+    static BufferAllocator direct() {
+        return ByteBuffer::allocateDirect;
+    }
+
+    /**
+     * 使用内存映射文件分配内存,由操作系统负责换入换出,可以保存超过物理内存的状态.
+     * 文件在映射后立即删除,不会在重启后恢复.
+     *
+     * @param directory 文件目录
+     * @return 分配器
+     */
+    @SneakyThrows
+    static BufferAllocator mapped(Path directory) {
+        Files.createDirectories(directory);
+        return new BufferAllocator() {
+            @Override
+            @SneakyThrows
+            public ByteBuffer allocate(int capacity) {
+                Path file = Files.createTempFile(directory, "reactor-ql-", ".state");
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+                } finally {
+                    try {
+                        Files.delete(file);
+                    } catch (Exception e) {
+                        //部分系统不能删除已经映射的文件
+                        file.toFile().deleteOnExit();
+                    }
+                }
+            }
+
+            @Override
+            public String toString() {
+                return "mapped(" + directory + ")";
+            }
+        };
+    }
+
+}
@@ -0,0 +1,48 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.reactivestreams.Publisher;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * 使用固定长度的字节保存中间结果的聚合,中间结果直接保存在{@link OffHeapHashTable}的值区域中并原地更新,
+ * 全部字节为0表示初始状态.
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.feature.ValueAggMapFeature#createFixedWidthAggregator(net.sf.jsqlparser.expression.Expression, org.jetlinks.reactor.ql.ReactorQLMetadata)
+ * @see FixedWidthAggregators
+ * @since 1.0
+ */
+public interface FixedWidthAggregator {
+
+    /**
+     * @return 中间结果的字节数
+     */
+    int getWidth();
+
+    /**
+     * @return 获取需要累加的值, 为null时不读取值, 每条数据都以null累加
+     */
+    Function<ReactorQLRecord, ? extends Publisher<?>> getValueMapper();
+
+    /**
+     * 累加一个值
+     *
+     * @param buffer 数据区
+     * @param offset 中间结果的偏移量
+     * @param value  值,没有值时为null
+     */
+    void accumulate(ByteBuffer buffer, int offset, Object value);
+
+    /**
+     * 获取聚合结果
+     *
+     * @param buffer 数据区
+     * @param offset 中间结果的偏移量
+     * @return 聚合结果, 没有结果时返回null
+     */
+    Object getResult(ByteBuffer buffer, int offset);
+
+}
@@ -0,0 +1,178 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.utils.CastUtils;
+import org.reactivestreams.Publisher;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * 常用的定长聚合,结果与对应的向量化聚合{@link org.jetlinks.reactor.ql.supports.vector.VectorAggregators}一致.
+ * max和min只支持数值,以8个字节保存并保留整数和浮点数的类型.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class FixedWidthAggregators {
+
+    public static FixedWidthAggregator count() {
+        return new FixedWidthAggregator() {
+            @Override
+            public int getWidth() {
+                return 8;
+            }
+
+            @Override
+            public Function<ReactorQLRecord, ? extends Publisher<?>> getValueMapper() {
+                return null;
+            }
+
+            @Override
+            public void accumulate(ByteBuffer buffer, int offset, Object value) {
+                buffer.putLong(offset, buffer.getLong(offset) + 1);
+            }
+
+            @Override
+            public Object getResult(ByteBuffer buffer, int offset) {
+                return buffer.getLong(offset);
+            }
+        };
+    }
+
+    public static FixedWidthAggregator sum(Function<ReactorQLRecord, ? extends Publisher<?>> mapper) {
+        return new SumAggregator(mapper, false);
+    }
+
+    public static FixedWidthAggregator avg(Function<ReactorQLRecord, ? extends Publisher<?>> mapper) {
+        return new SumAggregator(mapper, true);
+    }
+
+    public static FixedWidthAggregator max(Function<ReactorQLRecord, ? extends Publisher<?>> mapper) {
+        return new CompareAggregator(mapper, true);
+    }
+
+    public static FixedWidthAggregator min(Function<ReactorQLRecord, ? extends Publisher<?>> mapper) {
+        return new CompareAggregator(mapper, false);
+    }
+
+    //[总和(double)][数量(long)]
+    static class SumAggregator implements FixedWidthAggregator {
+        private final Function<ReactorQLRecord, ? extends Publisher<?>> mapper;
+        private final boolean avg;
+
+        SumAggregator(Function<ReactorQLRecord, ? extends Publisher<?>> mapper, boolean avg) {
+            this.mapper = mapper;
+            this.avg = avg;
+        }
+
+        @Override
+        public int getWidth() {
+            return 16;
+        }
+
+        @Override
+        public Function<ReactorQLRecord, ? extends Publisher<?>> getValueMapper() {
+            return mapper;
+        }
+
+        @Override
+        public void accumulate(ByteBuffer buffer, int offset, Object value) {
+            if (value == null) {
+                return;
+            }
+            buffer.putDouble(offset, buffer.getDouble(offset) + CastUtils.castNumber(value).doubleValue());
+            buffer.putLong(offset + 8, buffer.getLong(offset + 8) + 1);
+        }
+
+        @Override
+        public Object getResult(ByteBuffer buffer, int offset) {
+            long count = buffer.getLong(offset + 8);
+            if (count == 0) {
+                return null;
+            }
+            double sum = buffer.getDouble(offset);
+            return avg ? sum / count : sum;
+        }
+    }
+
+    //[类型(byte)][值(long或者double)]
+    static class CompareAggregator implements FixedWidthAggregator {
+        private static final byte NONE = 0;
+        private static final byte INT = 1;
+        private static final byte LONG = 2;
+        private static final byte FLOAT = 3;
+        private static final byte DOUBLE = 4;
+
+        private final Function<ReactorQLRecord, ? extends Publisher<?>> mapper;
+        private final boolean max;
+
+        CompareAggregator(Function<ReactorQLRecord, ? extends Publisher<?>> mapper, boolean max) {
+            this.mapper = mapper;
+            this.max = max;
+        }
+
+        @Override
+        public int getWidth() {
+            return 9;
+        }
+
+        @Override
+        public Function<ReactorQLRecord, ? extends Publisher<?>> getValueMapper() {
+            return mapper;
+        }
+
+        @Override
+        public void accumulate(ByteBuffer buffer, int offset, Object value) {
+            if (value == null) {
+                return;
+            }
+            Number number = CastUtils.castNumber(value);
+            byte type = number instanceof Integer || number instanceof Short || number instanceof Byte
+                    ? INT
+                    : number instanceof Long ? LONG : number instanceof Float ? FLOAT : DOUBLE;
+            byte currentType = buffer.get(offset);
+            if (currentType != NONE) {
+                int compare;
+                if (isIntegral(type) && isIntegral(currentType)) {
+                    compare = Long.compare(number.longValue(), buffer.getLong(offset + 1));
+                } else {
+                    compare = Double.compare(number.doubleValue(), getDouble(buffer, offset, currentType));
+                }
+                if (max ? compare <= 0 : compare >= 0) {
+                    return;
+                }
+            }
+            buffer.put(offset, type);
+            if (isIntegral(type)) {
+                buffer.putLong(offset + 1, number.longValue());
+            } else {
+                buffer.putDouble(offset + 1, number.doubleValue());
+            }
+        }
+
+        private static boolean isIntegral(byte type) {
+            return type == INT || type == LONG;
+        }
+
+        private static double getDouble(ByteBuffer buffer, int offset, byte type) {
+            return isIntegral(type) ? buffer.getLong(offset + 1) : buffer.getDouble(offset + 1);
+        }
+
+        @Override
+        public Object getResult(ByteBuffer buffer, int offset) {
+            switch (buffer.get(offset)) {
+                case INT:
+                    return (int) buffer.getLong(offset + 1);
+                case LONG:
+                    return buffer.getLong(offset + 1);
+                case FLOAT:
+                    return (float) buffer.getDouble(offset + 1);
+                case DOUBLE:
+                    return buffer.getDouble(offset + 1);
+                default:
+                    return null;
+            }
+        }
+    }
+}
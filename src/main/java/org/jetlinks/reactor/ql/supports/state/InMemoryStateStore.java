@@ -0,0 +1,56 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * 只保存在内存中的状态
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class InMemoryStateStore implements StateStore {
+
+    private final Map<Object, Object> data = new ConcurrentHashMap<>();
+
+    @Override
+    public Object get(Object key) {
+        return data.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        data.put(key, value);
+    }
+
+    @Override
+    public Object putIfAbsent(Object key, Object value) {
+        return data.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void remove(Object key) {
+        data.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        data.clear();
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<Object, Object> consumer) {
+        data.forEach(consumer);
+    }
+}
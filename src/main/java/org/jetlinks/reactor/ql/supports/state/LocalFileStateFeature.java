@@ -0,0 +1,96 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.StateFeature;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将状态定期保存到本地文件,查询重启后从文件中恢复状态.
+ * <p>
+ * 每个查询的状态保存在以查询名称命名的目录中,查询名称通过hint指定: <code>/*+ name(rule1) *&#47;</code>,
+ * 未指定时使用sql的哈希值.每个操作的状态由一个快照文件和一个增量日志文件组成,
+ * 每隔指定的时间将变更追加到日志中,日志超过快照大小时重新生成快照,详见{@link LocalFileStateStore}.
+ * <p>
+ * 在程序退出前应该调用{@link LocalFileStateFeature#dispose()}保存最后的状态.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@Slf4j
+public class LocalFileStateFeature implements StateFeature, Disposable {
+
+    private final Path directory;
+
+    private final Map<Path, LocalFileStateStore> stores = new ConcurrentHashMap<>();
+
+    private final Scheduler scheduler;
+
+    private final Disposable checkpointTask;
+
+    @SneakyThrows
+    public LocalFileStateFeature(Path directory, Duration interval) {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.scheduler = Schedulers.newSingle("reactor-ql-state");
+        this.checkpointTask = scheduler.schedulePeriodically(this::checkpoint, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public StateStore getStateStore(ReactorQLMetadata metadata, String operator) {
+        String name = metadata
+                .getSetting("name")
+                .map(String::valueOf)
+                .orElseGet(() -> Integer.toHexString(metadata.getSql().toString().hashCode()));
+        Path file = directory.resolve(sanitize(name)).resolve(sanitize(operator));
+        return stores.computeIfAbsent(file, LocalFileStateStore::new);
+    }
+
+    /**
+     * 立即保存全部状态的变更
+     */
+    public void checkpoint() {
+        for (LocalFileStateStore store : stores.values()) {
+            try {
+                store.checkpoint(false);
+            } catch (Throwable e) {
+                log.warn("save state [{}] error", store.getFile(), e);
+            }
+        }
+    }
+
+    /**
+     * 停止定期保存,并将全部状态保存为快照
+     */
+    @Override
+    public void dispose() {
+        checkpointTask.dispose();
+        for (LocalFileStateStore store : stores.values()) {
+            try {
+                store.checkpoint(true);
+            } catch (Throwable e) {
+                log.warn("save state [{}] error", store.getFile(), e);
+            }
+        }
+        scheduler.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return checkpointTask.isDisposed();
+    }
+
+    static String sanitize(String name) {
+        return name.replaceAll("[^a-zA-Z0-9_.\\-]", "_");
+    }
+}
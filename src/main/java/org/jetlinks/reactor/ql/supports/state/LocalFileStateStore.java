@@ -0,0 +1,286 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import lombok.Getter;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * 保存到本地文件的状态,数据保存在内存中,调用{@link LocalFileStateStore#checkpoint(boolean)}时写入文件.
+ * <p>
+ * 文件格式:
+ * <ul>
+ *     <li>{name}.snapshot: 快照,包含一个记录了全部数据的帧</li>
+ *     <li>{name}.log: 增量日志,每次保存时追加一个记录了变更的帧</li>
+ * </ul>
+ * 帧的格式为: [长度(int)][内容][CRC32(long)],内容的格式为: [版本(varlong)][是否清空(boolean)][数量(varint)][键,是否删除,值]...,
+ * 键和值使用{@link StateCodec}编码.快照先写入临时文件再原子替换,替换后版本号加1并删除日志,
+ * 恢复时忽略版本号与快照不一致的日志,以及校验失败的帧(如写入时进程退出导致的不完整的帧).
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@Slf4j
+public class LocalFileStateStore implements StateStore {
+
+    //日志大小超过此值以及快照大小时重新生成快照
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    private static final Object REMOVED = new Object();
+
+    @Getter
+    private final Path file;
+
+    private final Path snapshotFile;
+
+    private final Path logFile;
+
+    private final Map<Object, Object> data = new ConcurrentHashMap<>();
+
+    //上次保存后的变更,值为REMOVED时表示删除
+    private Map<Object, Object> changes = new HashMap<>();
+
+    private boolean cleared;
+
+    private long version;
+
+    private final Object fileLock = new Object();
+
+    @SneakyThrows
+    public LocalFileStateStore(Path file) {
+        this.file = file;
+        this.snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+        this.logFile = file.resolveSibling(file.getFileName() + ".log");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        restore();
+    }
+
+    @Override
+    public Object get(Object key) {
+        return data.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return data.containsKey(key);
+    }
+
+    @Override
+    public synchronized void put(Object key, Object value) {
+        data.put(key, value);
+        changes.put(key, value);
+    }
+
+    @Override
+    public synchronized Object putIfAbsent(Object key, Object value) {
+        Object old = data.putIfAbsent(key, value);
+        if (old == null) {
+            changes.put(key, value);
+        }
+        return old;
+    }
+
+    @Override
+    public synchronized void remove(Object key) {
+        if (data.remove(key) != null) {
+            changes.put(key, REMOVED);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        data.clear();
+        changes.clear();
+        cleared = true;
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<Object, Object> consumer) {
+        data.forEach(consumer);
+    }
+
+    /**
+     * 将上次保存后的变更写入文件
+     *
+     * @param compact 是否重新生成快照
+     */
+    @SneakyThrows
+    public void checkpoint(boolean compact) {
+        synchronized (fileLock) {
+            Map<Object, Object> changes;
+            boolean cleared;
+            synchronized (this) {
+                if (!compact && this.changes.isEmpty() && !this.cleared) {
+                    return;
+                }
+                compact = compact || needCompact();
+                changes = compact ? new HashMap<>(data) : this.changes;
+                cleared = compact || this.cleared;
+                this.changes = new HashMap<>();
+                this.cleared = false;
+            }
+            if (compact) {
+                Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    writeFrame(channel, version + 1, true, changes);
+                    channel.force(true);
+                }
+                Files.move(tmp, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                version++;
+                Files.deleteIfExists(logFile);
+            } else {
+                try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    writeFrame(channel, version, cleared, changes);
+                    channel.force(false);
+                }
+            }
+        }
+    }
+
+    private boolean needCompact() throws IOException {
+        if (!Files.exists(logFile)) {
+            return false;
+        }
+        long logSize = Files.size(logFile);
+        return logSize > MIN_COMPACT_SIZE && logSize > (Files.exists(snapshotFile) ? Files.size(snapshotFile) : 0);
+    }
+
+    private void writeFrame(FileChannel channel, long version, boolean cleared, Map<Object, Object> entries) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(stream);
+        ByteArrayOutputStream entryStream = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entryStream);
+        int size = 0;
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            int mark = entryStream.size();
+            try {
+                StateCodec.write(entryOut, entry.getKey());
+                entryOut.writeBoolean(entry.getValue() == REMOVED);
+                if (entry.getValue() != REMOVED) {
+                    StateCodec.write(entryOut, entry.getValue());
+                }
+                size++;
+            } catch (UnsupportedOperationException e) {
+                //忽略无法保存的数据
+                log.warn("skip state [{}]: {}", file, e.getMessage());
+                resetTo(entryStream, mark);
+            }
+        }
+        StateCodec.writeVarLong(out, version);
+        out.writeBoolean(cleared);
+        StateCodec.writeVarInt(out, size);
+        entryStream.writeTo(out);
+        out.flush();
+
+        byte[] content = stream.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ByteBuffer buffer = ByteBuffer.allocate(content.length + 12);
+        buffer.putInt(content.length);
+        buffer.put(content);
+        buffer.putLong(crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void resetTo(ByteArrayOutputStream stream, int size) {
+        byte[] bytes = stream.toByteArray();
+        stream.reset();
+        stream.write(bytes, 0, size);
+    }
+
+    private void restore() throws IOException {
+        long snapshotVersion = 0;
+        if (Files.exists(snapshotFile)) {
+            Long version = readFrames(snapshotFile, -1);
+            if (version == null) {
+                log.warn("state snapshot [{}] is corrupted", snapshotFile);
+            } else {
+                snapshotVersion = version;
+            }
+        }
+        this.version = snapshotVersion;
+        if (Files.exists(logFile)) {
+            readFrames(logFile, snapshotVersion);
+        }
+        //恢复后立即生成快照,丢弃日志中不完整的帧
+        checkpoint(true);
+    }
+
+    /**
+     * 读取文件中的帧
+     *
+     * @param file    文件
+     * @param version 帧的版本号,为-1时不校验
+     * @return 最后一个有效帧的版本号, 没有有效帧时返回null
+     */
+    private Long readFrames(Path file, long version) throws IOException {
+        Long lastVersion = null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] content;
+                long checksum;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > Files.size(file)) {
+                        break;
+                    }
+                    content = new byte[length];
+                    in.readFully(content);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                if (crc.getValue() != checksum) {
+                    log.warn("state [{}] checksum error, ignore remaining frames", file);
+                    break;
+                }
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(content));
+                long frameVersion = StateCodec.readVarLong(frame);
+                if (version != -1 && frameVersion != version) {
+                    break;
+                }
+                if (frame.readBoolean()) {
+                    data.clear();
+                }
+                int size = StateCodec.readVarInt(frame);
+                for (int i = 0; i < size; i++) {
+                    Object key = StateCodec.read(frame);
+                    if (frame.readBoolean()) {
+                        data.remove(key);
+                    } else {
+                        data.put(key, StateCodec.read(frame));
+                    }
+                }
+                lastVersion = frameVersion;
+            }
+        }
+        return lastVersion;
+    }
+
+    @Override
+    public String toString() {
+        return "LocalFileStateStore{file=" + file + ", size=" + size() + "}";
+    }
+}
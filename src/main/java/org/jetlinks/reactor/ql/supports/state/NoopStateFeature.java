@@ -0,0 +1,23 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.StateFeature;
+
+/**
+ * 默认的状态存储,不保存任何状态,有状态的操作只在内存中保存状态.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class NoopStateFeature implements StateFeature {
+
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+    @Override
+    public StateStore getStateStore(ReactorQLMetadata metadata, String operator) {
+        return new InMemoryStateStore();
+    }
+}
@@ -0,0 +1,418 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 保存在堆外内存中的开放寻址哈希表,键为字节数组,值为固定长度的字节区域,可以直接在值区域中原地更新定长的数据(如聚合的中间结果).
+ * 大量的键值不会创建Java对象,减少垃圾回收的压力.
+ * <p>
+ * 内存布局:
+ * <ul>
+ *     <li>槽位表: 每个槽位8个字节,[键的哈希值(int)][数据偏移量+1(int)],0表示空槽位,-1表示已删除.使用线性探测,负载因子为0.75</li>
+ *     <li>数据区: 按写入顺序追加的数据,每条数据为[键长度(int)][值长度(int)][键][值],删除的数据键长度取反</li>
+ * </ul>
+ * 数据区空间不足时,将有效数据复制到新的数据区并重建槽位表,数据偏移量会发生变化,因此偏移量只在下一次调用{@link OffHeapHashTable#allocate(byte[], int)}前有效.
+ * 数据区最大为2GB.
+ * <p>
+ * 此类不是线程安全的.
+ *
+ * @author zhouhao
+ * @see BufferAllocator
+ * @since 1.0
+ */
+public class OffHeapHashTable implements Disposable {
+
+    private static final int SLOT_SIZE = 8;
+
+    private static final int ENTRY_HEADER = 8;
+
+    private static final int EMPTY = 0;
+
+    private static final int TOMBSTONE = -1;
+
+    private static final float LOAD_FACTOR = 0.75F;
+
+    //初始时每条数据预留的字节数
+    private static final int INITIAL_ENTRY_SIZE = 32;
+
+    private static final int MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    private final BufferAllocator allocator;
+
+    private final int initialCapacity;
+
+    private final Disposable.Composite disposables = Disposables.composite();
+
+    private ByteBuffer slots;
+
+    private int capacity;
+
+    private ByteBuffer data;
+
+    //数据区写入位置
+    private int position;
+
+    private int size;
+
+    private int tombstones;
+
+    //数据区中已经删除的数据的字节数
+    private long garbage;
+
+    private volatile boolean disposed;
+
+    public OffHeapHashTable(BufferAllocator allocator, int initialCapacity) {
+        this.allocator = allocator;
+        this.initialCapacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+        init();
+    }
+
+    private void init() {
+        capacity = initialCapacity;
+        slots = allocator.allocate(capacity * SLOT_SIZE);
+        data = allocator.allocate(capacity * INITIAL_ENTRY_SIZE);
+        position = 0;
+        size = 0;
+        tombstones = 0;
+        garbage = 0;
+    }
+
+    /**
+     * 查找数据
+     *
+     * @param key 键
+     * @return 数据偏移量, 不存在时返回-1
+     */
+    public int find(byte[] key) {
+        int hash = hash(key);
+        int mask = capacity - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            int slot = index * SLOT_SIZE;
+            int ref = slots.getInt(slot + 4);
+            if (ref == EMPTY) {
+                return -1;
+            }
+            if (ref != TOMBSTONE && slots.getInt(slot) == hash && keyEquals(ref - 1, key)) {
+                return ref - 1;
+            }
+        }
+    }
+
+    /**
+     * 写入键并分配值的空间,值的内容为0.键已经存在时替换原来的数据.
+     *
+     * @param key         键
+     * @param valueLength 值长度
+     * @return 数据偏移量
+     */
+    public int allocate(byte[] key, int valueLength) {
+        int entrySize = ENTRY_HEADER + key.length + valueLength;
+        ensureData(entrySize);
+        if (size + tombstones + 1 > capacity * LOAD_FACTOR) {
+            //已删除的槽位较多时只重建不扩容
+            rebuildSlots(size + 1 > capacity * LOAD_FACTOR / 2 ? capacity * 2 : capacity);
+        }
+        int hash = hash(key);
+        int mask = capacity - 1;
+        int target = -1;
+        boolean exists = false;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            int slot = index * SLOT_SIZE;
+            int ref = slots.getInt(slot + 4);
+            if (ref == EMPTY) {
+                if (target < 0) {
+                    target = slot;
+                }
+                break;
+            }
+            if (ref == TOMBSTONE) {
+                if (target < 0) {
+                    target = slot;
+                }
+            } else if (slots.getInt(slot) == hash && keyEquals(ref - 1, key)) {
+                markRemoved(ref - 1);
+                target = slot;
+                exists = true;
+                break;
+            }
+        }
+        int entry = position;
+        data.putInt(entry, key.length);
+        data.putInt(entry + 4, valueLength);
+        int keyOffset = entry + ENTRY_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            data.put(keyOffset + i, key[i]);
+        }
+        int valueOffset = keyOffset + key.length;
+        for (int i = 0; i < valueLength; i++) {
+            data.put(valueOffset + i, (byte) 0);
+        }
+        position += entrySize;
+
+        if (slots.getInt(target + 4) == TOMBSTONE) {
+            tombstones--;
+        }
+        if (!exists) {
+            size++;
+        }
+        slots.putInt(target, hash);
+        slots.putInt(target + 4, entry + 1);
+        return entry;
+    }
+
+    /**
+     * 删除数据
+     *
+     * @param key 键
+     * @return 数据是否存在
+     */
+    public boolean remove(byte[] key) {
+        int hash = hash(key);
+        int mask = capacity - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            int slot = index * SLOT_SIZE;
+            int ref = slots.getInt(slot + 4);
+            if (ref == EMPTY) {
+                return false;
+            }
+            if (ref != TOMBSTONE && slots.getInt(slot) == hash && keyEquals(ref - 1, key)) {
+                markRemoved(ref - 1);
+                slots.putInt(slot + 4, TOMBSTONE);
+                tombstones++;
+                size--;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 按写入顺序遍历数据
+     *
+     * @param entry 上一条数据的偏移量,为-1时获取第一条数据
+     * @return 下一条数据的偏移量, 没有更多数据时返回-1
+     */
+    public int nextEntry(int entry) {
+        int offset = entry < 0 ? 0 : entry + entrySize(entry);
+        while (offset < position) {
+            if (data.getInt(offset) >= 0) {
+                return offset;
+            }
+            offset += entrySize(offset);
+        }
+        return -1;
+    }
+
+    public byte[] getKey(int entry) {
+        byte[] key = new byte[data.getInt(entry)];
+        int keyOffset = entry + ENTRY_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            key[i] = data.get(keyOffset + i);
+        }
+        return key;
+    }
+
+    /**
+     * @param entry 数据偏移量
+     * @return 值在{@link OffHeapHashTable#getBuffer()}中的偏移量
+     */
+    public int getValueOffset(int entry) {
+        return entry + ENTRY_HEADER + data.getInt(entry);
+    }
+
+    public int getValueLength(int entry) {
+        return data.getInt(entry + 4);
+    }
+
+    public byte[] getValue(int entry) {
+        byte[] value = new byte[getValueLength(entry)];
+        int valueOffset = getValueOffset(entry);
+        for (int i = 0; i < value.length; i++) {
+            value[i] = data.get(valueOffset + i);
+        }
+        return value;
+    }
+
+    /**
+     * 写入值
+     *
+     * @param entry  数据偏移量
+     * @param offset 在值中的偏移量
+     * @param bytes  内容
+     */
+    public void setValue(int entry, int offset, byte[] bytes) {
+        int valueOffset = getValueOffset(entry) + offset;
+        for (int i = 0; i < bytes.length; i++) {
+            data.put(valueOffset + i, bytes[i]);
+        }
+    }
+
+    /**
+     * 获取数据区,用于原地读写值,在下一次调用{@link OffHeapHashTable#allocate(byte[], int)}前有效
+     *
+     * @return 数据区
+     */
+    public ByteBuffer getBuffer() {
+        return data;
+    }
+
+    /**
+     * 清空全部数据,并释放扩容时分配的内存
+     */
+    public void clear() {
+        init();
+    }
+
+    /**
+     * @return 数据量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 槽位数量
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return 占用率, 数据量/槽位数量
+     */
+    public double getOccupancy() {
+        return (double) size / capacity;
+    }
+
+    /**
+     * @return 占用的堆外内存, 字节
+     */
+    public long getMemoryUsage() {
+        ByteBuffer slots = this.slots, data = this.data;
+        return slots == null || data == null ? 0 : (long) slots.capacity() + data.capacity();
+    }
+
+    /**
+     * 释放时执行
+     *
+     * @param disposable 任务
+     * @return this
+     */
+    public OffHeapHashTable onDispose(Disposable disposable) {
+        disposables.add(disposable);
+        return this;
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        slots = null;
+        data = null;
+        size = 0;
+        capacity = 1;
+        disposables.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    private void markRemoved(int entry) {
+        data.putInt(entry, ~data.getInt(entry));
+        garbage += entrySize(entry);
+    }
+
+    private int entrySize(int entry) {
+        int keyLength = data.getInt(entry);
+        return ENTRY_HEADER + (keyLength < 0 ? ~keyLength : keyLength) + data.getInt(entry + 4);
+    }
+
+    private boolean keyEquals(int entry, byte[] key) {
+        if (data.getInt(entry) != key.length) {
+            return false;
+        }
+        int keyOffset = entry + ENTRY_HEADER;
+        for (int i = 0; i < key.length; i++) {
+            if (data.get(keyOffset + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //数据区空间不足时,复制有效数据到新的数据区
+    private void ensureData(int entrySize) {
+        if ((long) position + entrySize <= data.capacity()) {
+            return;
+        }
+        long live = position - garbage + entrySize;
+        if (live > MAX_BUFFER_SIZE) {
+            throw new IllegalStateException("堆外状态超过最大容量:" + MAX_BUFFER_SIZE);
+        }
+        int newSize = (int) Math.min(MAX_BUFFER_SIZE, Math.max((long) initialCapacity * INITIAL_ENTRY_SIZE, live * 2));
+        ByteBuffer newData = allocator.allocate(newSize);
+        int newPosition = 0;
+        for (int entry = nextEntry(-1); entry >= 0; entry = nextEntry(entry)) {
+            int length = entrySize(entry);
+            for (int i = 0; i < length; i++) {
+                newData.put(newPosition + i, data.get(entry + i));
+            }
+            newPosition += length;
+        }
+        data = newData;
+        position = newPosition;
+        garbage = 0;
+        int newCapacity = capacity;
+        while (size + 1 > newCapacity * LOAD_FACTOR) {
+            newCapacity *= 2;
+        }
+        rebuildSlots(newCapacity);
+    }
+
+    private void rebuildSlots(int newCapacity) {
+        ByteBuffer newSlots = allocator.allocate(newCapacity * SLOT_SIZE);
+        int mask = newCapacity - 1;
+        for (int entry = nextEntry(-1); entry >= 0; entry = nextEntry(entry)) {
+            int hash = hash(data, entry + ENTRY_HEADER, data.getInt(entry));
+            int index = hash & mask;
+            while (newSlots.getInt(index * SLOT_SIZE + 4) != EMPTY) {
+                index = (index + 1) & mask;
+            }
+            newSlots.putInt(index * SLOT_SIZE, hash);
+            newSlots.putInt(index * SLOT_SIZE + 4, entry + 1);
+        }
+        slots = newSlots;
+        capacity = newCapacity;
+        tombstones = 0;
+    }
+
+    private static int hash(byte[] key) {
+        int hash = 1;
+        for (byte b : key) {
+            hash = 31 * hash + b;
+        }
+        return mix(hash);
+    }
+
+    private static int hash(ByteBuffer buffer, int offset, int length) {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buffer.get(offset + i);
+        }
+        return mix(hash);
+    }
+
+    //打散低位,减少线性探测时的聚集
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapHashTable{size=" + size + ", capacity=" + capacity + ", memory=" + getMemoryUsage() + "}";
+    }
+}
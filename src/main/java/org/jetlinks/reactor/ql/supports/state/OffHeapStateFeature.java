@@ -0,0 +1,81 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.MetricsFeature;
+import org.jetlinks.reactor.ql.feature.StateFeature;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * 将distinct和分组聚合的状态保存在堆外内存中,适用于分组数量很大(如按设备分组)的查询,减少垃圾回收的停顿.
+ * <pre>
+ *  ReactorQL.builder()
+ *           .sql("select deviceId,max(temp) temp from t group by deviceId")
+ *           .feature(new OffHeapStateFeature())
+ *           .build();
+ * </pre>
+ * 状态的数据量,槽位数量以及占用的内存通过{@link MetricsFeature}中对应的操作(distinct,groupBy)统计.
+ * 状态不会在重启后恢复.
+ *
+ * @author zhouhao
+ * @see OffHeapHashTable
+ * @since 1.0
+ */
+public class OffHeapStateFeature implements StateFeature {
+
+    private final BufferAllocator allocator;
+
+    private final int initialCapacity;
+
+    /**
+     * 使用{@link java.nio.ByteBuffer#allocateDirect(int)}分配内存
+     */
+    public OffHeapStateFeature() {
+        this(BufferAllocator.direct());
+    }
+
+    /**
+     * 使用内存映射文件分配内存
+     *
+     * @param directory 文件目录
+     */
+    public OffHeapStateFeature(Path directory) {
+        this(BufferAllocator.mapped(directory));
+    }
+
+    public OffHeapStateFeature(BufferAllocator allocator) {
+        this(allocator, 1024);
+    }
+
+    public OffHeapStateFeature(BufferAllocator allocator, int initialCapacity) {
+        this.allocator = allocator;
+        this.initialCapacity = initialCapacity;
+    }
+
+    @Override
+    public boolean isPersistent() {
+        return false;
+    }
+
+    @Override
+    public StateStore getStateStore(ReactorQLMetadata metadata, String operator) {
+        return new OffHeapStateStore(createTable(metadata, operator));
+    }
+
+    @Override
+    public Optional<Supplier<OffHeapHashTable>> createHashTable(ReactorQLMetadata metadata, String operator) {
+        return Optional.of(() -> createTable(metadata, operator));
+    }
+
+    private OffHeapHashTable createTable(ReactorQLMetadata metadata, String operator) {
+        OffHeapHashTable table = new OffHeapHashTable(allocator, initialCapacity);
+        metadata.getFeature(FeatureId.Metrics.defaultId)
+                .filter(MetricsFeature::isEnabled)
+                .map(metrics -> metrics.getOperatorMetrics(metadata, operator))
+                .ifPresent(metrics -> table.onDispose(metrics.monitorState(table::size, table::capacity, table::getMemoryUsage)));
+        return table;
+    }
+}
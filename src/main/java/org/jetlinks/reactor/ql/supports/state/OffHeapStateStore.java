@@ -0,0 +1,170 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import reactor.core.Disposable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * 保存在堆外内存中的状态,键和值使用{@link StateCodec}编码后保存到{@link OffHeapHashTable}中.
+ * <p>
+ * 键使用{@link StateCodec#encodeKey(Object)}编码后比较,与{@link Object#equals(Object)}一致:
+ * 类型不同的相同数值(如1和1L)为不同的键,Map和Set类型的键与遍历顺序无关.
+ * 无法编码的键或值(如LocalDateTime)保存在堆内存中.不再使用时需要调用{@link OffHeapStateStore#dispose()}释放内存.
+ *
+ * @author zhouhao
+ * @see OffHeapStateFeature
+ * @since 1.0
+ */
+public class OffHeapStateStore implements StateStore, Disposable {
+
+    private final OffHeapHashTable table;
+
+    //无法编码的数据
+    private final Map<Object, Object> heap = new HashMap<>();
+
+    public OffHeapStateStore(OffHeapHashTable table) {
+        this.table = table;
+    }
+
+    @Override
+    public synchronized Object get(Object key) {
+        if (heap.containsKey(key)) {
+            return heap.get(key);
+        }
+        byte[] encodedKey = encodeKey(key);
+        if (encodedKey == null) {
+            return null;
+        }
+        int entry = table.find(encodedKey);
+        return entry < 0 ? null : StateCodec.decode(table.getValue(entry));
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        if (heap.containsKey(key)) {
+            return true;
+        }
+        byte[] encodedKey = encodeKey(key);
+        return encodedKey != null && table.find(encodedKey) >= 0;
+    }
+
+    @Override
+    public synchronized void put(Object key, Object value) {
+        byte[] encodedKey = heap.containsKey(key) ? null : encodeKey(key);
+        byte[] encodedValue = encodedKey == null ? null : encode(value);
+        if (encodedValue == null) {
+            if (encodedKey != null) {
+                table.remove(encodedKey);
+            }
+            heap.put(key, value);
+            return;
+        }
+        int entry = table.find(encodedKey);
+        //长度相同时原地更新
+        if (entry < 0 || table.getValueLength(entry) != encodedValue.length) {
+            entry = table.allocate(encodedKey, encodedValue.length);
+        }
+        table.setValue(entry, 0, encodedValue);
+    }
+
+    @Override
+    public synchronized Object putIfAbsent(Object key, Object value) {
+        if (heap.containsKey(key)) {
+            return heap.get(key);
+        }
+        byte[] encodedKey = encodeKey(key);
+        if (encodedKey != null) {
+            int entry = table.find(encodedKey);
+            if (entry >= 0) {
+                return StateCodec.decode(table.getValue(entry));
+            }
+        }
+        byte[] encodedValue = encodedKey == null ? null : encode(value);
+        if (encodedValue == null) {
+            heap.put(key, value);
+        } else {
+            table.setValue(table.allocate(encodedKey, encodedValue.length), 0, encodedValue);
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized void remove(Object key) {
+        if (heap.containsKey(key)) {
+            heap.remove(key);
+            return;
+        }
+        byte[] encodedKey = encodeKey(key);
+        if (encodedKey != null) {
+            table.remove(encodedKey);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        table.clear();
+        heap.clear();
+    }
+
+    @Override
+    public synchronized int size() {
+        return table.size() + heap.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<Object, Object> consumer) {
+        //先复制数据,允许在遍历时修改
+        List<Object[]> entries = new ArrayList<>();
+        synchronized (this) {
+            for (int entry = table.nextEntry(-1); entry >= 0; entry = table.nextEntry(entry)) {
+                entries.add(new Object[]{StateCodec.decode(table.getKey(entry)), StateCodec.decode(table.getValue(entry))});
+            }
+            heap.forEach((key, value) -> entries.add(new Object[]{key, value}));
+        }
+        for (Object[] entry : entries) {
+            consumer.accept(entry[0], entry[1]);
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        table.dispose();
+        heap.clear();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return table.isDisposed();
+    }
+
+    /**
+     * 编码键
+     *
+     * @param key 键
+     * @return 编码后的内容, 无法编码时返回<code>null</code>
+     */
+    static byte[] encodeKey(Object key) {
+        try {
+            return StateCodec.encodeKey(key);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static byte[] encode(Object value) {
+        try {
+            return StateCodec.encode(value);
+        } catch (UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapStateStore{" + table + ", heap=" + heap.size() + "}";
+    }
+}
@@ -0,0 +1,320 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 状态的二进制编码,每个值使用1个字节的类型标识,整数使用zigzag变长编码,字符串使用UTF-8编码并以变长整数记录长度.
+ * <p>
+ * 支持的类型: null,Boolean,Byte,Short,Integer,Long,Float,Double,Character,BigDecimal,BigInteger,String,Date,
+ * byte[],List,Set,Map.解码后的类型与编码前一致,集合分别解码为{@link ArrayList},{@link LinkedHashSet},{@link LinkedHashMap}.
+ * <p>
+ * 作为键使用时通过{@link StateCodec#encodeKey(Object)}编码,equals相同的值编码后的内容相同.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class StateCodec {
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte BYTE = 3;
+    private static final byte SHORT = 4;
+    private static final byte INT = 5;
+    private static final byte LONG = 6;
+    private static final byte FLOAT = 7;
+    private static final byte DOUBLE = 8;
+    private static final byte CHAR = 9;
+    private static final byte DECIMAL = 10;
+    private static final byte BIG_INTEGER = 11;
+    private static final byte STRING = 12;
+    private static final byte DATE = 13;
+    private static final byte BYTES = 14;
+    private static final byte LIST = 15;
+    private static final byte SET = 16;
+    private static final byte MAP = 17;
+
+    public static byte[] encode(Object value) {
+        return encode(value, false);
+    }
+
+    /**
+     * 编码作为键使用的值,Map和Set中的元素按编码后的内容排序,与遍历顺序无关.
+     * 与{@link Object#equals(Object)}一致,类型不同的相同数值(如1和1L)编码后的内容不同.
+     *
+     * @param value 值
+     * @return 编码后的内容
+     * @throws UnsupportedOperationException 不支持的类型
+     */
+    public static byte[] encodeKey(Object value) {
+        return encode(value, true);
+    }
+
+    private static byte[] encode(Object value, boolean canonical) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(stream)) {
+            write(out, value, canonical);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stream.toByteArray();
+    }
+
+    public static Object decode(byte[] data) {
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 写入值
+     *
+     * @param out   输出
+     * @param value 值
+     * @throws IOException                   写入失败
+     * @throws UnsupportedOperationException 不支持的类型
+     */
+    public static void write(DataOutput out, Object value) throws IOException {
+        write(out, value, false);
+    }
+
+    private static void write(DataOutput out, Object value, boolean canonical) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            writeVarLong(out, (Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, (Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Map) {
+            Map<?, ?> map = ((Map<?, ?>) value);
+            out.writeByte(MAP);
+            writeVarInt(out, map.size());
+            if (canonical) {
+                List<byte[]> entries = new ArrayList<>(map.size());
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    DataOutputStream entryOut = new DataOutputStream(stream);
+                    write(entryOut, entry.getKey(), true);
+                    write(entryOut, entry.getValue(), true);
+                    entries.add(stream.toByteArray());
+                }
+                writeSorted(out, entries);
+            } else {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    write(out, entry.getKey(), false);
+                    write(out, entry.getValue(), false);
+                }
+            }
+        } else if (value instanceof List) {
+            List<?> list = ((List<?>) value);
+            out.writeByte(LIST);
+            writeVarInt(out, list.size());
+            for (Object item : list) {
+                write(out, item, canonical);
+            }
+        } else if (value instanceof Set) {
+            Set<?> set = ((Set<?>) value);
+            out.writeByte(SET);
+            writeVarInt(out, set.size());
+            if (canonical) {
+                List<byte[]> items = new ArrayList<>(set.size());
+                for (Object item : set) {
+                    items.add(encode(item, true));
+                }
+                writeSorted(out, items);
+            } else {
+                for (Object item : set) {
+                    write(out, item, false);
+                }
+            }
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            writeVarLong(out, (Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeChar((Character) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            writeVarLong(out, ((Date) value).getTime());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            writeBytes(out, (byte[]) value);
+        } else {
+            throw new UnsupportedOperationException("不支持保存的状态类型:" + value.getClass().getName());
+        }
+    }
+
+    /**
+     * 读取值
+     *
+     * @param in 输入
+     * @return 值
+     * @throws IOException 读取失败或者数据格式错误
+     */
+    public static Object read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case TRUE:
+                return true;
+            case FALSE:
+                return false;
+            case BYTE:
+                return in.readByte();
+            case SHORT:
+                return (short) readVarLong(in);
+            case INT:
+                return (int) readVarLong(in);
+            case LONG:
+                return readVarLong(in);
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case CHAR:
+                return in.readChar();
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case BIG_INTEGER:
+                return new BigInteger(readBytes(in));
+            case STRING:
+                return readString(in);
+            case DATE:
+                return new Date(readVarLong(in));
+            case BYTES:
+                return readBytes(in);
+            case LIST: {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(read(in));
+                }
+                return list;
+            }
+            case SET: {
+                int size = readVarInt(in);
+                Set<Object> set = new LinkedHashSet<>();
+                for (int i = 0; i < size; i++) {
+                    set.add(read(in));
+                }
+                return set;
+            }
+            case MAP: {
+                int size = readVarInt(in);
+                Map<Object, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    map.put(read(in), read(in));
+                }
+                return map;
+            }
+            default:
+                throw new IOException("未知的状态类型:" + type);
+        }
+    }
+
+    public static void writeVarInt(DataOutput out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    public static int readVarInt(DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    //zigzag编码,绝对值较小的负数也只占用较少的字节
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    static long readVarLong(DataInput in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+        }
+        throw new IOException("变长整数格式错误");
+    }
+
+    //按无符号字节的字典序写入已经编码的元素
+    private static void writeSorted(DataOutput out, List<byte[]> encoded) throws IOException {
+        encoded.sort((left, right) -> {
+            for (int i = 0, len = Math.min(left.length, right.length); i < len; i++) {
+                int compare = Integer.compare(left[i] & 0xFF, right[i] & 0xFF);
+                if (compare != 0) {
+                    return compare;
+                }
+            }
+            return Integer.compare(left.length, right.length);
+        });
+        for (byte[] bytes : encoded) {
+            out.write(bytes);
+        }
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return new String(readBytes(in), StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
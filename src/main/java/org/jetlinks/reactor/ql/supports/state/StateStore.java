@@ -0,0 +1,47 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import java.util.function.BiConsumer;
+
+/**
+ * 单个操作的状态,以键值对的方式保存,由{@link org.jetlinks.reactor.ql.feature.StateFeature}提供.
+ * <p>
+ * 键和值需要能够被{@link StateCodec}编码,实现需要是线程安全的.
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.feature.StateFeature
+ * @since 1.0
+ */
+public interface StateStore {
+
+    Object get(Object key);
+
+    boolean containsKey(Object key);
+
+    void put(Object key, Object value);
+
+    /**
+     * 不存在时设置值
+     *
+     * @param key   键
+     * @param value 值
+     * @return 已经存在的值, 不存在时返回null
+     */
+    Object putIfAbsent(Object key, Object value);
+
+    void remove(Object key);
+
+    /**
+     * 清空状态,通常在查询正常结束时调用
+     */
+    void clear();
+
+    int size();
+
+    /**
+     * 遍历全部状态
+     *
+     * @param consumer 键值消费者
+     */
+    void forEach(BiConsumer<Object, Object> consumer);
+
+}
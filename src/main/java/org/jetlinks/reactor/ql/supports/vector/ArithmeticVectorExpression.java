@@ -0,0 +1,112 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import org.jetlinks.reactor.ql.utils.CalculateUtils;
+
+/**
+ * 向量化的四则运算和取模,规则与{@link CalculateUtils}一致: 左侧为整数时使用整数计算,否则使用浮点数计算.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+class ArithmeticVectorExpression implements VectorExpression {
+
+    private final String operator;
+
+    private final VectorExpression left;
+
+    private final VectorExpression right;
+
+    ArithmeticVectorExpression(String operator, VectorExpression left, VectorExpression right) {
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnBatch batch) {
+        ColumnVector leftVector = left.evaluate(batch);
+        ColumnVector rightVector = right.evaluate(batch);
+        if (!(leftVector instanceof NumberColumnVector) || !(rightVector instanceof NumberColumnVector)) {
+            return null;
+        }
+        int size = batch.size();
+        long[] nulls = ColumnVector.or(leftVector.nulls, rightVector.nulls);
+        if (leftVector instanceof LongColumnVector) {
+            long[] leftValues = ((LongColumnVector) leftVector).getValues();
+            long[] rightValues = toLongs((NumberColumnVector) rightVector);
+            if ("/".equals(operator) || "%".equals(operator)) {
+                rightValues = nonZero(rightValues, nulls);
+            }
+            long[] result = new long[size];
+            switch (operator) {
+                case "+":
+                    CalculateUtils.add(leftValues, rightValues, result, size);
+                    break;
+                case "-":
+                    CalculateUtils.subtract(leftValues, rightValues, result, size);
+                    break;
+                case "*":
+                    CalculateUtils.multiply(leftValues, rightValues, result, size);
+                    break;
+                case "/":
+                    CalculateUtils.division(leftValues, rightValues, result, size);
+                    break;
+                case "%":
+                    CalculateUtils.mod(leftValues, rightValues, result, size);
+                    break;
+                default:
+                    return null;
+            }
+            return new LongColumnVector(result, nulls);
+        }
+        double[] leftValues = ((NumberColumnVector) leftVector).getDoubles();
+        double[] rightValues = ((NumberColumnVector) rightVector).getDoubles();
+        double[] result = new double[size];
+        switch (operator) {
+            case "+":
+                CalculateUtils.add(leftValues, rightValues, result, size);
+                break;
+            case "-":
+                CalculateUtils.subtract(leftValues, rightValues, result, size);
+                break;
+            case "*":
+                CalculateUtils.multiply(leftValues, rightValues, result, size);
+                break;
+            case "/":
+                CalculateUtils.division(leftValues, rightValues, result, size);
+                break;
+            case "%":
+                CalculateUtils.mod(leftValues, rightValues, result, size);
+                break;
+            default:
+                return null;
+        }
+        return new DoubleColumnVector(result, nulls);
+    }
+
+    private static long[] toLongs(NumberColumnVector vector) {
+        if (vector instanceof LongColumnVector) {
+            return ((LongColumnVector) vector).getValues();
+        }
+        double[] doubles = vector.getDoubles();
+        long[] longs = new long[doubles.length];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = (long) doubles[i];
+        }
+        return longs;
+    }
+
+    //空值位置的除数替换为1,避免对空值计算时出现除0错误
+    private static long[] nonZero(long[] values, long[] nulls) {
+        if (nulls == null) {
+            return values;
+        }
+        long[] copy = values.clone();
+        for (int i = 0; i < copy.length; i++) {
+            if ((nulls[i >>> 6] & (1L << i)) != 0) {
+                copy[i] = 1;
+            }
+        }
+        return copy;
+    }
+}
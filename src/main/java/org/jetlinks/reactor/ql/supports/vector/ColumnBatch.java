@@ -0,0 +1,56 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 列式的一批数据,查询中引用的列在第一次使用时从数据中读取并转换为{@link ColumnVector},同一批数据中只读取一次.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class ColumnBatch {
+
+    private final List<ReactorQLRecord> records;
+
+    private final Map<String, ColumnVector> columns = new HashMap<>();
+
+    private ColumnBatch(List<ReactorQLRecord> records) {
+        this.records = records;
+    }
+
+    public static ColumnBatch of(List<ReactorQLRecord> records) {
+        return new ColumnBatch(records);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    public List<ReactorQLRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * 获取列
+     *
+     * @param name   列名
+     * @param reader 从数据中读取列的值
+     * @return 列
+     */
+    public ColumnVector getColumn(String name, Function<ReactorQLRecord, Object> reader) {
+        ColumnVector vector = columns.get(name);
+        if (vector == null) {
+            Object[] values = new Object[records.size()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = reader.apply(records.get(i));
+            }
+            columns.put(name, vector = ColumnVector.of(values));
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,124 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 列式存储的一列数据,数值类型使用基本类型数组,字符串使用字典编码,空值使用位图记录.
+ *
+ * @author zhouhao
+ * @see ColumnBatch
+ * @since 1.0
+ */
+public abstract class ColumnVector {
+
+    protected final int size;
+
+    //空值位图,没有空值时为null
+    protected final long[] nulls;
+
+    protected ColumnVector(int size, long[] nulls) {
+        this.size = size;
+        this.nulls = nulls;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int index) {
+        return nulls != null && (nulls[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean hasNull() {
+        return nulls != null;
+    }
+
+    /**
+     * 获取原始值,空值返回null
+     *
+     * @param index 索引
+     * @return 值
+     */
+    public abstract Object getObject(int index);
+
+    /**
+     * 根据值的类型创建对应的列: 全部为整数时为{@link LongColumnVector},全部为浮点数时为{@link DoubleColumnVector},
+     * 全部为字符串时为{@link StringColumnVector},否则为{@link ObjectColumnVector}.
+     *
+     * @param values 值
+     * @return 列
+     */
+    public static ColumnVector of(Object[] values) {
+        int size = values.length;
+        long[] nulls = null;
+        boolean integral = true, decimal = true, string = true, empty = true;
+        for (int i = 0; i < size; i++) {
+            Object value = values[i];
+            if (value == null) {
+                nulls = setNull(nulls, size, i);
+                continue;
+            }
+            empty = false;
+            integral &= value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+            decimal &= value instanceof Double || value instanceof Float;
+            string &= value instanceof String;
+        }
+        if (empty) {
+            return new ObjectColumnVector(values, nulls);
+        }
+        if (integral) {
+            long[] longs = new long[size];
+            for (int i = 0; i < size; i++) {
+                if (values[i] != null) {
+                    longs[i] = ((Number) values[i]).longValue();
+                }
+            }
+            return new LongColumnVector(longs, nulls, values);
+        }
+        if (decimal) {
+            double[] doubles = new double[size];
+            for (int i = 0; i < size; i++) {
+                if (values[i] != null) {
+                    doubles[i] = ((Number) values[i]).doubleValue();
+                }
+            }
+            return new DoubleColumnVector(doubles, nulls, values);
+        }
+        if (string) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            int[] codes = new int[size];
+            for (int i = 0; i < size; i++) {
+                if (values[i] != null) {
+                    codes[i] = dictionary.computeIfAbsent((String) values[i], ignore -> dictionary.size());
+                }
+            }
+            String[] words = new String[dictionary.size()];
+            dictionary.forEach((word, code) -> words[code] = word);
+            return new StringColumnVector(codes, words, nulls);
+        }
+        return new ObjectColumnVector(values, nulls);
+    }
+
+    static long[] setNull(long[] nulls, int size, int index) {
+        if (nulls == null) {
+            nulls = new long[(size + 63) >>> 6];
+        }
+        nulls[index >>> 6] |= 1L << index;
+        return nulls;
+    }
+
+    static long[] or(long[] left, long[] right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        long[] nulls = new long[left.length];
+        for (int i = 0; i < nulls.length; i++) {
+            nulls[i] = left[i] | right[i];
+        }
+        return nulls;
+    }
+}
@@ -0,0 +1,49 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import net.sf.jsqlparser.schema.Column;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.PropertyFeature;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * 读取列的值,规则与{@link org.jetlinks.reactor.ql.supports.map.PropertyMapFeature}一致
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+class ColumnVectorExpression implements VectorExpression {
+
+    private final String name;
+
+    private final Function<ReactorQLRecord, Object> reader;
+
+    ColumnVectorExpression(Column column, ReactorQLMetadata metadata) {
+        this.name = column.getFullyQualifiedName();
+        String[] fullName = name.split("[.]", 2);
+
+        String property = fullName.length == 2 ? fullName[1] : fullName[0];
+        String tableName = fullName.length == 1 ? "this" : fullName[0];
+
+        PropertyFeature feature = metadata.getFeatureNow(PropertyFeature.ID);
+        Function<Object, Optional<Object>> accessor = feature.createAccessor(property);
+
+        this.reader = record -> {
+            Optional<Object> value = record.getRecord(tableName).flatMap(accessor);
+            if (!value.isPresent()) {
+                value = accessor.apply(record.asMap());
+            }
+            if (!value.isPresent()) {
+                value = record.getRecord(property);
+            }
+            return value.orElse(null);
+        };
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnBatch batch) {
+        return batch.getColumn(name, reader);
+    }
+}
@@ -0,0 +1,34 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import java.util.Arrays;
+
+/**
+ * 数字常量
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+class ConstantVectorExpression implements VectorExpression {
+
+    private final Number value;
+
+    ConstantVectorExpression(Number value) {
+        this.value = value;
+    }
+
+    Number getValue() {
+        return value;
+    }
+
+    @Override
+    public ColumnVector evaluate(ColumnBatch batch) {
+        if (value instanceof Double) {
+            double[] values = new double[batch.size()];
+            Arrays.fill(values, value.doubleValue());
+            return new DoubleColumnVector(values, null);
+        }
+        long[] values = new long[batch.size()];
+        Arrays.fill(values, value.longValue());
+        return new LongColumnVector(values, null);
+    }
+}
@@ -0,0 +1,42 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 浮点数类型的列
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class DoubleColumnVector extends NumberColumnVector {
+
+    private final double[] values;
+
+    //原始值,为null时使用Double
+    private final Object[] source;
+
+    public DoubleColumnVector(double[] values, long[] nulls) {
+        this(values, nulls, null);
+    }
+
+    DoubleColumnVector(double[] values, long[] nulls, Object[] source) {
+        super(values.length, nulls);
+        this.values = values;
+        this.source = source;
+    }
+
+    public double[] getValues() {
+        return values;
+    }
+
+    @Override
+    public double[] getDoubles() {
+        return values;
+    }
+
+    @Override
+    public Object getObject(int index) {
+        if (isNull(index)) {
+            return null;
+        }
+        return source == null ? values[index] : source[index];
+    }
+}
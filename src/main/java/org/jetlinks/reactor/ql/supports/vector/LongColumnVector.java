@@ -0,0 +1,51 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 整数类型的列
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class LongColumnVector extends NumberColumnVector {
+
+    private final long[] values;
+
+    //原始值,为null时使用Long
+    private final Object[] source;
+
+    private double[] doubles;
+
+    public LongColumnVector(long[] values, long[] nulls) {
+        this(values, nulls, null);
+    }
+
+    LongColumnVector(long[] values, long[] nulls, Object[] source) {
+        super(values.length, nulls);
+        this.values = values;
+        this.source = source;
+    }
+
+    public long[] getValues() {
+        return values;
+    }
+
+    @Override
+    public double[] getDoubles() {
+        if (doubles == null) {
+            double[] doubles = new double[size];
+            for (int i = 0; i < size; i++) {
+                doubles[i] = values[i];
+            }
+            this.doubles = doubles;
+        }
+        return doubles;
+    }
+
+    @Override
+    public Object getObject(int index) {
+        if (isNull(index)) {
+            return null;
+        }
+        return source == null ? values[index] : source[index];
+    }
+}
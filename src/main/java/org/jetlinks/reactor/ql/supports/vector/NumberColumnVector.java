@@ -0,0 +1,20 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 数值类型的列
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public abstract class NumberColumnVector extends ColumnVector {
+
+    protected NumberColumnVector(int size, long[] nulls) {
+        super(size, nulls);
+    }
+
+    /**
+     * @return 转换为double的值, 空值位置的值无意义
+     */
+    public abstract double[] getDoubles();
+
+}
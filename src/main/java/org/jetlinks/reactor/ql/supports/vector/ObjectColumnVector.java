@@ -0,0 +1,22 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 无法使用基本类型存储的列,如类型不一致或者为其他类型的值
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class ObjectColumnVector extends ColumnVector {
+
+    private final Object[] values;
+
+    public ObjectColumnVector(Object[] values, long[] nulls) {
+        super(values.length, nulls);
+        this.values = values;
+    }
+
+    @Override
+    public Object getObject(int index) {
+        return values[index];
+    }
+}
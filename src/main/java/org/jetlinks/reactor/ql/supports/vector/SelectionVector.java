@@ -0,0 +1,90 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 选择向量,按顺序记录一批数据中满足条件的数据的索引
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class SelectionVector {
+
+    private final int[] indexes;
+
+    private final int size;
+
+    public SelectionVector(int[] indexes, int size) {
+        this.indexes = indexes;
+        this.size = size;
+    }
+
+    public static SelectionVector all(int size) {
+        int[] indexes = new int[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        return new SelectionVector(indexes, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return indexes[i];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 从当前选择中去掉另外一个选择中的索引
+     *
+     * @param other 另外一个选择,必须是当前选择的子集
+     * @return 新的选择
+     */
+    public SelectionVector remove(SelectionVector other) {
+        int[] result = new int[size - other.size];
+        int len = 0;
+        for (int i = 0, j = 0; i < size; i++) {
+            if (j < other.size && other.indexes[j] == indexes[i]) {
+                j++;
+            } else {
+                result[len++] = indexes[i];
+            }
+        }
+        return new SelectionVector(result, len);
+    }
+
+    /**
+     * 合并两个不相交的选择,结果仍然有序
+     *
+     * @param other 另外一个选择
+     * @return 新的选择
+     */
+    public SelectionVector union(SelectionVector other) {
+        int[] result = new int[size + other.size];
+        int i = 0, j = 0, len = 0;
+        while (i < size && j < other.size) {
+            result[len++] = indexes[i] < other.indexes[j] ? indexes[i++] : other.indexes[j++];
+        }
+        while (i < size) {
+            result[len++] = indexes[i++];
+        }
+        while (j < other.size) {
+            result[len++] = other.indexes[j++];
+        }
+        return new SelectionVector(result, len);
+    }
+
+    public <T> List<T> select(List<T> values) {
+        List<T> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(values.get(indexes[i]));
+        }
+        return result;
+    }
+}
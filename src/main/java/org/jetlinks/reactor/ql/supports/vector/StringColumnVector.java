@@ -0,0 +1,36 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 字典编码的字符串列,每个不同的字符串只保存一次,每行只记录字符串在字典中的编号.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class StringColumnVector extends ColumnVector {
+
+    private final int[] codes;
+
+    private final String[] dictionary;
+
+    public StringColumnVector(int[] codes, String[] dictionary, long[] nulls) {
+        super(codes.length, nulls);
+        this.codes = codes;
+        this.dictionary = dictionary;
+    }
+
+    public int[] getCodes() {
+        return codes;
+    }
+
+    public String[] getDictionary() {
+        return dictionary;
+    }
+
+    @Override
+    public Object getObject(int index) {
+        if (isNull(index)) {
+            return null;
+        }
+        return dictionary[codes[index]];
+    }
+}
@@ -0,0 +1,25 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 向量化的聚合,按批累加数据,每次执行查询时创建新的实例.
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.feature.ValueAggMapFeature#createVectorAggregator(net.sf.jsqlparser.expression.Expression, org.jetlinks.reactor.ql.ReactorQLMetadata)
+ * @see VectorAggregators
+ * @since 1.0
+ */
+public interface VectorAggregator {
+
+    /**
+     * 累加一批数据
+     *
+     * @param batch 数据
+     */
+    void accumulate(ColumnBatch batch);
+
+    /**
+     * @return 聚合结果, 没有结果时返回<code>null</code>
+     */
+    Object getResult();
+
+}
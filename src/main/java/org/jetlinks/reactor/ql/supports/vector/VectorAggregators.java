@@ -0,0 +1,153 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import org.jetlinks.reactor.ql.utils.CastUtils;
+import org.jetlinks.reactor.ql.utils.CompareUtils;
+
+import java.util.function.Supplier;
+
+/**
+ * 常用的向量化聚合,结果与对应的聚合函数一致.
+ * 聚合的表达式必须是列,列的值总是可以读取,不会出现无法向量化计算的情况.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class VectorAggregators {
+
+    public static Supplier<VectorAggregator> count() {
+        return () -> new VectorAggregator() {
+            private long count;
+
+            @Override
+            public void accumulate(ColumnBatch batch) {
+                count += batch.size();
+            }
+
+            @Override
+            public Object getResult() {
+                return count;
+            }
+        };
+    }
+
+    public static Supplier<VectorAggregator> sum(VectorExpression expression) {
+        return () -> new SumAggregator(expression, false);
+    }
+
+    public static Supplier<VectorAggregator> avg(VectorExpression expression) {
+        return () -> new SumAggregator(expression, true);
+    }
+
+    public static Supplier<VectorAggregator> max(VectorExpression expression) {
+        return () -> new CompareAggregator(expression, true);
+    }
+
+    public static Supplier<VectorAggregator> min(VectorExpression expression) {
+        return () -> new CompareAggregator(expression, false);
+    }
+
+    static class SumAggregator implements VectorAggregator {
+        private final VectorExpression expression;
+        private final boolean avg;
+
+        private double sum;
+        private long count;
+
+        SumAggregator(VectorExpression expression, boolean avg) {
+            this.expression = expression;
+            this.avg = avg;
+        }
+
+        @Override
+        public void accumulate(ColumnBatch batch) {
+            ColumnVector vector = expression.evaluate(batch);
+            int size = batch.size();
+            if (vector instanceof NumberColumnVector) {
+                double[] values = ((NumberColumnVector) vector).getDoubles();
+                double sum = 0;
+                if (vector.hasNull()) {
+                    for (int i = 0; i < size; i++) {
+                        if (!vector.isNull(i)) {
+                            sum += values[i];
+                            count++;
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < size; i++) {
+                        sum += values[i];
+                    }
+                    count += size;
+                }
+                this.sum += sum;
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                Object value = vector.getObject(i);
+                if (value != null) {
+                    sum += CastUtils.castNumber(value).doubleValue();
+                    count++;
+                }
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            if (count == 0) {
+                return null;
+            }
+            return avg ? sum / count : sum;
+        }
+    }
+
+    static class CompareAggregator implements VectorAggregator {
+        private final VectorExpression expression;
+        private final boolean max;
+
+        private Object result;
+
+        CompareAggregator(VectorExpression expression, boolean max) {
+            this.expression = expression;
+            this.max = max;
+        }
+
+        @Override
+        public void accumulate(ColumnBatch batch) {
+            ColumnVector vector = expression.evaluate(batch);
+            int size = batch.size();
+            Object best = null;
+            if (vector instanceof NumberColumnVector) {
+                double[] values = ((NumberColumnVector) vector).getDoubles();
+                int bestIndex = -1;
+                for (int i = 0; i < size; i++) {
+                    if (vector.isNull(i)) {
+                        continue;
+                    }
+                    if (bestIndex < 0 || (max ? values[i] > values[bestIndex] : values[i] < values[bestIndex])) {
+                        bestIndex = i;
+                    }
+                }
+                best = bestIndex < 0 ? null : vector.getObject(bestIndex);
+            } else {
+                for (int i = 0; i < size; i++) {
+                    Object value = vector.getObject(i);
+                    if (value != null && (best == null || isBetter(value, best))) {
+                        best = value;
+                    }
+                }
+            }
+            if (best != null && (result == null || isBetter(best, result))) {
+                result = best;
+            }
+        }
+
+        private boolean isBetter(Object value, Object current) {
+            int compare = CompareUtils.compare(value, current);
+            return max ? compare > 0 : compare < 0;
+        }
+
+        @Override
+        public Object getResult() {
+            return result;
+        }
+    }
+}
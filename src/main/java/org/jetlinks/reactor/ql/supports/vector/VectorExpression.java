@@ -0,0 +1,79 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.operators.arithmetic.*;
+import net.sf.jsqlparser.schema.Column;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.supports.map.BinaryCalculateMapFeature;
+
+import java.util.Optional;
+
+/**
+ * 向量化的表达式,一次计算一批数据的值.
+ * 支持列,数字常量以及列之间的四则运算和取模,如: <code>temp * 1.8 + 32</code>.
+ *
+ * @author zhouhao
+ * @see ColumnBatch
+ * @since 1.0
+ */
+public interface VectorExpression {
+
+    /**
+     * 计算一批数据的值
+     *
+     * @param batch 数据
+     * @return 计算结果, 值的类型不支持向量化计算时返回<code>null</code>
+     */
+    ColumnVector evaluate(ColumnBatch batch);
+
+    /**
+     * 创建列表达式,读取列的值,结果不会为<code>null</code>
+     *
+     * @param column   列
+     * @param metadata 元数据
+     * @return 表达式
+     */
+    static VectorExpression column(Column column, ReactorQLMetadata metadata) {
+        return new ColumnVectorExpression(column, metadata);
+    }
+
+    static Optional<VectorExpression> create(Expression expression, ReactorQLMetadata metadata) {
+        if (expression instanceof Parenthesis) {
+            return create(((Parenthesis) expression).getExpression(), metadata);
+        }
+        if (expression instanceof Column) {
+            return Optional.of(column((Column) expression, metadata));
+        }
+        if (expression instanceof LongValue) {
+            return Optional.of(new ConstantVectorExpression(((LongValue) expression).getValue()));
+        }
+        if (expression instanceof DoubleValue) {
+            return Optional.of(new ConstantVectorExpression(((DoubleValue) expression).getValue()));
+        }
+        if (expression instanceof Addition
+                || expression instanceof Subtraction
+                || expression instanceof Multiplication
+                || expression instanceof Division
+                || expression instanceof Modulo) {
+            BinaryExpression binary = ((BinaryExpression) expression);
+            //使用了自定义的运算函数
+            if (!metadata.getFeature(FeatureId.ValueMap.of(binary.getStringExpression()))
+                         .filter(BinaryCalculateMapFeature.class::isInstance)
+                         .isPresent()) {
+                return Optional.empty();
+            }
+            Optional<VectorExpression> left = create(binary.getLeftExpression(), metadata);
+            Optional<VectorExpression> right = create(binary.getRightExpression(), metadata);
+            if (left.isPresent() && right.isPresent()) {
+                return Optional.of(new ArithmeticVectorExpression(binary.getStringExpression(), left.get(), right.get()));
+            }
+        }
+        return Optional.empty();
+    }
+
+}
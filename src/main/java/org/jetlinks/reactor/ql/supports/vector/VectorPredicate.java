@@ -0,0 +1,41 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+/**
+ * 向量化的条件,一次判断一批数据
+ *
+ * @author zhouhao
+ * @see org.jetlinks.reactor.ql.feature.FilterFeature#createVectorPredicate(net.sf.jsqlparser.expression.Expression, org.jetlinks.reactor.ql.ReactorQLMetadata)
+ * @since 1.0
+ */
+public interface VectorPredicate {
+
+    /**
+     * 从选择的数据中过滤出满足条件的数据
+     *
+     * @param batch     数据
+     * @param selection 需要判断的数据
+     * @return 满足条件的数据, 值的类型不支持向量化时返回<code>null</code>
+     */
+    SelectionVector filter(ColumnBatch batch, SelectionVector selection);
+
+    default VectorPredicate and(VectorPredicate other) {
+        return (batch, selection) -> {
+            SelectionVector left = filter(batch, selection);
+            if (left == null || left.isEmpty()) {
+                return left;
+            }
+            return other.filter(batch, left);
+        };
+    }
+
+    default VectorPredicate or(VectorPredicate other) {
+        return (batch, selection) -> {
+            SelectionVector left = filter(batch, selection);
+            if (left == null || left.size() == selection.size()) {
+                return left;
+            }
+            SelectionVector right = other.filter(batch, selection.remove(left));
+            return right == null ? null : left.union(right);
+        };
+    }
+}
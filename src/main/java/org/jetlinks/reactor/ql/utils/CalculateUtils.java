@@ -102,4 +102,69 @@ public class CalculateUtils {
         return left.longValue() - right.longValue();
     }
 
+    /*
+     * 向量化计算,对两个数组中相同位置的值进行计算,结果写入result.
+     * 与单个值计算的规则一致: 整数之间使用整数计算,浮点数之间使用浮点数计算.
+     */
+
+    public static void add(long[] left, long[] right, long[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] + right[i];
+        }
+    }
+
+    public static void subtract(long[] left, long[] right, long[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] - right[i];
+        }
+    }
+
+    public static void multiply(long[] left, long[] right, long[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] * right[i];
+        }
+    }
+
+    public static void division(long[] left, long[] right, long[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] / right[i];
+        }
+    }
+
+    public static void mod(long[] left, long[] right, long[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] % right[i];
+        }
+    }
+
+    public static void add(double[] left, double[] right, double[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] + right[i];
+        }
+    }
+
+    public static void subtract(double[] left, double[] right, double[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] - right[i];
+        }
+    }
+
+    public static void multiply(double[] left, double[] right, double[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] * right[i];
+        }
+    }
+
+    public static void division(double[] left, double[] right, double[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] / right[i];
+        }
+    }
+
+    public static void mod(double[] left, double[] right, double[] result, int size) {
+        for (int i = 0; i < size; i++) {
+            result[i] = left[i] % right[i];
+        }
+    }
+
 }
@@ -8,6 +8,11 @@ import java.util.*;
 
 public class CastUtils {
 
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
 
     public static boolean castBoolean(Object value) {
         if (Boolean.TRUE.equals(value)) {
@@ -34,24 +39,23 @@ public class CastUtils {
 
     public static Number castNumber(Object value) {
         if (value instanceof CharSequence) {
-            String stringValue = String.valueOf(value);
-            if (stringValue.startsWith("0x")) {
-                return Long.parseLong(stringValue.substring(2), 16);
+            CharSequence chars = (CharSequence) value;
+            if (isHex(chars)) {
+                return parseHex(chars);
+            }
+            //先尝试按十进制数字解析,解析失败时才尝试日期格式
+            Number number = parseDecimal(chars);
+            if (number != null && !isDateLike(chars, number)) {
+                return number;
             }
             //日期格式的字符串?
-            DateFormatter dateFormatter = DateFormatter.getFormatter(stringValue);
+            DateFormatter dateFormatter = DateFormatter.getFormatter(chars.toString());
             if (null != dateFormatter) {
                 //格式化为相同格式的字符串进行对比
-                return dateFormatter.format(stringValue).getTime();
+                return dateFormatter.format(chars.toString()).getTime();
             }
-            try {
-                BigDecimal decimal = new BigDecimal(stringValue);
-                if (decimal.scale() == 0) {
-                    return decimal.longValue();
-                }
-                return decimal.doubleValue();
-            } catch (NumberFormatException ignore) {
-
+            if (number != null) {
+                return number;
             }
         }
         if(value instanceof Character){
@@ -69,6 +73,115 @@ public class CastUtils {
         throw new UnsupportedOperationException("can not cast to number:" + value);
     }
 
+    static boolean isHex(CharSequence chars) {
+        return chars.length() > 2 && chars.charAt(0) == '0' && chars.charAt(1) == 'x';
+    }
+
+    static Number parseHex(CharSequence chars) {
+        return Long.parseLong(chars.subSequence(2, chars.length()).toString(), 16);
+    }
+
+    /**
+     * 纯数字的8位或14位字符串可能是yyyyMMdd或yyyyMMddHHmmss格式的日期,需要再判断日期格式
+     */
+    static boolean isDateLike(CharSequence chars, Number number) {
+        int len = chars.length();
+        return (len == 8 || len == 14) && number instanceof Long && chars.charAt(0) != '-' && chars.charAt(0) != '+';
+    }
+
+    /**
+     * 按十进制解析字符串,格式与{@link BigDecimal#BigDecimal(String)}一致.
+     * 没有小数位时返回Long,否则返回Double,不是数字时返回<code>null</code>.
+     * <p>
+     * 常见的整数和小数不会创建中间对象,只有带指数或者超过18位的数字才使用BigDecimal解析.
+     *
+     * @param chars 字符串
+     * @return 数字或者null
+     */
+    public static Number parseDecimal(CharSequence chars) {
+        int len = chars.length();
+        if (len == 0) {
+            return null;
+        }
+        int i = 0;
+        boolean negative = false;
+        char c = chars.charAt(0);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+        long value = 0;
+        int digits = 0, fractions = 0;
+        boolean dot = false, exponent = false;
+        for (; i < len; i++) {
+            c = chars.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (dot) {
+                    fractions++;
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else if ((c == 'e' || c == 'E') && digits > 0) {
+                exponent = true;
+                break;
+            } else {
+                return null;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+        if (exponent) {
+            if (!isExponent(chars, i + 1)) {
+                return null;
+            }
+            return parseBigDecimal(chars);
+        }
+        if (digits > 18) {
+            return parseBigDecimal(chars);
+        }
+        if (fractions == 0) {
+            return negative ? -value : value;
+        }
+        //尾数和10的幂都能精确表示为double时,相除的结果与Double.parseDouble一致
+        if (value < (1L << 52) && fractions < POW10.length) {
+            double val = value / POW10[fractions];
+            return negative && value != 0 ? -val : val;
+        }
+        return parseBigDecimal(chars);
+    }
+
+    private static boolean isExponent(CharSequence chars, int offset) {
+        int len = chars.length();
+        if (offset < len && (chars.charAt(offset) == '-' || chars.charAt(offset) == '+')) {
+            offset++;
+        }
+        if (offset >= len) {
+            return false;
+        }
+        for (; offset < len; offset++) {
+            char c = chars.charAt(offset);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Number parseBigDecimal(CharSequence chars) {
+        try {
+            BigDecimal decimal = new BigDecimal(chars.toString());
+            if (decimal.scale() == 0) {
+                return decimal.longValue();
+            }
+            return decimal.doubleValue();
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     public static Date castDate(Object value) {
         if (value instanceof String) {
             Date date = DateFormatter.fromString(((String) value));
@@ -22,6 +22,14 @@ public class CompareUtils {
             return 0;
         }
 
+        //类型相同时直接比较
+        if (source instanceof Number && target instanceof Number) {
+            return Double.compare(((Number) source).doubleValue(), ((Number) target).doubleValue());
+        }
+        if (source instanceof String && target instanceof String) {
+            return ((String) source).compareTo(((String) target));
+        }
+
         //时间
         {
             if (source instanceof Instant) {
@@ -0,0 +1,111 @@
+package org.jetlinks.reactor.ql.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.SchedulerFeature;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * 查询执行级别的缓存,缓存保存在订阅上下文中,每次订阅查询结果都会创建新的缓存.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+@Slf4j
+public class ExecutionCache {
+
+    private static final String KEY = ExecutionCache.class.getName();
+
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(10);
+
+    /**
+     * 初始化缓存,已经存在时(如子查询)使用已有的缓存
+     *
+     * @param context 订阅上下文
+     * @return 订阅上下文
+     */
+    public static Context init(Context context) {
+        if (context.hasKey(KEY)) {
+            return context;
+        }
+        return context.put(KEY, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 缓存loader的结果,在同一次执行中只会执行一次loader.
+     * 可通过hint设置缓存刷新间隔: subSelectRefresh(1m).
+     * <p>
+     * loader在超时时间内没有返回结果时(如数据源是不会结束的流),返回空,由调用方对每条数据单独执行,
+     * 可通过hint设置超时时间,默认为10秒: subSelectTimeout(1s)
+     *
+     * @param metadata 查询元数据
+     * @param loader   结果加载器
+     * @param <T>      结果类型
+     * @return 带缓存的结果加载器
+     */
+    public static <T> Function<ReactorQLRecord, Mono<T>> materialize(ReactorQLMetadata metadata,
+                                                                     Function<ReactorQLRecord, Mono<T>> loader) {
+        Duration refresh = metadata
+                .getSetting("subSelectRefresh")
+                .map(String::valueOf)
+                .map(CastUtils::parseDuration)
+                .orElse(null);
+        Duration timeout = metadata
+                .getSetting("subSelectTimeout")
+                .map(String::valueOf)
+                .map(CastUtils::parseDuration)
+                .orElse(DEFAULT_TIMEOUT);
+        SchedulerFeature scheduler = metadata.getFeatureNow(FeatureId.Scheduler.defaultId);
+        return materialize(loader, refresh, timeout, scheduler);
+    }
+
+    /**
+     * 缓存loader的结果,在同一次执行中只会执行一次loader.
+     *
+     * @param loader 结果加载器
+     * @param <T>    结果类型
+     * @return 带缓存的结果加载器
+     */
+    public static <T> Function<ReactorQLRecord, Mono<T>> materialize(Function<ReactorQLRecord, Mono<T>> loader) {
+        return materialize(loader, null, null, null);
+    }
+
+    private static <T> Function<ReactorQLRecord, Mono<T>> materialize(Function<ReactorQLRecord, Mono<T>> loader,
+                                                                      Duration refresh,
+                                                                      Duration timeout,
+                                                                      SchedulerFeature scheduler) {
+        Object cacheKey = new Object();
+
+        return record -> Mono
+                .subscriberContext()
+                .flatMap(ctx -> {
+                    Map<Object, Mono<?>> cache = ctx.getOrDefault(KEY, null);
+                    if (cache == null) {
+                        return loader.apply(record);
+                    }
+                    @SuppressWarnings("unchecked")
+                    Mono<T> cached = (Mono<T>) cache.computeIfAbsent(cacheKey, key -> {
+                        Mono<T> result = loader.apply(ReactorQLRecord.newRecord(null, null, record.getContext()));
+                        if (timeout != null) {
+                            result = result
+                                    .timeout(timeout, scheduler.getScheduler())
+                                    .onErrorResume(TimeoutException.class, err -> {
+                                        log.warn("materialize sub select timeout after {}, evaluate per record", timeout);
+                                        return Mono.empty();
+                                    });
+                        }
+                        return refresh == null ? result.cache() : result.cache(refresh, scheduler.getScheduler());
+                    });
+                    return cached;
+                });
+    }
+}
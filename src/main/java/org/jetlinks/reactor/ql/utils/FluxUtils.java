@@ -0,0 +1,64 @@
+package org.jetlinks.reactor.ql.utils;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 流操作工具类
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class FluxUtils {
+
+    //定时输出一批数据的信号
+    private static final Object TICK = new Object();
+
+    //数据源结束的信号
+    private static final Object END = new Object();
+
+    /**
+     * 按数量和时间分批,与{@link Flux#bufferTimeout(int, Duration, Scheduler)}不同,只在下游请求时才输出一批数据并向上游请求数据,
+     * 下游处理缓慢时不会因为定时输出而报错,也不需要在中间使用无界的缓冲区.
+     * <p>
+     * 每隔maxTime输出一次尚未满的一批数据,下游没有请求时忽略本次定时,在下一次定时或者数据满时输出.
+     *
+     * @param source    数据源
+     * @param maxSize   每批最大数量
+     * @param maxTime   最大等待时间
+     * @param scheduler 定时使用的调度器
+     * @param <T>       数据类型
+     * @return 分批后的数据
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> Flux<List<T>> bufferTimeout(Flux<T> source, int maxSize, Duration maxTime, Scheduler scheduler) {
+        return Flux.defer(() -> {
+            int[] size = new int[1];
+            return Flux
+                    .merge(source.cast(Object.class).concatWith(Mono.just(END)),
+                           Flux.interval(maxTime, maxTime, scheduler).onBackpressureDrop().map(ignore -> TICK))
+                    .takeWhile(value -> value != END)
+                    .bufferUntil(value -> {
+                        if (value == TICK || ++size[0] >= maxSize) {
+                            size[0] = 0;
+                            return true;
+                        }
+                        return false;
+                    })
+                    .map(buffer -> {
+                        //定时信号只会是一批数据中的最后一个
+                        if (!buffer.isEmpty() && buffer.get(buffer.size() - 1) == TICK) {
+                            return new ArrayList<>(buffer.subList(0, buffer.size() - 1));
+                        }
+                        return buffer;
+                    })
+                    .filter(buffer -> !buffer.isEmpty())
+                    .map(buffer -> (List<T>) buffer);
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package org.jetlinks.reactor.ql.utils;
+
+import org.hswebframework.utils.time.DateFormatter;
+
+/**
+ * 字符串转数字解析器,结果与{@link CastUtils#castNumber(Object)}一致.
+ * <p>
+ * 同一列的值格式通常是一致的,解析器会记住上一次成功的解析方式(十进制,十六进制或者某个日期格式),
+ * 下一次解析时优先使用该方式,避免每次都遍历所有的日期格式.应该为每一列创建一个解析器.
+ *
+ * @see CastUtils#castNumber(Object)
+ */
+public class NumberParser {
+
+    private static final int DECIMAL = 0, HEX = 1, DATE = 2;
+
+    //并发时可能被覆盖,只影响命中率不影响结果
+    private volatile int strategy = DECIMAL;
+
+    private volatile DateFormatter formatter;
+
+    /**
+     * 解析字符串为数字
+     *
+     * @param chars 字符串
+     * @return 数字, 无法解析时返回<code>null</code>
+     */
+    public Number parse(CharSequence chars) {
+        int strategy = this.strategy;
+        if (strategy == DATE) {
+            DateFormatter formatter = this.formatter;
+            String str = chars.toString();
+            if (formatter.support(str)) {
+                return formatter.format(str).getTime();
+            }
+        } else if (strategy == HEX && CastUtils.isHex(chars)) {
+            return CastUtils.parseHex(chars);
+        }
+        return parseAndRemember(chars);
+    }
+
+    private Number parseAndRemember(CharSequence chars) {
+        if (CastUtils.isHex(chars)) {
+            strategy = HEX;
+            return CastUtils.parseHex(chars);
+        }
+        Number number = CastUtils.parseDecimal(chars);
+        if (number != null && !CastUtils.isDateLike(chars, number)) {
+            strategy = DECIMAL;
+            return number;
+        }
+        String str = chars.toString();
+        DateFormatter dateFormatter = DateFormatter.getFormatter(str);
+        if (dateFormatter != null) {
+            //纯数字的日期格式不记录,避免后续的数字被当成日期
+            if (number == null) {
+                formatter = dateFormatter;
+                strategy = DATE;
+            }
+            return dateFormatter.format(str).getTime();
+        }
+        return number;
+    }
+
+}
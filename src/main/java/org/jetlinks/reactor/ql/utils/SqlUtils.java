@@ -1,5 +1,16 @@
 package org.jetlinks.reactor.ql.utils;
 
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.select.*;
+import net.sf.jsqlparser.util.deparser.ExpressionDeParser;
+import net.sf.jsqlparser.util.deparser.SelectDeParser;
+
+import java.util.*;
+
 public class SqlUtils {
 
     public static String getCleanStr(String str) {
@@ -15,4 +26,192 @@ public class SqlUtils {
         return str;
     }
 
+    /**
+     * 判断子查询是否引用了外部查询的数据(相关子查询).
+     * 引用了子查询中未定义的表,或者直接引用了外部查询中的表名时,认为是相关子查询.
+     *
+     * @param subSelect 子查询
+     * @param outer     外部查询
+     * @return 是否为相关子查询
+     */
+    public static boolean isCorrelated(SubSelect subSelect, PlainSelect outer) {
+        Set<String> localNames = new HashSet<>();
+        List<Column> columns = new ArrayList<>();
+        localNames.add("this");
+        addAlias(localNames, subSelect.getAlias());
+
+        StringBuilder buffer = new StringBuilder();
+        ExpressionDeParser expressionDeParser = new ExpressionDeParser() {
+            @Override
+            public void visit(Column column) {
+                columns.add(column);
+                super.visit(column);
+            }
+
+            @Override
+            public void visit(SubSelect subSelect) {
+                addAlias(localNames, subSelect.getAlias());
+                super.visit(subSelect);
+            }
+        };
+        SelectDeParser selectDeParser = new SelectDeParser(expressionDeParser, buffer) {
+            @Override
+            public void visit(Table table) {
+                localNames.add(getCleanStr(table.getName()));
+                addAlias(localNames, table.getAlias());
+                super.visit(table);
+            }
+
+            @Override
+            public void visit(SubSelect subSelect) {
+                addAlias(localNames, subSelect.getAlias());
+                super.visit(subSelect);
+            }
+
+            @Override
+            public void visit(ValuesList valuesList) {
+                addAlias(localNames, valuesList.getAlias());
+                super.visit(valuesList);
+            }
+
+            @Override
+            public void visit(TableFunction tableFunction) {
+                addAlias(localNames, tableFunction.getAlias());
+                super.visit(tableFunction);
+            }
+        };
+        expressionDeParser.setSelectVisitor(selectDeParser);
+        expressionDeParser.setBuffer(buffer);
+        subSelect.getSelectBody().accept(selectDeParser);
+
+        Set<String> outerNames = new HashSet<>();
+        if (outer != null) {
+            addFromName(outerNames, outer.getFromItem());
+            if (outer.getJoins() != null) {
+                for (Join join : outer.getJoins()) {
+                    addFromName(outerNames, join.getRightItem());
+                }
+            }
+        }
+        for (Column column : columns) {
+            Table table = column.getTable();
+            String tableName = table == null ? null : getCleanStr(table.getName());
+            if (tableName != null) {
+                if (!localNames.contains(tableName) || outerNames.contains(tableName)) {
+                    return true;
+                }
+            } else if (outerNames.contains(getCleanStr(column.getColumnName()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addFromName(Set<String> names, FromItem fromItem) {
+        if (fromItem == null) {
+            return;
+        }
+        if (fromItem instanceof Table) {
+            names.add(getCleanStr(((Table) fromItem).getName()));
+        }
+        addAlias(names, fromItem.getAlias());
+    }
+
+    private static void addAlias(Set<String> names, Alias alias) {
+        if (alias != null) {
+            names.add(getCleanStr(alias.getName()));
+        }
+    }
+
+    /**
+     * 判断表达式是否可以作为公共表达式缓存:函数,运算,case when,cast
+     *
+     * @param expression 表达式
+     * @return 是否可以缓存
+     */
+    public static boolean isCommonExpressionCandidate(Expression expression) {
+        return expression instanceof net.sf.jsqlparser.expression.Function
+                || expression instanceof CaseExpression
+                || expression instanceof CastExpression
+                || (expression instanceof BinaryExpression
+                && !(expression instanceof AndExpression)
+                && !(expression instanceof OrExpression));
+    }
+
+    /**
+     * 获取在select,where,group by,having,order by中出现多次的表达式,不包括子查询中的表达式.
+     *
+     * @param select 查询
+     * @return 表达式字符串
+     */
+    public static Set<String> getCommonExpressions(PlainSelect select) {
+        Map<String, Integer> counts = new HashMap<>();
+        ExpressionVisitorAdapter visitor = new ExpressionVisitorAdapter() {
+            private void count(Expression expression) {
+                counts.merge(expression.toString(), 1, Integer::sum);
+            }
+
+            @Override
+            protected void visitBinaryExpression(BinaryExpression expr) {
+                if (isCommonExpressionCandidate(expr)) {
+                    count(expr);
+                }
+                super.visitBinaryExpression(expr);
+            }
+
+            @Override
+            public void visit(net.sf.jsqlparser.expression.Function function) {
+                count(function);
+                super.visit(function);
+            }
+
+            @Override
+            public void visit(CaseExpression expr) {
+                count(expr);
+                super.visit(expr);
+            }
+
+            @Override
+            public void visit(CastExpression expr) {
+                count(expr);
+                super.visit(expr);
+            }
+
+            @Override
+            public void visit(SubSelect subSelect) {
+                //子查询单独处理
+            }
+        };
+        List<Expression> expressions = new ArrayList<>();
+        if (select.getSelectItems() != null) {
+            for (SelectItem item : select.getSelectItems()) {
+                if (item instanceof SelectExpressionItem) {
+                    expressions.add(((SelectExpressionItem) item).getExpression());
+                }
+            }
+        }
+        expressions.add(select.getWhere());
+        expressions.add(select.getHaving());
+        if (select.getGroupBy() != null) {
+            expressions.addAll(select.getGroupBy().getGroupByExpressions());
+        }
+        if (select.getOrderByElements() != null) {
+            for (OrderByElement element : select.getOrderByElements()) {
+                expressions.add(element.getExpression());
+            }
+        }
+        for (Expression expression : expressions) {
+            if (expression != null) {
+                expression.accept(visitor);
+            }
+        }
+        Set<String> common = new HashSet<>();
+        counts.forEach((expr, count) -> {
+            if (count > 1) {
+                common.add(expr);
+            }
+        });
+        return common;
+    }
+
 }
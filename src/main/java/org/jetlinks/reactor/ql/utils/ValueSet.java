@@ -0,0 +1,131 @@
+package org.jetlinks.reactor.ql.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * 与{@link CompareUtils#equals(Object, Object)}语义一致的哈希集合,用于in条件等需要频繁判断值是否存在的场景.
+ * <p>
+ * 数字和时间按数值索引,字符串按字符串索引,其他类型的值使用{@link CompareUtils#equals(Object, Object)}逐个判断.
+ *
+ * @author zhouhao
+ * @since 1.0
+ */
+public class ValueSet {
+
+    //数字,时间
+    private final Set<Double> numbers = new HashSet<>();
+
+    //可以转为数字的字符串
+    private final Set<Double> numericStrings = new HashSet<>();
+
+    private final Set<String> strings = new HashSet<>();
+
+    private final List<Object> others = new ArrayList<>();
+
+    private final List<Object> values = new ArrayList<>();
+
+    private boolean containsNull;
+
+    private int size;
+
+    public static ValueSet of(Iterable<?> values) {
+        ValueSet set = new ValueSet();
+        for (Object value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    public ValueSet add(Object value) {
+        size++;
+        if (value != null) {
+            values.add(value);
+        }
+        if (value == null) {
+            containsNull = true;
+        } else if (isNumberLike(value)) {
+            numbers.add(toDouble(value));
+        } else if (value instanceof CharSequence) {
+            String str = value.toString();
+            strings.add(str);
+            Double number = tryCastNumber(str);
+            if (number != null) {
+                numericStrings.add(number);
+            }
+        } else {
+            others.add(value);
+        }
+        return this;
+    }
+
+    public boolean contains(Object value) {
+        if (value == null) {
+            return containsNull;
+        }
+        if (isNumberLike(value)) {
+            Double number = toDouble(value);
+            if (numbers.contains(number) || numericStrings.contains(number)) {
+                return true;
+            }
+        } else if (value instanceof CharSequence) {
+            String str = value.toString();
+            if (strings.contains(str)) {
+                return true;
+            }
+            if (!numbers.isEmpty()) {
+                Double number = tryCastNumber(str);
+                if (number != null && numbers.contains(number)) {
+                    return true;
+                }
+            }
+        } else {
+            //其他类型的值无法确定如何转换,逐个对比
+            for (Object val : values) {
+                if (CompareUtils.equals(val, value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (Object other : others) {
+            if (CompareUtils.equals(other, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static boolean isNumberLike(Object value) {
+        return value instanceof Number
+                || value instanceof Date
+                || value instanceof Instant
+                || value instanceof LocalDateTime
+                || value instanceof LocalDate;
+    }
+
+    private static Double toDouble(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return (double) CastUtils.castDate(value).getTime();
+    }
+
+    private static Double tryCastNumber(String str) {
+        try {
+            return CastUtils.castNumber(str).doubleValue();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
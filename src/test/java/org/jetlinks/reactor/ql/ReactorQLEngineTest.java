@@ -0,0 +1,213 @@
+package org.jetlinks.reactor.ql;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+class ReactorQLEngineTest {
+
+    private static Map<String, Object> message(String topic, int value) {
+        Map<String, Object> message = new HashMap<>();
+        message.put("topic", topic);
+        message.put("value", value);
+        return message;
+    }
+
+    @Test
+    void testSharedScan() {
+        AtomicInteger subscribed = new AtomicInteger();
+        AtomicInteger decoded = new AtomicInteger();
+        DirectProcessor<Map<String, Object>> bus = DirectProcessor.create();
+
+        ReactorQLEngine engine = new ReactorQLEngine(
+                bus.doOnSubscribe(s -> subscribed.incrementAndGet()),
+                msg -> String.valueOf(((Map<?, ?>) msg).get("topic")),
+                msg -> {
+                    decoded.incrementAndGet();
+                    return Collections.singletonMap("val", ((Map<?, ?>) msg).get("value"));
+                });
+
+        StepVerifier gt = engine
+                .register("gt", ReactorQL.builder().sql("select val from temp where val > 1").build())
+                .map(map -> map.get("val"))
+                .as(StepVerifier::create)
+                .expectNext(2, 3)
+                .expectComplete()
+                .verifyLater();
+
+        StepVerifier sum = engine
+                .register("sum", ReactorQL.builder().sql("select sum(val) total from temp").build())
+                .map(map -> map.get("total"))
+                .as(StepVerifier::create)
+                .expectNext(6D)
+                .expectComplete()
+                .verifyLater();
+
+        bus.onNext(message("temp", 1));
+        bus.onNext(message("humidity", 10));
+        bus.onNext(message("temp", 2));
+
+        //运行时注册
+        StepVerifier humidity = engine
+                .register("humidity", ReactorQL.builder().sql("select val from humidity").build())
+                .map(map -> map.get("val"))
+                .as(StepVerifier::create)
+                .expectNext(20)
+                .expectComplete()
+                .verifyLater();
+
+        bus.onNext(message("temp", 3));
+        bus.onNext(message("humidity", 20));
+        Assertions.assertTrue(engine.remove("humidity"));
+        bus.onNext(message("humidity", 30));
+        bus.onComplete();
+
+        gt.verify();
+        sum.verify();
+        humidity.verify();
+
+        Assertions.assertEquals(1, subscribed.get());
+        //humidity:10时没有查询需要,不解码. humidity:30时查询已移除
+        Assertions.assertEquals(4, decoded.get());
+        Assertions.assertTrue(engine.getQueryIds().isEmpty());
+    }
+
+    @Test
+    void testPredicateIndex() {
+        DirectProcessor<Map<String, Object>> bus = DirectProcessor.create();
+        ReactorQLEngine engine = new ReactorQLEngine(
+                bus,
+                msg -> String.valueOf(((Map<?, ?>) msg).get("topic")),
+                msg -> Collections.singletonMap("val", ((Map<?, ?>) msg).get("value")));
+
+        List<StepVerifier> verifiers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            verifiers.add(engine
+                    .register("eq" + i, ReactorQL.builder().sql("select val from temp where val = " + i).build())
+                    .map(map -> map.get("val"))
+                    .as(StepVerifier::create)
+                    .expectNextCount(i % 10 == 0 ? 1 : 0)
+                    .expectComplete()
+                    .verifyLater());
+        }
+        verifiers.add(engine
+                .register("range", ReactorQL.builder().sql("select val from temp where val between 15 and 35 and val != 30").build())
+                .map(map -> map.get("val"))
+                .as(StepVerifier::create)
+                .expectNext(20)
+                .expectComplete()
+                .verifyLater());
+        verifiers.add(engine
+                .register("all", ReactorQL.builder().sql("select count(1) total from temp").build())
+                .map(map -> map.get("total"))
+                .as(StepVerifier::create)
+                .expectNext(10L)
+                .expectComplete()
+                .verifyLater());
+
+        for (int i = 0; i < 100; i += 10) {
+            bus.onNext(message("temp", i));
+        }
+        bus.onComplete();
+
+        for (StepVerifier verifier : verifiers) {
+            verifier.verify();
+        }
+    }
+
+    @Test
+    void testDuplicateId() {
+        ReactorQLEngine engine = new ReactorQLEngine(Flux.never());
+        ReactorQL ql = ReactorQL.builder().sql("select * from t").build();
+
+        engine.register("test", ql).subscribe();
+
+        engine.register("test", ql)
+              .as(StepVerifier::create)
+              .expectError(IllegalArgumentException.class)
+              .verify();
+        engine.dispose();
+    }
+
+    @Test
+    void testSlowSubscriber() {
+        DirectProcessor<Integer> bus = DirectProcessor.create();
+        ReactorQLEngine engine = new ReactorQLEngine(bus);
+
+        //数据源输出时查询没有请求数据,处理缓慢时只保留缓冲区中的数据
+        List<Object> received = new CopyOnWriteArrayList<>();
+        AtomicReference<Throwable> dropError = new AtomicReference<>();
+        BaseSubscriber<Map<String, Object>> drop = engine
+                .register("drop", ReactorQL.builder().sql("select /*+ overflow(dropOldest),overflowBuffer(10) */ this v from t").build())
+                .subscribeWith(new BaseSubscriber<Map<String, Object>>() {
+                    @Override
+                    protected void hookOnSubscribe(Subscription subscription) {
+                    }
+
+                    @Override
+                    protected void hookOnNext(Map<String, Object> value) {
+                        received.add(value.get("v"));
+                    }
+
+                    @Override
+                    protected void hookOnError(Throwable throwable) {
+                        dropError.set(throwable);
+                    }
+                });
+
+        //未指定溢出策略时,缓冲区满后报错
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        BaseSubscriber<Map<String, Object>> slow = engine
+                .register("error", ReactorQL.builder().sql("select this v from t").build())
+                .subscribeWith(new BaseSubscriber<Map<String, Object>>() {
+                    @Override
+                    protected void hookOnSubscribe(Subscription subscription) {
+                    }
+
+                    @Override
+                    protected void hookOnError(Throwable throwable) {
+                        error.set(throwable);
+                    }
+                });
+
+        for (int i = 0; i < 10000; i++) {
+            bus.onNext(i);
+        }
+        bus.onComplete();
+        drop.request(Long.MAX_VALUE);
+        slow.request(Long.MAX_VALUE);
+
+        Assertions.assertNull(dropError.get());
+        Assertions.assertFalse(received.isEmpty());
+        Assertions.assertTrue(received.size() < 10000, "received:" + received.size());
+        //保留最新的数据
+        Assertions.assertEquals(9999, received.get(received.size() - 1));
+        Assertions.assertTrue(Exceptions.isOverflow(error.get()), String.valueOf(error.get()));
+    }
+
+    @Test
+    void testTerminated() {
+        ReactorQLEngine engine = new ReactorQLEngine(Flux.range(0, 3));
+
+        engine.register("count", ReactorQL.builder().sql("select count(1) total from t").build())
+              .map(map -> map.get("total"))
+              .as(StepVerifier::create)
+              .expectNext(3L)
+              .verifyComplete();
+
+        //数据源已结束
+        engine.register("count", ReactorQL.builder().sql("select * from t").build())
+              .as(StepVerifier::create)
+              .verifyComplete();
+    }
+}
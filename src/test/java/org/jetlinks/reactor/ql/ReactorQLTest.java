@@ -4,21 +4,46 @@ import lombok.SneakyThrows;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
 import org.hswebframework.utils.time.DateFormatter;
+import org.jetlinks.reactor.ql.supports.OverflowStrategy;
+import org.jetlinks.reactor.ql.supports.explain.ExplainNode;
+import org.jetlinks.reactor.ql.supports.join.DefaultLookupFeature;
+import org.jetlinks.reactor.ql.supports.json.JsonRecord;
 import org.jetlinks.reactor.ql.supports.map.SingleParameterFunctionMapFeature;
+import org.jetlinks.reactor.ql.supports.metrics.InMemoryMetricsFeature;
+import org.jetlinks.reactor.ql.supports.metrics.InMemoryOperatorMetrics;
+import org.jetlinks.reactor.ql.supports.schema.ColumnType;
+import org.jetlinks.reactor.ql.supports.schema.TableSchema;
+import org.jetlinks.reactor.ql.supports.state.LocalFileStateFeature;
+import org.jetlinks.reactor.ql.supports.state.OffHeapStateFeature;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.scheduler.VirtualTimeScheduler;
+import reactor.util.concurrent.Queues;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 class ReactorQLTest {
 
@@ -239,6 +264,59 @@ class ReactorQLTest {
                 .expectNextCount(1)
                 .verifyComplete();
 
+        ReactorQL.builder()
+                .sql("select this from test where this in ('1',2,-3,?)")
+                .build()
+                .start(ReactorQLContext
+                        .ofDatasource(v -> Flux.range(-5, 20))
+                        .bind(4))
+                .map(ReactorQLRecord::asMap)
+                .as(StepVerifier::create)
+                .expectNextCount(4)
+                .verifyComplete();
+
+    }
+
+    @Test
+    void testInfiniteSubSelect() {
+        //子查询不会结束时,超时后对每条数据单独执行
+        ReactorQL.builder()
+                 .sql("select /*+ subSelectTimeout(100ms) */ this v from test where this in (select this from ids)")
+                 .build()
+                 .start(t -> t.equals("ids")
+                         ? Flux.interval(Duration.ofMillis(10)).map(i -> i % 4)
+                         : Flux.range(0, 3))
+                 .map(map -> map.get("v"))
+                 .as(StepVerifier::create)
+                 .expectNext(0, 1, 2)
+                 .expectComplete()
+                 .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void testInSubSelect() {
+        AtomicInteger subscribeTimes = new AtomicInteger();
+        ReactorQL.builder()
+                .sql("select this from test where this in (select this from ids)")
+                .build()
+                .start(t -> t.equals("ids")
+                        ? Flux.just(1, 2, 3, 4).doOnSubscribe(s -> subscribeTimes.incrementAndGet())
+                        : Flux.range(0, 20))
+                .as(StepVerifier::create)
+                .expectNextCount(4)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, subscribeTimes.get());
+
+        ReactorQL.builder()
+                .sql("select t.v from t where t.v in (select this from ids where this = t.v)")
+                .build()
+                .start(t -> t.equals("ids")
+                        ? Flux.just(1, 2)
+                        : Flux.range(0, 5).map(v -> Collections.singletonMap("v", v)))
+                .as(StepVerifier::create)
+                .expectNextCount(2)
+                .verifyComplete();
     }
 
     @Test
@@ -966,6 +1044,212 @@ class ReactorQLTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testLookupJoin() {
+        AtomicInteger lookupTimes = new AtomicInteger();
+        ReactorQL.builder()
+                .sql(
+                        "select /*+ lookupBatch(10) */ t.deviceId,d.name from t ",
+                        "left join device_info d on d.id = t.deviceId"
+                )
+                .feature(new DefaultLookupFeature("device_info", ids -> {
+                    lookupTimes.incrementAndGet();
+                    return Flux.fromIterable(ids)
+                            .filter(id -> !"3".equals(id))
+                            .map(id -> new HashMap<String, Object>() {{
+                                put("id", id);
+                                put("name", "device-" + id);
+                            }});
+                }))
+                .build()
+                .start(t -> Flux.range(0, 20)
+                        .map(v -> Collections.singletonMap("deviceId", String.valueOf(v % 5))))
+                .doOnNext(System.out::println)
+                .filter(map -> map.containsKey("d.name"))
+                .as(StepVerifier::create)
+                .expectNextCount(16)
+                .verifyComplete();
+
+        Assertions.assertEquals(1, lookupTimes.get());
+    }
+
+    @Test
+    void testLookupJoinBackpressure() {
+        AtomicLong requested = new AtomicLong();
+        //下游处理缓慢时,不会无限制地从上游拉取数据
+        ReactorQL.builder()
+                .sql(
+                        "select /*+ lookupBatch(10) */ t.deviceId,d.name from t ",
+                        "left join device_info d on d.id = t.deviceId"
+                )
+                .feature(new DefaultLookupFeature("device_info", ids -> Flux
+                        .fromIterable(ids)
+                        .map(id -> Collections.singletonMap("id", id))))
+                .build()
+                .start(t -> Flux.range(0, 100000)
+                        .doOnRequest(requested::addAndGet)
+                        .map(v -> Collections.singletonMap("deviceId", String.valueOf(v % 5))))
+                .as(flux -> StepVerifier.create(flux, 1))
+                .expectNextCount(1)
+                .thenAwait(Duration.ofMillis(200))
+                .then(() -> Assertions.assertTrue(requested.get() < 10000, "requested:" + requested.get()))
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void testLookupJoinOriginalKey() {
+        Map<Object, Map<String, Object>> info = new HashMap<>();
+        info.put(5, new HashMap<String, Object>() {{
+            put("id", 5);
+            put("name", "device-5");
+        }});
+        List<Object> received = new CopyOnWriteArrayList<>();
+        ReactorQL.builder()
+                .sql("select t.id,d.name from t left join device_info d on d.id = t.id")
+                .feature(new DefaultLookupFeature("device_info", keys -> {
+                    received.addAll(keys);
+                    return Flux.fromIterable(keys)
+                            .filter(info::containsKey)
+                            .map(info::get);
+                }))
+                .build()
+                .start(t -> Flux.just(Collections.singletonMap("id", 5), Collections.singletonMap("id", 5L)))
+                .as(StepVerifier::create)
+                .expectNext(new HashMap<String, Object>() {{
+                    put("t.id", 5);
+                    put("d.name", "device-5");
+                }})
+                .expectNext(new HashMap<String, Object>() {{
+                    put("t.id", 5L);
+                    put("d.name", "device-5");
+                }})
+                .verifyComplete();
+
+        //同一批次中相同的关联键只查询一次,并且传入原始类型的值
+        Assertions.assertEquals(Collections.singletonList(5), received);
+    }
+
+    @Test
+    void testSchema() {
+        TableSchema schema = TableSchema.of("t")
+                .column("deviceId", ColumnType.STRING)
+                .column("temp", ColumnType.DOUBLE)
+                .column("time", ColumnType.DATE);
+
+        ReactorQL.builder()
+                .sql("select deviceId from t where temp > '30' and time >= '2020-01-01'")
+                .schema(schema)
+                .build()
+                .start(t -> Flux.range(25, 10)
+                        .map(v -> new HashMap<String, Object>() {{
+                            put("deviceId", "device-" + v);
+                            put("temp", String.valueOf(v));
+                            put("time", new Date());
+                        }}))
+                .as(StepVerifier::create)
+                .expectNextCount(4)
+                .verifyComplete();
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ReactorQL.builder()
+                .sql("select * from t where temp > 'abc'")
+                .schema(schema)
+                .build());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ReactorQL.builder()
+                .sql("select * from t where deviceId > 10")
+                .schema(schema)
+                .build());
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ReactorQL.builder()
+                .sql("select * from t where t.deviceId = t.temp")
+                .schema(schema)
+                .build());
+
+        //有关联查询时,未指定表名的列可能属于未定义表结构的表,不检查类型
+        ReactorQL.builder()
+                .sql("select * from t left join d on d.id = t.deviceId where temp > 'abc'")
+                .schema(schema)
+                .build();
+
+        //列名在全部表中唯一
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ReactorQL.builder()
+                .sql("select * from t left join d on d.id = t.deviceId where temp > 'abc'")
+                .schema(schema, TableSchema.of("d").column("id", ColumnType.STRING))
+                .build());
+
+        //多个表中都有此列
+        ReactorQL.builder()
+                .sql("select * from t left join d on d.id = t.deviceId where temp > 'abc'")
+                .schema(schema, TableSchema.of("d").column("temp", ColumnType.STRING))
+                .build();
+    }
+
+    @Test
+    void testSchemaLongWithDecimal() {
+        TableSchema schema = TableSchema.of("t").column("temp", ColumnType.LONG);
+
+        Map<String, Boolean> cases = new LinkedHashMap<>();
+        cases.put("temp = 30.5", false);
+        cases.put("temp != 30.5", true);
+        cases.put("temp >= 30.5", false);
+        cases.put("temp > 30.5", false);
+        cases.put("temp < 30.5", true);
+        cases.put("temp <= 30.5", true);
+        cases.put("temp > 29.5", true);
+        cases.put("temp = 30.0", true);
+        cases.put("temp >= '30.5'", false);
+        cases.put("30.5 > temp", true);
+
+        cases.forEach((where, matched) -> ReactorQL
+                .builder()
+                .sql("select temp from t where " + where)
+                .schema(schema)
+                .build()
+                .start(Flux.just(Collections.singletonMap("temp", 30)))
+                .count()
+                .as(StepVerifier::create)
+                .expectNext(matched ? 1L : 0L)
+                .as(where)
+                .verifyComplete());
+    }
+
+    @Test
+    void testJsonRecord() {
+        ReactorQL.builder()
+                .sql("select deviceId,this.nest.name name from t where temp > 30")
+                .build()
+                .start(Flux.range(25, 10)
+                        .map(v -> ("{\"deviceId\":\"dev-" + v + "\",\"temp\":" + v + ",\"nest\":{\"name\":\"n" + v + "\"}}")
+                                .getBytes())
+                        .map(JsonRecord::of))
+                .doOnNext(System.out::println)
+                .as(StepVerifier::create)
+                .expectNext(new HashMap<String, Object>() {{
+                    put("deviceId", "dev-31");
+                    put("name", "n31");
+                }})
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void testCommonExpression() {
+        AtomicInteger times = new AtomicInteger();
+        ReactorQL.builder()
+                .sql("select counter(v) v from t where counter(v) > 5")
+                .feature(new SingleParameterFunctionMapFeature("counter", v -> {
+                    times.incrementAndGet();
+                    return v;
+                }))
+                .build()
+                .start(Flux.range(0, 10).map(v -> Collections.singletonMap("v", v)))
+                .as(StepVerifier::create)
+                .expectNextCount(4)
+                .verifyComplete();
+        Assertions.assertEquals(10, times.get());
+    }
+
     @Test
     void testJoinWhere() {
         ReactorQL.builder()
@@ -1057,4 +1341,743 @@ class ReactorQLTest {
 
 
 
-}
\ No newline at end of file
+    @Test
+    void testParallel() {
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4) */ this+1 v from \"table\" where this < 50")
+                .build()
+                .start(Flux.range(0, 100))
+                .map(map -> ((Number) map.get("v")).intValue())
+                .collectList()
+                .map(list -> list.stream().sorted().collect(Collectors.toList()))
+                .as(StepVerifier::create)
+                .expectNext(IntStream.range(1, 51).boxed().collect(Collectors.toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testParallelOrdered() {
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4),ordered,parallelScheduler(boundedElastic) */ this v from \"table\" where this < 50")
+                .build()
+                .start(Flux.range(0, 100))
+                .map(map -> ((Number) map.get("v")).intValue())
+                .collectList()
+                .as(StepVerifier::create)
+                .expectNext(IntStream.range(0, 50).boxed().collect(Collectors.toList()))
+                .verifyComplete();
+    }
+
+    @Test
+    void testParallelOrderedLookupJoin() {
+        AtomicInteger lookupTimes = new AtomicInteger();
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4),ordered,parallelBatch(50),lookupBatch(100) */ t.v,d.name from t ",
+                     "left join info d on d.id = t.id")
+                .feature(new DefaultLookupFeature("info", ids -> {
+                    lookupTimes.incrementAndGet();
+                    return Flux.fromIterable(ids)
+                               .map(id -> new HashMap<String, Object>() {{
+                                   put("id", id);
+                                   put("name", "n" + id);
+                               }});
+                }))
+                .build()
+                .start(Flux.range(0, 100)
+                           .map(v -> new HashMap<String, Object>() {{
+                               put("v", v);
+                               put("id", v % 5);
+                           }}))
+                .map(map -> ((Number) map.get("t.v")).intValue())
+                .collectList()
+                .as(StepVerifier::create)
+                .expectNext(IntStream.range(0, 100).boxed().collect(Collectors.toList()))
+                .verifyComplete();
+        //每一批数据只查询一次维表
+        Assertions.assertTrue(lookupTimes.get() <= 2, "lookup times: " + lookupTimes.get());
+    }
+
+    @Test
+    void testParallelGroupBy() {
+        ReactorQL.builder()
+                .sql("select /*+ parallel */ count(1) total,sum(this) sum from \"table\" where this % 2 = 0")
+                .build()
+                .start(Flux.range(0, 100))
+                .as(StepVerifier::create)
+                .expectNextMatches(map -> ((Number) map.get("total")).intValue() == 50
+                        && ((Number) map.get("sum")).intValue() == 2450)
+                .verifyComplete();
+
+        ReactorQL.builder()
+                .sql("select /*+ parallel(2) */ count(1) total from \"table\" group by this % 2")
+                .build()
+                .start(Flux.range(0, 100))
+                .map(map -> ((Number) map.get("total")).intValue())
+                .as(StepVerifier::create)
+                .expectNext(50, 50)
+                .verifyComplete();
+    }
+
+    @Test
+    void testParallelSubSelect() {
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4) */ this from \"table\" where this in (select this from \"in\")")
+                .build()
+                .start(table -> "in".equals(table) ? Flux.just(1, 3, 5) : Flux.range(0, 10))
+                .as(StepVerifier::create)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
+    @Test
+    void testPartitionedAggregation() {
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4) */ count(1) total,sum(this) sum,avg(this) avg,max(this) max,min(this) min from \"table\"")
+                .build()
+                .start(Flux.range(1, 1000))
+                .as(StepVerifier::create)
+                .expectNextMatches(map -> ((Number) map.get("total")).longValue() == 1000
+                        && ((Number) map.get("sum")).intValue() == 500500
+                        && ((Number) map.get("avg")).doubleValue() == 500.5
+                        && ((Number) map.get("max")).intValue() == 1000
+                        && ((Number) map.get("min")).intValue() == 1)
+                .verifyComplete();
+
+        //非聚合列使用输入中的第一条数据
+        ReactorQL ql = ReactorQL.builder()
+                .sql("select /*+ parallel(4),parallelScheduler(boundedElastic) */ t.v v,count(1) total from t")
+                .build();
+        for (int i = 0; i < 20; i++) {
+            ql.start(Flux.range(1, 1000).map(v -> Collections.singletonMap("v", v)))
+              .as(StepVerifier::create)
+              .expectNextMatches(map -> ((Number) map.get("v")).intValue() == 1
+                      && ((Number) map.get("total")).longValue() == 1000)
+              .verifyComplete();
+        }
+
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4) */ count(1) total from \"table\"")
+                .build()
+                .start(Flux.empty())
+                .as(StepVerifier::create)
+                .expectNextMatches(map -> ((Number) map.get("total")).longValue() == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    void testPartitionedGroupBy() {
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4) */ type,count(1) total,avg(val) avg from \"table\" group by type,val%2 having total > 10")
+                .build()
+                .start(Flux.range(0, 1000)
+                           .map(i -> new HashMap<String, Object>() {{
+                               put("type", "t" + (i % 10));
+                               put("val", i);
+                           }}))
+                .as(StepVerifier::create)
+                .expectNextCount(10)
+                .verifyComplete();
+
+        ReactorQL.builder()
+                .sql("select /*+ parallel(4) */ count(1) total from \"table\" group by this/10")
+                .build()
+                .start(Flux.range(0, 1000))
+                .map(map -> ((Number) map.get("total")).intValue())
+                .as(StepVerifier::create)
+                .thenConsumeWhile(total -> total == 10)
+                .verifyComplete();
+    }
+
+    @Test
+    void testBatch() {
+        AtomicInteger times = new AtomicInteger();
+        ReactorQL.builder()
+                .sql("select /*+ batch(16) */ this v,counter(this) c from \"table\" where this % 2 = 0")
+                .feature(new SingleParameterFunctionMapFeature("counter", v -> {
+                    times.incrementAndGet();
+                    return v;
+                }))
+                .build()
+                .start(Flux.range(0, 100))
+                .map(map -> ((Number) map.get("v")).intValue())
+                .collectList()
+                .as(StepVerifier::create)
+                .expectNext(IntStream.range(0, 50).map(i -> i * 2).boxed().collect(Collectors.toList()))
+                .verifyComplete();
+        Assertions.assertEquals(50, times.get());
+
+        ReactorQL.builder()
+                .sql("select /*+ batch(8),batchTimeout(10ms) */ * from \"table\" where this > 2")
+                .build()
+                .start(Flux.range(0, 10).delayElements(Duration.ofMillis(1)))
+                .as(StepVerifier::create)
+                .expectNextCount(7)
+                .verifyComplete();
+    }
+
+    @Test
+    void testBatchSubSelect() {
+        ReactorQL.builder()
+                .sql("select /*+ batch */ this v from \"table\" where this in (select this from \"in\")")
+                .build()
+                .start(table -> "in".equals(table) ? Flux.just(1, 3, 5).delayElements(Duration.ofMillis(1)) : Flux.range(0, 10))
+                .map(map -> map.get("v"))
+                .as(StepVerifier::create)
+                .expectNext(1, 3, 5)
+                .verifyComplete();
+
+        ReactorQL.builder()
+                .sql("select /*+ batch(4) */ count(1) total from \"table\" where this > 5 group by this % 2")
+                .build()
+                .start(Flux.range(0, 10))
+                .map(map -> ((Number) map.get("total")).intValue())
+                .as(StepVerifier::create)
+                .expectNext(2, 2)
+                .verifyComplete();
+    }
+
+    @Test
+    void testVectorized() {
+        List<Map<String, Object>> data = IntStream
+                .range(0, 1000)
+                .mapToObj(i -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("id", i);
+                    map.put("type", "t" + (i % 3));
+                    if (i % 7 != 0) {
+                        map.put("temp", i % 50 + 0.5);
+                    }
+                    return map;
+                })
+                .collect(Collectors.toList());
+
+        for (String sql : Arrays.asList(
+                "select id,temp from t where temp > 30 and type = 't1'",
+                "select id from t where temp * 2 > 60 or id % 10 = 1",
+                "select id from t where (type != 't0' and id < 100) or temp <= 1",
+                "select count(1) total,sum(temp) sum,avg(temp) avg,max(temp) max,min(id) min from t where temp > 10",
+                "select count(1) total,sum(temp) sum from t where id < 0",
+                "select id,id * 2 d,temp + 1 t,id % 3 m,temp / 2 h from t where id < 100",
+                "select id / 2 v from t where temp is null"
+        )) {
+            List<Map<String, Object>> expect = ReactorQL.builder()
+                    .sql(sql)
+                    .build()
+                    .start(Flux.fromIterable(data))
+                    .collectList()
+                    .block();
+            List<Map<String, Object>> vectorized = ReactorQL.builder()
+                    .sql(sql.replace("select ", "select /*+ vectorized,batch(64) */ "))
+                    .build()
+                    .start(Flux.fromIterable(data))
+                    .collectList()
+                    .block();
+            Assertions.assertEquals(expect, vectorized, sql);
+            List<Map<String, Object>> batch = ReactorQL.builder()
+                    .sql(sql.replace("select ", "select /*+ batch(64) */ "))
+                    .build()
+                    .start(Flux.fromIterable(data))
+                    .collectList()
+                    .block();
+            Assertions.assertEquals(expect, batch, sql);
+        }
+    }
+
+    @Test
+    void testMetrics() {
+        InMemoryMetricsFeature metrics = new InMemoryMetricsFeature();
+        ReactorQL.builder()
+                 .sql("select /*+ name(test) */ this v from t where this > 5 order by this desc limit 2")
+                 .feature(metrics)
+                 .build()
+                 .start(Flux.range(0, 10))
+                 .map(map -> map.get("v"))
+                 .as(StepVerifier::create)
+                 .expectNext(9, 8)
+                 .verifyComplete();
+
+        Map<String, InMemoryOperatorMetrics> operators = metrics.getMetrics("test");
+        Assertions.assertEquals(10, operators.get("where").getRecordsIn());
+        Assertions.assertEquals(4, operators.get("where").getRecordsOut());
+        Assertions.assertTrue(operators.get("where").getProcessingNanos() > 0);
+        Assertions.assertEquals(4, operators.get("select").getRecordsIn());
+        Assertions.assertEquals(4, operators.get("orderBy").getRecordsIn());
+        Assertions.assertEquals(2, operators.get("limit").getRecordsOut());
+        Assertions.assertEquals(1, operators.get("orderBy").getCancellations());
+        Assertions.assertEquals(0, operators.get("orderBy").getQueueDepth());
+        Assertions.assertFalse(operators.containsKey("groupBy"));
+    }
+
+    @Test
+    void testScheduler() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        TestPublisher<Integer> publisher = TestPublisher.create();
+
+        ReactorQL.builder()
+                 .sql("select count(1) total from t group by interval('1h')")
+                 .scheduler(scheduler)
+                 .build()
+                 .start(publisher.flux())
+                 .map(map -> map.get("total"))
+                 .as(StepVerifier::create)
+                 .then(() -> publisher.next(1, 2, 3))
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofHours(1)))
+                 .expectNext(3L)
+                 .then(() -> publisher.next(4))
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofHours(1)))
+                 .expectNext(1L)
+                 .then(publisher::complete)
+                 .expectNext(0L)
+                 .verifyComplete();
+
+        VirtualTimeScheduler clock = VirtualTimeScheduler.create();
+        clock.advanceTimeBy(Duration.ofSeconds(10));
+        ReactorQL.builder()
+                 .sql("select now() t from t")
+                 .scheduler(clock)
+                 .build()
+                 .start(Flux.just(1))
+                 .map(map -> map.get("t"))
+                 .as(StepVerifier::create)
+                 .expectNext(10000L)
+                 .verifyComplete();
+    }
+
+    @Test
+    @SneakyThrows
+    void testStateRestore() {
+        Path dir = Files.createTempDirectory("reactor-ql-state");
+        LocalFileStateFeature state = new LocalFileStateFeature(dir, Duration.ofHours(1));
+        TestPublisher<Integer> windowSource = TestPublisher.create();
+        ReactorQL.builder()
+                 .sql("select /*+ name(window) */ count(1) total,sum(this) sum from t group by _window(3)")
+                 .feature(state)
+                 .build()
+                 .start(windowSource.flux())
+                 .as(StepVerifier::create)
+                 .then(() -> windowSource.next(1, 2))
+                 .thenCancel()
+                 .verify();
+        TestPublisher<Integer> distinctSource = TestPublisher.create();
+        ReactorQL.builder()
+                 .sql("select /*+ name(distinct) */ distinct this v from t")
+                 .feature(state)
+                 .build()
+                 .start(distinctSource.flux())
+                 .map(map -> map.get("v"))
+                 .as(StepVerifier::create)
+                 .then(() -> distinctSource.next(1, 2, 1))
+                 .expectNext(1, 2)
+                 .thenCancel()
+                 .verify();
+        state.dispose();
+
+        //重启后恢复尚未结束的窗口以及已经输出过的数据
+        LocalFileStateFeature restarted = new LocalFileStateFeature(dir, Duration.ofHours(1));
+        ReactorQL.builder()
+                 .sql("select /*+ name(window) */ count(1) total,sum(this) sum from t group by _window(3)")
+                 .feature(restarted)
+                 .build()
+                 .start(Flux.just(3))
+                 .as(StepVerifier::create)
+                 .assertNext(map -> {
+                     Assertions.assertEquals(3L, map.get("total"));
+                     Assertions.assertEquals(6, ((Number) map.get("sum")).intValue());
+                 })
+                 .verifyComplete();
+        ReactorQL.builder()
+                 .sql("select /*+ name(distinct) */ distinct this v from t")
+                 .feature(restarted)
+                 .build()
+                 .start(Flux.just(2, 3, 1))
+                 .map(map -> map.get("v"))
+                 .as(StepVerifier::create)
+                 .expectNext(3)
+                 .verifyComplete();
+        restarted.dispose();
+    }
+
+    @Test
+    @SneakyThrows
+    void testWindowStateSupported() {
+        LocalFileStateFeature state = new LocalFileStateFeature(Files.createTempDirectory("reactor-ql-state"), Duration.ofHours(1));
+        Map<String, Boolean> windows = new LinkedHashMap<>();
+        windows.put("interval('1h')", true);
+        windows.put("_window('10s')", true);
+        windows.put("_window(3)", true);
+        windows.put("_window(3), this", true);
+        //重叠的窗口以及窗口不是第一个分组表达式时不保存状态
+        windows.put("_window(3,1)", false);
+        windows.put("this, _window(3)", false);
+        windows.forEach((window, supported) -> {
+            ExplainNode groupBy = ReactorQL
+                    .builder()
+                    .sql("select /*+ name(window) */ count(1) total from t group by " + window)
+                    .feature(state)
+                    .build()
+                    .explain()
+                    .find("groupBy")
+                    .orElseThrow(IllegalStateException::new);
+            Assertions.assertEquals(supported, "checkpoint".equals(groupBy.getProperties().get("state")), window);
+        });
+        state.dispose();
+    }
+
+    @Test
+    @SneakyThrows
+    void testTimeWindowStateRestore() {
+        Path dir = Files.createTempDirectory("reactor-ql-state");
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        String sql = "select /*+ name(window) */ count(1) total,sum(this) sum from t group by interval('10s') having total > 0";
+        LocalFileStateFeature state = new LocalFileStateFeature(dir, Duration.ofHours(1));
+        TestPublisher<Integer> source = TestPublisher.create();
+        ReactorQL.builder()
+                 .sql(sql)
+                 .feature(state)
+                 .scheduler(scheduler)
+                 .build()
+                 .start(source.flux())
+                 .as(StepVerifier::create)
+                 .then(() -> source.next(1, 2))
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(5)))
+                 .thenCancel()
+                 .verify();
+        state.dispose();
+
+        //重启时窗口尚未结束,窗口在重启前的结束时间结束
+        LocalFileStateFeature restarted = new LocalFileStateFeature(dir, Duration.ofHours(1));
+        TestPublisher<Integer> source2 = TestPublisher.create();
+        ReactorQL.builder()
+                 .sql(sql)
+                 .feature(restarted)
+                 .scheduler(scheduler)
+                 .build()
+                 .start(source2.flux())
+                 .map(map -> ((Number) map.get("sum")).intValue())
+                 .as(StepVerifier::create)
+                 .then(() -> source2.next(3))
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(4)))
+                 .expectNoEvent(Duration.ZERO)
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(1)))
+                 .expectNext(6)
+                 .then(() -> source2.next(4))
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(5)))
+                 .then(() -> source2.next(5))
+                 .thenCancel()
+                 .verify();
+        restarted.dispose();
+
+        //重启时窗口已经结束,直接输出结果
+        scheduler.advanceTimeBy(Duration.ofMinutes(1));
+        LocalFileStateFeature expired = new LocalFileStateFeature(dir, Duration.ofHours(1));
+        ReactorQL.builder()
+                 .sql(sql)
+                 .feature(expired)
+                 .scheduler(scheduler)
+                 .build()
+                 .start(Flux.never())
+                 .map(map -> ((Number) map.get("sum")).intValue())
+                 .as(StepVerifier::create)
+                 .expectNext(9)
+                 .thenCancel()
+                 .verify();
+        expired.dispose();
+    }
+
+    @Test
+    @SneakyThrows
+    void testStateExclusiveExecution() {
+        LocalFileStateFeature state = new LocalFileStateFeature(Files.createTempDirectory("reactor-ql-state"), Duration.ofHours(1));
+        ReactorQL ql = ReactorQL
+                .builder()
+                .sql("select /*+ name(distinct) */ distinct this v from t")
+                .feature(state)
+                .build();
+        TestPublisher<Integer> source = TestPublisher.create();
+        ql.start(source.flux())
+          .map(map -> map.get("v"))
+          .as(StepVerifier::create)
+          .then(() -> source.next(1))
+          .expectNext(1)
+          //正在执行时不能再次执行,也不会清空正在执行的查询的状态
+          .then(() -> ql.start(Flux.just(2))
+                        .as(StepVerifier::create)
+                        .verifyError(IllegalStateException.class))
+          .then(() -> ql.explainAnalyze(t -> Flux.just(2))
+                        .as(StepVerifier::create)
+                        .verifyError(IllegalStateException.class))
+          .then(() -> source.next(1, 2))
+          .expectNext(2)
+          .thenCancel()
+          .verify();
+
+        //上一次执行结束后可以再次执行
+        ql.start(Flux.just(1, 3))
+          .map(map -> map.get("v"))
+          .as(StepVerifier::create)
+          .expectNext(3)
+          .verifyComplete();
+        state.dispose();
+
+        //不使用状态存储时可以同时执行
+        ReactorQL stateless = ReactorQL.builder().sql("select distinct this v from t").build();
+        TestPublisher<Integer> source2 = TestPublisher.create();
+        stateless.start(source2.flux())
+                 .as(StepVerifier::create)
+                 .then(() -> stateless.start(Flux.just(1))
+                                      .as(StepVerifier::create)
+                                      .expectNextCount(1)
+                                      .verifyComplete())
+                 .thenCancel()
+                 .verify();
+    }
+
+    @Test
+    void testOffHeapState() {
+        List<Map<String, Object>> data = IntStream
+                .range(0, 1000)
+                .mapToObj(i -> {
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("deviceId", "device-" + (i % 100));
+                    map.put("val", i % 7 == 0 ? null : i);
+                    return map;
+                })
+                .collect(Collectors.toList());
+        String sql = "select /*+ name(offHeap) */ deviceId,count(1) total,sum(val) sum,avg(val) avg,max(val) max,min(val) min from t group by deviceId having total > 0";
+        List<Map<String, Object>> expected = ReactorQL
+                .builder()
+                .sql(sql)
+                .build()
+                .start(Flux.fromIterable(data))
+                .collectList()
+                .block();
+
+        InMemoryMetricsFeature metrics = new InMemoryMetricsFeature();
+        ReactorQL ql = ReactorQL
+                .builder()
+                .sql(sql)
+                .feature(new OffHeapStateFeature(), metrics)
+                .build();
+        Assertions.assertEquals("hash", ql.explain().find("groupBy").map(node -> node.getProperties().get("strategy")).orElse(null));
+        AtomicLong stateSize = new AtomicLong();
+        ql.start(Flux.fromIterable(data))
+          .doOnNext(ignore -> stateSize.compareAndSet(0, metrics.getMetrics("offHeap").get("groupBy").getStateSize()))
+          .collectList()
+          .as(StepVerifier::create)
+          //默认的分组按完成顺序输出,哈希表按分组出现的顺序输出
+          .assertNext(list -> Assertions.assertEquals(new HashSet<>(expected), new HashSet<>(list)))
+          .verifyComplete();
+        Assertions.assertEquals(100, stateSize.get());
+        //执行结束后释放
+        Assertions.assertEquals(0, metrics.getMetrics("offHeap").get("groupBy").getStateMemory());
+
+        ReactorQL.builder()
+                 .sql("select distinct this v from t")
+                 .feature(new OffHeapStateFeature())
+                 .build()
+                 .start(Flux.just(1, 2, 1, 3, 2))
+                 .map(map -> map.get("v"))
+                 .as(StepVerifier::create)
+                 .expectNext(1, 2, 3)
+                 .verifyComplete();
+    }
+
+    @Test
+    void testOffHeapUnencodableKey() {
+        LocalDateTime time = LocalDateTime.of(2020, 1, 1, 0, 0);
+        ReactorQL ql = ReactorQL
+                .builder()
+                .sql("select count(1) t from t group by a")
+                .feature(new OffHeapStateFeature())
+                .build();
+        Assertions.assertEquals("hash", ql.explain().find("groupBy").map(node -> node.getProperties().get("strategy")).orElse(null));
+        //无法编码的键在堆内存中分组
+        ql.start(Flux.just(Collections.singletonMap("a", time)))
+          .collectList()
+          .as(StepVerifier::create)
+          .expectNext(Collections.singletonList(Collections.singletonMap("t", 1L)))
+          .verifyComplete();
+        ql.start(Flux.just("x", time, "x", time, "y").map(v -> Collections.singletonMap("a", v)))
+          .map(map -> map.get("t"))
+          .as(StepVerifier::create)
+          .expectNext(2L, 2L, 1L)
+          .verifyComplete();
+
+        ReactorQL.builder()
+                 .sql("select distinct this v from t")
+                 .feature(new OffHeapStateFeature())
+                 .build()
+                 .start(Flux.just(time, 1, time))
+                 .map(map -> map.get("v"))
+                 .as(StepVerifier::create)
+                 .expectNext(time, 1)
+                 .verifyComplete();
+    }
+
+    @Test
+    void testOffHeapDistinctPerExecution() {
+        ReactorQL ql = ReactorQL
+                .builder()
+                .sql("select distinct this v from t")
+                .feature(new OffHeapStateFeature())
+                .build();
+        TestPublisher<Integer> source = TestPublisher.create();
+        ql.start(source.flux())
+          .map(map -> map.get("v"))
+          .as(StepVerifier::create)
+          .then(() -> source.next(1, 2))
+          .expectNext(1, 2)
+          //不在重启后恢复的状态,每次执行使用单独的状态,可以同时执行
+          .then(() -> ql.start(Flux.just(1, 1))
+                        .map(map -> map.get("v"))
+                        .as(StepVerifier::create)
+                        .expectNext(1)
+                        .verifyComplete())
+          .thenCancel()
+          .verify();
+
+        //取消后再次执行不受上一次执行的影响
+        ql.start(Flux.just(1, 2, 3))
+          .map(map -> map.get("v"))
+          .as(StepVerifier::create)
+          .expectNext(1, 2, 3)
+          .verifyComplete();
+    }
+
+    @Test
+    void testOffHeapDistinctMap() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", 2);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", 2);
+        second.put("a", 1);
+        for (String sql : Arrays.asList("select distinct a,b from t", "select distinct * from t", "select distinct this v from t")) {
+            ReactorQL.builder()
+                     .sql(sql)
+                     .feature(new OffHeapStateFeature())
+                     .build()
+                     .start(Flux.just(first, second))
+                     .as(StepVerifier::create)
+                     .expectNextCount(1)
+                     .as(sql)
+                     .verifyComplete();
+        }
+    }
+
+    @Test
+    void testOverflow() {
+        InMemoryMetricsFeature metrics = new InMemoryMetricsFeature();
+        AtomicLong received = new AtomicLong();
+        //下游不请求数据,数据源仍然全部输出,超出缓冲区的数据被丢弃
+        ReactorQL.builder()
+                 .sql("select /*+ name(dropLatest),overflow(drop-newest),overflowBuffer(10) */ this v from t")
+                 .feature(metrics)
+                 .build()
+                 .start(Flux.range(0, 1000))
+                 .as(flux -> StepVerifier.create(flux, 0))
+                 .expectSubscription()
+                 .expectNoEvent(Duration.ofMillis(10))
+                 .thenRequest(Long.MAX_VALUE)
+                 .thenConsumeWhile(map -> received.incrementAndGet() > 0)
+                 .verifyComplete();
+        long dropped = metrics.getMetrics("dropLatest").get("overflow").getDropped();
+        Assertions.assertTrue(dropped > 0);
+        Assertions.assertEquals(1000, received.get() + dropped);
+
+        ReactorQL.builder()
+                 .sql("select this v from t")
+                 .overflow(OverflowStrategy.latest, 10)
+                 .build()
+                 .start(Flux.range(0, 1000))
+                 .map(map -> map.get("v"))
+                 .as(flux -> StepVerifier.create(flux, 0))
+                 .expectSubscription()
+                 .expectNoEvent(Duration.ofMillis(10))
+                 .thenRequest(Long.MAX_VALUE)
+                 .thenConsumeWhile(v -> !v.equals(999))
+                 .expectNext(999)
+                 .verifyComplete();
+
+        ReactorQL.builder()
+                 .sql("select /*+ overflow(error),overflowBuffer(10) */ this v from t")
+                 .build()
+                 .start(Flux.range(0, 1000))
+                 .as(flux -> StepVerifier.create(flux, 0))
+                 .expectSubscription()
+                 .expectNoEvent(Duration.ofMillis(10))
+                 .thenRequest(Long.MAX_VALUE)
+                 .thenConsumeWhile(map -> true)
+                 .verifyErrorMatches(Exceptions::isOverflow);
+
+        ExplainNode overflow = ReactorQL.builder()
+                                        .sql("select /*+ overflow(dropOldest) */ this v from t")
+                                        .build()
+                                        .explain()
+                                        .find("overflow")
+                                        .orElseThrow(IllegalStateException::new);
+        Assertions.assertEquals("bounded(" + Queues.SMALL_BUFFER_SIZE + ")", overflow.getProperties().get("state"));
+
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> ReactorQL
+                .builder()
+                .sql("select /*+ overflow(none) */ this v from t")
+                .build());
+    }
+
+    @Test
+    void testExplain() {
+        ReactorQL ql = ReactorQL.builder()
+                                .sql("select /*+ parallel(2) */ t.key, count(1) total from t left join info on info.key = t.key",
+                                     "where t.val > 1 group by t.key order by total desc limit 10")
+                                .feature(new DefaultLookupFeature("info", keys -> Flux.empty()))
+                                .build();
+        ExplainNode plan = ql.explain();
+        System.out.println(plan);
+
+        Assertions.assertEquals("limit", plan.getOperator());
+        ExplainNode join = plan.find("join").orElseThrow(IllegalStateException::new);
+        Assertions.assertEquals("lookup", join.getChildren().get(1).getOperator());
+        Assertions.assertEquals("left", join.getChildren().get(1).getProperties().get("type"));
+
+        ExplainNode where = plan.find("where").orElseThrow(IllegalStateException::new);
+        Assertions.assertTrue(where.getFeatures().contains("filter:>"));
+        Assertions.assertTrue(where.getFeatures().contains("value-map:property"));
+
+        ExplainNode groupBy = plan.find("groupBy").orElseThrow(IllegalStateException::new);
+        Assertions.assertEquals("partitioned", groupBy.getProperties().get("strategy"));
+        Assertions.assertEquals("unbounded", groupBy.getProperties().get("state"));
+        Assertions.assertTrue(plan.find("select")
+                                  .orElseThrow(IllegalStateException::new)
+                                  .getFeatures()
+                                  .contains("value-agg:count"));
+        Assertions.assertTrue(plan.find("parallel").isPresent());
+        Assertions.assertFalse(where.isAnalyzed());
+    }
+
+    @Test
+    void testExplainAnalyze() {
+        ReactorQL ql = ReactorQL.builder()
+                                .sql("select this v from t where this > 5 order by this desc limit 2")
+                                .build();
+
+        ql.explainAnalyze(Flux.range(0, 10))
+          .doOnNext(System.out::println)
+          .as(StepVerifier::create)
+          .assertNext(plan -> {
+              ExplainNode where = plan.find("where").orElseThrow(IllegalStateException::new);
+              Assertions.assertTrue(where.isAnalyzed());
+              Assertions.assertEquals(10, where.getRowsIn());
+              Assertions.assertEquals(4, where.getRowsOut());
+              Assertions.assertEquals(2, plan.getRowsOut());
+              Assertions.assertFalse(plan.find("from").orElseThrow(IllegalStateException::new).isAnalyzed());
+          })
+          .verifyComplete();
+
+        //分析不影响正常执行
+        ql.start(Flux.range(0, 10))
+          .as(StepVerifier::create)
+          .expectNextCount(2)
+          .verifyComplete();
+    }
+
+}
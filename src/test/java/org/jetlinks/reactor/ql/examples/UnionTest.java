@@ -5,7 +5,9 @@ import org.junit.jupiter.api.Test;
 import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 
 public class UnionTest {
 
@@ -90,6 +92,26 @@ public class UnionTest {
                 .verifyComplete();
     }
 
+    @Test
+    void testIntersectSet() {
+        //集合与遍历顺序无关
+        ReactorQL.builder()
+                .sql(
+                        "select t.v from (",
+                        "select this v from t1",
+                        "intersect",
+                        "select this v from t2",
+                        ") t"
+                )
+                .build()
+                .start((t) -> Flux.just(t.equals("t1")
+                        ? new LinkedHashSet<>(Arrays.asList("a", "b"))
+                        : new LinkedHashSet<>(Arrays.asList("b", "a"))))
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+    }
+
     @Test
     void testMinus() {
         //减集
@@ -7,6 +7,8 @@ import org.junit.jupiter.api.Test;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,6 +55,65 @@ class DefaultPropertyFeatureTest {
 
     }
 
+    @Test
+    void testAccessor() {
+        DefaultPropertyFeature feature = new DefaultPropertyFeature();
+
+        TestData data = new TestData();
+        data.setName("test");
+        TestData nest = new TestData();
+        nest.setAge(20);
+        data.setNest(nest);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("nest", nest);
+        map.put("name", "map");
+
+        Function<Object, Optional<Object>> name = feature.createAccessor("name");
+        Function<Object, Optional<Object>> nestAge = feature.createAccessor("nest.age");
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals("test", name.apply(data).orElse(null));
+            assertEquals("map", name.apply(map).orElse(null));
+            assertEquals(20, nestAge.apply(data).orElse(null));
+            assertEquals(20, nestAge.apply(map).orElse(null));
+        }
+        assertFalse(feature.createAccessor("nest.aa").apply(data).isPresent());
+        assertFalse(name.apply(null).isPresent());
+        assertSame(data, feature.createAccessor("this").apply(data).orElse(null));
+        assertEquals("test", feature.createAccessor("\"name\"").apply(data).orElse(null));
+    }
+
+    @Test
+    void testAccessorOverride() {
+        DefaultPropertyFeature feature = new DefaultPropertyFeature() {
+            @Override
+            protected Object doGetProperty(String property, Object value) {
+                return "_" + property;
+            }
+        };
+        Map<String, Object> map = Collections.singletonMap("name", "map");
+
+        assertEquals("_name", feature.getProperty("name", map).orElse(null));
+        assertEquals("_name", feature.createAccessor("name").apply(map).orElse(null));
+    }
+
+    @Test
+    void testGetterError() {
+        DefaultPropertyFeature feature = new DefaultPropertyFeature();
+        ErrorData data = new ErrorData();
+
+        //getter报错时返回空
+        assertFalse(feature.getProperty("name", data).isPresent());
+        assertFalse(feature.createAccessor("name").apply(data).isPresent());
+    }
+
+    public static class ErrorData {
+        public String getName() {
+            throw new IllegalStateException("error");
+        }
+    }
+
     @Getter
     @Setter
     public static class TestData {
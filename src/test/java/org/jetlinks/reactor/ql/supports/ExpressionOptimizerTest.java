@@ -0,0 +1,108 @@
+package org.jetlinks.reactor.ql.supports;
+
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.SelectExpressionItem;
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.jetlinks.reactor.ql.ReactorQLMetadata;
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.FeatureId;
+import org.jetlinks.reactor.ql.feature.FoldableFeature;
+import org.jetlinks.reactor.ql.feature.ValueMapFeature;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionOptimizerTest {
+
+    PlainSelect optimize(String sql) {
+        DefaultReactorQLMetadata metadata = new DefaultReactorQLMetadata(sql);
+        new ExpressionOptimizer(metadata).optimize(metadata.getSql());
+        return metadata.getSql();
+    }
+
+    @Test
+    void testFold() {
+        PlainSelect select = optimize("select temp * (9.0/5) + 32, 1 + 2 v, cast('10' as long) + 1 c from t");
+
+        SelectExpressionItem item = (SelectExpressionItem) select.getSelectItems().get(0);
+        assertEquals("temp * 1.8 + 32", item.getExpression().toString());
+        //未指定别名时使用原始表达式作为别名
+        assertEquals("temp * (9.0 / 5) + 32", item.getAlias().getName());
+
+        assertEquals("3", ((SelectExpressionItem) select.getSelectItems().get(1)).getExpression().toString());
+        assertEquals("11", ((SelectExpressionItem) select.getSelectItems().get(2)).getExpression().toString());
+
+        //now()不可折叠
+        select = optimize("select now() - 1000 from t");
+        assertEquals("now() - 1000", ((SelectExpressionItem) select.getSelectItems().get(0)).getExpression().toString());
+
+        //计算错误时保留原始表达式
+        select = optimize("select 1 / 0 from t");
+        assertEquals("1 / 0", ((SelectExpressionItem) select.getSelectItems().get(0)).getExpression().toString());
+    }
+
+    @Test
+    void testFoldAsync() {
+        DefaultReactorQLMetadata metadata = new DefaultReactorQLMetadata("select async(1) v, 1 + 2 c from t");
+        metadata.addFeature(new AsyncFeature());
+        //异步的功能不折叠,也不会阻塞
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> new ExpressionOptimizer(metadata).optimize(metadata.getSql()));
+
+        assertEquals("async(1)", ((SelectExpressionItem) metadata.getSql().getSelectItems().get(0)).getExpression().toString());
+        assertEquals("3", ((SelectExpressionItem) metadata.getSql().getSelectItems().get(1)).getExpression().toString());
+    }
+
+    static class AsyncFeature implements ValueMapFeature, FoldableFeature {
+        @Override
+        public Function<ReactorQLRecord, ? extends Publisher<?>> createMapper(Expression expression, ReactorQLMetadata metadata) {
+            return record -> Mono.never();
+        }
+
+        @Override
+        public String getId() {
+            return FeatureId.ValueMap.of("async").getId();
+        }
+    }
+
+    @Test
+    void testLogical() {
+        assertNull(optimize("select * from t where 1 = 1").getWhere());
+        assertEquals("a > 1", optimize("select * from t where a > 1 and 1 = 1").getWhere().toString());
+        assertEquals("a > 1", optimize("select * from t where 1 > 2 or a > 1").getWhere().toString());
+        assertEquals("1 > 2", optimize("select * from t where 1 > 2 and a > 1").getWhere().toString());
+        assertNull(optimize("select * from t where a > 1 or 2 > 1").getWhere());
+        assertEquals("a > 10", optimize("select * from t where a > 5 * 2").getWhere().toString());
+    }
+
+    @Test
+    void testCase() {
+        PlainSelect select = optimize("select case when 1=1 then a else b end v from t");
+        assertEquals("a", ((SelectExpressionItem) select.getSelectItems().get(0)).getExpression().toString());
+
+        select = optimize("select case when 1=2 then a when c > 1 then d else b end v from t");
+        assertEquals("CASE WHEN c > 1 THEN d ELSE b END", ((SelectExpressionItem) select.getSelectItems().get(0)).getExpression().toString());
+
+        select = optimize("select case when 1=2 then a else b end v from t");
+        assertEquals("b", ((SelectExpressionItem) select.getSelectItems().get(0)).getExpression().toString());
+    }
+
+    @Test
+    void testQuery() {
+        ReactorQL.builder()
+                .sql("select (9.0/5) * temp + 32 f from t where temp > 10 * 2 and 1 = 1")
+                .build()
+                .start(Flux.just(Collections.singletonMap("temp", 10), Collections.singletonMap("temp", 100)))
+                .as(StepVerifier::create)
+                .expectNext(Collections.singletonMap("f", 212D))
+                .verifyComplete();
+    }
+}
@@ -3,6 +3,8 @@ package org.jetlinks.reactor.ql.supports.filter;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.function.Predicate;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,4 +28,31 @@ class GreaterTanFilterTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void testConstant() {
+        GreaterTanFilter filter = new GreaterTanFilter(">");
+
+        Predicate<Object> number = filter.createConstantPredicate(30L, false);
+        assertTrue(number.test(31));
+        assertTrue(number.test(30.5D));
+        assertTrue(number.test("31"));
+        assertFalse(number.test(30));
+
+        Predicate<Object> numberOnLeft = filter.createConstantPredicate(30L, true);
+        assertTrue(numberOnLeft.test(29));
+        assertFalse(numberOnLeft.test("31"));
+
+        Predicate<Object> string = filter.createConstantPredicate("2", false);
+        assertTrue(string.test("3"));
+        assertTrue(string.test(3));
+        assertTrue(string.test('3'));
+        assertFalse(string.test("1"));
+
+        Date now = new Date();
+        Predicate<Object> date = filter.createConstantPredicate(now, false);
+        assertTrue(date.test(new Date(now.getTime() + 1)));
+        assertTrue(date.test(now.getTime() + 1));
+        assertFalse(date.test(now));
+    }
+
+}
@@ -32,4 +32,30 @@ class LikeFilterTest {
 
         assertFalse(filter.doTest(true,12345, "1%5"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCompile() {
+        assertTrue(LikeFilter.compile("abc%").test("abcd"));
+        assertFalse(LikeFilter.compile("abc%").test("dabc"));
+
+        assertTrue(LikeFilter.compile("%abc").test("dabc"));
+        assertFalse(LikeFilter.compile("%abc").test("abcd"));
+
+        assertTrue(LikeFilter.compile("%abc%").test("dabcd"));
+        assertFalse(LikeFilter.compile("%abc%").test("abd"));
+
+        assertTrue(LikeFilter.compile("abc").test("abc"));
+        assertTrue(LikeFilter.compile("%").test("abc"));
+
+        assertTrue(LikeFilter.compile("a%c").test("abbc"));
+        assertTrue(LikeFilter.compile("a%c").test("a\nc"));
+
+        //'%'以外的字符按原样匹配
+        assertFalse(LikeFilter.compile("a.c%").test("abcd"));
+        assertTrue(LikeFilter.compile("a.c%").test("a.cd"));
+        assertFalse(LikeFilter.compile("a.%c").test("abbc"));
+        assertTrue(LikeFilter.compile("a.%c").test("a.bc"));
+        assertTrue(LikeFilter.compile("%(a%)%").test("x(ab)y"));
+        assertFalse(LikeFilter.compile("%[a]%").test("a"));
+    }
+}
@@ -0,0 +1,137 @@
+package org.jetlinks.reactor.ql.supports.index;
+
+import org.jetlinks.reactor.ql.DefaultReactorQL;
+import org.jetlinks.reactor.ql.ReactorQL;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+class PredicateIndexTest {
+
+    private static Optional<IndexCondition> condition(String sql) {
+        DefaultReactorQL ql = ((DefaultReactorQL) ReactorQL.builder().sql(sql).build());
+        return IndexCondition.of(ql.getMetadata());
+    }
+
+    private static Set<String> match(PredicateIndex<String> index, Object value) {
+        Set<String> targets = new TreeSet<>();
+        index.match(Collections.singletonMap("val", value), target -> Assertions.assertTrue(targets.add(target)));
+        return targets;
+    }
+
+    private static Set<String> setOf(String... values) {
+        return new TreeSet<>(Arrays.asList(values));
+    }
+
+    @Test
+    void testCondition() {
+        IndexCondition equals = condition("select * from t where name = 'test' and val > 1").orElseThrow(IllegalStateException::new);
+        Assertions.assertEquals("name", equals.getColumn());
+        Assertions.assertEquals(Collections.singletonList("test"), equals.getValues());
+
+        IndexCondition in = condition("select * from t where (t.val in (1,2,-3))").orElseThrow(IllegalStateException::new);
+        Assertions.assertEquals(Arrays.asList(1L, 2L, -3D), in.getValues());
+
+        IndexCondition range = condition("select * from t where val > 1 and val <= 10 and 5 > val").orElseThrow(IllegalStateException::new);
+        Assertions.assertTrue(range.isRange());
+        Assertions.assertEquals(1D, range.getLow());
+        Assertions.assertFalse(range.isLowInclusive());
+        Assertions.assertEquals(5D, range.getHigh());
+        Assertions.assertFalse(range.isHighInclusive());
+
+        IndexCondition between = condition("select * from t where val between 1 and 2").orElseThrow(IllegalStateException::new);
+        Assertions.assertTrue(between.isLowInclusive() && between.isHighInclusive());
+
+        Assertions.assertFalse(condition("select * from t").isPresent());
+        Assertions.assertFalse(condition("select * from t where val = 1 or val = 2").isPresent());
+        Assertions.assertFalse(condition("select * from t where val not in (1,2)").isPresent());
+        Assertions.assertFalse(condition("select * from t where val != 1").isPresent());
+        Assertions.assertFalse(condition("select * from t where val > 2 and val < 1").isPresent());
+        Assertions.assertFalse(condition("select * from t where x.val = 1").isPresent());
+        Assertions.assertFalse(condition("select * from t left join x on t.id = x.id where t.val = 1").isPresent());
+    }
+
+    @Test
+    void testMatch() {
+        PredicateIndex<String> index = new PredicateIndex<>();
+        index.add("eq1", condition("select * from t where val = 1").orElse(null));
+        index.add("inStr", condition("select * from t where val in ('1', 'a')").orElse(null));
+        index.add("gt5", condition("select * from t where val > 5").orElse(null));
+        index.add("between", condition("select * from t where val between 2 and 6").orElse(null));
+        index.add("none", condition("select * from t where val like 'a%'").orElse(null));
+        Assertions.assertEquals(5, index.size());
+
+        Assertions.assertEquals(setOf("eq1", "inStr", "none"), match(index, 1));
+        Assertions.assertEquals(setOf("eq1", "inStr", "none"), match(index, "1"));
+        Assertions.assertEquals(setOf("inStr", "none", "gt5", "between"), match(index, "a"));
+        Assertions.assertEquals(setOf("between", "none"), match(index, 5));
+        Assertions.assertEquals(setOf("gt5", "between", "none"), match(index, 6D));
+        Assertions.assertEquals(setOf("gt5", "none"), match(index, "7"));
+        Assertions.assertEquals(setOf("none"), match(index, 0));
+
+        //无法比较的值匹配全部
+        Assertions.assertEquals(setOf("eq1", "inStr", "gt5", "between", "none"), match(index, true));
+        Assertions.assertEquals(setOf("eq1", "inStr", "gt5", "between", "none"), match(index, null));
+
+        Assertions.assertTrue(index.remove("gt5"));
+        Assertions.assertTrue(index.remove("eq1"));
+        Assertions.assertFalse(index.remove("eq1"));
+        Assertions.assertEquals(setOf("between", "none"), match(index, 6));
+        Assertions.assertEquals(setOf("inStr", "none"), match(index, 1));
+    }
+
+    @Test
+    void testColumnIndex() {
+        PredicateIndex<String> index = new PredicateIndex<>();
+        //列名相同的查询共用列索引
+        index.add("eq1", condition("select * from t where val = 1").orElse(null));
+        index.add("gt5", condition("select * from t where val > 5").orElse(null));
+        Assertions.assertEquals(1, index.getColumnIndexSize());
+
+        //列名相同但读取方式不同
+        index.add("other", IndexCondition.equalsTo("val", record -> Optional.ofNullable(((Map<?, ?>) record).get("other")), Collections.singletonList(1)));
+        Assertions.assertEquals(2, index.getColumnIndexSize());
+
+        Map<String, Object> record = new HashMap<>();
+        record.put("val", 1);
+        record.put("other", 2);
+        Set<String> targets = new TreeSet<>();
+        index.match(record, targets::add);
+        Assertions.assertEquals(setOf("eq1"), targets);
+
+        //移除全部目标后移除列索引
+        index.remove("eq1");
+        index.remove("gt5");
+        Assertions.assertEquals(1, index.getColumnIndexSize());
+        index.remove("other");
+        Assertions.assertEquals(0, index.getColumnIndexSize());
+        Assertions.assertTrue(index.isEmpty());
+    }
+
+    @Test
+    void testIntervalTree() {
+        Random random = new Random(1);
+        List<IntervalTree.Interval<Integer>> intervals = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            double base = random.nextInt(100);
+            double low = random.nextInt(10) == 0 ? Double.NEGATIVE_INFINITY : base;
+            double high = random.nextInt(10) == 0 ? Double.POSITIVE_INFINITY : base + random.nextInt(20);
+            intervals.add(new IntervalTree.Interval<>(low, random.nextBoolean(), high, random.nextBoolean(), i));
+        }
+        IntervalTree<Integer> tree = new IntervalTree<>(intervals);
+        Assertions.assertEquals(1000, tree.size());
+
+        for (double value = -5; value < 130; value += 0.5) {
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < intervals.size(); i++) {
+                if (intervals.get(i).contains(value)) {
+                    expected.add(i);
+                }
+            }
+            Set<Integer> actual = new HashSet<>();
+            tree.stab(value, actual::add);
+            Assertions.assertEquals(expected, actual, "value:" + value);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.jetlinks.reactor.ql.supports.join;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCacheTest {
+
+    @Test
+    void testCache() {
+        LookupCache cache = new LookupCache(2, Duration.ofMinutes(1));
+
+        assertNull(cache.get("a"));
+        cache.put("a", Collections.singletonList(1));
+        cache.put("b", Collections.singletonList(2));
+        assertEquals(cache.get("a"), Collections.singletonList(1));
+
+        cache.put("c", Collections.singletonList(3));
+        assertNull(cache.get("b"));
+        assertEquals(cache.size(), 2);
+
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 2);
+    }
+
+    @Test
+    void testNormalizeKey() {
+        assertEquals(LookupCache.normalizeKey(1), LookupCache.normalizeKey("1"));
+        assertEquals(LookupCache.normalizeKey(1L), LookupCache.normalizeKey(1.0D));
+        assertEquals(LookupCache.normalizeKey(1.5F), LookupCache.normalizeKey("1.5"));
+    }
+}
@@ -0,0 +1,55 @@
+package org.jetlinks.reactor.ql.supports.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonRecordTest {
+
+    static final String json = "{\"deviceId\":\"dev-1\", \"temp\" : 36.5,\"count\":10,\"ok\":true,\"none\":null," +
+            "\"tags\":[1,\"a\",{\"b\":2}],\"nest\":{\"name\":\"\\u6d4b\\\"\\u8bd5\",\"arr\":[]},\"es\\\"c\":\"中文\"}";
+
+    @Test
+    void testGet() {
+        JsonRecord record = JsonRecord.of(json.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(10L, record.get("count"));
+        assertEquals("dev-1", record.get("deviceId"));
+        assertEquals(36.5D, record.get("temp"));
+        assertEquals(true, record.get("ok"));
+        assertNull(record.get("none"));
+        assertNull(record.get("missing"));
+        assertFalse(record.containsKey("none"));
+        assertEquals("中文", record.get("es\"c"));
+
+        Object nest = record.get("nest");
+        assertTrue(nest instanceof Map);
+        assertEquals("测\"试", ((Map<?, ?>) nest).get("name"));
+
+        Object tags = record.get("tags");
+        assertEquals(3, ((java.util.List<?>) tags).size());
+        assertEquals(2L, ((Map<?, ?>) ((java.util.List<?>) tags).get(2)).get("b"));
+    }
+
+    @Test
+    void testEntrySet() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.put("{\"a\":1,\"b\":\"2\",\"c\":null}".getBytes(StandardCharsets.UTF_8)).flip();
+        JsonRecord record = JsonRecord.of(buffer);
+
+        assertEquals("2", record.get("b"));
+        assertEquals(2, record.size());
+        assertEquals(Arrays.asList("a", "b"), new java.util.ArrayList<>(record.keySet()));
+    }
+
+    @Test
+    void testError() {
+        assertThrows(IllegalArgumentException.class, () -> JsonRecord.of("[1,2]".getBytes()));
+        assertThrows(IllegalArgumentException.class, () -> JsonRecord.of("{\"a\" 1}".getBytes()).get("a"));
+    }
+}
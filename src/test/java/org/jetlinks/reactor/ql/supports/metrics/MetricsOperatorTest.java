@@ -0,0 +1,46 @@
+package org.jetlinks.reactor.ql.supports.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+
+class MetricsOperatorTest {
+
+    @Test
+    void testQueueDepth() {
+        InMemoryOperatorMetrics metrics = new InMemoryOperatorMetrics("buffer");
+        TestPublisher<Integer> publisher = TestPublisher.create();
+
+        publisher.flux()
+                 .as(new MetricsOperator<Integer>(metrics, flux -> flux.buffer(5).map(list -> list.size())))
+                 .as(StepVerifier::create)
+                 .then(() -> publisher.next(1, 2, 3))
+                 .then(() -> Assertions.assertEquals(3, metrics.getQueueDepth()))
+                 .then(() -> publisher.next(4, 5))
+                 .expectNext(5)
+                 .then(() -> Assertions.assertEquals(0, metrics.getQueueDepth()))
+                 .then(publisher::complete)
+                 .verifyComplete();
+
+        Assertions.assertEquals(5, metrics.getRecordsIn());
+        Assertions.assertEquals(1, metrics.getRecordsOut());
+        Assertions.assertEquals(0, metrics.getCancellations());
+    }
+
+    @Test
+    void testCancel() {
+        InMemoryOperatorMetrics metrics = new InMemoryOperatorMetrics("map");
+
+        Flux.range(0, 10)
+            .as(new MetricsOperator<Integer>(metrics, flux -> flux.map(i -> i * 2)))
+            .take(3)
+            .as(StepVerifier::create)
+            .expectNext(0, 2, 4)
+            .verifyComplete();
+
+        Assertions.assertEquals(3, metrics.getRecordsOut());
+        Assertions.assertEquals(1, metrics.getCancellations());
+    }
+}
@@ -0,0 +1,106 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+class LocalFileStateFeatureTest {
+
+    @Test
+    void testCodec() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("int", 1);
+        map.put("long", -1L);
+        map.put("maxLong", Long.MAX_VALUE);
+        map.put("minInt", Integer.MIN_VALUE);
+        map.put("double", 1.5D);
+        map.put("float", 1.5F);
+        map.put("short", (short) 2);
+        map.put("byte", (byte) 3);
+        map.put("char", 'c');
+        map.put("bool", true);
+        map.put("null", null);
+        map.put("str", "测试");
+        map.put("decimal", new BigDecimal("1.10"));
+        map.put("bigInteger", new BigInteger("123456789012345678901234567890"));
+        map.put("date", new Date(1000));
+        map.put("list", Arrays.asList(1, "2", Collections.singletonMap("3", 4L)));
+        map.put("set", new LinkedHashSet<>(Arrays.asList("a", "b")));
+
+        Object decoded = StateCodec.decode(StateCodec.encode(map));
+        Assertions.assertEquals(map, decoded);
+        Assertions.assertArrayEquals(new byte[]{1, 2}, (byte[]) StateCodec.decode(StateCodec.encode(new byte[]{1, 2})));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> StateCodec.encode(new Object()));
+
+        //作为键编码时与遍历顺序无关
+        Map<String, Object> reversed = new LinkedHashMap<>();
+        List<String> keys = new ArrayList<>(map.keySet());
+        Collections.reverse(keys);
+        keys.forEach(key -> reversed.put(key, map.get(key)));
+        Assertions.assertArrayEquals(StateCodec.encodeKey(map), StateCodec.encodeKey(reversed));
+        Assertions.assertEquals(map, StateCodec.decode(StateCodec.encodeKey(reversed)));
+        Assertions.assertArrayEquals(StateCodec.encodeKey(new LinkedHashSet<>(Arrays.asList("a", "b"))),
+                                     StateCodec.encodeKey(new LinkedHashSet<>(Arrays.asList("b", "a"))));
+        Assertions.assertFalse(Arrays.equals(StateCodec.encodeKey(1), StateCodec.encodeKey(1L)));
+    }
+
+    @Test
+    @SneakyThrows
+    void testRestore() {
+        Path dir = Files.createTempDirectory("reactor-ql-state");
+        Path file = dir.resolve("test");
+
+        LocalFileStateStore store = new LocalFileStateStore(file);
+        store.put("a", 1);
+        store.put("b", Arrays.asList(1, 2));
+        store.checkpoint(false);
+        store.put("c", 3L);
+        store.remove("a");
+        //无法保存的数据被忽略
+        store.put("d", new Object());
+        store.checkpoint(false);
+        Assertions.assertTrue(Files.exists(dir.resolve("test.log")));
+
+        LocalFileStateStore restored = new LocalFileStateStore(file);
+        Assertions.assertEquals(2, restored.size());
+        Assertions.assertNull(restored.get("a"));
+        Assertions.assertEquals(Arrays.asList(1, 2), restored.get("b"));
+        Assertions.assertEquals(3L, restored.get("c"));
+        //恢复后生成快照
+        Assertions.assertFalse(Files.exists(dir.resolve("test.log")));
+
+        restored.clear();
+        restored.put("e", "e");
+        restored.checkpoint(false);
+        //不完整的帧被忽略
+        Files.write(dir.resolve("test.log"), new byte[]{0, 0, 0, 10, 1, 2}, StandardOpenOption.APPEND);
+
+        LocalFileStateStore restored2 = new LocalFileStateStore(file);
+        Assertions.assertEquals(1, restored2.size());
+        Assertions.assertEquals("e", restored2.get("e"));
+    }
+
+    @Test
+    @SneakyThrows
+    void testIgnoreStaleLog() {
+        Path dir = Files.createTempDirectory("reactor-ql-state");
+        Path file = dir.resolve("test");
+        LocalFileStateStore store = new LocalFileStateStore(file);
+        store.put("a", 1);
+        store.checkpoint(false);
+        byte[] log = Files.readAllBytes(dir.resolve("test.log"));
+        store.remove("a");
+        store.checkpoint(true);
+
+        //生成快照后未能删除的旧日志
+        Files.write(dir.resolve("test.log"), log);
+        Assertions.assertEquals(0, new LocalFileStateStore(file).size());
+    }
+}
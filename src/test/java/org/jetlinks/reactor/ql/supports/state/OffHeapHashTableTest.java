@@ -0,0 +1,132 @@
+package org.jetlinks.reactor.ql.supports.state;
+
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.*;
+
+class OffHeapHashTableTest {
+
+    private static byte[] key(int i) {
+        return ("key-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void check(OffHeapHashTable table, Map<Integer, Long> expected) {
+        Assertions.assertEquals(expected.size(), table.size());
+        for (Map.Entry<Integer, Long> entry : expected.entrySet()) {
+            int offset = table.find(key(entry.getKey()));
+            Assertions.assertTrue(offset >= 0, "key:" + entry.getKey());
+            Assertions.assertEquals(entry.getValue(), table.getBuffer().getLong(table.getValueOffset(offset)));
+        }
+        int count = 0;
+        for (int entry = table.nextEntry(-1); entry >= 0; entry = table.nextEntry(entry)) {
+            count++;
+        }
+        Assertions.assertEquals(expected.size(), count);
+    }
+
+    private static void testRandom(BufferAllocator allocator) {
+        OffHeapHashTable table = new OffHeapHashTable(allocator, 16);
+        Map<Integer, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            if (random.nextInt(4) == 0) {
+                Assertions.assertEquals(expected.remove(key) != null, table.remove(key(key)));
+                continue;
+            }
+            int entry = table.find(key(key));
+            if (entry < 0) {
+                //值的长度不同,测试数据区的回收
+                entry = table.allocate(key(key), 8 + random.nextInt(8));
+            }
+            int offset = table.getValueOffset(entry);
+            table.getBuffer().putLong(offset, table.getBuffer().getLong(offset) + 1);
+            expected.merge(key, 1L, Long::sum);
+        }
+        check(table, expected);
+        Assertions.assertTrue(table.getOccupancy() <= 0.75);
+        Assertions.assertTrue(table.getMemoryUsage() > 0);
+
+        table.clear();
+        Assertions.assertEquals(0, table.size());
+        Assertions.assertEquals(-1, table.nextEntry(-1));
+        table.dispose();
+        Assertions.assertEquals(0, table.getMemoryUsage());
+    }
+
+    @Test
+    void testDirect() {
+        testRandom(BufferAllocator.direct());
+    }
+
+    @Test
+    @SneakyThrows
+    void testMapped() {
+        testRandom(BufferAllocator.mapped(Files.createTempDirectory("reactor-ql-offheap")));
+    }
+
+    @Test
+    void testOrderAndReplace() {
+        OffHeapHashTable table = new OffHeapHashTable(BufferAllocator.direct(), 16);
+        for (int i = 0; i < 100; i++) {
+            table.setValue(table.allocate(key(i), 1), 0, new byte[]{(byte) i});
+        }
+        //替换后移动到最后
+        table.setValue(table.allocate(key(0), 2), 0, new byte[]{1, 2});
+        List<String> keys = new ArrayList<>();
+        for (int entry = table.nextEntry(-1); entry >= 0; entry = table.nextEntry(entry)) {
+            keys.add(new String(table.getKey(entry), StandardCharsets.UTF_8));
+        }
+        Assertions.assertEquals(100, keys.size());
+        Assertions.assertEquals("key-1", keys.get(0));
+        Assertions.assertEquals("key-0", keys.get(99));
+        Assertions.assertArrayEquals(new byte[]{1, 2}, table.getValue(table.find(key(0))));
+    }
+
+    @Test
+    void testStateStore() {
+        OffHeapStateStore store = new OffHeapStateStore(new OffHeapHashTable(BufferAllocator.direct(), 16));
+        Assertions.assertNull(store.putIfAbsent(Arrays.asList(1, "a"), true));
+        Assertions.assertEquals(true, store.putIfAbsent(Arrays.asList(1, "a"), false));
+        //类型不同为不同的键
+        Assertions.assertNull(store.putIfAbsent(Arrays.asList(1L, "a"), true));
+        store.put("map", Collections.singletonMap("a", 1));
+        store.put("map", Collections.singletonMap("a", 1000000L));
+        Assertions.assertEquals(Collections.singletonMap("a", 1000000L), store.get("map"));
+        Assertions.assertEquals(3, store.size());
+
+        Map<Object, Object> all = new HashMap<>();
+        store.forEach((key, value) -> {
+            all.put(key, value);
+            store.remove(key);
+        });
+        Assertions.assertEquals(3, all.size());
+        Assertions.assertEquals(0, store.size());
+
+        //Map类型的键与遍历顺序无关
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("a", 1);
+        first.put("b", Collections.singleton("c"));
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("b", Collections.singleton("c"));
+        second.put("a", 1);
+        Assertions.assertNull(store.putIfAbsent(first, true));
+        Assertions.assertEquals(true, store.putIfAbsent(second, false));
+
+        //无法编码的数据保存在堆内存中
+        LocalDateTime time = LocalDateTime.of(2020, 1, 1, 0, 0);
+        Assertions.assertNull(store.putIfAbsent(time, true));
+        Assertions.assertEquals(true, store.putIfAbsent(time, false));
+        store.put("time", time);
+        Assertions.assertEquals(time, store.get("time"));
+        Assertions.assertEquals(3, store.size());
+        store.remove(time);
+        Assertions.assertFalse(store.containsKey(time));
+        Assertions.assertEquals(2, store.size());
+    }
+}
@@ -0,0 +1,124 @@
+package org.jetlinks.reactor.ql.supports.vector;
+
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import org.jetlinks.reactor.ql.DefaultReactorQLContext;
+import org.jetlinks.reactor.ql.ReactorQLRecord;
+import org.jetlinks.reactor.ql.feature.FilterFeature;
+import org.jetlinks.reactor.ql.supports.DefaultReactorQLMetadata;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnBatchTest {
+
+    DefaultReactorQLMetadata metadata = new DefaultReactorQLMetadata("select * from t");
+
+    ColumnBatch batch(List<Map<String, Object>> rows) {
+        DefaultReactorQLContext context = new DefaultReactorQLContext(t -> Flux.empty());
+        return ColumnBatch.of(rows
+                                      .stream()
+                                      .map(row -> ReactorQLRecord.newRecord("t", row, context))
+                                      .collect(Collectors.toList()));
+    }
+
+    Map<String, Object> row(Object... kv) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < kv.length; i += 2) {
+            map.put(String.valueOf(kv[i]), kv[i + 1]);
+        }
+        return map;
+    }
+
+    List<Integer> filter(String where, ColumnBatch batch) throws Exception {
+        VectorPredicate predicate = FilterFeature
+                .createVectorPredicateByExpression(CCJSqlParserUtil.parseCondExpression(where), metadata)
+                .orElseThrow(IllegalStateException::new);
+        SelectionVector selection = predicate.filter(batch, SelectionVector.all(batch.size()));
+        if (selection == null) {
+            return null;
+        }
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < selection.size(); i++) {
+            result.add(selection.get(i));
+        }
+        return result;
+    }
+
+    @Test
+    void testColumnVector() {
+        assertTrue(ColumnVector.of(new Object[]{1, 2L, null}) instanceof LongColumnVector);
+        assertTrue(ColumnVector.of(new Object[]{1.1, 2.2F}) instanceof DoubleColumnVector);
+        assertTrue(ColumnVector.of(new Object[]{1, 2.2}) instanceof ObjectColumnVector);
+
+        ColumnVector vector = ColumnVector.of(new Object[]{"a", "b", null, "a"});
+        assertTrue(vector instanceof StringColumnVector);
+        assertEquals(2, ((StringColumnVector) vector).getDictionary().length);
+        assertEquals("a", vector.getObject(3));
+        assertTrue(vector.isNull(2));
+        assertFalse(vector.isNull(1));
+
+        //保留原始类型
+        assertEquals(1, ColumnVector.of(new Object[]{1, 2L}).getObject(0));
+    }
+
+    @Test
+    void testFilter() throws Exception {
+        ColumnBatch batch = batch(Arrays.asList(
+                row("temp", 10, "type", "a"),
+                row("temp", 20, "type", "b"),
+                row("type", "a"),
+                row("temp", 30, "type", "a")
+        ));
+        assertEquals(Arrays.asList(1, 3), filter("temp > 15", batch));
+        assertEquals(Arrays.asList(0, 1), filter("15 > temp or temp = 20", batch));
+        assertEquals(Arrays.asList(0, 3), filter("type = 'a' and temp >= 10", batch));
+        assertEquals(Arrays.asList(3), filter("temp * 2 + 1 = 61", batch));
+        assertEquals(Arrays.asList(1), filter("temp / 3 = 6", batch));
+        assertEquals(Arrays.asList(1, 3), filter("temp > '15'", batch));
+    }
+
+    @Test
+    void testArithmetic() throws Exception {
+        ColumnBatch batch = batch(Arrays.asList(row("a", 7, "b", 2.5), row("a", 9, "b", null)));
+
+        ColumnVector vector = VectorExpression
+                .create(CCJSqlParserUtil.parseExpression("a / b"), metadata)
+                .orElseThrow(IllegalStateException::new)
+                .evaluate(batch);
+        //与CalculateUtils一致,左侧为整数时使用整数计算
+        assertTrue(vector instanceof LongColumnVector);
+        assertEquals(3L, vector.getObject(0));
+        assertTrue(vector.isNull(1));
+
+        vector = VectorExpression
+                .create(CCJSqlParserUtil.parseExpression("b * a"), metadata)
+                .orElseThrow(IllegalStateException::new)
+                .evaluate(batch);
+        assertEquals(17.5, vector.getObject(0));
+    }
+
+    @Test
+    void testAggregator() {
+        ColumnBatch batch = batch(Arrays.asList(row("a", 7), row("a", 3), row("b", 1), row("a", 11)));
+        VectorExpression column = VectorExpression.column(new net.sf.jsqlparser.schema.Column("a"), metadata);
+
+        VectorAggregator sum = VectorAggregators.sum(column).get();
+        VectorAggregator avg = VectorAggregators.avg(column).get();
+        VectorAggregator max = VectorAggregators.max(column).get();
+        VectorAggregator min = VectorAggregators.min(column).get();
+        VectorAggregator count = VectorAggregators.count().get();
+        for (VectorAggregator aggregator : Arrays.asList(sum, avg, max, min, count)) {
+            aggregator.accumulate(batch);
+            aggregator.accumulate(batch);
+        }
+        assertEquals(42D, sum.getResult());
+        assertEquals(7D, avg.getResult());
+        assertEquals(11, max.getResult());
+        assertEquals(3, min.getResult());
+        assertEquals(8L, count.getResult());
+    }
+}
@@ -3,6 +3,7 @@ package org.jetlinks.reactor.ql.utils;
 import org.hswebframework.utils.time.DateFormatter;
 import org.junit.jupiter.api.Test;
 
+import java.math.BigDecimal;
 import java.time.*;
 import java.util.Arrays;
 import java.util.Collections;
@@ -44,6 +45,23 @@ class CastUtilsTest {
         assertEquals(CastUtils.castNumber("1.1"), 1.1D);
         assertEquals(CastUtils.castNumber("2020-02-01"),
                 DateFormatter.fromString("2020-02-01").getTime());
+        assertEquals(CastUtils.castNumber("20200201"),
+                DateFormatter.fromString("20200201").getTime());
+    }
+
+    @Test
+    void testParseDecimal() {
+        for (String str : Arrays.asList(
+                "0", "-0", "+1", "1.", ".5", "-.5", "12.34", "-12.34", "0.0", "-0.0", "1.50",
+                "123456789012345678", "1234567890123456789", "0.1234567890123456789",
+                "1e2", "1.5E1", "-2.5e-3", "4503599627370497.5")) {
+            BigDecimal decimal = new BigDecimal(str);
+            Number expect = decimal.scale() == 0 ? (Number) decimal.longValue() : (Number) decimal.doubleValue();
+            assertEquals(expect, CastUtils.parseDecimal(str), str);
+        }
+        for (String str : Arrays.asList("", "-", ".", "1.2.3", "1e", "1e+", "e1", "abc", "12a", "2020-02-01")) {
+            assertNull(CastUtils.parseDecimal(str), str);
+        }
     }
 
     @Test
@@ -0,0 +1,56 @@
+package org.jetlinks.reactor.ql.utils;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+import reactor.test.publisher.TestPublisher;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+class FluxUtilsTest {
+
+    @Test
+    void testBufferTimeout() {
+        VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+        TestPublisher<Integer> source = TestPublisher.create();
+        FluxUtils.bufferTimeout(source.flux(), 3, Duration.ofSeconds(1), scheduler)
+                 .as(StepVerifier::create)
+                 .then(() -> source.next(1, 2, 3, 4))
+                 .expectNext(Arrays.asList(1, 2, 3))
+                 .then(() -> scheduler.advanceTimeBy(Duration.ofSeconds(1)))
+                 .expectNext(Arrays.asList(4))
+                 .then(() -> source.next(5))
+                 .then(source::complete)
+                 .expectNext(Arrays.asList(5))
+                 .verifyComplete();
+    }
+
+    @Test
+    void testBufferTimeoutBackpressure() {
+        AtomicLong requested = new AtomicLong();
+        Flux<Integer> source = Flux
+                .range(0, 100000)
+                .doOnRequest(requested::addAndGet);
+        //下游处理缓慢时,定时不会导致溢出,也不会无限制地向上游请求数据
+        FluxUtils.bufferTimeout(source, 10, Duration.ofMillis(1), Schedulers.parallel())
+                 .as(flux -> StepVerifier.create(flux, 1))
+                 .expectNextCount(1)
+                 .thenAwait(Duration.ofMillis(100))
+                 .then(() -> Assertions.assertTrue(requested.get() < 1000, "requested:" + requested.get()))
+                 .thenRequest(Long.MAX_VALUE)
+                 .thenConsumeWhile(list -> list.size() <= 10)
+                 .verifyComplete();
+
+        Assertions.assertEquals(100000, FluxUtils
+                .bufferTimeout(Flux.range(0, 100000), 10, Duration.ofMillis(1), Schedulers.parallel())
+                .flatMapIterable(list -> list)
+                .count()
+                .block()
+                .intValue());
+    }
+}
@@ -0,0 +1,25 @@
+package org.jetlinks.reactor.ql.utils;
+
+import org.hswebframework.utils.time.DateFormatter;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NumberParserTest {
+
+    @Test
+    void test() {
+        NumberParser parser = new NumberParser();
+
+        assertEquals(1L, parser.parse("1"));
+        assertEquals(1.1D, parser.parse("1.1"));
+        assertEquals(16L, parser.parse("0x10"));
+        assertEquals(DateFormatter.fromString("2020-02-01").getTime(), parser.parse("2020-02-01"));
+        assertEquals(DateFormatter.fromString("2020-02-02").getTime(), parser.parse("2020-02-02"));
+        //切换格式
+        assertEquals(2L, parser.parse("2"));
+        assertEquals(DateFormatter.fromString("20200201").getTime(), parser.parse("20200201"));
+        assertEquals(DateFormatter.fromString("2020/02/01").getTime(), parser.parse("2020/02/01"));
+        assertNull(parser.parse("abc"));
+    }
+}
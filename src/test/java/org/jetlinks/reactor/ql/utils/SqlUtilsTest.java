@@ -0,0 +1,47 @@
+package org.jetlinks.reactor.ql.utils;
+
+import lombok.SneakyThrows;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SubSelect;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlUtilsTest {
+
+    @Test
+    void testCorrelated() {
+        assertFalse(isCorrelated("select * from t where id in (select this from ids)"));
+        assertFalse(isCorrelated("select * from t where id in (select i.id from ids i where i.type = 1)"));
+        assertFalse(isCorrelated("select * from t where id in (select this.id from ids)"));
+
+        assertTrue(isCorrelated("select * from t where id in (select id from ids where ids.type = t.type)"));
+        assertTrue(isCorrelated("select * from t a where id in (select id from ids where type = a)"));
+        assertTrue(isCorrelated("select * from t where id in (select id from ids where type = x.type)"));
+    }
+
+    @Test
+    @SneakyThrows
+    void testCommonExpressions() {
+        PlainSelect select = ((PlainSelect) ((Select) CCJSqlParserUtil.parse(
+                "select date_format(ts,'HH:mm') t,avg(v) from s where v + 1 > 10 and (v + 1) < 100 " +
+                        "group by date_format(ts,'HH:mm') having avg(v) > 1")).getSelectBody());
+
+        Set<String> expressions = SqlUtils.getCommonExpressions(select);
+        assertEquals(new HashSet<>(Arrays.asList("date_format(ts, 'HH:mm')", "avg(v)", "v + 1")), expressions);
+    }
+
+    @SneakyThrows
+    private boolean isCorrelated(String sql) {
+        PlainSelect select = ((PlainSelect) ((Select) CCJSqlParserUtil.parse(sql)).getSelectBody());
+        SubSelect subSelect = (SubSelect) ((InExpression) select.getWhere()).getRightItemsList();
+        return SqlUtils.isCorrelated(subSelect, select);
+    }
+}
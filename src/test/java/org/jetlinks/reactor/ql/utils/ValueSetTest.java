@@ -0,0 +1,58 @@
+package org.jetlinks.reactor.ql.utils;
+
+import org.hswebframework.utils.time.DateFormatter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValueSetTest {
+
+    @Test
+    void testNumber() {
+        ValueSet set = ValueSet.of(Arrays.asList(1, 2L, 3.5D));
+
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(1L));
+        assertTrue(set.contains(2.0F));
+        assertTrue(set.contains("3.5"));
+        assertTrue(set.contains(true));
+        assertFalse(set.contains(4));
+        assertFalse(set.contains("a"));
+    }
+
+    @Test
+    void testString() {
+        ValueSet set = ValueSet.of(Arrays.asList("a", "1", "2020-02-01"));
+
+        assertTrue(set.contains("a"));
+        assertTrue(set.contains(1));
+        assertTrue(set.contains(1.0D));
+        assertFalse(set.contains("1.0"));
+        assertFalse(set.contains("b"));
+        assertTrue(set.contains(DateFormatter.fromString("2020-02-01")));
+    }
+
+    @Test
+    void testDate() {
+        long now = System.currentTimeMillis();
+        ValueSet set = ValueSet.of(Arrays.asList(new Date(now)));
+
+        assertTrue(set.contains(now));
+        assertTrue(set.contains(new Date(now).toInstant()));
+        assertFalse(set.contains(now + 1));
+    }
+
+    @Test
+    void testCompareUtils() {
+        Object[] values = {1, 2L, 1.5D, "a", "1", "2020-02-01", true, new Date(0)};
+        ValueSet set = ValueSet.of(Arrays.asList(values));
+        Object[] probes = {1, 1D, 1.5F, "1", "1.0", "a", "b", 0, 0L, "2020-02-01", new Date(0), false, 'a'};
+        for (Object probe : probes) {
+            boolean expect = Arrays.stream(values).anyMatch(v -> CompareUtils.equals(v, probe));
+            assertEquals(expect, set.contains(probe), String.valueOf(probe));
+        }
+    }
+}